@@ -1,6 +1,9 @@
 package com.sneakery.store.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -26,6 +29,9 @@ import java.util.concurrent.TimeUnit;
  *   <li>Development: maximumSize=100</li>
  *   <li>Production: maximumSize=500</li>
  * </ul>
+ *
+ * <p>Cache được tạo động khi dùng lần đầu nên metrics (cache.gets, cache.evictions...) được đăng ký
+ * ngay lúc tạo từng cache thay vì lúc khởi động.
  */
 @Configuration
 @EnableCaching
@@ -38,8 +44,16 @@ public class CacheConfig {
      * cấu hình mặc định từ application.properties
      */
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    public CacheManager cacheManager(MeterRegistry meterRegistry) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache createCaffeineCache(String name) {
+                Cache cache = super.createCaffeineCache(name);
+                CaffeineCacheMetrics.monitor(meterRegistry,
+                        (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache(), name);
+                return cache;
+            }
+        };
         
         // Cấu hình mặc định cho tất cả caches
         // Spring Boot sẽ sử dụng cấu hình từ application.properties nếu có
@@ -0,0 +1,44 @@
+package com.sneakery.store.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Metrics Configuration
+ *
+ * <p>Actuator tự cấu hình phần lớn metrics (expose qua /actuator/prometheus):
+ * <ul>
+ *   <li><b>http.server.requests:</b> latency theo endpoint (histogram bật trong application.properties)</li>
+ *   <li><b>hibernate.*:</b> số câu lệnh, query chậm nhất (cần hibernate.generate_statistics=true)</li>
+ *   <li><b>hikaricp.connections.*:</b> số kết nối đang dùng / rảnh, thời gian chờ lấy kết nối</li>
+ *   <li><b>cache.*:</b> hit / miss / eviction của từng cache Caffeine (đăng ký trong {@link CacheConfig})</li>
+ * </ul>
+ *
+ * <p>Cấu hình này bổ sung số câu SQL Hibernate cho mỗi request API (sneakery.http.jdbc.statements).
+ * Timer nghiệp vụ (sneakery.checkout.stage, sneakery.shipping.fee, sneakery.email.send) nằm trong các service tương ứng.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new RequestStatementCounter());
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestStatementMetricsFilter> requestStatementMetricsFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.metrics.statement-warn-threshold:50}") int warnThreshold) {
+        FilterRegistrationBean<RequestStatementMetricsFilter> registration =
+                new FilterRegistrationBean<>(new RequestStatementMetricsFilter(meterRegistry, warnThreshold));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sneakery.store.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Đếm số câu SQL Hibernate chuẩn bị trong request hiện tại (đăng ký làm StatementInspector trong {@link MetricsConfig})
+ *
+ * <p>Chỉ đếm khi {@link RequestStatementMetricsFilter} đã mở bộ đếm cho luồng hiện tại;
+ * câu lệnh chạy qua JdbcTemplate không đi qua Hibernate nên không được đếm.
+ */
+public class RequestStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    static void begin() {
+        COUNTER.set(new int[1]);
+    }
+
+    static int end() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter != null ? counter[0] : 0;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,58 @@
+package com.sneakery.store.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Ghi số câu SQL Hibernate của mỗi request API vào histogram sneakery.http.jdbc.statements (tag method, uri)
+ * và cảnh báo khi vượt ngưỡng (thường là dấu hiệu N+1)
+ */
+@Slf4j
+public class RequestStatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final String METRIC_NAME = "sneakery.http.jdbc.statements";
+
+    private final MeterRegistry meterRegistry;
+    private final int warnThreshold;
+
+    public RequestStatementMetricsFilter(MeterRegistry meterRegistry, int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        RequestStatementCounter.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = RequestStatementCounter.end();
+            // Dùng pattern của handler (VD: /api/products/{id}) để số series không tăng theo id
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            DistributionSummary.builder(METRIC_NAME)
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(statements);
+            if (statements > warnThreshold) {
+                log.warn("⚠️ {} {} chạy {} câu SQL (ngưỡng {})", request.getMethod(), uri, statements, warnThreshold);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.sneakery.store.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling Configuration
+ * Bật @Scheduled cho các background job (flash sale hết hạn, giải phóng hàng giữ chỗ, ...)
+ *
+ * <p>Thread pool của scheduler được Spring Boot tự cấu hình qua application.properties:
+ * <ul>
+ *   <li>spring.task.scheduling.pool.size: số thread chạy job (mặc định 1, nên đặt 4)</li>
+ *   <li>spring.task.scheduling.thread-name-prefix: prefix tên thread để dễ đọc log</li>
+ * </ul>
+ *
+ * <p><b>Chạy nhiều node:</b> mỗi job phải bọc trong {@code SchedulerLockService.runExclusive}
+ * để chỉ một node thực thi tại một thời điểm (lease lưu trong bảng Scheduler_Locks).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
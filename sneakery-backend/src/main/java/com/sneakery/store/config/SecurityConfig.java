@@ -4,7 +4,9 @@ import com.sneakery.store.security.CustomUserDetailsService;
 import com.sneakery.store.security.JwtAuthenticationFilter;
 // Rate limiting filter - tạm thời comment để tránh lỗi compile với Bucket4j
 // import com.sneakery.store.security.RateLimitingFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -20,6 +22,9 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.DispatcherTypeRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -34,6 +39,10 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final CustomUserDetailsService userDetailsService;
+
+    // -1 = actuator dùng chung cổng với app (mặc định dev)
+    @Value("${management.server.port:-1}")
+    private int managementPort;
     // Rate limiting filter - tạm thời comment để tránh lỗi compile với Bucket4j
     // private final RateLimitingFilter rateLimitingFilter;
 
@@ -48,6 +57,11 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // 1. Cho phép OPTIONS requests (CORS preflight) - không cần authentication
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+
+                        // Async dispatch của kênh SSE (request gốc đã được xác thực bằng ticket); không mở cho async dispatch khác
+                        .requestMatchers(new AndRequestMatcher(
+                                new DispatcherTypeRequestMatcher(DispatcherType.ASYNC),
+                                new AntPathRequestMatcher("/api/notifications/stream"))).permitAll()
                         
                         // 2. Các API Public (Không cần đăng nhập)
                         .requestMatchers("/api/auth/**").permitAll() // API Đăng nhập/Đăng ký/Reset Password
@@ -55,6 +69,11 @@ public class SecurityConfig {
                         // Cho phép test endpoints trong dev (sẽ tự động disable trong production nhờ @Profile)
                         .requestMatchers("/api/test/**").permitAll() // Test endpoints (chỉ hoạt động trong dev profile)
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html", "/swagger-ui/index.html").permitAll() // Swagger
+                        // Actuator: cổng quản trị riêng (management.server.port, không qua reverse proxy) mở cho Prometheus scrape;
+                        // trên cổng app chỉ health là public, prometheus / metrics cần ADMIN
+                        .requestMatchers(request -> managementPort > 0 && request.getLocalPort() == managementPort).permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll() // Health check
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                         // ✅ Cho phép GET public cho Product
                         .requestMatchers(HttpMethod.GET, "/api/products/**").permitAll()
@@ -65,11 +84,15 @@ public class SecurityConfig {
                         // ✅ Cho phép GET public cho Reviews (approved testimonials)
                         .requestMatchers(HttpMethod.GET, "/api/reviews/approved").permitAll()
 
+                        // ✅ Hủy đăng ký newsletter từ link trong email (token ký HMAC)
+                        .requestMatchers(HttpMethod.POST, "/api/newsletter/unsubscribe/token").permitAll()
+
                         // ✅ Cho phép Guest APIs (không cần authentication)
                         .requestMatchers("/api/guest/**").permitAll()
                         
                         // ✅ Cho phép truy cập static files (uploads)
                         .requestMatchers("/uploads/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/media/**").permitAll()
 
                         // ❌ Các request khác yêu cầu xác thực
                         .anyRequest().authenticated()
@@ -1,15 +1,17 @@
 package com.sneakery.store.controller;
 
 import com.sneakery.store.entity.Order;
-import com.sneakery.store.repository.OrderDetailRepository;
+import com.sneakery.store.repository.DailySaleRepository;
 import com.sneakery.store.repository.OrderRepository;
 import com.sneakery.store.repository.PaymentRepository;
 import com.sneakery.store.repository.ProductRepository;
 import com.sneakery.store.repository.UserRepository;
+import com.sneakery.store.service.DailySalesService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -39,11 +41,13 @@ public class AdminAnalyticsController {
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
-    private final OrderDetailRepository orderDetailRepository;
+    private final DailySaleRepository dailySaleRepository;
+    private final DailySalesService dailySalesService;
 
     /**
      * GET /api/admin/analytics/revenue
      * Lấy dữ liệu doanh thu theo period (data thật từ database)
+     * Tiền thực thu theo ngày thanh toán (Payments), không lấy từ Daily_Sales (thành tiền dòng đơn theo ngày đặt)
      */
     @GetMapping("/revenue")
     public ResponseEntity<Map<String, Object>> getRevenueAnalytics(
@@ -95,6 +99,7 @@ public class AdminAnalyticsController {
     /**
      * GET /api/admin/analytics/orders
      * Lấy dữ liệu đơn hàng theo period (data thật từ database)
+     * Đếm mọi đơn được đặt (kể cả chờ xử lý / đã hủy) nên đọc Orders, Daily_Sales chỉ có đơn được tính doanh số
      */
     @GetMapping("/orders")
     public ResponseEntity<Map<String, Object>> getOrderAnalytics(
@@ -145,25 +150,37 @@ public class AdminAnalyticsController {
 
     /**
      * GET /api/admin/analytics/products
-     * Lấy dữ liệu top products bán chạy (data thật từ database)
+     * Lấy dữ liệu top products bán chạy trong period (cộng dồn từ bảng Daily_Sales)
      */
     @GetMapping("/products")
     public ResponseEntity<Map<String, Object>> getProductAnalytics(
-            @RequestParam(defaultValue = "30d") String period
+            @RequestParam(defaultValue = "30d") String period,
+            @RequestParam(defaultValue = "5") int limit
     ) {
-        log.info("📊 GET /api/admin/analytics/products - period: {}", period);
+        log.info("📊 GET /api/admin/analytics/products - period: {}, limit: {}", period, limit);
+        
+        LocalDate startDate = calculateStartDate(period).toLocalDate();
+        LocalDate endDate = LocalDate.now();
         
         // Tổng số sản phẩm
         long totalProducts = productRepository.count();
         
-        // Top sản phẩm bán chạy từ database
-        List<Object[]> topProductsRaw = orderDetailRepository.getTopSellingProducts();
+        // Top sản phẩm bán chạy theo product id (đổi tên sản phẩm không bị tách dòng)
+        List<Object[]> topProductsRaw = dailySaleRepository.findTopProducts(
+                startDate, endDate, PageRequest.of(0, Math.min(Math.max(limit, 1), 50)));
         List<Map<String, Object>> topProducts = new ArrayList<>();
         
         for (Object[] row : topProductsRaw) {
+            BigDecimal revenue = toBigDecimal(row[3]);
+            BigDecimal cost = toBigDecimal(row[4]);
+            
             Map<String, Object> product = new HashMap<>();
-            product.put("name", row[0] != null ? row[0].toString() : "Unknown");
-            product.put("totalSold", row[1] != null ? ((Number) row[1]).longValue() : 0L);
+            product.put("productId", row[0]);
+            product.put("name", row[1] != null ? row[1].toString() : "Unknown");
+            product.put("totalSold", row[2] != null ? ((Number) row[2]).longValue() : 0L);
+            product.put("revenue", revenue.doubleValue());
+            product.put("cost", cost.doubleValue());
+            product.put("profit", revenue.subtract(cost).doubleValue());
             topProducts.add(product);
         }
         
@@ -175,6 +192,89 @@ public class AdminAnalyticsController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * GET /api/admin/analytics/sales
+     * Doanh số theo ngày (số lượng, doanh thu, giá vốn, lợi nhuận gộp) của toàn shop
+     * hoặc của một sản phẩm (productId) trong period
+     */
+    @GetMapping("/sales")
+    public ResponseEntity<Map<String, Object>> getSalesAnalytics(
+            @RequestParam(defaultValue = "30d") String period,
+            @RequestParam(required = false) Long productId
+    ) {
+        log.info("📊 GET /api/admin/analytics/sales - period: {}, productId: {}", period, productId);
+        
+        LocalDate startDate = calculateStartDate(period).toLocalDate();
+        LocalDate endDate = LocalDate.now();
+        
+        List<Object[]> salesData = productId != null
+                ? dailySaleRepository.sumByDayForProduct(productId, startDate, endDate)
+                : dailySaleRepository.sumByDay(startDate, endDate);
+        
+        Map<LocalDate, Object[]> salesMap = new HashMap<>();
+        for (Object[] row : salesData) {
+            salesMap.put((LocalDate) row[0], row);
+        }
+        
+        // Tạo dữ liệu theo ngày với đầy đủ các ngày trong period
+        List<Map<String, Object>> dailyData = new ArrayList<>();
+        long totalUnits = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        
+        for (LocalDate current = startDate; !current.isAfter(endDate); current = current.plusDays(1)) {
+            Object[] row = salesMap.get(current);
+            long units = row != null && row[1] != null ? ((Number) row[1]).longValue() : 0L;
+            BigDecimal revenue = row != null ? toBigDecimal(row[2]) : BigDecimal.ZERO;
+            BigDecimal cost = row != null ? toBigDecimal(row[3]) : BigDecimal.ZERO;
+            totalUnits += units;
+            totalRevenue = totalRevenue.add(revenue);
+            totalCost = totalCost.add(cost);
+            
+            Map<String, Object> dayData = new HashMap<>();
+            dayData.put("date", current.format(DateTimeFormatter.ISO_LOCAL_DATE));
+            dayData.put("units", units);
+            dayData.put("revenue", revenue.doubleValue());
+            dayData.put("cost", cost.doubleValue());
+            dayData.put("profit", revenue.subtract(cost).doubleValue());
+            dailyData.add(dayData);
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("totalUnits", totalUnits);
+        response.put("totalRevenue", totalRevenue.doubleValue());
+        response.put("totalCost", totalCost.doubleValue());
+        response.put("grossProfit", totalRevenue.subtract(totalCost).doubleValue());
+        response.put("data", dailyData);
+        response.put("period", period);
+        if (productId != null) {
+            response.put("productId", productId);
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * POST /api/admin/analytics/sales/backfill
+     * Tính lại bảng Daily_Sales từ lịch sử đơn hàng (chạy nền, chia chunk theo ngày)
+     * from trống = từ đơn được tính đầu tiên (shipped / delivered / completed), to trống = hôm nay
+     */
+    @PostMapping("/sales/backfill")
+    public ResponseEntity<Map<String, Object>> backfillSales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        log.info("📊 POST /api/admin/analytics/sales/backfill - from: {}, to: {}", from, to);
+        
+        int chunks = dailySalesService.startBackfill(from, to);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", chunks > 0 ? "Đã bắt đầu tính lại doanh số theo ngày" : "Chưa có đơn hàng đã giao");
+        response.put("chunks", chunks);
+        
+        return ResponseEntity.accepted().body(response);
+    }
+
     /**
      * GET /api/admin/analytics/order-status
      * Lấy thống kê đơn hàng theo status (data thật từ database)
@@ -421,6 +521,14 @@ public class AdminAnalyticsController {
         long previousOrders = orderRepository.countByCreatedAtBetween(previousPeriodStart, previousPeriodEnd);
         long previousCustomers = userRepository.countByCreatedAtBetween(previousPeriodStart, previousPeriodEnd);
         
+        // Số lượng bán + lợi nhuận gộp cộng dồn từ Daily_Sales (kỳ trước kết thúc ngay trước ngày bắt đầu kỳ hiện tại)
+        Object[] currentSales = sumSales(currentPeriodStart.toLocalDate(), currentPeriodEnd.toLocalDate());
+        Object[] previousSales = sumSales(previousPeriodStart.toLocalDate(), previousPeriodEnd.toLocalDate().minusDays(1));
+        long currentUnits = currentSales[0] != null ? ((Number) currentSales[0]).longValue() : 0L;
+        long previousUnits = previousSales[0] != null ? ((Number) previousSales[0]).longValue() : 0L;
+        double currentProfit = toBigDecimal(currentSales[1]).subtract(toBigDecimal(currentSales[2])).doubleValue();
+        double previousProfit = toBigDecimal(previousSales[1]).subtract(toBigDecimal(previousSales[2])).doubleValue();
+        
         // Tính trends (%)
         double revenueTrend = 0;
         if (previousRevenue.compareTo(BigDecimal.ZERO) > 0) {
@@ -444,30 +552,58 @@ public class AdminAnalyticsController {
             avgOrderValueTrend = ((avgOrderValueCurrent - avgOrderValuePrevious) / avgOrderValuePrevious) * 100;
         }
         
+        double unitsTrend = 0;
+        if (previousUnits > 0) {
+            unitsTrend = ((double)(currentUnits - previousUnits) / previousUnits) * 100;
+        }
+        
+        double profitTrend = 0;
+        if (previousProfit > 0) {
+            profitTrend = ((currentProfit - previousProfit) / previousProfit) * 100;
+        }
+        
         Map<String, Object> response = new HashMap<>();
         response.put("current", Map.of(
             "revenue", currentRevenue.doubleValue(),
             "orders", currentOrders,
             "customers", currentCustomers,
-            "avgOrderValue", avgOrderValueCurrent
+            "avgOrderValue", avgOrderValueCurrent,
+            "unitsSold", currentUnits,
+            "grossProfit", currentProfit
         ));
         response.put("previous", Map.of(
             "revenue", previousRevenue.doubleValue(),
             "orders", previousOrders,
             "customers", previousCustomers,
-            "avgOrderValue", avgOrderValuePrevious
+            "avgOrderValue", avgOrderValuePrevious,
+            "unitsSold", previousUnits,
+            "grossProfit", previousProfit
         ));
         response.put("trends", Map.of(
             "revenue", revenueTrend,
             "orders", ordersTrend,
             "customers", customersTrend,
-            "avgOrderValue", avgOrderValueTrend
+            "avgOrderValue", avgOrderValueTrend,
+            "unitsSold", unitsTrend,
+            "grossProfit", profitTrend
         ));
         
         return ResponseEntity.ok(response);
     }
 
     // Helper methods
+    private Object[] sumSales(LocalDate startDate, LocalDate endDate) {
+        List<Object[]> rows = dailySaleRepository.sumTotals(startDate, endDate);
+        return rows.isEmpty() ? new Object[3] : rows.get(0);
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal ? (BigDecimal) value : BigDecimal.valueOf(((Number) value).doubleValue());
+    }
+
     private LocalDateTime calculateStartDate(String period) {
         LocalDateTime now = LocalDateTime.now();
         switch (period) {
@@ -5,6 +5,8 @@ import com.sneakery.store.dto.UserDto;
 import com.sneakery.store.exception.DatabaseOperationException;
 import com.sneakery.store.repository.*;
 import com.sneakery.store.service.AdminUserService;
+import com.sneakery.store.service.CartLifecycleService;
+import com.sneakery.store.service.CustomerSegmentationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +39,8 @@ public class AdminController {
 
     private final OrderRepository orderRepository;
     private final AdminUserService adminUserService;
+    private final CustomerSegmentationService customerSegmentationService;
+    private final CartLifecycleService cartLifecycleService;
     private final BrandRepository brandRepository;
     private final CategoryRepository categoryRepository;
     private final ReviewRepository reviewRepository;
@@ -154,15 +158,17 @@ public class AdminController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String role,
-            @RequestParam(required = false) Boolean isActive
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) String segment
     ) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("id").descending());
         
         // Nếu có search hoặc filters, sử dụng method với filters
         if ((search != null && !search.trim().isEmpty()) || 
             (role != null && !role.trim().isEmpty()) ||
-            isActive != null) {
-            Page<UserDto> userPage = adminUserService.getAllUsersWithFilters(search, role, isActive, pageable);
+            isActive != null ||
+            (segment != null && !segment.trim().isEmpty())) {
+            Page<UserDto> userPage = adminUserService.getAllUsersWithFilters(search, role, isActive, segment, pageable);
             return ResponseEntity.ok(userPage);
         }
         
@@ -171,6 +177,36 @@ public class AdminController {
         return ResponseEntity.ok(userPage);
     }
 
+    /**
+     * API: Số khách hàng theo phân khúc RFM
+     */
+    @GetMapping("/users/segments")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getUserSegments() {
+        return ResponseEntity.ok(adminUserService.getSegmentSummary());
+    }
+
+    /**
+     * API: Tính lại phân khúc RFM ngay (chạy nền, bình thường job chạy mỗi đêm)
+     */
+    @PostMapping("/users/segments/recompute")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, String>> recomputeUserSegments() {
+        customerSegmentationService.startCompute();
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Đã bắt đầu tính lại phân khúc khách hàng");
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * API: Kết quả các job nhắc giỏ bỏ quên / dọn giỏ guest hết hạn (số dòng, thời gian batch dài nhất)
+     */
+    @GetMapping("/carts/lifecycle")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCartLifecycleStats() {
+        return ResponseEntity.ok(cartLifecycleService.getStats());
+    }
+
     /**
      * API: Lấy thông tin user theo ID
      */
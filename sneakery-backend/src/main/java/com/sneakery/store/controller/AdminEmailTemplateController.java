@@ -3,6 +3,7 @@ package com.sneakery.store.controller;
 import com.sneakery.store.entity.EmailTemplate;
 import com.sneakery.store.exception.EmailTemplateNotFoundException;
 import com.sneakery.store.repository.EmailTemplateRepository;
+import com.sneakery.store.service.EmailTemplateCacheService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +34,7 @@ import java.util.Objects;
 public class AdminEmailTemplateController {
 
     private final EmailTemplateRepository emailTemplateRepository;
+    private final EmailTemplateCacheService emailTemplateCacheService;
 
     /**
      * GET /api/admin/email-templates
@@ -81,6 +83,8 @@ public class AdminEmailTemplateController {
         log.info("📧 Creating email template: {}", template.getTemplateName());
         
         EmailTemplate savedTemplate = emailTemplateRepository.save(template);
+        // Có thể đã cache "không tìm thấy" cho tên này
+        emailTemplateCacheService.evict(savedTemplate.getTemplateName());
         return new ResponseEntity<>(savedTemplate, HttpStatus.CREATED);
     }
 
@@ -96,12 +100,17 @@ public class AdminEmailTemplateController {
         log.info("📧 Updating email template ID: {}", id);
         
         Integer nonNullId = Objects.requireNonNull(id);
-        if (!emailTemplateRepository.existsById(nonNullId)) {
+        EmailTemplate existing = emailTemplateRepository.findById(nonNullId).orElse(null);
+        if (existing == null) {
             return ResponseEntity.notFound().build();
         }
+        String previousName = existing.getTemplateName();
         
         template.setId(nonNullId);
         EmailTemplate updatedTemplate = emailTemplateRepository.save(template);
+        // Evict cả tên cũ nếu template bị đổi tên
+        emailTemplateCacheService.evict(previousName);
+        emailTemplateCacheService.evict(updatedTemplate.getTemplateName());
         return ResponseEntity.ok(updatedTemplate);
     }
 
@@ -114,11 +123,13 @@ public class AdminEmailTemplateController {
         log.info("🗑️ Deleting email template ID: {}", id);
         
         Integer nonNullId = Objects.requireNonNull(id);
-        if (!emailTemplateRepository.existsById(nonNullId)) {
+        EmailTemplate existing = emailTemplateRepository.findById(nonNullId).orElse(null);
+        if (existing == null) {
             return ResponseEntity.notFound().build();
         }
         
         emailTemplateRepository.deleteById(nonNullId);
+        emailTemplateCacheService.evict(existing.getTemplateName());
         return ResponseEntity.ok("Đã xóa email template thành công");
     }
 
@@ -135,6 +146,7 @@ public class AdminEmailTemplateController {
         
         template.setIsActive(!Boolean.TRUE.equals(template.getIsActive()));
         EmailTemplate updatedTemplate = emailTemplateRepository.save(template);
+        emailTemplateCacheService.evict(updatedTemplate.getTemplateName());
         
         return ResponseEntity.ok(updatedTemplate);
     }
@@ -1,10 +1,12 @@
 package com.sneakery.store.controller;
 
+import com.sneakery.store.dto.RestockAdviceDto;
 import com.sneakery.store.entity.InventoryLog;
 import com.sneakery.store.entity.ProductVariant;
 import com.sneakery.store.exception.InventoryLogNotFoundException;
 import com.sneakery.store.repository.InventoryLogRepository;
 import com.sneakery.store.repository.ProductVariantRepository;
+import com.sneakery.store.service.RestockAdvisorService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -15,6 +17,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -31,6 +35,7 @@ public class AdminInventoryController {
 
     private final InventoryLogRepository inventoryLogRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final RestockAdvisorService restockAdvisorService;
 
     /**
      * GET /api/admin/inventory/logs
@@ -86,6 +91,39 @@ public class AdminInventoryController {
         return ResponseEntity.ok(variants);
     }
 
+    /**
+     * GET /api/admin/inventory/restock/at-risk
+     * Các biến thể sắp hết hàng theo tốc độ bán (số ngày còn đủ bán, số lượng nên nhập)
+     * sort: daysOfCover (mặc định), velocity, suggestedQuantity, available
+     */
+    @GetMapping("/restock/at-risk")
+    public ResponseEntity<Page<RestockAdviceDto>> getAtRiskVariants(
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "20") int size,
+        @RequestParam(defaultValue = "daysOfCover") String sort,
+        @RequestParam(defaultValue = "asc") String direction
+    ) {
+        log.info("📦 Fetching at-risk variants - page: {}, size: {}, sort: {} {}", page, size, sort, direction);
+        
+        return ResponseEntity.ok(restockAdvisorService.getAtRiskVariants(
+            sort, direction, Math.max(page, 0), Math.min(Math.max(size, 1), 100)));
+    }
+
+    /**
+     * POST /api/admin/inventory/restock/recompute
+     * Tính lại toàn bộ tốc độ bán từ Daily_Sales (chạy nền)
+     */
+    @PostMapping("/restock/recompute")
+    public ResponseEntity<Map<String, String>> recomputeRestock() {
+        log.info("📦 Recomputing restock advisor");
+        
+        restockAdvisorService.startRecompute();
+        
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Đã bắt đầu tính lại tốc độ bán");
+        return ResponseEntity.accepted().body(response);
+    }
+
     /**
      * GET /api/admin/inventory/logs/{id}
      * Lấy chi tiết một inventory log
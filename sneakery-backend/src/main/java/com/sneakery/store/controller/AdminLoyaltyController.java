@@ -135,7 +135,7 @@ public class AdminLoyaltyController {
         loyaltyPoint.setTransactionType("adjustment");
         loyaltyPoint.setDescription(reason);
         
-        LoyaltyPoint saved = loyaltyPointRepository.save(loyaltyPoint);
+        LoyaltyPoint saved = loyaltyService.recordTransaction(loyaltyPoint);
         
         return ResponseEntity.ok(mapToDto(saved));
     }
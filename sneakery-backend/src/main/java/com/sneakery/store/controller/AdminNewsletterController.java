@@ -0,0 +1,91 @@
+package com.sneakery.store.controller;
+
+import com.sneakery.store.entity.NewsletterCampaign;
+import com.sneakery.store.entity.User;
+import com.sneakery.store.service.NewsletterCampaignService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin Newsletter Controller
+ * Tạo và theo dõi chiến dịch gửi newsletter tới subscriber
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/newsletter/campaigns")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@CrossOrigin(origins = {"http://localhost:5173", "http://127.0.0.1:5173"})
+public class AdminNewsletterController {
+
+    private static final int MAX_DELIVERIES = 500;
+
+    private final NewsletterCampaignService newsletterCampaignService;
+
+    /**
+     * Tạo chiến dịch newsletter từ email template (gửi nền, trả về 202 ngay)
+     * Theo dõi tiến độ qua GET /api/admin/newsletter/campaigns/{id}
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createCampaign(@RequestBody Map<String, String> request,
+                                                              @AuthenticationPrincipal User userPrincipal) {
+        log.info("📍 POST /api/admin/newsletter/campaigns - template: {}", request.get("templateName"));
+
+        NewsletterCampaign campaign = newsletterCampaignService.enqueue(
+                request.get("templateName"), userPrincipal != null ? userPrincipal.getEmail() : null);
+
+        return ResponseEntity.accepted().body(mapCampaign(campaign));
+    }
+
+    /**
+     * Tiến độ chiến dịch newsletter
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getCampaign(@PathVariable Long id) {
+        log.info("📍 GET /api/admin/newsletter/campaigns/{}", id);
+        return ResponseEntity.ok(mapCampaign(newsletterCampaignService.getCampaign(id)));
+    }
+
+    /**
+     * Trạng thái gửi theo từng người nhận (?status=failed để xem email lỗi)
+     */
+    @GetMapping("/{id}/deliveries")
+    public ResponseEntity<List<Map<String, Object>>> getDeliveries(
+            @PathVariable Long id,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "100") int limit) {
+        log.info("📍 GET /api/admin/newsletter/campaigns/{}/deliveries - status: {}", id, status);
+        int safeLimit = Math.min(Math.max(limit, 1), MAX_DELIVERIES);
+        return ResponseEntity.ok(newsletterCampaignService.getDeliveries(id, status, safeLimit));
+    }
+
+    private Map<String, Object> mapCampaign(NewsletterCampaign campaign) {
+        int total = campaign.getTotalRecipients();
+        int processed = campaign.getSentCount() + campaign.getFailedCount() + campaign.getSkippedCount();
+        int progress = "completed".equals(campaign.getStatus()) ? 100
+                : total > 0 ? Math.min(99, processed * 100 / total) : 0;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", campaign.getId());
+        response.put("templateName", campaign.getTemplateName());
+        response.put("status", campaign.getStatus());
+        response.put("totalRecipients", total);
+        response.put("queuedCount", campaign.getQueuedCount());
+        response.put("sentCount", campaign.getSentCount());
+        response.put("failedCount", campaign.getFailedCount());
+        response.put("skippedCount", campaign.getSkippedCount());
+        response.put("progressPercent", progress);
+        response.put("lastError", campaign.getLastError());
+        response.put("createdAt", campaign.getCreatedAt());
+        response.put("completedAt", campaign.getCompletedAt());
+        return response;
+    }
+}
@@ -2,8 +2,11 @@ package com.sneakery.store.controller;
 
 import com.sneakery.store.dto.NotificationDto;
 import com.sneakery.store.entity.Notification;
+import com.sneakery.store.entity.NotificationCampaign;
 import com.sneakery.store.exception.NotificationNotFoundException;
 import com.sneakery.store.repository.NotificationRepository;
+import com.sneakery.store.service.NotificationFanoutService;
+import com.sneakery.store.service.NotificationPushService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -31,6 +34,8 @@ import java.util.Objects;
 public class AdminNotificationController {
 
     private final NotificationRepository notificationRepository;
+    private final NotificationPushService notificationPushService;
+    private final NotificationFanoutService notificationFanoutService;
     
     /**
      * Map entity sang DTO để tránh lỗi Hibernate proxy
@@ -131,12 +136,51 @@ public class AdminNotificationController {
     public ResponseEntity<Map<String, String>> deleteNotification(@PathVariable Long id) {
         log.info("📍 DELETE /api/admin/notifications/{}", id);
         
-        notificationRepository.deleteById(Objects.requireNonNull(id));
+        notificationRepository.findByIdWithUser(Objects.requireNonNull(id))
+                .ifPresent(notification -> notificationPushService.invalidateUnreadCount(notification.getUser().getId()));
+        notificationRepository.deleteById(id);
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Đã xóa thông báo thành công");
         
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Gửi thông báo khuyến mãi tới toàn bộ khách hàng, hoặc một phân khúc RFM nếu có "segment"
+     * Chỉ tạo chiến dịch; thông báo được ghi nền theo chunk bởi NotificationFanoutService
+     */
+    @PostMapping("/promotions")
+    public ResponseEntity<Map<String, Object>> broadcastPromotion(@RequestBody Map<String, String> request) {
+        log.info("📍 POST /api/admin/notifications/promotions");
+
+        NotificationCampaign campaign = notificationFanoutService.enqueuePromotion(
+                request.get("title"), request.get("message"), request.get("link"), request.get("segment"));
+
+        return ResponseEntity.accepted().body(mapCampaign(campaign));
+    }
+
+    /**
+     * Tiến độ chiến dịch gửi thông báo hàng loạt
+     */
+    @GetMapping("/campaigns/{id}")
+    public ResponseEntity<Map<String, Object>> getCampaign(@PathVariable Long id) {
+        log.info("📍 GET /api/admin/notifications/campaigns/{}", id);
+        return ResponseEntity.ok(mapCampaign(notificationFanoutService.getCampaign(id)));
+    }
+
+    private Map<String, Object> mapCampaign(NotificationCampaign campaign) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", campaign.getId());
+        response.put("type", campaign.getType());
+        response.put("title", campaign.getTitle());
+        response.put("audience", campaign.getAudience());
+        response.put("segment", campaign.getSegment());
+        response.put("status", campaign.getStatus());
+        response.put("sentCount", campaign.getSentCount());
+        response.put("createdAt", campaign.getCreatedAt());
+        response.put("completedAt", campaign.getCompletedAt());
+        return response;
+    }
 }
 
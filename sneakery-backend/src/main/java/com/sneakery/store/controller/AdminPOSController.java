@@ -2,10 +2,13 @@ package com.sneakery.store.controller;
 
 import com.sneakery.store.dto.OrderDto;
 import com.sneakery.store.dto.POSOrderRequestDto;
+import com.sneakery.store.exception.ApiException;
 import com.sneakery.store.service.AdminOrderService;
+import com.sneakery.store.service.PosSkuIndexService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -59,6 +62,23 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 public class AdminPOSController {
 
     private final AdminOrderService adminOrderService;
+    private final PosSkuIndexService posSkuIndexService;
+
+    /**
+     * Quét mã vạch / nhập SKU để thêm vào giỏ POS
+     *
+     * <p>Tra trong index SKU trong bộ nhớ (không truy vấn DB). Tồn kho trả về là ảnh chụp gần nhất;
+     * tồn kho thực tế được kiểm tra lại khi tạo đơn.
+     *
+     * @param code SKU / mã vạch (không phân biệt hoa thường)
+     * @return Biến thể tương ứng (HTTP 200) hoặc 404 nếu không có biến thể đang bán với mã này
+     */
+    @GetMapping("/scan")
+    public ResponseEntity<PosSkuIndexService.PosVariant> scan(@RequestParam String code) {
+        return posSkuIndexService.findByCode(code)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Không tìm thấy sản phẩm với mã: " + code));
+    }
 
     /**
      * Tạo đơn hàng từ POS (Point of Sale)
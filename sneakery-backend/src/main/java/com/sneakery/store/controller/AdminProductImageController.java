@@ -1,7 +1,7 @@
 package com.sneakery.store.controller;
 
 import com.sneakery.store.dto.ProductImagePublicDto;
-import com.sneakery.store.service.ProductImageService;
+import com.sneakery.store.service.ProductImageIndexService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,13 +15,13 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AdminProductImageController {
 
-    private final ProductImageService productImageService;
+    private final ProductImageIndexService productImageIndexService;
 
     /**
-     * Admin: lấy toàn bộ ảnh gallery theo product (giống y API public)
+     * Admin: lấy toàn bộ ảnh gallery theo product (đọc từ index trong bộ nhớ)
      */
     @GetMapping
     public ResponseEntity<List<ProductImagePublicDto>> getAllImagesAdmin() {
-        return ResponseEntity.ok(productImageService.getAllImagesPublic());
+        return ResponseEntity.ok(productImageIndexService.findAll());
     }
 }
@@ -0,0 +1,134 @@
+package com.sneakery.store.controller;
+
+import com.sneakery.store.service.LocalMediaStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * MediaController
+ * ---------------
+ * API PUBLIC phục vụ ảnh local content-addressed: /media/{shard}/{hash}[_{size}].{ext}
+ *
+ * <ul>
+ *   <li>Tên file là hash nội dung nên bản gốc / derivative được cache vĩnh viễn (immutable)</li>
+ *   <li>ETag = hash, hỗ trợ If-None-Match (304) và Range một đoạn (206)</li>
+ *   <li>Body ghi bằng sendfile của Tomcat nếu connector hỗ trợ, ngược lại FileChannel.transferTo</li>
+ * </ul>
+ */
+@Slf4j
+@RestController
+@RequestMapping("/media")
+@RequiredArgsConstructor
+public class MediaController {
+
+    private static final String IMMUTABLE_CACHE = "public, max-age=31536000, immutable";
+    // Derivative chưa tạo xong: trả bản gốc nhưng chỉ cache ngắn
+    private static final String FALLBACK_CACHE = "public, max-age=60";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final LocalMediaStorageService localMediaStorageService;
+
+    @GetMapping("/{shard}/{fileName:.+}")
+    public void serve(@PathVariable String shard,
+                      @PathVariable String fileName,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+
+        LocalMediaStorageService.ResolvedMedia media = localMediaStorageService.resolve(shard, fileName).orElse(null);
+        if (media == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = Files.size(media.path());
+        String etag = "\"" + media.etag() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, media.fallback() ? FALLBACK_CACHE : IMMUTABLE_CACHE);
+        response.setContentType(contentType(media.extension()));
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(etag))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Nhiều đoạn (multipart/byteranges) ít dùng cho ảnh: trả toàn bộ file
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        // Zero-copy: để Tomcat gửi file bằng sendfile sau khi handler trả về
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, media.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(media.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    private static String contentType(String extension) {
+        return switch (extension) {
+            case "png" -> MediaType.IMAGE_PNG_VALUE;
+            case "webp" -> "image/webp";
+            default -> MediaType.IMAGE_JPEG_VALUE;
+        };
+    }
+}
@@ -91,6 +91,26 @@ public class NewsletterController {
         return ResponseEntity.ok(new MessageResponse("Hủy đăng ký thành công"));
     }
 
+    /**
+     * Hủy đăng ký từ link trong email newsletter (Public)
+     *
+     * @param request DTO chứa token ký HMAC trong link (trang /newsletter/unsubscribe của frontend gửi lên)
+     * @return ResponseEntity với message thành công (HTTP 200 OK)
+     * @throws ApiException nếu token không hợp lệ hoặc email không tồn tại
+     */
+    @Operation(summary = "Hủy đăng ký nhận tin từ link email", description = "Hủy đăng ký bằng token ký trong link của email newsletter. Endpoint công khai, không cần đăng nhập.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Hủy đăng ký thành công"),
+        @ApiResponse(responseCode = "400", description = "Link hủy đăng ký không hợp lệ"),
+        @ApiResponse(responseCode = "404", description = "Email chưa đăng ký")
+    })
+    @PostMapping("/unsubscribe/token")
+    public ResponseEntity<MessageResponse> unsubscribeByToken(@Valid @RequestBody NewsletterUnsubscribeTokenRequest request) {
+        log.info("📍 POST /api/newsletter/unsubscribe/token");
+        newsletterService.unsubscribeByToken(request.getToken());
+        return ResponseEntity.ok(new MessageResponse("Hủy đăng ký thành công"));
+    }
+
     @Data
     public static class NewsletterSubscribeRequest {
         @NotBlank(message = "Email không được để trống")
@@ -105,6 +125,12 @@ public class NewsletterController {
         private String email;
     }
 
+    @Data
+    public static class NewsletterUnsubscribeTokenRequest {
+        @NotBlank(message = "Thiếu token hủy đăng ký")
+        private String token;
+    }
+
     @Data
     @RequiredArgsConstructor
     public static class MessageResponse {
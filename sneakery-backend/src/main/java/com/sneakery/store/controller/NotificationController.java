@@ -3,16 +3,20 @@ package com.sneakery.store.controller;
 import com.sneakery.store.entity.Notification;
 import com.sneakery.store.entity.User;
 import com.sneakery.store.exception.AuthenticationException;
+import com.sneakery.store.security.SseTicketProvider;
+import com.sneakery.store.service.NotificationPushService;
 import com.sneakery.store.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -30,6 +34,8 @@ import java.util.Map;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationPushService notificationPushService;
+    private final SseTicketProvider sseTicketProvider;
 
     /**
      * Helper method to get userId from Authentication
@@ -59,6 +65,31 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    /**
+     * Đổi JWT (header) lấy ticket ngắn hạn để mở kênh SSE: EventSource không gửi được header,
+     * ticket nằm trong URL thay cho JWT và chỉ mở được /stream
+     */
+    @PostMapping("/stream-ticket")
+    public ResponseEntity<Map<String, Object>> createStreamTicket(Authentication authentication) {
+        getUserIdFromAuthentication(authentication);
+        Map<String, Object> response = new HashMap<>();
+        response.put("ticket", sseTicketProvider.createTicket(authentication.getName()));
+        response.put("expiresInSeconds", sseTicketProvider.getTtlSeconds());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Kênh SSE: đẩy thông báo mới và số unread, thay cho polling /unread-count
+     * Xác thực bằng ?ticket= lấy từ POST /stream-ticket
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(Authentication authentication) {
+        Long userId = getUserIdFromAuthentication(authentication);
+        log.debug("📍 GET /api/notifications/stream - User: {}", userId);
+
+        return notificationPushService.subscribe(userId);
+    }
+
     /**
      * Đếm unread notifications
      */
@@ -5,9 +5,13 @@ import com.sneakery.store.dto.BrandDto;
 import com.sneakery.store.dto.CategoryDto;
 import com.sneakery.store.dto.CategoryGroupDto;
 import com.sneakery.store.dto.ProductCardDto;
+import com.sneakery.store.dto.ProductFacetSearchDto;
 import com.sneakery.store.service.BrandService;
 import com.sneakery.store.service.CategoryService;
+import com.sneakery.store.service.ProductFacetIndexService.Facet;
 import com.sneakery.store.service.ProductService;
+import com.sneakery.store.service.ProductSuggestIndexService;
+import com.sneakery.store.service.ProductSuggestIndexService.Suggestion;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -22,7 +26,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -73,6 +79,9 @@ public class ProductController {
     @Autowired
     private BrandService brandService;
 
+    @Autowired
+    private ProductSuggestIndexService productSuggestIndexService;
+
     /**
      * Lấy danh sách sản phẩm với phân trang (Public)
      * 
@@ -293,13 +302,41 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
+    /**
+     * Sản phẩm liên quan (tính sẵn theo brand, category, giá và lịch sử mua chung).
+     * brandId chỉ dùng khi sản phẩm chưa có kết quả tính sẵn; categoryIds giữ lại cho client cũ
+     */
     @GetMapping("/{id}/related")
     public List<ProductCardDto> getRelated(
             @PathVariable Long id,
-            @RequestParam Long brandId,
-            @RequestParam List<Long> categoryIds) {
+            @RequestParam(required = false) Long brandId,
+            @RequestParam(required = false) List<Long> categoryIds) {
 
-        return productService.getRelatedProducts(id, brandId, categoryIds, 4);
+        return productService.getRelatedProducts(id, brandId, 4);
+    }
+
+    /**
+     * Sản phẩm thường được mua cùng sản phẩm này (Public)
+     */
+    @Operation(summary = "Sản phẩm thường được mua cùng", description = "Top sản phẩm xuất hiện cùng sản phẩm này trong các đơn đã giao.")
+    @GetMapping("/{id}/bought-together")
+    public List<ProductCardDto> getBoughtTogether(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "4") int limit) {
+
+        return productService.getFrequentlyBoughtTogether(id, Math.min(Math.max(limit, 1), 20));
+    }
+
+    /**
+     * Sản phẩm thường được mua cùng các sản phẩm trong giỏ hiện tại (Public, client gửi id sản phẩm trong giỏ)
+     */
+    @Operation(summary = "Gợi ý mua cùng cho giỏ hàng", description = "Top sản phẩm thường được mua cùng các sản phẩm trong giỏ (không gồm sản phẩm đã có trong giỏ).")
+    @GetMapping("/bought-together")
+    public List<ProductCardDto> getBoughtTogetherForCart(
+            @RequestParam List<Long> productIds,
+            @RequestParam(defaultValue = "4") int limit) {
+
+        return productService.getFrequentlyBoughtTogetherForCart(productIds, Math.min(Math.max(limit, 1), 20));
     }
 
     @GetMapping("/search")
@@ -311,4 +348,62 @@ public class ProductController {
     ) {
         return productService.searchProductsAdvanced(brand, category, page, size);
     }
+
+    /**
+     * Lọc sản phẩm theo facet kèm số lượng cho từng giá trị (Public)
+     *
+     * <p>Mỗi tham số nhận nhiều giá trị (lặp lại tham số hoặc ngăn cách bằng dấu phẩy):
+     * các giá trị trong cùng facet được OR, các facet khác nhau được AND.
+     * price nhận khoảng dạng "1000000-2000000" / "5000000+", stock nhận "in_stock" / "out_of_stock".
+     */
+    @Operation(summary = "Lọc sản phẩm theo facet", description = "Lọc theo brand, category, size, màu, khoảng giá, tồn kho và trả về số lượng sản phẩm cho từng giá trị facet.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lọc thành công")
+    })
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetSearchDto> searchByFacets(
+            @RequestParam(required = false) List<String> brand,
+            @RequestParam(required = false) List<String> category,
+            @RequestParam(required = false) List<String> shoeSize,
+            @RequestParam(required = false) List<String> color,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) List<String> stock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        Map<Facet, List<String>> selections = new EnumMap<>(Facet.class);
+        putIfPresent(selections, Facet.BRAND, brand);
+        putIfPresent(selections, Facet.CATEGORY, category);
+        putIfPresent(selections, Facet.SIZE, shoeSize);
+        putIfPresent(selections, Facet.COLOR, color);
+        putIfPresent(selections, Facet.PRICE, price);
+        putIfPresent(selections, Facet.STOCK, stock);
+
+        int pageSize = Math.min(Math.max(size, 1), 100);
+        return ResponseEntity.ok(productService.searchProductsFaceted(selections, Math.max(page, 0), pageSize));
+    }
+
+    /**
+     * Gợi ý khi gõ ô tìm kiếm (Public)
+     *
+     * <p>Trả về sản phẩm, brand, category và SKU có tên / mã bắt đầu bằng chuỗi đã gõ (không dấu,
+     * không phân biệt hoa thường), phổ biến nhất trước. Phục vụ từ index trong bộ nhớ, không truy vấn DB.
+     */
+    @Operation(summary = "Gợi ý tìm kiếm", description = "Gợi ý sản phẩm, thương hiệu, danh mục, SKU theo tiền tố chuỗi đang gõ.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lấy gợi ý thành công")
+    })
+    @GetMapping("/suggest")
+    public ResponseEntity<List<Suggestion>> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "8") int limit
+    ) {
+        return ResponseEntity.ok(productSuggestIndexService.suggest(q, Math.min(Math.max(limit, 1), 20)));
+    }
+
+    private static void putIfPresent(Map<Facet, List<String>> selections, Facet facet, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            selections.put(facet, values);
+        }
+    }
 }
\ No newline at end of file
@@ -1,16 +1,22 @@
 package com.sneakery.store.controller;
 
 import com.sneakery.store.dto.ProductImageDto;
+import com.sneakery.store.entity.ImageSyncJob;
+import com.sneakery.store.entity.User;
 import com.sneakery.store.service.ProductImageService;
+import com.sneakery.store.service.ProductImageSyncService;
 import com.sneakery.store.util.FileValidationUtil;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller: ProductImageController
@@ -58,6 +64,22 @@ public class ProductImageController {
         return ResponseEntity.ok(dto);
     }
 
+    // ==========================================================
+    // [POST] UPLOAD NHIỀU FILE (multipart/form-data, field "files")
+    // ==========================================================
+    /**
+     * Upload tối đa {@code MAX_IMAGES_PER_PRODUCT} ảnh trong 1 request.
+     * File được kiểm tra magic bytes và upload song song; các dòng ảnh được ghi 1 lần.
+     * Kết quả trả về theo đúng thứ tự file gửi lên.
+     */
+    @PostMapping(value = "/upload-batch", consumes = "multipart/form-data")
+    public ResponseEntity<List<ProductImageDto>> uploadProductImages(@PathVariable Long productId,
+                                                                     @RequestParam("files") List<MultipartFile> files,
+                                                                     @RequestParam(value = "displayOrders", required = false) List<Integer> displayOrders,
+                                                                     @RequestParam(value = "primaryIndex", required = false) Integer primaryIndex) {
+        return ResponseEntity.ok(productImageService.uploadImageFiles(productId, files, displayOrders, primaryIndex));
+    }
+
     // ==========================================================
     // [DELETE] XOÁ ẢNH THEO URL (FE gửi { "imageUrl": "..." })
     // ==========================================================
@@ -99,36 +121,48 @@ public class ProductImageController {
 @RequiredArgsConstructor
 class ProductImageSyncController {
 
-    private final ProductImageService productImageService;
+    private final ProductImageSyncService productImageSyncService;
 
     // ==========================================================
     // [POST] SYNC ẢNH CHO TẤT CẢ SẢN PHẨM
     // ==========================================================
     /**
-     * Đồng bộ Product.mainImageUrl cho tất cả sản phẩm
-     * Endpoint này sẽ:
-     * 1. Set isPrimary=true cho ảnh đầu tiên nếu sản phẩm chưa có ảnh primary
-     * 2. Update Product.mainImageUrl từ ProductImage có isPrimary=true
-     * 
-     * @return Số lượng sản phẩm đã được sync
+     * Đồng bộ Product.mainImageUrl cho tất cả sản phẩm (job nền, trả về 202 ngay)
+     * Ảnh đại diện = ảnh primary, nếu không có thì ảnh đầu tiên theo displayOrder.
+     * Theo dõi tiến độ qua GET /api/admin/products/sync-images/{jobId}
+     *
+     * @return Job đồng bộ (mới tạo hoặc job đang chạy)
      */
     @PostMapping("/sync-images")
-    public ResponseEntity<Object> syncAllProductsImages() {
+    public ResponseEntity<Map<String, Object>> syncAllProductsImages(@AuthenticationPrincipal User userPrincipal) {
         log.info("🔄 Admin trigger sync ảnh cho tất cả sản phẩm");
-        try {
-            int syncedCount = productImageService.syncAllProductsMainImageUrl();
-            return ResponseEntity.ok(java.util.Map.of(
-                    "success", true,
-                    "message", "Đã đồng bộ ảnh cho " + syncedCount + " sản phẩm",
-                    "syncedCount", syncedCount
-            ));
-        } catch (Exception e) {
-            log.error("❌ Lỗi khi sync ảnh cho tất cả sản phẩm: {}", e.getMessage(), e);
-            return ResponseEntity.status(org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(java.util.Map.of(
-                            "success", false,
-                            "message", "Lỗi khi đồng bộ ảnh: " + e.getMessage()
-                    ));
-        }
+        ImageSyncJob job = productImageSyncService.enqueue(userPrincipal != null ? userPrincipal.getEmail() : null);
+        return ResponseEntity.accepted().body(mapJob(job));
     }
-}
\ No newline at end of file
+
+    /**
+     * Tiến độ job đồng bộ ảnh
+     */
+    @GetMapping("/sync-images/{jobId}")
+    public ResponseEntity<Map<String, Object>> getSyncJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(mapJob(productImageSyncService.getJob(jobId)));
+    }
+
+    private Map<String, Object> mapJob(ImageSyncJob job) {
+        int total = job.getTotalProducts();
+        int progress = "completed".equals(job.getStatus()) ? 100
+                : total > 0 ? Math.min(99, job.getScannedCount() * 100 / total) : 0;
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("jobId", job.getId());
+        response.put("status", job.getStatus());
+        response.put("totalProducts", total);
+        response.put("scannedCount", job.getScannedCount());
+        response.put("syncedCount", job.getChangedCount());
+        response.put("progressPercent", progress);
+        response.put("createdAt", job.getCreatedAt());
+        response.put("completedAt", job.getCompletedAt());
+        return response;
+    }
+}
@@ -1,11 +1,14 @@
 package com.sneakery.store.controller;
 
 import com.sneakery.store.dto.ProductImagePublicDto;
-import com.sneakery.store.service.ProductImageService;
+import com.sneakery.store.exception.ApiException;
+import com.sneakery.store.service.ProductImageIndexService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -13,18 +16,36 @@ import java.util.List;
 /**
  * PublicProductImageController
  * ----------------------------
- * API PUBLIC trả về toàn bộ ảnh gallery theo product.
- * FE dùng để load tất cả ảnh và đổi ảnh khi hover.
+ * API PUBLIC trả về ảnh gallery theo product (đọc từ index trong bộ nhớ, không truy vấn DB).
+ * FE gửi danh sách productId đang hiển thị (?productIds=1,2,3) để đổi ảnh khi hover;
+ * không có productIds thì trả về một trang của index (?page=0&size=50).
  */
 @RestController
 @RequestMapping("/api/products/images")
 @RequiredArgsConstructor
 public class PublicProductImageController {
 
-    private final ProductImageService productImageService;
+    private static final int MAX_PRODUCT_IDS = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ProductImageIndexService productImageIndexService;
 
     @GetMapping
-    public ResponseEntity<List<ProductImagePublicDto>> getAllImages() {
-        return ResponseEntity.ok(productImageService.getAllImagesPublic());
+    public ResponseEntity<List<ProductImagePublicDto>> getImages(
+            @RequestParam(required = false) List<Long> productIds,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+
+        if (productIds != null && !productIds.isEmpty()) {
+            if (productIds.size() > MAX_PRODUCT_IDS) {
+                throw new ApiException(HttpStatus.BAD_REQUEST,
+                        "Tối đa " + MAX_PRODUCT_IDS + " sản phẩm mỗi lần lấy ảnh");
+            }
+            return ResponseEntity.ok(productImageIndexService.findByProductIds(productIds));
+        }
+
+        int safePage = Math.max(page, 0);
+        int safeSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        return ResponseEntity.ok(productImageIndexService.findPage(safePage, safeSize));
     }
 }
@@ -32,6 +32,8 @@ public class AdminOrderDetailDto {
     private Long userId;
     private String customerName;
     private String customerEmail;
+    @Schema(description = "Ghi chú nội bộ của đơn (đơn POS khách vãng lai: tên - SĐT - email đã nhập tại quầy)")
+    private String adminNote;
 
     // 🏠 Address
     private AddressDto addressShipping;
@@ -0,0 +1,38 @@
+package com.sneakery.store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO kết quả lọc sản phẩm storefront theo facet
+ * Gồm một trang ProductCardDto và số lượng sản phẩm cho từng giá trị facet
+ * (key của map facets là tên tham số: brand, category, shoeSize, color, price, stock)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetSearchDto {
+    private Page<ProductCardDto> products;
+    private Map<String, List<FacetCount>> facets;
+
+    /**
+     * Một giá trị facet: value dùng để gửi lại khi lọc, label để hiển thị,
+     * count = số sản phẩm khớp nếu chọn thêm giá trị này (các facet khác giữ nguyên)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private String label;
+        private int count;
+        private boolean selected;
+    }
+}
@@ -0,0 +1,30 @@
+package com.sneakery.store.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Khuyến nghị nhập hàng cho một biến thể (RestockAdvisorService)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RestockAdviceDto {
+
+    private Long variantId;
+    private Long productId;
+    private String productName;
+    private String sku;
+    private String color;
+    private String size;
+    private Integer stockQuantity;
+    private Integer availableQuantity;      // tồn kho - đang giữ
+    private Integer lowStockThreshold;
+    private Double dailyVelocity;           // đơn vị bán / ngày (EWMA)
+    private Double daysOfCover;             // null = chưa có lượt bán
+    private Integer reorderPoint;           // tồn kho nên đặt hàng: velocity x lead time (tối thiểu là ngưỡng tồn kho thấp)
+    private Integer suggestedQuantity;      // số lượng nên nhập
+}
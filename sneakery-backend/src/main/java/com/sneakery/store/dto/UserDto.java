@@ -16,4 +16,5 @@ public class UserDto {
     private String phoneNumber;
     private Boolean isActive;
     private String role;
+    private String segment; // Phân khúc RFM (chỉ có trong danh sách user của admin)
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entity: CouponUsage - Số lượt một user đã dùng một coupon
+ * Unique (coupon_id, user_id); tăng/giảm bằng câu lệnh có điều kiện trong CouponUsageRepository
+ */
+@Data
+@Entity
+@Table(name = "Coupon_Usages")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Integer couponId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "uses_count", nullable = false)
+    private Integer usesCount;
+
+    @Column(name = "last_used_at")
+    private LocalDateTime lastUsedAt;
+}
@@ -0,0 +1,52 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entity: CustomerSegment
+ * -----------------------
+ * Điểm RFM (1..5) và nhãn phân khúc của một khách hàng.
+ * Bảng do CustomerSegmentationService ghi bằng JDBC batch mỗi đêm, ứng dụng chỉ đọc.
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "Customer_Segments")
+@NoArgsConstructor
+public class CustomerSegment {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "last_order_date", nullable = false)
+    private LocalDate lastOrderDate;
+
+    @Column(name = "frequency", nullable = false)
+    private int frequency;
+
+    @Column(name = "monetary", nullable = false)
+    private BigDecimal monetary;
+
+    @Column(name = "r_score", nullable = false)
+    private int recencyScore;
+
+    @Column(name = "f_score", nullable = false)
+    private int frequencyScore;
+
+    @Column(name = "m_score", nullable = false)
+    private int monetaryScore;
+
+    @Column(name = "segment", nullable = false)
+    private String segment;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,58 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Entity: DailySale
+ * -----------------
+ * Doanh số của một biến thể trong một ngày (ngày đặt đơn), chỉ tính đơn đang giao / đã giao / hoàn tất.
+ * Bảng do DailySalesService ghi bằng JDBC (cập nhật tăng dần + backfill theo ngày),
+ * ứng dụng chỉ đọc để cộng dồn theo khoảng ngày cho analytics.
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "Daily_Sales")
+@IdClass(DailySale.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySale {
+
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Id
+    @Column(name = "variant_id")
+    private Long variantId;
+
+    @Column(name = "units", nullable = false)
+    private int units;
+
+    @Column(name = "revenue", nullable = false)
+    private BigDecimal revenue;
+
+    @Column(name = "cost", nullable = false)
+    private BigDecimal cost;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate saleDate;
+        private Long productId;
+        private Long variantId;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entity: ImageSyncJob - Job đồng bộ Products.main_image_url từ gallery
+ * Được ProductImageSyncService xử lý theo chunk; cursor_product_id cho phép chạy tiếp sau khi restart
+ */
+@Data
+@Entity
+@Table(name = "Image_Sync_Jobs")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageSyncJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "status", nullable = false)
+    private String status; // pending, running, completed
+
+    @Column(name = "cursor_product_id", nullable = false)
+    private Long cursorProductId;
+
+    @Column(name = "total_products", nullable = false)
+    private Integer totalProducts;
+
+    @Column(name = "scanned_count", nullable = false)
+    private Integer scannedCount;
+
+    @Column(name = "changed_count", nullable = false)
+    private Integer changedCount;
+
+    @Column(name = "requested_by")
+    private String requestedBy;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+        if (status == null) {
+            status = "pending";
+        }
+        if (cursorProductId == null) {
+            cursorProductId = 0L;
+        }
+        if (totalProducts == null) {
+            totalProducts = 0;
+        }
+        if (scannedCount == null) {
+            scannedCount = 0;
+        }
+        if (changedCount == null) {
+            changedCount = 0;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,35 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entity: LoyaltyBalance - Số dư điểm tích lũy (materialized)
+ * Mỗi user một dòng, cập nhật cùng transaction với mỗi dòng Loyalty_Points
+ * Đọc số dư = 1 lần lookup theo primary key thay vì SUM toàn bộ lịch sử
+ */
+@Data
+@Entity
+@Table(name = "Loyalty_Balances")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoyaltyBalance {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "balance", nullable = false)
+    private Integer balance; // = SUM(remaining) của các bucket (có thể âm nếu đang nợ điểm)
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
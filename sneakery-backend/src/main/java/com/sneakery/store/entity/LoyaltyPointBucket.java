@@ -0,0 +1,54 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entity: LoyaltyPointBucket - Nhóm điểm còn lại theo tháng hết hạn
+ * Điểm earn có expiresAt trong cùng một tháng được gộp vào một bucket,
+ * bucket hết hạn khi sang tháng kế tiếp. Redeem trừ bucket sắp hết hạn trước (FIFO).
+ */
+@Data
+@Entity
+@Table(name = "Loyalty_Point_Buckets")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoyaltyPointBucket {
+
+    /**
+     * Bucket cho điểm không có hạn (adjustment) và phần nợ điểm chưa được bù
+     */
+    public static final LocalDate NO_EXPIRY_MONTH = LocalDate.of(9999, 12, 1);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "expiry_month", nullable = false)
+    private LocalDate expiryMonth; // Ngày đầu tháng hết hạn
+
+    @Column(name = "remaining", nullable = false)
+    private Integer remaining;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Tháng hết hạn (ngày đầu tháng) của một mốc expiresAt
+     */
+    public static LocalDate monthOf(LocalDateTime expiresAt) {
+        return expiresAt == null ? NO_EXPIRY_MONTH : expiresAt.toLocalDate().withDayOfMonth(1);
+    }
+}
@@ -0,0 +1,94 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entity: NewsletterCampaign - Chiến dịch gửi email newsletter tới subscriber
+ * Được NewsletterCampaignService xử lý theo chunk; cursor_subscription_id cho phép chạy tiếp sau khi restart,
+ * trạng thái từng người nhận nằm ở bảng Newsletter_Deliveries
+ */
+@Data
+@Entity
+@Table(name = "Newsletter_Campaigns")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NewsletterCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "template_name", nullable = false)
+    private String templateName;
+
+    @Column(name = "status", nullable = false)
+    private String status; // pending, running, completed, failed
+
+    @Column(name = "cursor_subscription_id", nullable = false)
+    private Long cursorSubscriptionId;
+
+    @Column(name = "total_recipients", nullable = false)
+    private Integer totalRecipients;
+
+    @Column(name = "queued_count", nullable = false)
+    private Integer queuedCount;
+
+    @Column(name = "sent_count", nullable = false)
+    private Integer sentCount;
+
+    @Column(name = "failed_count", nullable = false)
+    private Integer failedCount;
+
+    @Column(name = "skipped_count", nullable = false)
+    private Integer skippedCount;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "requested_by")
+    private String requestedBy;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+        if (status == null) {
+            status = "pending";
+        }
+        if (cursorSubscriptionId == null) {
+            cursorSubscriptionId = 0L;
+        }
+        if (totalRecipients == null) {
+            totalRecipients = 0;
+        }
+        if (queuedCount == null) {
+            queuedCount = 0;
+        }
+        if (sentCount == null) {
+            sentCount = 0;
+        }
+        if (failedCount == null) {
+            failedCount = 0;
+        }
+        if (skippedCount == null) {
+            skippedCount = 0;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
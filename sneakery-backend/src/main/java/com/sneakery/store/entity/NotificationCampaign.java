@@ -0,0 +1,81 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entity: NotificationCampaign - Chiến dịch gửi thông báo hàng loạt
+ * Được NotificationFanoutService xử lý theo chunk; cursor_user_id cho phép chạy tiếp sau khi restart
+ */
+@Data
+@Entity
+@Table(name = "Notification_Campaigns")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "type", nullable = false)
+    private String type; // promotion, product_restock
+
+    @Column(name = "title", nullable = false)
+    private String title;
+
+    @Column(name = "message", nullable = false, columnDefinition = "NVARCHAR(MAX)")
+    private String message;
+
+    @Column(name = "link")
+    private String link;
+
+    @Column(name = "audience", nullable = false)
+    private String audience; // all_users, wishlist, segment
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "segment")
+    private String segment; // audience = segment (Customer_Segments.segment)
+
+    @Column(name = "status", nullable = false)
+    private String status; // pending, running, completed
+
+    @Column(name = "cursor_user_id", nullable = false)
+    private Long cursorUserId;
+
+    @Column(name = "sent_count", nullable = false)
+    private Integer sentCount;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+        if (status == null) {
+            status = "pending";
+        }
+        if (cursorUserId == null) {
+            cursorUserId = 0L;
+        }
+        if (sentCount == null) {
+            sentCount = 0;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,42 @@
+package com.sneakery.store.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+
+/**
+ * Entity: VariantSize
+ * -------------------
+ * Một size của biến thể, tách từ danh sách "40, 41, 42" trong Product_Variants.size.
+ * Bảng do trigger trg_ProductVariants_SyncSizes duy trì (V38), ứng dụng chỉ đọc
+ * để lọc biến thể theo size bằng index thay vì LIKE trên chuỗi.
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "Variant_Sizes")
+@IdClass(VariantSize.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantSize {
+
+    @Id
+    @Column(name = "variant_id")
+    private Long variantId;
+
+    @Id
+    @Column(name = "size", length = 20)
+    private String size;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long variantId;
+        private String size;
+    }
+}
@@ -18,4 +18,11 @@ public interface AddressRepository extends JpaRepository<Address, Long> {
     // Tìm địa chỉ POS (cửa hàng) - dùng chung cho tất cả POS orders
     // Tìm theo line1 và address_type để đảm bảo tìm đúng địa chỉ POS
     Optional<Address> findByLine1AndAddressType(String line1, String addressType);
+
+    // Địa chỉ POS dùng chung của user hệ thống (bản cũ nhất nếu có nhiều)
+    Optional<Address> findFirstByUserIdAndLine1AndAddressTypeAndDeletedAtIsNullOrderByIdAsc(Long userId, String line1, String addressType);
+
+    // Địa chỉ cửa hàng mang thông tin người nhận của một khách POS (tái sử dụng giữa các lần mua)
+    Optional<Address> findFirstByUserIdAndLine1AndAddressTypeAndRecipientNameAndPhoneAndDeletedAtIsNullOrderByIdAsc(
+            Long userId, String line1, String addressType, String recipientName, String phone);
 }
\ No newline at end of file
@@ -3,8 +3,13 @@ package com.sneakery.store.repository;
 import com.sneakery.store.entity.Coupon;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -19,5 +24,29 @@ public interface CouponRepository extends JpaRepository<Coupon, Integer>, JpaSpe
      * Kiểm tra code đã tồn tại chưa
      */
     boolean existsByCode(String code);
-}
 
+    /**
+     * Coupon chưa hết hạn (dùng để dựng index coupon trong bộ nhớ)
+     */
+    List<Coupon> findByEndAtGreaterThanEqual(LocalDateTime now);
+
+    /**
+     * Tăng lượt dùng một cách atomic, chỉ khi coupon còn hiệu lực và chưa hết lượt
+     * Không đọc-sửa-ghi ở Java nên không bị lost update khi nhiều đơn dùng cùng mã
+     *
+     * @return 1 nếu giành được lượt dùng, 0 nếu coupon đã hết lượt / hết hiệu lực
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.usesCount = COALESCE(c.usesCount, 0) + 1 " +
+            "WHERE c.id = :id AND c.isActive = true " +
+            "AND c.startAt <= :now AND c.endAt >= :now " +
+            "AND (c.maxUses IS NULL OR COALESCE(c.usesCount, 0) < c.maxUses)")
+    int incrementUsesIfAvailable(@Param("id") Integer id, @Param("now") LocalDateTime now);
+
+    /**
+     * Hoàn lại 1 lượt dùng (không cho âm)
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.usesCount = c.usesCount - 1 WHERE c.id = :id AND c.usesCount > 0")
+    int decrementUses(@Param("id") Integer id);
+}
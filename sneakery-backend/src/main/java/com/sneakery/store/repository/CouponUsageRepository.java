@@ -0,0 +1,44 @@
+package com.sneakery.store.repository;
+
+import com.sneakery.store.entity.CouponUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository: CouponUsageRepository
+ * Bộ đếm lượt dùng coupon theo user
+ */
+@Repository
+public interface CouponUsageRepository extends JpaRepository<CouponUsage, Long> {
+
+    /**
+     * Tăng lượt dùng của user nếu chưa chạm giới hạn (tạo dòng nếu chưa có)
+     * HOLDLOCK để hai request cùng user không cùng INSERT
+     *
+     * @return 1 nếu thành công, 0 nếu user đã dùng hết lượt
+     */
+    @Modifying
+    @Query(value = "MERGE Coupon_Usages WITH (HOLDLOCK) AS t " +
+            "USING (SELECT :couponId AS coupon_id, :userId AS user_id) AS s " +
+            "ON t.coupon_id = s.coupon_id AND t.user_id = s.user_id " +
+            "WHEN MATCHED AND t.uses_count < :maxPerUser THEN " +
+            "   UPDATE SET uses_count = t.uses_count + 1, last_used_at = SYSDATETIME() " +
+            "WHEN NOT MATCHED AND :maxPerUser > 0 THEN " +
+            "   INSERT (coupon_id, user_id, uses_count, last_used_at) VALUES (s.coupon_id, s.user_id, 1, SYSDATETIME());",
+            nativeQuery = true)
+    int incrementIfBelowLimit(@Param("couponId") Integer couponId,
+                              @Param("userId") Long userId,
+                              @Param("maxPerUser") int maxPerUser);
+
+    /**
+     * Hoàn lại 1 lượt dùng (đơn bị hủy / trả hàng)
+     */
+    @Modifying
+    @Query(value = "UPDATE Coupon_Usages SET uses_count = uses_count - 1 " +
+            "WHERE coupon_id = :couponId AND user_id = :userId AND uses_count > 0",
+            nativeQuery = true)
+    int decrement(@Param("couponId") Integer couponId, @Param("userId") Long userId);
+}
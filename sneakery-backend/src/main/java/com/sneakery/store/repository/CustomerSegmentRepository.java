@@ -0,0 +1,18 @@
+package com.sneakery.store.repository;
+
+import com.sneakery.store.entity.CustomerSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CustomerSegmentRepository extends JpaRepository<CustomerSegment, Long> {
+
+    /**
+     * Số khách theo phân khúc: segment, số khách, tổng monetary
+     */
+    @Query("SELECT s.segment, COUNT(s), SUM(s.monetary) FROM CustomerSegment s GROUP BY s.segment")
+    List<Object[]> countBySegment();
+}
@@ -0,0 +1,69 @@
+package com.sneakery.store.repository;
+
+import com.sneakery.store.entity.DailySale;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySaleRepository extends JpaRepository<DailySale, DailySale.Key> {
+
+    /**
+     * Top sản phẩm bán chạy trong [startDate, endDate]:
+     * product id, tên sản phẩm hiện tại, số lượng, doanh thu, giá vốn (sắp xếp theo số lượng giảm dần)
+     */
+    @Query("SELECT d.productId, p.name, SUM(d.units), SUM(d.revenue), SUM(d.cost) " +
+            "FROM DailySale d LEFT JOIN Product p ON p.id = d.productId " +
+            "WHERE d.saleDate >= :startDate AND d.saleDate <= :endDate " +
+            "GROUP BY d.productId, p.name " +
+            "ORDER BY SUM(d.units) DESC, SUM(d.revenue) DESC")
+    List<Object[]> findTopProducts(@Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate,
+                                   Pageable pageable);
+
+    /**
+     * Doanh số theo ngày trong [startDate, endDate]: ngày, số lượng, doanh thu, giá vốn
+     */
+    @Query("SELECT d.saleDate, SUM(d.units), SUM(d.revenue), SUM(d.cost) " +
+            "FROM DailySale d " +
+            "WHERE d.saleDate >= :startDate AND d.saleDate <= :endDate " +
+            "GROUP BY d.saleDate " +
+            "ORDER BY d.saleDate")
+    List<Object[]> sumByDay(@Param("startDate") LocalDate startDate,
+                            @Param("endDate") LocalDate endDate);
+
+    /**
+     * Doanh số theo ngày của một sản phẩm trong [startDate, endDate]: ngày, số lượng, doanh thu, giá vốn
+     */
+    @Query("SELECT d.saleDate, SUM(d.units), SUM(d.revenue), SUM(d.cost) " +
+            "FROM DailySale d " +
+            "WHERE d.productId = :productId AND d.saleDate >= :startDate AND d.saleDate <= :endDate " +
+            "GROUP BY d.saleDate " +
+            "ORDER BY d.saleDate")
+    List<Object[]> sumByDayForProduct(@Param("productId") Long productId,
+                                      @Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate);
+
+    /**
+     * Tổng trong [startDate, endDate]: số lượng, doanh thu, giá vốn (một dòng, có thể null khi chưa có dữ liệu)
+     */
+    @Query("SELECT SUM(d.units), SUM(d.revenue), SUM(d.cost) " +
+            "FROM DailySale d " +
+            "WHERE d.saleDate >= :startDate AND d.saleDate <= :endDate")
+    List<Object[]> sumTotals(@Param("startDate") LocalDate startDate,
+                             @Param("endDate") LocalDate endDate);
+
+    /**
+     * Số lượng bán theo sản phẩm từ startDate tới nay: product id, số lượng
+     */
+    @Query("SELECT d.productId, SUM(d.units) " +
+            "FROM DailySale d " +
+            "WHERE d.saleDate >= :startDate " +
+            "GROUP BY d.productId")
+    List<Object[]> sumUnitsByProductSince(@Param("startDate") LocalDate startDate);
+}
@@ -0,0 +1,20 @@
+package com.sneakery.store.repository;
+
+import com.sneakery.store.entity.ImageSyncJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Repository: ImageSyncJobRepository
+ */
+@Repository
+public interface ImageSyncJobRepository extends JpaRepository<ImageSyncJob, Long> {
+
+    /**
+     * Job tiếp theo cần xử lý (cũ nhất trước)
+     */
+    Optional<ImageSyncJob> findFirstByStatusInOrderByIdAsc(Collection<String> statuses);
+}
@@ -0,0 +1,33 @@
+package com.sneakery.store.repository;
+
+import com.sneakery.store.entity.LoyaltyBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository: LoyaltyBalanceRepository
+ * Số dư điểm materialized theo user
+ */
+@Repository
+public interface LoyaltyBalanceRepository extends JpaRepository<LoyaltyBalance, Long> {
+
+    /**
+     * Khóa dòng số dư của user cho tới hết transaction
+     * HOLDLOCK giữ cả key-range nên khi dòng chưa tồn tại, hai transaction cùng user vẫn tuần tự
+     */
+    @Query(value = "SELECT * FROM Loyalty_Balances WITH (UPDLOCK, HOLDLOCK, ROWLOCK) WHERE user_id = :userId",
+            nativeQuery = true)
+    Optional<LoyaltyBalance> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    /**
+     * Keyset pagination cho job đối soát (không dùng OFFSET)
+     */
+    @Query(value = "SELECT TOP (:limit) user_id FROM Loyalty_Balances WHERE user_id > :afterUserId ORDER BY user_id",
+            nativeQuery = true)
+    List<Long> findUserIdsAfter(@Param("afterUserId") Long afterUserId, @Param("limit") int limit);
+}
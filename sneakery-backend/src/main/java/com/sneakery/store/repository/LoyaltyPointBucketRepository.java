@@ -0,0 +1,35 @@
+package com.sneakery.store.repository;
+
+import com.sneakery.store.entity.LoyaltyPointBucket;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository: LoyaltyPointBucketRepository
+ * Bucket điểm theo tháng hết hạn
+ */
+@Repository
+public interface LoyaltyPointBucketRepository extends JpaRepository<LoyaltyPointBucket, Long> {
+
+    /**
+     * Các bucket của user, sắp hết hạn trước (thứ tự trừ điểm FIFO)
+     */
+    List<LoyaltyPointBucket> findByUserIdOrderByExpiryMonthAsc(Long userId);
+
+    /**
+     * [id, userId] của các bucket đã hết hạn còn điểm (expiry_month &lt; tháng hiện tại)
+     * Dùng index (expiry_month, remaining) nên chỉ quét các bucket cần xử lý
+     */
+    @Query("SELECT b.id, b.userId FROM LoyaltyPointBucket b " +
+           "WHERE b.expiryMonth < :currentMonth AND b.remaining > 0 " +
+           "ORDER BY b.expiryMonth ASC, b.id ASC")
+    List<Object[]> findExpiredBuckets(@Param("currentMonth") LocalDate currentMonth, Pageable pageable);
+
+    void deleteByUserId(Long userId);
+}
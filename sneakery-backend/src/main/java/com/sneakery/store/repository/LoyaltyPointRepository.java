@@ -23,6 +23,11 @@ public interface LoyaltyPointRepository extends JpaRepository<LoyaltyPoint, Long
      * Lấy lịch sử điểm của user
      */
     List<LoyaltyPoint> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    /**
+     * Lịch sử điểm theo thứ tự thời gian (dùng để dựng lại / đối soát sổ cái)
+     */
+    List<LoyaltyPoint> findByUserIdOrderByCreatedAtAscIdAsc(Long userId);
     
     /**
      * Lấy các điểm chưa hết hạn của user
@@ -0,0 +1,20 @@
+package com.sneakery.store.repository;
+
+import com.sneakery.store.entity.NewsletterCampaign;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Repository: NewsletterCampaignRepository
+ */
+@Repository
+public interface NewsletterCampaignRepository extends JpaRepository<NewsletterCampaign, Long> {
+
+    /**
+     * Chiến dịch tiếp theo cần xử lý (cũ nhất trước)
+     */
+    Optional<NewsletterCampaign> findFirstByStatusInOrderByIdAsc(Collection<String> statuses);
+}
@@ -0,0 +1,26 @@
+package com.sneakery.store.repository;
+
+import com.sneakery.store.entity.NotificationCampaign;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Repository: NotificationCampaignRepository
+ */
+@Repository
+public interface NotificationCampaignRepository extends JpaRepository<NotificationCampaign, Long> {
+
+    /**
+     * Chiến dịch tiếp theo cần xử lý (cũ nhất trước)
+     */
+    Optional<NotificationCampaign> findFirstByStatusInOrderByIdAsc(Collection<String> statuses);
+
+    /**
+     * Đã có chiến dịch restock cho sản phẩm trong khoảng cooldown chưa
+     */
+    boolean existsByTypeAndProductIdAndCreatedAtAfter(String type, Long productId, LocalDateTime after);
+}
@@ -3,6 +3,7 @@ package com.sneakery.store.repository;
 import com.sneakery.store.entity.OrderDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,16 +12,24 @@ import java.util.List;
 public interface OrderDetailRepository extends JpaRepository<OrderDetail, Long> {
     
     /**
-     * Lấy top products bán chạy nhất (theo số lượng đã bán)
+     * Khoảng id của các đơn đã giao / hoàn tất: min id, max id (chia chunk khi dựng index mua chung)
      */
-    @Query(value = "SELECT TOP 5 " +
-            "od.product_name AS productName, " +
-            "SUM(od.quantity) AS totalSold " +
-            "FROM Order_Details od " +
-            "JOIN Orders o ON od.order_id = o.id " +
-            "WHERE o.status IN ('delivered', 'completed', 'shipped', 'Delivered', 'Completed', 'Shipped') " +
-            "GROUP BY od.product_name " +
-            "ORDER BY totalSold DESC",
+    @Query(value = "SELECT MIN(o.id), MAX(o.id) FROM Orders o " +
+            "WHERE o.status IN ('delivered', 'completed', 'Delivered', 'Completed')",
             nativeQuery = true)
-    List<Object[]> getTopSellingProducts();
-}
\ No newline at end of file
+    List<Object[]> findCompletedOrderIdRange();
+
+    /**
+     * Giỏ hàng của các đơn đã giao / hoàn tất có id trong [fromOrderId, toOrderId):
+     * order id, product id (mỗi sản phẩm một dòng mỗi đơn), sắp xếp theo order id
+     */
+    @Query(value = "SELECT DISTINCT od.order_id, pv.product_id FROM Order_Details od " +
+            "JOIN Orders o ON o.id = od.order_id " +
+            "JOIN Product_Variants pv ON pv.id = od.variant_id " +
+            "WHERE o.id >= :fromOrderId AND o.id < :toOrderId " +
+            "AND o.status IN ('delivered', 'completed', 'Delivered', 'Completed') " +
+            "ORDER BY od.order_id",
+            nativeQuery = true)
+    List<Object[]> findCompletedOrderProducts(@Param("fromOrderId") long fromOrderId,
+                                              @Param("toOrderId") long toOrderId);
+}
@@ -54,4 +54,18 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, Long
     @Modifying
     @Query("UPDATE ProductImage i SET i.isPrimary = false WHERE i.product.id = :productId")
     void clearPrimaryForProduct(@Param("productId") Long productId);
+
+    /**
+     * Projection hẹp (product_id, image_url, display_order) của toàn bộ ảnh, dùng để dựng index public
+     * Không load entity / Product
+     */
+    @Query("SELECT i.product.id, i.imageUrl, i.displayOrder FROM ProductImage i " +
+           "ORDER BY i.product.id, i.displayOrder, i.id")
+    List<Object[]> findAllImageProjections();
+
+    /**
+     * URL ảnh của một sản phẩm theo thứ tự hiển thị (cập nhật index sau khi sửa gallery)
+     */
+    @Query("SELECT i.imageUrl FROM ProductImage i WHERE i.product.id = :productId ORDER BY i.displayOrder, i.id")
+    List<String> findImageUrlsByProductId(@Param("productId") Long productId);
 }
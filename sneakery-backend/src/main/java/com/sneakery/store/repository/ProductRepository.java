@@ -97,34 +97,86 @@ List<Product> findByIdInWithBrandAndCategories(@Param("ids") List<Long> ids);
     // Lấy sản phẩm theo brand (trừ sản phẩm hiện tại)
     List<Product> findTop4ByBrandIdAndIdNotAndIsActiveTrueAndDeletedAtIsNull(Long brandId, Long excludeId);
 
-    // Lấy sản phẩm theo category
+    /**
+     * Projection cho batch sản phẩm liên quan: product id, brand id, category id (một dòng mỗi category)
+     */
     @Query("""
-    SELECT DISTINCT p FROM Product p
-    JOIN p.categories c
-    WHERE c.id IN :categoryIds
-      AND p.id <> :excludeId
-      AND p.isActive = true
-      AND p.deletedAt IS NULL
+SELECT p.id, b.id, c.id FROM Product p
+LEFT JOIN p.brand b
+LEFT JOIN p.categories c
+WHERE p.isActive = true
+AND p.deletedAt IS NULL
+ORDER BY p.id
 """)
-    List<Product> findByCategories(Long excludeId, List<Long> categoryIds);
+    List<Object[]> findRelatedProductProjections();
 
+    /**
+     * Projection cho index gợi ý tìm kiếm: product id, tên, slug, ảnh đại diện,
+     * brand id, tên brand, slug brand, brand đang active (brand có thể null)
+     */
     @Query("""
-SELECT p FROM Product p
+SELECT p.id, p.name, p.slug, p.mainImageUrl, b.id, b.name, b.slug,
+       CASE WHEN b.isActive = true AND b.deletedAt IS NULL THEN true ELSE false END
+FROM Product p
+LEFT JOIN p.brand b
 WHERE p.isActive = true
 AND p.deletedAt IS NULL
-AND (:brand IS NULL OR LOWER(p.brand.name) = LOWER(:brand))
-AND (
-    :category IS NULL OR EXISTS (
-        SELECT c FROM p.categories c
-        WHERE LOWER(c.name) = LOWER(:category)
-    )
-)
+ORDER BY p.id
+""")
+    List<Object[]> findSuggestProductProjections();
+
+    /**
+     * Projection category cho index gợi ý tìm kiếm: product id, category id, tên, slug (chỉ category đang active)
+     */
+    @Query("""
+SELECT p.id, c.id, c.name, c.slug FROM Product p
+JOIN p.categories c
+WHERE p.isActive = true
+AND p.deletedAt IS NULL
+AND c.isActive = true
+AND c.deletedAt IS NULL
+""")
+    List<Object[]> findSuggestCategoryProjections();
+
+    /**
+     * Projection cho index facet storefront: product id, tên brand, tên category (một dòng mỗi category)
+     */
+    @Query("""
+SELECT p.id, b.name, c.name FROM Product p
+LEFT JOIN p.brand b
+LEFT JOIN p.categories c
+WHERE p.isActive = true
+AND p.deletedAt IS NULL
+ORDER BY p.id
+""")
+    List<Object[]> findFacetProductProjections();
+
+    /**
+     * Như findFacetProductProjections nhưng chỉ cho một sản phẩm (cập nhật index sau khi sửa)
+     */
+    @Query("""
+SELECT p.id, b.name, c.name FROM Product p
+LEFT JOIN p.brand b
+LEFT JOIN p.categories c
+WHERE p.id = :productId
+AND p.isActive = true
+AND p.deletedAt IS NULL
+""")
+    List<Object[]> findFacetProductProjectionsByProductId(@Param("productId") Long productId);
+
+    /**
+     * Load các sản phẩm (kèm brand, categories, variants) cho một trang ProductCardDto theo danh sách id
+     */
+    @Query("""
+SELECT DISTINCT p FROM Product p
+LEFT JOIN FETCH p.brand
+LEFT JOIN FETCH p.categories
+LEFT JOIN FETCH p.variants
+WHERE p.id IN :ids
+AND p.isActive = true
+AND p.deletedAt IS NULL
 """)
-    Page<Product> searchAdvanced(
-            @Param("brand") String brand,
-            @Param("category") String category,
-            Pageable pageable
-    );
+    List<Product> findCardDataByIdIn(@Param("ids") List<Long> ids);
 
     @Query("SELECT COUNT(p) FROM Product p WHERE p.brand.id = :brandId AND p.deletedAt IS NULL")
     Long countByBrandId(@Param("brandId") Integer brandId);
@@ -1,19 +1,27 @@
 package com.sneakery.store.repository;
 
 import com.sneakery.store.entity.ProductVariant;
+import com.sneakery.store.entity.VariantSize;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
+public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long>, JpaSpecificationExecutor<ProductVariant> {
 
     @Query("SELECT v FROM ProductVariant v " +
             "LEFT JOIN FETCH v.product p " +
@@ -28,34 +36,59 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     Page<ProductVariant> findAll(@NonNull Pageable pageable);
 
     @EntityGraph("ProductVariant.withProductAndBrand")
-    @Query("SELECT v FROM ProductVariant v " +
-            "LEFT JOIN v.product p " +
-            "WHERE v.deletedAt IS NULL " +
-            "AND p.deletedAt IS NULL " +
-            "AND (:search IS NULL OR :search = '' OR " +
-            "   LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%'))) " +
-            "AND (:color IS NULL OR :color = '' OR LOWER(v.color) = LOWER(:color)) " +
-            "AND (:size IS NULL OR :size = '' OR " +
-            "   LOWER(v.size) = LOWER(:size) OR " +
-            "   LOWER(v.size) LIKE LOWER(CONCAT(:size, ', %')) OR " +
-            "   LOWER(v.size) LIKE LOWER(CONCAT('%, ', :size, ', %')) OR " +
-            "   LOWER(v.size) LIKE LOWER(CONCAT('%, ', :size)) OR " +
-            "   LOWER(v.size) LIKE LOWER(CONCAT(:size, ',')) OR " +
-            "   LOWER(v.size) LIKE LOWER(CONCAT(',', :size, ',')) OR " +
-            "   LOWER(v.size) LIKE LOWER(CONCAT(',', :size))) " +
-            "AND (:productId IS NULL OR v.product.id = :productId) " +
-            "AND (:stockStatus IS NULL OR :stockStatus = '' OR " +
-            "   (:stockStatus = 'out_of_stock' AND v.stockQuantity = 0) OR " +
-            "   (:stockStatus = 'low_stock' AND v.stockQuantity > 0 AND v.stockQuantity <= 10) OR " +
-            "   (:stockStatus = 'in_stock' AND v.stockQuantity > 10))")
-    Page<ProductVariant> findWithFilters(
-            @Param("search") String search,
-            @Param("color") String color,
-            @Param("size") String size,
-            @Param("productId") Long productId,
-            @Param("stockStatus") String stockStatus,
-            Pageable pageable
-    );
+    @NonNull
+    Page<ProductVariant> findAll(@NonNull Specification<ProductVariant> spec, @NonNull Pageable pageable);
+
+    /**
+     * Lọc biến thể cho lưới admin: chỉ thêm điều kiện cho filter có giá trị
+     * (không dùng ":x IS NULL OR ..." để SQL Server chọn được index theo từng tổ hợp filter)
+     * <ul>
+     *   <li>size: EXISTS trên Variant_Sizes (idx_variant_sizes_size) thay vì LIKE trên chuỗi "40, 41, 42"</li>
+     *   <li>màu / tên: so sánh trực tiếp, collation không phân biệt hoa thường thay cho LOWER()</li>
+     *   <li>tồn kho: khoảng stock_quantity, seek trên idx_variants_filter_product / idx_variants_filter_color</li>
+     * </ul>
+     */
+    default Page<ProductVariant> findWithFilters(String search,
+                                                 String color,
+                                                 String size,
+                                                 Long productId,
+                                                 String stockStatus,
+                                                 Pageable pageable) {
+        Specification<ProductVariant> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isNull(root.get("deletedAt")));
+            predicates.add(cb.isNull(root.get("product").get("deletedAt")));
+
+            if (productId != null) {
+                predicates.add(cb.equal(root.get("product").get("id"), productId));
+            }
+            if (color != null && !color.isBlank()) {
+                predicates.add(cb.equal(root.get("color"), color.trim()));
+            }
+            if (size != null && !size.isBlank()) {
+                Subquery<Long> sizeMatch = query.subquery(Long.class);
+                Root<VariantSize> variantSize = sizeMatch.from(VariantSize.class);
+                sizeMatch.select(variantSize.get("variantId"))
+                        .where(cb.equal(variantSize.get("variantId"), root.get("id")),
+                                cb.equal(variantSize.get("size"), size.trim()));
+                predicates.add(cb.exists(sizeMatch));
+            }
+            if (stockStatus != null && !stockStatus.isBlank()) {
+                switch (stockStatus) {
+                    case "out_of_stock" -> predicates.add(cb.equal(root.get("stockQuantity"), 0));
+                    case "low_stock" -> predicates.add(cb.between(root.get("stockQuantity"), 1, 10));
+                    case "in_stock" -> predicates.add(cb.greaterThan(root.get("stockQuantity"), 10));
+                    default -> predicates.add(cb.disjunction());
+                }
+            }
+            if (search != null && !search.isBlank()) {
+                predicates.add(cb.like(root.get("product").get("name"), "%" + search.trim() + "%"));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+        return findAll(spec, pageable);
+    }
+
     @Query("SELECT v FROM ProductVariant v WHERE v.sku = :sku AND v.deletedAt IS NULL")
     Optional<ProductVariant> findBySku(@Param("sku") String sku);
 
@@ -104,4 +137,73 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
 
     boolean existsBySkuAndProductIdNot(String sku, Long productId);
 
+    /**
+     * Projection hẹp cho index SKU của POS (không load entity):
+     * variant id, product id, sku, tên sản phẩm, size, màu, giá gốc, giá sale, tồn kho, ảnh đại diện
+     */
+    @Query("SELECT v.id, p.id, v.sku, p.name, v.size, v.color, v.priceBase, v.priceSale, v.stockQuantity, p.mainImageUrl " +
+           "FROM ProductVariant v JOIN v.product p " +
+           "WHERE v.deletedAt IS NULL AND p.deletedAt IS NULL " +
+           "AND v.isActive = true AND p.isActive = true AND v.sku IS NOT NULL " +
+           "ORDER BY v.id")
+    List<Object[]> findPosIndexProjections();
+
+    /**
+     * Projection SKU cho index gợi ý tìm kiếm: variant id, product id, sku
+     */
+    @Query("SELECT v.id, p.id, v.sku " +
+           "FROM ProductVariant v JOIN v.product p " +
+           "WHERE v.deletedAt IS NULL AND p.deletedAt IS NULL " +
+           "AND v.isActive = true AND p.isActive = true AND v.sku IS NOT NULL")
+    List<Object[]> findSuggestSkuProjections();
+
+    /**
+     * Như findPosIndexProjections nhưng chỉ cho một sản phẩm (cập nhật index sau khi sửa biến thể)
+     */
+    @Query("SELECT v.id, p.id, v.sku, p.name, v.size, v.color, v.priceBase, v.priceSale, v.stockQuantity, p.mainImageUrl " +
+           "FROM ProductVariant v JOIN v.product p " +
+           "WHERE p.id = :productId AND v.deletedAt IS NULL AND p.deletedAt IS NULL " +
+           "AND v.isActive = true AND p.isActive = true AND v.sku IS NOT NULL " +
+           "ORDER BY v.id")
+    List<Object[]> findPosIndexProjectionsByProductId(@Param("productId") Long productId);
+
+    /**
+     * Projection cho index facet storefront: product id, màu, size (danh sách "40, 41"),
+     * giá gốc, giá sale, tồn kho, số lượng đang giữ
+     */
+    @Query("SELECT p.id, v.color, v.size, v.priceBase, v.priceSale, v.stockQuantity, v.reservedQuantity " +
+           "FROM ProductVariant v JOIN v.product p " +
+           "WHERE v.deletedAt IS NULL AND p.deletedAt IS NULL " +
+           "AND v.isActive = true AND p.isActive = true")
+    List<Object[]> findFacetVariantProjections();
+
+    /**
+     * Như findFacetVariantProjections nhưng chỉ cho một sản phẩm
+     */
+    @Query("SELECT p.id, v.color, v.size, v.priceBase, v.priceSale, v.stockQuantity, v.reservedQuantity " +
+           "FROM ProductVariant v JOIN v.product p " +
+           "WHERE p.id = :productId AND v.deletedAt IS NULL AND p.deletedAt IS NULL " +
+           "AND v.isActive = true AND p.isActive = true")
+    List<Object[]> findFacetVariantProjectionsByProductId(@Param("productId") Long productId);
+
+    /**
+     * Tồn kho của các biến thể đang bán cho restock advisor: variant id, product id, tên sản phẩm, SKU,
+     * màu, size, tồn kho, số lượng đang giữ, ngưỡng tồn kho thấp
+     */
+    @Query("SELECT v.id, p.id, p.name, v.sku, v.color, v.size, v.stockQuantity, v.reservedQuantity, v.lowStockThreshold " +
+           "FROM ProductVariant v JOIN v.product p " +
+           "WHERE v.deletedAt IS NULL AND p.deletedAt IS NULL " +
+           "AND v.isActive = true AND p.isActive = true")
+    List<Object[]> findRestockProjections();
+
+    /**
+     * Giá thấp nhất (ưu tiên giá sale) của từng sản phẩm đang bán: product id, giá
+     */
+    @Query("SELECT p.id, MIN(CASE WHEN v.priceSale IS NOT NULL AND v.priceSale > 0 THEN v.priceSale ELSE v.priceBase END) " +
+           "FROM ProductVariant v JOIN v.product p " +
+           "WHERE v.deletedAt IS NULL AND p.deletedAt IS NULL " +
+           "AND v.isActive = true AND p.isActive = true " +
+           "GROUP BY p.id")
+    List<Object[]> findMinPriceByProduct();
+
 }
\ No newline at end of file
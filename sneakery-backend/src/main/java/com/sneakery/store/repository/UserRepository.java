@@ -35,6 +35,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * Search: tìm theo email, fullName, phoneNumber
      * Role: lọc theo vai trò (USER, ADMIN, MODERATOR)
      * Status: lọc theo trạng thái (active/inactive)
+     * Segment: lọc theo phân khúc RFM (Customer_Segments)
      */
     @Query("SELECT u FROM User u " +
             "WHERE (:search IS NULL OR :search = '' OR " +
@@ -43,11 +44,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
             "LOWER(u.phoneNumber) LIKE LOWER(CONCAT('%', :search, '%'))) " +
             "AND (:role IS NULL OR :role = '' OR u.role = :role) " +
             "AND (:isActive IS NULL OR u.isActive = :isActive) " +
+            "AND (:segment IS NULL OR :segment = '' OR EXISTS (" +
+            "   SELECT 1 FROM CustomerSegment s WHERE s.userId = u.id AND s.segment = :segment)) " +
             "AND (u.deletedAt IS NULL)")
     Page<User> findAllWithFilters(
             @Param("search") String search,
             @Param("role") String role,
             @Param("isActive") Boolean isActive,
+            @Param("segment") String segment,
             Pageable pageable
     );
 
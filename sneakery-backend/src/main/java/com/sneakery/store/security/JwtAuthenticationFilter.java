@@ -25,7 +25,10 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String SSE_STREAM_PATH = "/api/notifications/stream";
+
     private final JwtTokenProvider jwtTokenProvider;
+    private final SseTicketProvider sseTicketProvider;
     private final UserDetailsService userDetailsService; // Đây là CustomUserDetailsService
 
     @Override
@@ -85,10 +88,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
         }
 
+        // Kênh SSE: EventSource không gửi được header nên xác thực bằng ticket ngắn hạn (?ticket=), không nhận JWT qua URL
+        if (!StringUtils.hasText(token) && SSE_STREAM_PATH.equals(request.getRequestURI())) {
+            authenticateSseTicket(request);
+        }
+
         // 3. Chuyển request cho filter tiếp theo
         filterChain.doFilter(request, response);
     }
 
+    private void authenticateSseTicket(HttpServletRequest request) {
+        String email = sseTicketProvider.getEmailFromTicket(request.getParameter("ticket"));
+        if (email == null || SecurityContextHolder.getContext().getAuthentication() != null) {
+            return;
+        }
+        try {
+            UserDetails userDetails = this.userDetailsService.loadUserByUsername(email);
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        } catch (Exception ex) {
+            logger.warn("Could not authenticate SSE ticket: " + ex.getMessage());
+        }
+    }
+
     /**
      * Helper để lấy token từ Header
      */
@@ -0,0 +1,87 @@
+package com.sneakery.store.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Ticket ngắn hạn chỉ dùng để mở kênh SSE /api/notifications/stream
+ *
+ * <p>EventSource không gửi được header Authorization, nên trình duyệt đổi JWT (qua header) lấy ticket rồi đặt
+ * ticket vào query ?ticket=. Ticket nằm trong access log / log proxy thay cho JWT thật: hết hạn sau
+ * app.notification.sse-ticket-ttl-seconds và không dùng được làm Bearer token cho API khác.
+ *
+ * <p>Dạng: base64url(email|expiryEpochSeconds) + "." + base64url(HMAC-SHA256), không lưu trạng thái
+ * nên node nào cũng xác thực được.
+ */
+@Component
+public class SseTicketProvider {
+
+    private static final String PURPOSE = "sse-ticket:";
+    private static final char SEPARATOR = '|';
+
+    @Value("${app.jwt.secret}")
+    private String secret;
+
+    @Value("${app.notification.sse-ticket-ttl-seconds:30}")
+    private long ttlSeconds;
+
+    /**
+     * Tạo ticket cho user (email = username của UserDetails)
+     */
+    public String createTicket(String email) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = email + SEPARATOR + expiresAt;
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + encoder.encodeToString(sign(payload));
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /**
+     * Kiểm tra chữ ký + hạn của ticket
+     *
+     * @return email của user, hoặc null nếu ticket sai / hết hạn
+     */
+    public String getEmailFromTicket(String ticket) {
+        if (ticket == null) {
+            return null;
+        }
+        int dot = ticket.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            String payload = new String(decoder.decode(ticket.substring(0, dot)), StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(decoder.decode(ticket.substring(dot + 1)), sign(payload))) {
+                return null;
+            }
+            int separator = payload.lastIndexOf(SEPARATOR);
+            if (separator <= 0 || Long.parseLong(payload.substring(separator + 1)) < System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            return payload.substring(0, separator);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.trim().getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal((PURPOSE + payload).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Không ký được SSE ticket", e);
+        }
+    }
+}
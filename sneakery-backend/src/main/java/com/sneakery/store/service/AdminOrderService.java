@@ -30,14 +30,15 @@ public class AdminOrderService {
     private final OrderStatusHistoryRepository statusHistoryRepository;
     private final ProductVariantRepository variantRepository;
     private final UserRepository userRepository;
-    private final CouponRepository couponRepository;
     private final CouponService couponService;
     private final LoyaltyService loyaltyService;
-    private final AddressRepository addressRepository;
     private static final BigDecimal VAT_RATE = BigDecimal.valueOf(0.1); // 10%
     private final ReturnRequestRepository returnRequestRepository;
-    private final LoyaltyPointRepository loyaltyPointRepository;
     private final CacheManager cacheManager;
+    private final PosContextService posContextService;
+    private final PosSkuIndexService posSkuIndexService;
+    private final ProductFacetIndexService productFacetIndexService;
+    private final OrderSalesSignalService orderSalesSignalService;
 
     @Transactional(readOnly = true)
     public Page<AdminOrderListDto> getAllOrders(Pageable pageable) {
@@ -124,12 +125,23 @@ public class AdminOrderService {
             refund.setDescription("Hoàn điểm do đơn hàng bị hủy: " + order.getOrderNumber());
             refund.setExpiresAt(LocalDateTime.now().plusYears(1));
 
-            loyaltyPointRepository.save(refund);
+            loyaltyService.recordTransaction(refund);
 
             log.info("🟢 Refunded {} points for cancelled order #{} to user {}",
                     pointsUsed, orderId, customer.getId());
         }
 
+        // ====== RELEASE COUPON USE FOR CANCELLED ORDER ======
+        if (!isPOSOrder
+                && "cancelled".equalsIgnoreCase(normalizedStatus)
+                && !"cancelled".equalsIgnoreCase(oldStatus)
+                && !"delivered".equalsIgnoreCase(oldStatus)
+                && order.getCoupon() != null) {
+
+            couponService.releaseCoupon(order.getCoupon().getId(), customer != null ? customer.getId() : null);
+            log.info("🎟️ Released coupon use for cancelled order #{}", orderId);
+        }
+
         // ====== RELEASE RESERVED STOCK WHEN CANCELLED ======
         if (!isPOSOrder
                 && "cancelled".equalsIgnoreCase(normalizedStatus)
@@ -229,6 +241,9 @@ public class AdminOrderService {
             }
         }
 
+        // ====== DAILY SALES + TỐC ĐỘ BÁN + CO-PURCHASE INDEX (đơn vào / rời nhóm trạng thái được tính) ======
+        orderSalesSignalService.recordStatusChange(order, oldStatus, normalizedStatus);
+
         OrderStatusHistory history = new OrderStatusHistory();
         history.setOrder(order);
         history.setStatus(normalizedStatus);
@@ -476,6 +491,7 @@ public class AdminOrderService {
                 .userId(order.getUser() != null ? order.getUser().getId() : null)
                 .customerName(order.getUser() != null ? order.getUser().getFullName() : "Guest")
                 .customerEmail(order.getUser() != null ? order.getUser().getEmail() : "N/A")
+                .adminNote(order.getAdminNote())
                 .customerPointBalance(customerPointBalance)
 
                 // 🏠 Address
@@ -535,88 +551,53 @@ public class AdminOrderService {
         // 1. Generate order number
         String orderNumber = generatePOSOrderNumber();
 
-        // 2. Get customer (optional)
-        User user = null;
+        // 2. Get customer (optional) - khách vãng lai dùng khách hệ thống đã cache
+        User customer = null;
         if (requestDto.getCustomerId() != null) {
-            user = userRepository.findById(requestDto.getCustomerId())
+            customer = userRepository.findById(requestDto.getCustomerId())
                     .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Không tìm thấy khách hàng"));
         }
+        User user = customer != null ? customer : posContextService.systemCustomer();
 
-        // 3. Create POS default address
-        Address posAddress = new Address();
-
-        posAddress.setRecipientName(
-                requestDto.getCustomerName() != null ?
-                        requestDto.getCustomerName() :
-                        (user != null ? user.getFullName() : "Khách vãng lai")
-        );
-
-//        posAddress.setEmail(
-//                requestDto.getCustomerEmail() != null ?
-//                        requestDto.getCustomerEmail() :
-//                        (user != null ? user.getEmail() : null)
-//        );
-
-        String phone =
-                (requestDto.getCustomerPhone() != null && !requestDto.getCustomerPhone().isBlank())
-                        ? requestDto.getCustomerPhone()
-                        : (user != null && user.getPhoneNumber() != null && !user.getPhoneNumber().isBlank())
-                        ? user.getPhoneNumber()
-                        : "0900000000"; // 📌 phone mặc định cho POS guest
-
-        posAddress.setPhone(phone);
-
-        posAddress.setLine1("Cửa hàng Sneakery");
-        posAddress.setLine2("Bán tại quầy POS - 13 Trịnh Văn Bô");
-        posAddress.setCity("Hà Nội");
-        posAddress.setDistrict("Quận Nam Từ Liêm");
-        posAddress.setWard("Phường Xuân Phương");
-        posAddress.setPostalCode("100000");
-
-        // ⚠️ Address bắt buộc phải có user (DB constraint)
-        if (user == null) {
-            user = userRepository.findAll()
-                    .stream()
-                    .findFirst()
-                    .orElseThrow(() -> new ApiException(
-                            HttpStatus.INTERNAL_SERVER_ERROR,
-                            "Không tìm thấy user hệ thống để gán cho POS address"
-                    ));
-        }
-
-        posAddress.setUser(user);
-
-        Address savedAddress = addressRepository.save(posAddress);
+        // 3. POS address: địa chỉ cửa hàng mang tên / SĐT người nhận thật của đơn
+        // (tái sử dụng giữa các lần bán; khách vãng lai không nhập gì → địa chỉ dùng chung đã cache)
+        String recipientName = hasText(requestDto.getCustomerName()) ? requestDto.getCustomerName()
+                : customer != null ? customer.getFullName() : null;
+        String recipientPhone = hasText(requestDto.getCustomerPhone()) ? requestDto.getCustomerPhone()
+                : customer != null ? customer.getPhoneNumber() : null;
+        Address posAddress = posContextService.posAddressFor(user, recipientName, recipientPhone);
 
         // 4. Initialize order
         Order order = new Order();
         order.setUser(user);
         order.setOrderNumber(orderNumber);
-        order.setAddressShipping(savedAddress);
-        order.setAddressBilling(savedAddress);
+        order.setAddressShipping(posAddress);
+        order.setAddressBilling(posAddress);
         order.setCreatedAt(LocalDateTime.now());
         order.setStatus("delivered");
         order.setShippingFee(BigDecimal.ZERO);
         order.setSubtotal(BigDecimal.ZERO);
+        if (customer == null) {
+            // Address không có email: giữ đủ liên hệ khách vãng lai (tên - SĐT - email) trong ghi chú đơn
+            order.setAdminNote(buildWalkInNote(requestDto));
+        }
 
         BigDecimal subtotal = BigDecimal.ZERO;
 
         // 5. Handle items
         for (POSOrderItemDto itemDto : requestDto.getItems()) {
 
-            ProductVariant variant;
-            if (itemDto.getVariantId() != null) {
-                variant = variantRepository.findByIdWithDetails(itemDto.getVariantId())
-                        .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND,
-                                "Không tìm thấy variant ID: " + itemDto.getVariantId()));
-            } else {
-                variant = variantRepository.findWithFilters(
-                                null, null, null, itemDto.getProductId(), null,
-                                org.springframework.data.domain.PageRequest.of(0, 1))
-                        .getContent().stream().findFirst()
-                        .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND,
-                                "Không tìm thấy variant cho product ID: " + itemDto.getProductId()));
-            }
+            // Không có variantId: chọn biến thể từ index SKU trong bộ nhớ thay vì query LIKE findWithFilters
+            Long variantId = itemDto.getVariantId() != null
+                    ? itemDto.getVariantId()
+                    : posSkuIndexService.findDefaultForProduct(itemDto.getProductId(), itemDto.getQuantity())
+                            .map(PosSkuIndexService.PosVariant::variantId)
+                            .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND,
+                                    "Không tìm thấy variant cho product ID: " + itemDto.getProductId()));
+
+            ProductVariant variant = variantRepository.findByIdWithDetails(variantId)
+                    .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND,
+                            "Không tìm thấy variant ID: " + variantId));
 
             // Stock check
             if (variant.getStockQuantity() == null || variant.getStockQuantity() < itemDto.getQuantity()) {
@@ -631,6 +612,11 @@ public class AdminOrderService {
             int newStock = variant.getStockQuantity() - itemDto.getQuantity();
             variant.setStockQuantity(newStock);
             variantRepository.save(variant);
+            posSkuIndexService.updateStockAfterCommit(variant.getId(), newStock);
+            if (newStock <= 0) {
+                // Chỉ khi hết hàng mới đổi facet còn hàng; các thay đổi khác do job refresh định kỳ đồng bộ
+                productFacetIndexService.reloadProductAfterCommit(variant.getProduct().getId());
+            }
 
             Long productId = variant.getProduct().getId();
             cacheManager.getCache("products").evict(productId);
@@ -667,31 +653,27 @@ public class AdminOrderService {
 
         if (requestDto.getDiscountCode() != null && !requestDto.getDiscountCode().isBlank()) {
             CouponDto couponDto = couponService.validateCouponCode(requestDto.getDiscountCode());
-            coupon = couponRepository.findById(couponDto.getId())
-                    .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Coupon không tồn tại"));
 
-            if ("percent".equalsIgnoreCase(coupon.getDiscountType())) {
-                discountAmount = subtotal.multiply(coupon.getValue())
+            if ("percent".equalsIgnoreCase(couponDto.getDiscountType())) {
+                discountAmount = subtotal.multiply(couponDto.getValue())
                         .divide(BigDecimal.valueOf(100));
-                if (coupon.getMaxDiscountAmount() != null &&
-                        discountAmount.compareTo(coupon.getMaxDiscountAmount()) > 0) {
-                    discountAmount = coupon.getMaxDiscountAmount();
+                if (couponDto.getMaxDiscountAmount() != null &&
+                        discountAmount.compareTo(couponDto.getMaxDiscountAmount()) > 0) {
+                    discountAmount = couponDto.getMaxDiscountAmount();
                 }
             } else {
-                discountAmount = coupon.getValue();
+                discountAmount = couponDto.getValue();
             }
 
-            if (coupon.getMinOrderAmount() != null &&
-                    subtotal.compareTo(coupon.getMinOrderAmount()) < 0) {
+            if (couponDto.getMinOrderAmount() != null &&
+                    subtotal.compareTo(couponDto.getMinOrderAmount()) < 0) {
                 throw new ApiException(HttpStatus.BAD_REQUEST,
                         "Đơn hàng chưa đạt giá trị tối thiểu để dùng mã giảm giá");
             }
 
+            // Update uses (atomic). Khách vãng lai được gán user hệ thống nên chỉ giới hạn theo user khi chọn khách hàng
+            coupon = couponService.redeemCoupon(couponDto, requestDto.getCustomerId());
             order.setCoupon(coupon);
-
-            // Update uses
-            coupon.setUsesCount((coupon.getUsesCount() == null ? 0 : coupon.getUsesCount()) + 1);
-            couponRepository.save(coupon);
         }
 
         order.setDiscountAmount(discountAmount);
@@ -702,9 +684,9 @@ public class AdminOrderService {
         int pointsUsed = requestDto.getPointsUsed() != null ? requestDto.getPointsUsed() : 0;
         BigDecimal pointsDiscount = BigDecimal.ZERO;
 
-        if (user != null && pointsUsed > 0) {
+        if (customer != null && pointsUsed > 0) {
             // Apply redeem
-            pointsDiscount = loyaltyService.redeemPoints(user.getId(), pointsUsed, order);
+            pointsDiscount = loyaltyService.redeemPoints(customer.getId(), pointsUsed, order);
             order.setPointsUsed(pointsUsed);
         }
 
@@ -749,11 +731,12 @@ public class AdminOrderService {
         // 11. Save order
         // =============================
         Order savedOrder = orderRepository.save(order);
+        orderSalesSignalService.recordStatusChange(savedOrder, null, savedOrder.getStatus());
 
         // =============================
-        // 12. Earn points afterwards
+        // 12. Earn points afterwards (khách vãng lai không tích điểm)
         // =============================
-        if (user != null) {
+        if (customer != null) {
             loyaltyService.earnPointsFromOrder(savedOrder);
         }
 
@@ -766,19 +749,19 @@ public class AdminOrderService {
         dto.setPosCustomerName(
                 requestDto.getCustomerName() != null && !requestDto.getCustomerName().isBlank()
                         ? requestDto.getCustomerName()
-                        : (user != null ? user.getFullName() : "Khách vãng lai")
+                        : (customer != null ? customer.getFullName() : "Khách vãng lai")
         );
 
         dto.setPosCustomerEmail(
                 requestDto.getCustomerEmail() != null && !requestDto.getCustomerEmail().isBlank()
                         ? requestDto.getCustomerEmail()
-                        : (user != null ? user.getEmail() : null)
+                        : (customer != null ? customer.getEmail() : null)
         );
 
         dto.setPosCustomerPhone(
                 requestDto.getCustomerPhone() != null && !requestDto.getCustomerPhone().isBlank()
                         ? requestDto.getCustomerPhone()
-                        : (user != null ? user.getPhoneNumber() : null)
+                        : (customer != null ? customer.getPhoneNumber() : null)
         );
 
         return dto;
@@ -802,57 +785,24 @@ public class AdminOrderService {
     }
 
     /**
-     * Tạo địa chỉ mặc định cho POS (địa chỉ cửa hàng)
-     * Vì POS order là bán tại cửa hàng, không cần địa chỉ giao hàng thực sự
-     * Nhưng database yêu cầu address_shipping_id không được NULL
-     * Tối ưu: Tái sử dụng địa chỉ POS chung thay vì tạo mới mỗi lần
-     * Lưu ý: address_type chỉ cho phép 'home', 'office', 'other' - dùng 'other' cho
-     * POS
+     * Ghi chú thông tin khách vãng lai do thu ngân nhập (tên / SĐT / email), null nếu không nhập gì
      */
-    private Address createPOSDefaultAddress(User user) {
-        // Tìm địa chỉ POS đã tồn tại (dùng chung cho tất cả POS orders)
-        // Địa chỉ POS có line1 cố định "Cửa hàng Sneakery" và address_type = "other"
-        String posLine1 = "Cửa hàng Sneakery";
-        String posAddressType = "other";
-        Optional<Address> existingPosAddress = addressRepository.findByLine1AndAddressType(posLine1, posAddressType);
-
-        if (existingPosAddress.isPresent()) {
-            // Tái sử dụng địa chỉ POS đã có
-            return existingPosAddress.get();
+    private String buildWalkInNote(POSOrderRequestDto requestDto) {
+        List<String> parts = new java.util.ArrayList<>();
+        if (hasText(requestDto.getCustomerName())) {
+            parts.add(requestDto.getCustomerName().trim());
         }
-
-        // Tạo địa chỉ POS mới nếu chưa có
-        // Lưu ý: Address vẫn cần user_id (không thể NULL), nhưng Order có thể NULL
-        // user_id
-        // Với POS address, ta cần gán cho một user (có thể dùng user đầu tiên hoặc user
-        // đặc biệt)
-        Address posAddress = new Address();
-        // Nếu user null (khách vãng lai), tìm user đầu tiên để gán cho POS address
-        // Vì Address table vẫn yêu cầu user_id NOT NULL
-        if (user == null) {
-            // Tìm user đầu tiên để gán cho POS address
-            // Hoặc có thể tạo một user đặc biệt cho POS trong tương lai
-            user = userRepository.findAll().stream().findFirst()
-                    .orElseThrow(() -> new ApiException(HttpStatus.INTERNAL_SERVER_ERROR,
-                            "Không tìm thấy user nào trong hệ thống"));
+        if (hasText(requestDto.getCustomerPhone())) {
+            parts.add(requestDto.getCustomerPhone().trim());
         }
-        posAddress.setUser(user);
-
-        posAddress.setRecipientName(user.getFullName() != null ? user.getFullName() : "Khách hàng");
-        posAddress.setPhone(user.getPhoneNumber() != null ? user.getPhoneNumber() : "0900000000");
-        posAddress.setLine1(posLine1);
-        posAddress.setLine2("Bán tại quầy");
-        posAddress.setCity("Hà Nội");
-        posAddress.setDistrict("Quận Hoàn Kiếm");
-        posAddress.setWard("Phường Tràng Tiền");
-        posAddress.setPostalCode("100000");
-        posAddress.setAddressType("other"); // Dùng 'other' vì CHECK constraint chỉ cho phép 'home', 'office', 'other'
-        posAddress.setIsDefault(false);
-        posAddress.setCreatedAt(LocalDateTime.now());
-        posAddress.setUpdatedAt(LocalDateTime.now());
-
-        // Lưu địa chỉ vào database
-        return addressRepository.save(posAddress);
+        if (hasText(requestDto.getCustomerEmail())) {
+            parts.add(requestDto.getCustomerEmail().trim());
+        }
+        return parts.isEmpty() ? null : "Khách POS: " + String.join(" - ", parts);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
     }
 
     /**
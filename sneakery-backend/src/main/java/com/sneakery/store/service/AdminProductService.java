@@ -87,6 +87,10 @@ public class AdminProductService {
     private final ShoeSoleRepository shoeSoleRepository;
     private final com.sneakery.store.util.ProductValidationUtil productValidationUtil;
     private final ProductImageRepository productImageRepository;
+    private final ProductImageIndexService productImageIndexService;
+    private final PosSkuIndexService posSkuIndexService;
+    private final ProductFacetIndexService productFacetIndexService;
+    private final ProductSuggestIndexService productSuggestIndexService;
     private final ActivityLogService activityLogService;
 
 
@@ -203,6 +207,9 @@ public class AdminProductService {
 
         // 8️⃣ Lưu sản phẩm (cascade variants)
         Product savedProduct = productRepository.save(product);
+        posSkuIndexService.reloadProductAfterCommit(savedProduct.getId());
+        productFacetIndexService.reloadProductAfterCommit(savedProduct.getId());
+        productSuggestIndexService.rebuildAfterCommit();
 
         // 9️⃣ Log activity (audit trail)
         try {
@@ -309,6 +316,9 @@ public class AdminProductService {
 
         // 8️⃣ Lưu lại
         Product updatedProduct = productRepository.save(product);
+        posSkuIndexService.reloadProductAfterCommit(productId);
+        productFacetIndexService.reloadProductAfterCommit(productId);
+        productSuggestIndexService.rebuildAfterCommit();
 
         // 9️⃣ Log activity (audit trail)
         try {
@@ -557,6 +567,7 @@ public class AdminProductService {
 
         // 5. Xóa ProductImages (theo product)
         productImageRepository.deleteByProductId(productId);
+        productImageIndexService.reloadProductAfterCommit(productId);
         log.info("Đã xóa tất cả product images cho product ID: {}", productId);
 
         // 6. Xóa Reviews (theo product) - sử dụng native query
@@ -599,6 +610,9 @@ public class AdminProductService {
             variantRepository.deleteAllById(variantIds);
             log.info("Đã xóa {} variants cho product ID: {}", variantIds.size(), productId);
         }
+        posSkuIndexService.reloadProductAfterCommit(productId);
+        productFacetIndexService.reloadProductAfterCommit(productId);
+        productSuggestIndexService.rebuildAfterCommit();
 
         // 12. Xóa Product (hard delete)
         productRepository.delete(product);
@@ -856,7 +870,12 @@ public class AdminProductService {
         }
 
         // 6. Lưu tất cả products (sẽ cascade-save variants)
-        productMap.values().forEach(productRepository::save);
+        for (Product product : productMap.values()) {
+            Product saved = productRepository.save(product);
+            posSkuIndexService.reloadProductAfterCommit(saved.getId());
+            productFacetIndexService.reloadProductAfterCommit(saved.getId());
+            productSuggestIndexService.rebuildAfterCommit();
+        }
 
         result.setMessage(String.format("Import hoàn tất: %d thành công, %d lỗi",
                 result.getSuccessCount(), result.getErrorCount()));
@@ -909,6 +928,8 @@ public class AdminProductService {
                 }
 
                 productRepository.save(product);
+                posSkuIndexService.reloadProductAfterCommit(productId);
+                productFacetIndexService.reloadProductAfterCommit(productId);
                 result.getSuccessIds().add(productId);
                 result.setSuccessCount(result.getSuccessCount() + 1);
 
@@ -919,6 +940,10 @@ public class AdminProductService {
             }
         }
 
+        if (result.getSuccessCount() > 0) {
+            productSuggestIndexService.rebuildAfterCommit();
+        }
+
         result.setMessage(String.format("Bulk update hoàn tất: %d thành công, %d lỗi",
                 result.getSuccessCount(), result.getErrorCount()));
 
@@ -1012,6 +1037,9 @@ public class AdminProductService {
 
         // 4. Lưu
         Product saved = productRepository.save(duplicate);
+        posSkuIndexService.reloadProductAfterCommit(saved.getId());
+        productFacetIndexService.reloadProductAfterCommit(saved.getId());
+        productSuggestIndexService.rebuildAfterCommit();
         return convertToAdminDetailDto(saved);
     }
 
@@ -36,6 +36,10 @@ public class AdminProductVariantService {
     private final ProductRepository productRepository;
     private final ProductImageRepository productImageRepository; // ✅ Added
     private final ActivityLogService activityLogService;
+    private final NotificationFanoutService notificationFanoutService;
+    private final PosSkuIndexService posSkuIndexService;
+    private final ProductFacetIndexService productFacetIndexService;
+    private final ProductSuggestIndexService productSuggestIndexService;
 
     private final EntityManager entityManager;
 
@@ -44,10 +48,10 @@ public class AdminProductVariantService {
      */
     @Transactional(readOnly = true)
     public Page<AdminProductVariantDto> getVariantsWithFilter(ProductVariantFilterDto filter, Pageable pageable) {
-        // Nếu sort theo color hoặc size, cần custom sort logic
-        // Lấy tất cả data trước (không sort trong query)
+        // Màu sort thẳng trong query (collation không phân biệt hoa thường).
+        // Size là danh sách "40, 41" nên vẫn cần sort thủ công theo số: lấy tất cả data trước (không sort trong query)
         Pageable customPageable = pageable;
-        if (filter.getSortBy() != null && (filter.getSortBy().equalsIgnoreCase("color") || filter.getSortBy().equalsIgnoreCase("size"))) {
+        if (filter.getSortBy() != null && filter.getSortBy().equalsIgnoreCase("size")) {
             // Lấy tất cả data không sort
             customPageable = PageRequest.of(0, Integer.MAX_VALUE);
         }
@@ -61,19 +65,13 @@ public class AdminProductVariantService {
                 customPageable
         );
 
-        // Nếu sort theo color hoặc size, sort thủ công rồi paginate
-        if (filter.getSortBy() != null && (filter.getSortBy().equalsIgnoreCase("color") || filter.getSortBy().equalsIgnoreCase("size"))) {
+        // Nếu sort theo size, sort thủ công rồi paginate
+        if (filter.getSortBy() != null && filter.getSortBy().equalsIgnoreCase("size")) {
             List<ProductVariant> variantList = new ArrayList<>(variants.getContent());
             boolean isAsc = filter.getSortDirection() == null || filter.getSortDirection().equalsIgnoreCase("asc");
 
             variantList.sort((v1, v2) -> {
-                if (filter.getSortBy().equalsIgnoreCase("color")) {
-                    // Sort màu case-insensitive
-                    String color1 = v1.getColor() != null ? v1.getColor().toLowerCase() : "";
-                    String color2 = v2.getColor() != null ? v2.getColor().toLowerCase() : "";
-                    int compare = color1.compareTo(color2);
-                    return isAsc ? compare : -compare;
-                } else if (filter.getSortBy().equalsIgnoreCase("size")) {
+                if (filter.getSortBy().equalsIgnoreCase("size")) {
                     // Sort size theo số
                     try {
                         int size1 = Integer.parseInt(v1.getSize() != null ? v1.getSize() : "0");
@@ -145,6 +143,9 @@ public class AdminProductVariantService {
         variant.setUpdatedAt(LocalDateTime.now());
 
         ProductVariant savedVariant = productVariantRepository.save(variant);
+        posSkuIndexService.reloadProductAfterCommit(product.getId());
+        productFacetIndexService.reloadProductAfterCommit(product.getId());
+        productSuggestIndexService.rebuildAfterCommit();
         return convertToDto(savedVariant);
     }
 
@@ -188,6 +189,9 @@ public class AdminProductVariantService {
                 );
                 activityLogService.logAction("UPDATE_STOCK", logMsg);
 
+                posSkuIndexService.reloadProductAfterCommit(existing.getProduct().getId());
+                productFacetIndexService.reloadProductAfterCommit(existing.getProduct().getId());
+                productSuggestIndexService.rebuildAfterCommit();
                 resultList.add(convertToDto(existing));
             } else {
                 // 👉 Nếu chưa tồn tại → Tạo mới
@@ -222,6 +226,9 @@ public class AdminProductVariantService {
                 );
                 activityLogService.logAction("CREATE_VARIANT", logMsg);
 
+                posSkuIndexService.reloadProductAfterCommit(product.getId());
+                productFacetIndexService.reloadProductAfterCommit(product.getId());
+                productSuggestIndexService.rebuildAfterCommit();
                 resultList.add(convertToDto(saved));
             }
         }
@@ -251,6 +258,9 @@ public class AdminProductVariantService {
         variant.setUpdatedAt(LocalDateTime.now());
 
         ProductVariant updatedVariant = productVariantRepository.save(variant);
+        posSkuIndexService.reloadProductAfterCommit(variant.getProduct().getId());
+        productFacetIndexService.reloadProductAfterCommit(variant.getProduct().getId());
+        productSuggestIndexService.rebuildAfterCommit();
         return convertToDto(updatedVariant);
     }
 
@@ -305,6 +315,9 @@ public class AdminProductVariantService {
 
         // 5. Xóa ProductVariant (hard delete)
         productVariantRepository.delete(variant);
+        posSkuIndexService.reloadProductAfterCommit(variant.getProduct().getId());
+        productFacetIndexService.reloadProductAfterCommit(variant.getProduct().getId());
+        productSuggestIndexService.rebuildAfterCommit();
         log.info("Đã xóa variant ID: {} (SKU: {}) thành công", id, variant.getSku());
     }
 
@@ -315,10 +328,21 @@ public class AdminProductVariantService {
         ProductVariant variant = productVariantRepository.findById(Objects.requireNonNull(id))
                 .orElseThrow(() -> new ProductVariantNotFoundException(id));
 
+        Integer oldStock = variant.getStockQuantity();
         variant.setStockQuantity(requestDto.getNewQuantity());
         variant.setUpdatedAt(LocalDateTime.now());
 
         ProductVariant updatedVariant = productVariantRepository.save(variant);
+        posSkuIndexService.updateStockAfterCommit(updatedVariant.getId(), updatedVariant.getStockQuantity());
+        productFacetIndexService.reloadProductAfterCommit(updatedVariant.getProduct().getId());
+
+        // Hết hàng -> có hàng: báo cho những người đã wishlist (gửi nền theo chunk)
+        boolean restocked = (oldStock == null || oldStock <= 0)
+                && requestDto.getNewQuantity() != null && requestDto.getNewQuantity() > 0;
+        if (restocked) {
+            notificationFanoutService.enqueueRestock(updatedVariant.getProduct());
+        }
+
         return convertToDto(updatedVariant);
     }
 
@@ -11,8 +11,6 @@ import com.sneakery.store.repository.OrderStatusHistoryRepository;
 import com.sneakery.store.repository.ProductVariantRepository;
 import com.sneakery.store.repository.ReturnRequestRepository;
 import com.sneakery.store.repository.UserRepository;
-import com.sneakery.store.repository.LoyaltyPointRepository;
-import com.sneakery.store.repository.CouponRepository;
 import com.sneakery.store.util.JsonUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -40,8 +38,9 @@ public class AdminReturnService {
     private final UserRepository userRepository;
     private final OrderStatusHistoryRepository statusHistoryRepository;
     private final ProductVariantRepository variantRepository;
-    private final LoyaltyPointRepository loyaltyPointRepository;
-    private final CouponRepository couponRepository;
+    private final LoyaltyService loyaltyService;
+    private final CouponService couponService;
+    private final OrderSalesSignalService orderSalesSignalService;
 
     /**
      * Lấy tất cả return requests với pagination và filter
@@ -100,6 +99,7 @@ public class AdminReturnService {
             }
 
             // ====== UPDATE ORDER STATUS ======
+            String oldOrderStatus = returnRequest.getOrder().getStatus();
             switch (status.toLowerCase()) {
                 case "approved":
                     returnRequest.getOrder().setStatus("return_approved");
@@ -147,6 +147,8 @@ public class AdminReturnService {
             }
 
             returnRequest.getOrder().setUpdatedAt(LocalDateTime.now());
+            orderSalesSignalService.recordStatusChange(returnRequest.getOrder(), oldOrderStatus,
+                    returnRequest.getOrder().getStatus());
 
             // ====== SAVE ORDER STATUS HISTORY ======
             OrderStatusHistory history = new OrderStatusHistory();
@@ -200,6 +202,8 @@ public class AdminReturnService {
         returnRequest.setApprovedBy(admin);
 
         // ====== UPDATE ORDER STATUS ======
+        orderSalesSignalService.recordStatusChange(returnRequest.getOrder(),
+                returnRequest.getOrder().getStatus(), "return_completed");
         returnRequest.getOrder().setStatus("return_completed");
         returnRequest.getOrder().setUpdatedAt(LocalDateTime.now());
 
@@ -418,7 +422,7 @@ public class AdminReturnService {
                 refund.setTransactionType("earn");
                 refund.setDescription("Hoàn điểm trả hàng đơn " + order.getOrderNumber());
                 refund.setExpiresAt(LocalDateTime.now().plusYears(1));
-                loyaltyPointRepository.save(refund);
+                loyaltyService.recordTransaction(refund);
                 log.info("🟢 Refunded {} points to user {}", pointsUsed, customer.getId());
             }
 
@@ -430,20 +434,16 @@ public class AdminReturnService {
                 revoke.setTransactionType("redeem");
                 revoke.setDescription("Thu hồi điểm đã earn đơn " + order.getOrderNumber());
                 revoke.setExpiresAt(null);
-                loyaltyPointRepository.save(revoke);
+                loyaltyService.recordTransaction(revoke);
                 log.info("🔻 Deducted {} earned points from user {}", pointsEarned, customer.getId());
             }
 
             // ====== COUPON HANDLING ======
             Coupon coupon = order.getCoupon();
             if (coupon != null) {
-                Integer currentUses = Optional.ofNullable(coupon.getUsesCount()).orElse(0);
-                if (currentUses > 0) {
-                    coupon.setUsesCount(currentUses - 1); // hoàn lại số lượt sử dụng
-                    log.info("🎟️ Coupon restored use count: {} -> {} (Coupon #{})",
-                            currentUses, coupon.getUsesCount(), coupon.getId());
-                }
-                couponRepository.save(coupon);
+                // hoàn lại số lượt sử dụng (toàn cục + theo user), không đọc-sửa-ghi entity
+                couponService.releaseCoupon(coupon.getId(), customer != null ? customer.getId() : null);
+                log.info("🎟️ Coupon use restored (Coupon #{})", coupon.getId());
             }
 
             // Đánh dấu đã xử lý tài sản tránh chạy lặp
@@ -502,6 +502,7 @@ public class AdminReturnService {
         returnRequest.setApprovedBy(admin);
         returnRequest.setApprovedAt(LocalDateTime.now());
         returnRequest.setAdminNote(request.getAdminNote());
+        orderSalesSignalService.recordStatusChange(order, order.getStatus(), "return_completed");
         order.setStatus("return_completed");
 
         // Lưu lịch sử trạng thái
@@ -2,8 +2,10 @@ package com.sneakery.store.service;
 
 import com.sneakery.store.dto.CreateUserRequestDto;
 import com.sneakery.store.dto.UserDto;
+import com.sneakery.store.entity.CustomerSegment;
 import com.sneakery.store.entity.User;
 import com.sneakery.store.exception.ApiException;
+import com.sneakery.store.repository.CustomerSegmentRepository;
 import com.sneakery.store.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -13,8 +15,14 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Service quản lý users cho Admin
@@ -25,6 +33,7 @@ public class AdminUserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CustomerSegmentRepository customerSegmentRepository;
 
     /**
      * Lấy danh sách users với phân trang (chỉ lấy users chưa bị xóa)
@@ -32,17 +41,54 @@ public class AdminUserService {
     @Transactional(readOnly = true)
     public Page<UserDto> getAllUsers(Pageable pageable) {
         // Sử dụng findAllWithFilters với null để lấy tất cả users chưa bị xóa
-        Page<User> userPage = userRepository.findAllWithFilters(null, null, null, pageable);
-        return userPage.map(this::convertToDto);
+        Page<User> userPage = userRepository.findAllWithFilters(null, null, null, null, pageable);
+        return withSegments(userPage);
     }
 
     /**
-     * Lấy danh sách users với search và filter
+     * Lấy danh sách users với search và filter (segment: phân khúc RFM, xem CustomerSegmentationService)
      */
     @Transactional(readOnly = true)
-    public Page<UserDto> getAllUsersWithFilters(String search, String role, Boolean isActive, Pageable pageable) {
-        Page<User> userPage = userRepository.findAllWithFilters(search, role, isActive, pageable);
-        return userPage.map(this::convertToDto);
+    public Page<UserDto> getAllUsersWithFilters(String search, String role, Boolean isActive, String segment,
+                                                Pageable pageable) {
+        CustomerSegmentationService.validateSegment(segment);
+        Page<User> userPage = userRepository.findAllWithFilters(search, role, isActive, segment, pageable);
+        return withSegments(userPage);
+    }
+
+    /**
+     * Số khách theo phân khúc RFM
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getSegmentSummary() {
+        Map<String, Object[]> counts = new HashMap<>();
+        for (Object[] row : customerSegmentRepository.countBySegment()) {
+            counts.put((String) row[0], row);
+        }
+        List<Map<String, Object>> summary = new ArrayList<>();
+        for (String segment : CustomerSegmentationService.SEGMENTS) {
+            Object[] row = counts.get(segment);
+            Map<String, Object> item = new HashMap<>();
+            item.put("segment", segment);
+            item.put("customers", row != null ? ((Number) row[1]).longValue() : 0L);
+            item.put("monetary", row != null && row[2] != null ? row[2] : BigDecimal.ZERO);
+            summary.add(item);
+        }
+        return summary;
+    }
+
+    /**
+     * Chuyển trang user sang DTO kèm phân khúc (1 câu truy vấn cho cả trang)
+     */
+    private Page<UserDto> withSegments(Page<User> userPage) {
+        List<Long> userIds = userPage.getContent().stream().map(User::getId).collect(Collectors.toList());
+        Map<Long, String> segments = customerSegmentRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(CustomerSegment::getUserId, CustomerSegment::getSegment));
+        return userPage.map(user -> {
+            UserDto dto = convertToDto(user);
+            dto.setSegment(segments.get(user.getId()));
+            return dto;
+        });
     }
 
     /**
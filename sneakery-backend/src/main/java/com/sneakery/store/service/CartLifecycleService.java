@@ -0,0 +1,339 @@
+package com.sneakery.store.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service: CartLifecycleService
+ * Hai job định kỳ trên bảng Carts:
+ *
+ * <ul>
+ *   <li><b>Nhắc giỏ bỏ quên:</b> giỏ của user có hàng nhưng không thao tác quá app.cart.recovery.idle-hours
+ *       → ghi thông báo "cart_reminder" (và email abandoned_cart nếu bật).
+ *       Cột recovery_notified_at chống nhắc trùng: mỗi giỏ chỉ được nhắc một lần cho mỗi đợt bỏ quên,
+ *       khách thao tác lại giỏ (updated_at mới hơn) thì mới có thể được nhắc lần sau</li>
+ *   <li><b>Dọn giỏ guest hết hạn:</b> xóa Cart_Items rồi Carts của giỏ guest có expires_at đã qua</li>
+ * </ul>
+ *
+ * <p>Cả hai job chọn giỏ qua filtered index (idx_carts_user_idle / idx_carts_guest_expires)
+ * và xử lý theo batch set-based: mỗi batch là một transaction ngắn với vài câu lệnh SQL cố định,
+ * tối đa max-batches-per-run batch mỗi lần chạy, nghỉ batch-delay-ms giữa các batch.
+ * Khóa hàng chỉ giữ trong một batch nên không chặn lâu các request giỏ hàng đang chạy song song.
+ * Số dòng xử lý và thời gian batch dài nhất của lần chạy gần nhất xem qua {@link #getStats()}.
+ */
+@Slf4j
+@Service
+public class CartLifecycleService {
+
+    private static final String RECOVERY_LOCK_NAME = "cart.recovery";
+    private static final String PURGE_LOCK_NAME = "cart.purge";
+    private static final String REMINDER_TYPE = "cart_reminder";
+    private static final String REMINDER_TITLE = "Giỏ hàng đang chờ bạn";
+    private static final String REMINDER_MESSAGE = "Bạn còn sản phẩm trong giỏ hàng, hoàn tất đơn trước khi hết hàng nhé!";
+    private static final String REMINDER_LINK = "/cart";
+
+    /**
+     * Đánh dấu batch giỏ bỏ quên là đã nhắc và trả về ID của chúng.
+     * READPAST: bỏ qua giỏ đang bị khóa (khách đang thao tác).
+     */
+    private static final String CLAIM_IDLE_CARTS_SQL =
+            "UPDATE TOP (:batchSize) c " +
+            "SET c.recovery_notified_at = SYSDATETIME() " +
+            "OUTPUT inserted.id " +
+            "FROM Carts c WITH (ROWLOCK, READPAST) " +
+            "WHERE c.user_id IS NOT NULL " +
+            "AND c.updated_at < DATEADD(HOUR, -:idleHours, SYSDATETIME()) " +
+            "AND c.updated_at >= DATEADD(DAY, -:maxIdleDays, SYSDATETIME()) " +
+            "AND (c.recovery_notified_at IS NULL OR c.recovery_notified_at < c.updated_at) " +
+            "AND EXISTS (SELECT 1 FROM Cart_Items i WHERE i.cart_id = c.id) " +
+            "AND EXISTS (SELECT 1 FROM Users u " +
+            "   WHERE u.id = c.user_id AND u.is_active = 1 AND u.email <> :guestEmail)";
+
+    private static final String INSERT_REMINDERS_SQL =
+            "INSERT INTO Notifications (user_id, type, title, message, link, is_read, created_at) " +
+            "OUTPUT inserted.user_id " +
+            "SELECT c.user_id, :type, :title, :message, :link, 0, SYSDATETIME() " +
+            "FROM Carts c WHERE c.id IN (:cartIds)";
+
+    private static final String EMAIL_RECIPIENTS_SQL =
+            "SELECT u.email, u.full_name, COUNT(i.id) AS item_count " +
+            "FROM Carts c " +
+            "JOIN Users u ON u.id = c.user_id " +
+            "JOIN Cart_Items i ON i.cart_id = c.id " +
+            "WHERE c.id IN (:cartIds) " +
+            "GROUP BY u.email, u.full_name";
+
+    /**
+     * Chọn batch giỏ guest hết hạn theo thứ tự expires_at.
+     * UPDLOCK giữ các giỏ này tới cuối transaction để request gia hạn giỏ song song phải chờ, không xóa nhầm.
+     */
+    private static final String SELECT_EXPIRED_GUEST_CARTS_SQL =
+            "SELECT TOP (:batchSize) id FROM Carts WITH (UPDLOCK, ROWLOCK, READPAST) " +
+            "WHERE user_id IS NULL AND expires_at < SYSDATETIME() " +
+            "ORDER BY expires_at";
+
+    private static final String DELETE_CART_ITEMS_SQL =
+            "DELETE FROM Cart_Items WHERE cart_id IN (:cartIds)";
+
+    private static final String DELETE_CARTS_SQL =
+            "DELETE FROM Carts WHERE id IN (:cartIds)";
+
+    /**
+     * Kết quả một lần chạy job (rows = giỏ đã xử lý, childRows = thông báo / cart item tương ứng)
+     */
+    public record RunStats(LocalDateTime finishedAt, int batches, long rows, long childRows,
+                           long durationMs, long maxBatchMs) {
+    }
+
+    private record EmailRecipient(String email, String fullName, int itemCount) {
+    }
+
+    private record RecoveryBatch(List<Long> cartIds, int notifications, List<EmailRecipient> recipients) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final NotificationPushService notificationPushService;
+    private final EmailService emailService;
+
+    private final AtomicLong totalReminded = new AtomicLong();
+    private final AtomicLong totalPurgedCarts = new AtomicLong();
+    private final AtomicLong totalPurgedItems = new AtomicLong();
+    private volatile RunStats lastRecovery;
+    private volatile RunStats lastPurge;
+
+    @Value("${app.cart.recovery.enabled:true}")
+    private boolean recoveryEnabled;
+
+    @Value("${app.cart.recovery.email-enabled:true}")
+    private boolean recoveryEmailEnabled;
+
+    @Value("${app.cart.recovery.idle-hours:24}")
+    private int idleHours;
+
+    // Giỏ bỏ quá lâu thì không nhắc nữa (tránh đợt nhắc hàng loạt khi mới bật tính năng)
+    @Value("${app.cart.recovery.max-idle-days:14}")
+    private int maxIdleDays;
+
+    @Value("${app.cart.recovery.batch-size:200}")
+    private int recoveryBatchSize;
+
+    @Value("${app.cart.recovery.max-batches-per-run:10}")
+    private int recoveryMaxBatches;
+
+    @Value("${app.cart.purge.enabled:true}")
+    private boolean purgeEnabled;
+
+    @Value("${app.cart.purge.batch-size:500}")
+    private int purgeBatchSize;
+
+    @Value("${app.cart.purge.max-batches-per-run:100}")
+    private int purgeMaxBatches;
+
+    @Value("${app.cart.purge.batch-delay-ms:100}")
+    private long batchDelayMs;
+
+    public CartLifecycleService(NamedParameterJdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                SchedulerLockService schedulerLockService,
+                                NotificationPushService notificationPushService,
+                                EmailService emailService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLockService = schedulerLockService;
+        this.notificationPushService = notificationPushService;
+        this.emailService = emailService;
+    }
+
+    /**
+     * Scheduled task: Nhắc giỏ bỏ quên (mặc định mỗi 15 phút)
+     */
+    @Scheduled(fixedDelayString = "${app.cart.recovery.interval-ms:900000}",
+            initialDelayString = "${app.cart.recovery.initial-delay-ms:120000}")
+    public void sweepAbandonedCarts() {
+        if (!recoveryEnabled) {
+            return;
+        }
+        schedulerLockService.runExclusive(RECOVERY_LOCK_NAME, Duration.ofMinutes(15), Duration.ofSeconds(30),
+                this::remindAbandonedCarts);
+    }
+
+    /**
+     * Scheduled task: Dọn giỏ guest hết hạn (mặc định mỗi giờ)
+     */
+    @Scheduled(cron = "${app.cart.purge.cron:0 25 * * * *}")
+    public void sweepExpiredGuestCarts() {
+        if (!purgeEnabled) {
+            return;
+        }
+        schedulerLockService.runExclusive(PURGE_LOCK_NAME, Duration.ofMinutes(30), Duration.ofMinutes(1),
+                this::purgeExpiredGuestCarts);
+    }
+
+    /**
+     * Ghi thông báo nhắc cho các giỏ bỏ quên, từng batch một
+     *
+     * @return số giỏ đã được nhắc trong lần chạy này
+     */
+    public long remindAbandonedCarts() {
+        long startedAt = System.nanoTime();
+        long carts = 0;
+        long notifications = 0;
+        long maxBatchMs = 0;
+        int batches = 0;
+        while (batches < recoveryMaxBatches) {
+            long batchStartedAt = System.nanoTime();
+            RecoveryBatch batch = transactionTemplate.execute(status -> remindOneBatch());
+            maxBatchMs = Math.max(maxBatchMs, (System.nanoTime() - batchStartedAt) / 1_000_000);
+            if (batch == null || batch.cartIds().isEmpty()) {
+                break;
+            }
+            batches++;
+            carts += batch.cartIds().size();
+            notifications += batch.notifications();
+            // Gửi email sau khi batch đã commit, lỗi SMTP không làm rollback đánh dấu đã nhắc
+            batch.recipients().forEach(recipient ->
+                    emailService.sendAbandonedCart(recipient.email(), recipient.fullName(), recipient.itemCount()));
+            if (batch.cartIds().size() < recoveryBatchSize || !pause()) {
+                break;
+            }
+        }
+
+        totalReminded.addAndGet(carts);
+        lastRecovery = new RunStats(LocalDateTime.now(), batches, carts, notifications,
+                (System.nanoTime() - startedAt) / 1_000_000, maxBatchMs);
+        if (carts > 0) {
+            log.info("🛒 Abandoned cart reminders: {} carts, {} notifications, {} batches (longest {} ms)",
+                    carts, notifications, batches, maxBatchMs);
+        }
+        return carts;
+    }
+
+    /**
+     * Xóa giỏ guest hết hạn cùng cart item, từng batch một
+     *
+     * @return số giỏ đã xóa trong lần chạy này
+     */
+    public long purgeExpiredGuestCarts() {
+        long startedAt = System.nanoTime();
+        long carts = 0;
+        long items = 0;
+        long maxBatchMs = 0;
+        int batches = 0;
+        while (batches < purgeMaxBatches) {
+            long batchStartedAt = System.nanoTime();
+            long[] deleted = transactionTemplate.execute(status -> purgeOneBatch());
+            maxBatchMs = Math.max(maxBatchMs, (System.nanoTime() - batchStartedAt) / 1_000_000);
+            if (deleted == null || deleted[0] == 0) {
+                break;
+            }
+            batches++;
+            carts += deleted[0];
+            items += deleted[1];
+            if (deleted[0] < purgeBatchSize || !pause()) {
+                break;
+            }
+        }
+
+        totalPurgedCarts.addAndGet(carts);
+        totalPurgedItems.addAndGet(items);
+        lastPurge = new RunStats(LocalDateTime.now(), batches, carts, items,
+                (System.nanoTime() - startedAt) / 1_000_000, maxBatchMs);
+        if (carts > 0) {
+            log.info("🧹 Purged {} expired guest carts ({} items) in {} batches (longest {} ms)",
+                    carts, items, batches, maxBatchMs);
+        }
+        return carts;
+    }
+
+    /**
+     * Số dòng đã xử lý của lần chạy gần nhất và tổng cộng kể từ khi khởi động (trên node này)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> recovery = new LinkedHashMap<>();
+        recovery.put("enabled", recoveryEnabled);
+        recovery.put("idleHours", idleHours);
+        recovery.put("totalCarts", totalReminded.get());
+        recovery.put("lastRun", lastRecovery);
+
+        Map<String, Object> purge = new LinkedHashMap<>();
+        purge.put("enabled", purgeEnabled);
+        purge.put("totalCarts", totalPurgedCarts.get());
+        purge.put("totalItems", totalPurgedItems.get());
+        purge.put("lastRun", lastPurge);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recovery", recovery);
+        stats.put("purge", purge);
+        return stats;
+    }
+
+    private RecoveryBatch remindOneBatch() {
+        List<Long> cartIds = jdbcTemplate.queryForList(CLAIM_IDLE_CARTS_SQL,
+                new MapSqlParameterSource()
+                        .addValue("batchSize", recoveryBatchSize)
+                        .addValue("idleHours", idleHours)
+                        .addValue("maxIdleDays", maxIdleDays)
+                        .addValue("guestEmail", PosContextService.SYSTEM_CUSTOMER_EMAIL),
+                Long.class);
+        if (cartIds.isEmpty()) {
+            return new RecoveryBatch(Collections.emptyList(), 0, Collections.emptyList());
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cartIds", cartIds)
+                .addValue("type", REMINDER_TYPE)
+                .addValue("title", REMINDER_TITLE)
+                .addValue("message", REMINDER_MESSAGE)
+                .addValue("link", REMINDER_LINK);
+        List<Long> userIds = jdbcTemplate.queryForList(INSERT_REMINDERS_SQL, params, Long.class);
+        notificationPushService.publishBulkAfterCommit(userIds, REMINDER_TYPE, REMINDER_TITLE,
+                REMINDER_MESSAGE, REMINDER_LINK);
+
+        List<EmailRecipient> recipients = !recoveryEmailEnabled
+                ? Collections.emptyList()
+                : jdbcTemplate.query(EMAIL_RECIPIENTS_SQL, params, (rs, rowNum) ->
+                        new EmailRecipient(rs.getString("email"), rs.getString("full_name"), rs.getInt("item_count")));
+        return new RecoveryBatch(cartIds, userIds.size(), recipients);
+    }
+
+    private long[] purgeOneBatch() {
+        List<Long> cartIds = jdbcTemplate.queryForList(SELECT_EXPIRED_GUEST_CARTS_SQL,
+                new MapSqlParameterSource("batchSize", purgeBatchSize), Long.class);
+        if (cartIds.isEmpty()) {
+            return new long[]{0, 0};
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("cartIds", cartIds);
+        int items = jdbcTemplate.update(DELETE_CART_ITEMS_SQL, params);
+        int carts = jdbcTemplate.update(DELETE_CARTS_SQL, params);
+        return new long[]{carts, items};
+    }
+
+    private boolean pause() {
+        if (batchDelayMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchDelayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
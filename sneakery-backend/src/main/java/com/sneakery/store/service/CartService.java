@@ -15,6 +15,7 @@ import com.sneakery.store.repository.ProductVariantRepository;
 import com.sneakery.store.repository.ProductImageRepository;
 import com.sneakery.store.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -76,6 +77,10 @@ public class CartService {
     private final ProductVariantRepository variantRepository;
     private final ProductImageRepository productImageRepository;
 
+    // Giỏ guest hết hạn sau ngần này ngày không hoạt động (CartLifecycleService dọn định kỳ)
+    @Value("${app.cart.guest-ttl-days:7}")
+    private int guestTtlDays;
+
     /**
      * Lấy giỏ hàng của user
      * 
@@ -190,6 +195,7 @@ public class CartService {
             cart.addItem(newItem);
         }
 
+        touch(cart);
         cartRepository.save(cart);
 
         return getCartByUserId(userId);
@@ -211,6 +217,7 @@ public class CartService {
 
         cart.removeItem(itemToRemove); // Dùng helper method
 
+        touch(cart);
         cartRepository.save(cart);
         return convertToCartDto(cart);
     }
@@ -224,7 +231,7 @@ public class CartService {
         if (cart != null && !cart.getItems().isEmpty()) {
             // Xóa tất cả items
             cart.getItems().clear();
-            cart.setUpdatedAt(LocalDateTime.now());
+            touch(cart);
             cartRepository.save(cart);
         }
     }
@@ -285,6 +292,7 @@ public class CartService {
             cart.addItem(newItem);
         }
 
+        touch(cart);
         cartRepository.save(cart);
 
         return getCartBySessionId(sessionId);
@@ -306,6 +314,7 @@ public class CartService {
 
         cart.removeItem(itemToRemove);
 
+        touch(cart);
         cartRepository.save(cart);
         return convertToCartDto(cart);
     }
@@ -326,6 +335,7 @@ public class CartService {
             Cart newCart = new Cart();
             newCart.setUser(user);
             newCart.setCreatedAt(LocalDateTime.now());
+            newCart.setUpdatedAt(newCart.getCreatedAt());
             return cartRepository.save(newCart);
         });
     }
@@ -339,12 +349,24 @@ public class CartService {
             newCart.setSessionId(sessionId);
             newCart.setUser(null); // Guest cart không có user
             newCart.setCreatedAt(LocalDateTime.now());
-            // Set expiration time: 7 days from now
-            newCart.setExpiresAt(LocalDateTime.now().plusDays(7));
+            newCart.setUpdatedAt(newCart.getCreatedAt());
+            newCart.setExpiresAt(newCart.getCreatedAt().plusDays(guestTtlDays));
             return cartRepository.save(newCart);
         });
     }
 
+    /**
+     * Ghi nhận hoạt động trên giỏ: updated_at dùng để phát hiện giỏ bỏ quên,
+     * giỏ guest được gia hạn thêm guestTtlDays kể từ lần thao tác cuối
+     */
+    private void touch(Cart cart) {
+        LocalDateTime now = LocalDateTime.now();
+        cart.setUpdatedAt(now);
+        if (cart.getUser() == null) {
+            cart.setExpiresAt(now.plusDays(guestTtlDays));
+        }
+    }
+
     /**
      * Chuyển Cart Entity -> CartDto
      */
@@ -433,6 +455,7 @@ public class CartService {
         // ✅ SET – KHÔNG CỘNG
         item.setQuantity(newQuantity);
 
+        touch(cart);
         cartRepository.save(cart);
 
         // Load lại bằng query tối ưu
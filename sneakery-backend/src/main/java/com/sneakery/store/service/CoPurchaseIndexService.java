@@ -0,0 +1,360 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.entity.Order;
+import com.sneakery.store.entity.OrderDetail;
+import com.sneakery.store.repository.OrderDetailRepository;
+import com.sneakery.store.util.LongIntHashMap;
+import com.sneakery.store.util.LongObjectHashMap;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service: CoPurchaseIndexService
+ * Ma trận "thường được mua cùng": productId → (productId mua cùng → số đơn chứa cả hai)
+ *
+ * <ul>
+ *   <li>Ma trận thưa lưu bằng map khóa long nguyên thủy ({@link LongObjectHashMap} / {@link LongIntHashMap}),
+ *       không boxing từng cặp</li>
+ *   <li>Dựng lần đầu song song: chia lịch sử đơn đã giao / hoàn tất thành các khoảng order id
+ *       (app.catalog.co-purchase.chunk-orders), mỗi worker đếm vào ma trận riêng rồi gộp lại</li>
+ *   <li>Sau đó cập nhật tăng dần khi đơn chuyển sang / rời khỏi trạng thái đã giao (AdminOrderService)
+ *       và khi bán tại quầy POS; cron app.catalog.co-purchase.rebuild-cron dựng lại toàn bộ để tự sửa sai lệch</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class CoPurchaseIndexService {
+
+    /**
+     * Nhận một cặp của ma trận: sản phẩm, sản phẩm mua cùng, số đơn chứa cả hai
+     */
+    public interface PairConsumer {
+        void accept(long productId, long companionId, int orders);
+    }
+
+    private static final Set<String> COMPLETED_STATUSES = Set.of("delivered", "completed");
+    // Giỏ quá lớn (đơn sỉ) sinh k² cặp và làm nhiễu tín hiệu nên chỉ lấy tối đa ngần này sản phẩm
+    private static final int MAX_BASKET_PRODUCTS = 50;
+
+    private final OrderDetailRepository orderDetailRepository;
+    private final int chunkOrders;
+    private final ThreadPoolExecutor buildExecutor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean building = new AtomicBoolean();
+    // Đơn được ghi nhận trong lúc đang dựng, áp lại lên ma trận mới sau khi thay thế
+    private final List<long[]> pendingBaskets = new ArrayList<>();
+    private final List<Integer> pendingDeltas = new ArrayList<>();
+
+    private volatile LongObjectHashMap<LongIntHashMap> matrix;
+
+    public CoPurchaseIndexService(OrderDetailRepository orderDetailRepository,
+                                  @Value("${app.catalog.co-purchase.chunk-orders:20000}") int chunkOrders,
+                                  @Value("${app.catalog.co-purchase.build-threads:4}") int buildThreads) {
+        this.orderDetailRepository = orderDetailRepository;
+        this.chunkOrders = chunkOrders;
+        // +1 luồng cho lần dựng được kích hoạt từ request (luồng đó chờ các chunk chạy trên các luồng còn lại)
+        this.buildExecutor = new ThreadPoolExecutor(buildThreads + 1, buildThreads + 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("co-purchase-build-"));
+        this.buildExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownBuildExecutor() {
+        buildExecutor.shutdown();
+    }
+
+    /**
+     * Trạng thái đơn được tính là đã mua (đưa vào ma trận)
+     */
+    public static boolean isCompletedStatus(String status) {
+        return status != null && COMPLETED_STATUSES.contains(status.toLowerCase());
+    }
+
+    /**
+     * Scheduled task: Dựng lại toàn bộ ma trận
+     */
+    @Scheduled(cron = "${app.catalog.co-purchase.rebuild-cron:0 10 4 * * *}")
+    public void scheduledRebuild() {
+        rebuildIfIdle();
+    }
+
+    /**
+     * Dựng lại nếu không có lần dựng nào đang chạy
+     */
+    public void rebuildIfIdle() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("❌ Co-purchase index rebuild failed: {}", e.getMessage(), e);
+            lock.writeLock().lock();
+            try {
+                pendingBaskets.clear();
+                pendingDeltas.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            building.set(false);
+        }
+    }
+
+    /**
+     * Ghi nhận giỏ hàng của một đơn sau khi transaction hiện tại commit:
+     * delta = 1 khi đơn được giao / hoàn tất (admin, khách xác nhận, POS), -1 khi đơn đã giao bị hoàn / hủy
+     */
+    public void recordOrderAfterCommit(Order order, int delta) {
+        long[] basket = toBasket(orderProductIds(order));
+        if (basket.length < 2) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyBasket(basket, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applyBasket(basket, delta);
+            }
+        });
+    }
+
+    /**
+     * Top sản phẩm thường được mua cùng một sản phẩm (theo số đơn giảm dần)
+     */
+    public List<Long> findCompanions(Long productId, int limit) {
+        return findCompanionsForBasket(List.of(productId), limit);
+    }
+
+    /**
+     * Top sản phẩm thường được mua cùng các sản phẩm trong giỏ (cộng dồn số đơn, bỏ các sản phẩm đã có trong giỏ)
+     */
+    public List<Long> findCompanionsForBasket(Collection<Long> productIds, int limit) {
+        LongObjectHashMap<LongIntHashMap> current = current();
+        if (current == null || limit <= 0) {
+            return List.of();
+        }
+        Set<Long> basket = new HashSet<>(productIds);
+        basket.remove(null);
+        if (basket.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            LongIntHashMap scores;
+            if (basket.size() == 1) {
+                scores = current.get(basket.iterator().next());
+            } else {
+                scores = new LongIntHashMap();
+                for (Long productId : basket) {
+                    LongIntHashMap row = current.get(productId);
+                    if (row != null) {
+                        scores.addAll(row);
+                    }
+                }
+            }
+            return scores == null ? List.of() : top(scores, limit, basket);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Duyệt mọi cặp có số đơn dương (mỗi cặp theo cả hai chiều), dùng cho batch dựng sản phẩm liên quan
+     * Ma trận chưa có thì dựng ngay trên luồng gọi (luồng batch, không phải request)
+     */
+    public void forEachPair(PairConsumer action) {
+        LongObjectHashMap<LongIntHashMap> current = matrix;
+        if (current == null) {
+            rebuildIfIdle();
+            current = matrix;
+        }
+        if (current == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            current.forEach((productId, row) -> row.forEach((companionId, orders) -> {
+                if (orders > 0) {
+                    action.accept(productId, companionId, orders);
+                }
+            }));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        long startedAt = System.nanoTime();
+        List<Object[]> range = orderDetailRepository.findCompletedOrderIdRange();
+        Object[] bounds = range.isEmpty() ? null : range.get(0);
+
+        List<CompletableFuture<LongObjectHashMap<LongIntHashMap>>> chunks = new ArrayList<>();
+        if (bounds != null && bounds[0] != null) {
+            long minOrderId = ((Number) bounds[0]).longValue();
+            long maxOrderId = ((Number) bounds[1]).longValue();
+            for (long from = minOrderId; from <= maxOrderId; from += chunkOrders) {
+                long chunkFrom = from;
+                long chunkTo = Math.min(from + chunkOrders, maxOrderId + 1);
+                chunks.add(CompletableFuture.supplyAsync(() -> buildChunk(chunkFrom, chunkTo), buildExecutor));
+            }
+        }
+
+        LongObjectHashMap<LongIntHashMap> rebuilt = new LongObjectHashMap<>();
+        for (CompletableFuture<LongObjectHashMap<LongIntHashMap>> chunk : chunks) {
+            chunk.join().forEach((productId, row) ->
+                    rebuilt.computeIfAbsent(productId, id -> new LongIntHashMap()).addAll(row));
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < pendingBaskets.size(); i++) {
+                addBasket(rebuilt, pendingBaskets.get(i), pendingDeltas.get(i));
+            }
+            pendingBaskets.clear();
+            pendingDeltas.clear();
+            matrix = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        long[] totals = new long[2];
+        rebuilt.forEach((productId, row) -> {
+            totals[0] += row.size();
+            totals[1] += row.estimatedBytes();
+        });
+        log.info("🛒 Co-purchase index rebuilt: {} products, {} pairs, ~{} KB, {} chunks in {} ms",
+                rebuilt.size(), totals[0], totals[1] / 1024, chunks.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private LongObjectHashMap<LongIntHashMap> buildChunk(long fromOrderId, long toOrderId) {
+        LongObjectHashMap<LongIntHashMap> local = new LongObjectHashMap<>();
+        List<Long> basket = new ArrayList<>();
+        long currentOrderId = -1;
+        for (Object[] row : orderDetailRepository.findCompletedOrderProducts(fromOrderId, toOrderId)) {
+            long orderId = ((Number) row[0]).longValue();
+            if (orderId != currentOrderId) {
+                addBasket(local, toBasket(basket), 1);
+                basket.clear();
+                currentOrderId = orderId;
+            }
+            basket.add(((Number) row[1]).longValue());
+        }
+        addBasket(local, toBasket(basket), 1);
+        return local;
+    }
+
+    private void applyBasket(long[] basket, int delta) {
+        lock.writeLock().lock();
+        try {
+            if (building.get()) {
+                pendingBaskets.add(basket);
+                pendingDeltas.add(delta);
+            }
+            LongObjectHashMap<LongIntHashMap> current = matrix;
+            if (current != null) {
+                addBasket(current, basket, delta);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addBasket(LongObjectHashMap<LongIntHashMap> target, long[] basket, int delta) {
+        for (int i = 0; i < basket.length; i++) {
+            LongIntHashMap row = target.computeIfAbsent(basket[i], id -> new LongIntHashMap());
+            for (int j = 0; j < basket.length; j++) {
+                if (i != j) {
+                    row.addTo(basket[j], delta);
+                }
+            }
+        }
+    }
+
+    /**
+     * Id các sản phẩm trong đơn (giỏ hàng cho index mua chung)
+     */
+    private static List<Long> orderProductIds(Order order) {
+        List<Long> productIds = new ArrayList<>(order.getOrderDetails().size());
+        for (OrderDetail detail : order.getOrderDetails()) {
+            if (detail.getVariant() != null) {
+                productIds.add(detail.getVariant().getProduct().getId());
+            }
+        }
+        return productIds;
+    }
+
+    private static long[] toBasket(Collection<Long> productIds) {
+        Set<Long> distinct = new LinkedHashSet<>();
+        for (Long productId : productIds) {
+            if (productId != null && distinct.size() < MAX_BASKET_PRODUCTS) {
+                distinct.add(productId);
+            }
+        }
+        return distinct.size() < 2 ? new long[0] : distinct.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * limit sản phẩm có số đơn cao nhất (chèn vào mảng đã sắp xếp, limit nhỏ nên không cần heap)
+     */
+    private static List<Long> top(LongIntHashMap scores, int limit, Set<Long> exclude) {
+        long[] ids = new long[limit];
+        int[] counts = new int[limit];
+        int[] size = {0};
+        scores.forEach((productId, count) -> {
+            if (count <= 0 || exclude.contains(productId)) {
+                return;
+            }
+            int n = size[0];
+            if (n == limit && count <= counts[n - 1]) {
+                return;
+            }
+            int position = n == limit ? n - 1 : n;
+            while (position > 0 && counts[position - 1] < count) {
+                ids[position] = ids[position - 1];
+                counts[position] = counts[position - 1];
+                position--;
+            }
+            ids[position] = productId;
+            counts[position] = count;
+            if (n < limit) {
+                size[0]++;
+            }
+        });
+        List<Long> result = new ArrayList<>(size[0]);
+        for (int i = 0; i < size[0]; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    private LongObjectHashMap<LongIntHashMap> current() {
+        LongObjectHashMap<LongIntHashMap> current = matrix;
+        if (current == null && !building.get()) {
+            // Lần đầu: dựng nền, request hiện tại trả về rỗng thay vì chờ quét toàn bộ lịch sử
+            buildExecutor.execute(this::rebuildIfIdle);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,131 @@
+package com.sneakery.store.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template email đã biên dịch: parse một lần thành danh sách đoạn literal xen kẽ với slot biến
+ *
+ * <p>Hỗ trợ cả 2 kiểu placeholder đang có trong DB: {@code {{var}}} và {@code {var}}.
+ * Tên biến chỉ gồm chữ, số, '_', '.', '-' nên CSS inline như {@code {color:red}} vẫn giữ nguyên.
+ * Biến không có trong map thì giữ nguyên placeholder gốc (giống cách String.replace cũ).
+ *
+ * <p>Render là một lượt duy nhất vào StringBuilder đã cấp phát đúng độ dài,
+ * thay cho 2 lần String.replace trên toàn bộ body cho mỗi biến.
+ * Instance bất biến, dùng chung được giữa các thread.
+ */
+public final class CompiledEmailTemplate {
+
+    private static final CompiledEmailTemplate EMPTY = new CompiledEmailTemplate(new String[]{""}, new String[0], new String[0], 0);
+
+    // literals.length == slots.length + 1: literal[0] slot[0] literal[1] ... slot[n-1] literal[n]
+    private final String[] literals;
+    private final String[] slots;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private CompiledEmailTemplate(String[] literals, String[] slots, String[] placeholders, int literalLength) {
+        this.literals = literals;
+        this.slots = slots;
+        this.placeholders = placeholders;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Parse template thành các đoạn literal / slot
+     */
+    public static CompiledEmailTemplate compile(String template) {
+        if (template == null || template.isEmpty()) {
+            return EMPTY;
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int literalLength = 0;
+        int literalStart = 0;
+        int i = 0;
+        int length = template.length();
+
+        while (i < length) {
+            int open = template.indexOf('{', i);
+            if (open < 0) {
+                break;
+            }
+            boolean doubleBrace = open + 1 < length && template.charAt(open + 1) == '{';
+            int nameStart = open + (doubleBrace ? 2 : 1);
+            int nameEnd = nameStart;
+            while (nameEnd < length && isNameChar(template.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            int closeLength = doubleBrace ? 2 : 1;
+            boolean closed = nameEnd > nameStart
+                    && nameEnd + closeLength <= length
+                    && template.charAt(nameEnd) == '}'
+                    && (!doubleBrace || template.charAt(nameEnd + 1) == '}');
+            if (!closed) {
+                i = open + 1;
+                continue;
+            }
+
+            String literal = template.substring(literalStart, open);
+            literals.add(literal);
+            literalLength += literal.length();
+            slots.add(template.substring(nameStart, nameEnd));
+            placeholders.add(template.substring(open, nameEnd + closeLength));
+            literalStart = nameEnd + closeLength;
+            i = literalStart;
+        }
+
+        String tail = template.substring(literalStart);
+        literals.add(tail);
+        literalLength += tail.length();
+
+        return new CompiledEmailTemplate(
+                literals.toArray(String[]::new),
+                slots.toArray(String[]::new),
+                placeholders.toArray(String[]::new),
+                literalLength);
+    }
+
+    /**
+     * Render một lượt: tính tổng độ dài trước rồi append vào builder đúng kích thước
+     */
+    public String render(Map<String, ?> variables) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+
+        String[] values = new String[slots.length];
+        int length = literalLength;
+        for (int s = 0; s < slots.length; s++) {
+            Object value = variables.get(slots[s]);
+            if (value == null && !variables.containsKey(slots[s])) {
+                values[s] = placeholders[s];
+            } else {
+                values[s] = String.valueOf(value);
+            }
+            length += values[s].length();
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int s = 0; s < slots.length; s++) {
+            sb.append(literals[s]).append(values[s]);
+        }
+        sb.append(literals[slots.length]);
+        return sb.toString();
+    }
+
+    /**
+     * Số slot biến trong template
+     */
+    public int slotCount() {
+        return slots.length;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '.' || c == '-';
+    }
+}
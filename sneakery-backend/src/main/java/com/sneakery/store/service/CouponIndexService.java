@@ -0,0 +1,200 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.dto.CouponDto;
+import com.sneakery.store.entity.Coupon;
+import com.sneakery.store.repository.CouponRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service: CouponIndexService
+ * Index coupon trong bộ nhớ để validate mã giảm giá không cần truy vấn DB
+ *
+ * <p>Snapshot chứa mọi coupon chưa hết hạn (end_at >= thời điểm nạp), gồm:
+ * <ul>
+ *   <li>Map theo code (uppercase) cho validateCouponCode</li>
+ *   <li>Danh sách sắp theo end_at cho getActiveCoupons (lọc theo cửa sổ hiệu lực tại thời điểm gọi)</li>
+ * </ul>
+ *
+ * <p><b>Làm mới:</b> CRUD admin trong {@link CouponService} gọi {@link #refreshAfterCommit()};
+ * ngoài ra job định kỳ (app.coupon.index-refresh-ms) nạp lại để đồng bộ uses_count giữa các node.
+ * Số lượt dùng trong index chỉ để hiển thị / chặn sớm; giới hạn thật được kiểm tra
+ * bằng UPDATE có điều kiện khi redeem.
+ */
+@Slf4j
+@Service
+public class CouponIndexService {
+
+    private final CouponRepository couponRepository;
+
+    private volatile Snapshot snapshot;
+
+    public CouponIndexService(CouponRepository couponRepository) {
+        this.couponRepository = couponRepository;
+    }
+
+    /**
+     * Scheduled task: Nạp lại index (đồng bộ thay đổi từ node khác)
+     */
+    @Scheduled(fixedDelayString = "${app.coupon.index-refresh-ms:60000}",
+            initialDelayString = "${app.coupon.index-refresh-ms:60000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    /**
+     * Nạp lại toàn bộ index từ bảng Coupons
+     */
+    public void refresh() {
+        List<Coupon> coupons = couponRepository.findByEndAtGreaterThanEqual(LocalDateTime.now());
+
+        Map<String, Entry> byCode = new HashMap<>();
+        Map<Integer, Entry> byId = new HashMap<>();
+        for (Coupon coupon : coupons) {
+            Entry entry = new Entry(coupon);
+            byCode.put(normalizeCode(coupon.getCode()), entry);
+            byId.put(coupon.getId(), entry);
+        }
+        List<Entry> byEndAt = byId.values().stream()
+                .sorted(Comparator.comparing(Entry::endAt))
+                .toList();
+
+        snapshot = new Snapshot(byCode, byId, byEndAt);
+        log.debug("🎟️ Coupon index refreshed: {} coupons", byId.size());
+    }
+
+    /**
+     * Nạp lại index sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+     */
+    public void refreshAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh();
+            }
+        });
+    }
+
+    /**
+     * Tìm coupon chưa hết hạn theo code (không phân biệt hoa thường)
+     */
+    public Optional<CouponDto> findByCode(String code) {
+        if (code == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(current().byCode().get(normalizeCode(code))).map(Entry::toDto);
+    }
+
+    /**
+     * Coupon đang hoạt động tại thời điểm now, còn lượt dùng, sắp hết hạn trước
+     */
+    public List<CouponDto> findActive(LocalDateTime now) {
+        return current().byEndAt().stream()
+                .filter(entry -> entry.isRedeemableAt(now))
+                .map(Entry::toDto)
+                .toList();
+    }
+
+    /**
+     * Cập nhật số lượt dùng trong index sau khi transaction redeem / hoàn lượt trên node này commit
+     * (checkout rollback thì index giữ nguyên số lượt)
+     */
+    public void adjustUsesAfterCommit(Integer couponId, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            adjustUses(couponId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                adjustUses(couponId, delta);
+            }
+        });
+    }
+
+    private void adjustUses(Integer couponId, int delta) {
+        Entry entry = current().byId().get(couponId);
+        if (entry != null) {
+            entry.usesCount().updateAndGet(uses -> Math.max(0, uses + delta));
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static String normalizeCode(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private record Snapshot(Map<String, Entry> byCode, Map<Integer, Entry> byId, List<Entry> byEndAt) {
+    }
+
+    /**
+     * Bản sao bất biến của một coupon (trừ bộ đếm lượt dùng)
+     */
+    private record Entry(Integer id, String code, String description, String discountType, BigDecimal value,
+                         BigDecimal maxDiscountAmount, BigDecimal minOrderAmount,
+                         LocalDateTime startAt, LocalDateTime endAt,
+                         Integer maxUses, AtomicInteger usesCount, Integer maxUsesPerUser, boolean active) {
+
+        Entry(Coupon coupon) {
+            this(coupon.getId(), coupon.getCode(), coupon.getDescription(), coupon.getDiscountType(),
+                    coupon.getValue(), coupon.getMaxDiscountAmount(), coupon.getMinOrderAmount(),
+                    coupon.getStartAt(), coupon.getEndAt(), coupon.getMaxUses(),
+                    new AtomicInteger(coupon.getUsesCount() != null ? coupon.getUsesCount() : 0),
+                    coupon.getMaxUsesPerUser(), Boolean.TRUE.equals(coupon.getIsActive()));
+        }
+
+        boolean isRedeemableAt(LocalDateTime now) {
+            return active
+                    && !now.isBefore(startAt)
+                    && !now.isAfter(endAt)
+                    && (maxUses == null || usesCount.get() < maxUses);
+        }
+
+        CouponDto toDto() {
+            return CouponDto.builder()
+                    .id(id)
+                    .code(code)
+                    .description(description)
+                    .discountType(discountType)
+                    .value(value)
+                    .maxDiscountAmount(maxDiscountAmount)
+                    .minOrderAmount(minOrderAmount)
+                    .startAt(startAt)
+                    .endAt(endAt)
+                    .maxUses(maxUses)
+                    .usesCount(usesCount.get())
+                    .maxUsesPerUser(maxUsesPerUser)
+                    .isActive(active)
+                    .build();
+        }
+    }
+}
@@ -4,7 +4,9 @@ import com.sneakery.store.dto.CouponDto;
 import com.sneakery.store.entity.Coupon;
 import com.sneakery.store.exception.ApiException;
 import com.sneakery.store.repository.CouponRepository;
+import com.sneakery.store.repository.CouponUsageRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -20,12 +22,18 @@ import java.util.Objects;
 
 /**
  * Service xử lý logic cho Coupon
+ *
+ * <p>Validate coupon đọc từ {@link CouponIndexService} (không truy vấn DB);
+ * redeem tăng bộ đếm bằng UPDATE có điều kiện nên an toàn khi nhiều đơn dùng cùng mã.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CouponService {
 
     private final CouponRepository couponRepository;
+    private final CouponUsageRepository couponUsageRepository;
+    private final CouponIndexService couponIndexService;
 
     /**
      * Lấy tất cả coupon với filter
@@ -95,6 +103,7 @@ public class CouponService {
 
         Coupon coupon = convertToEntity(dto);
         coupon = couponRepository.save(Objects.requireNonNull(coupon));
+        couponIndexService.refreshAfterCommit();
         return convertToDto(coupon);
     }
 
@@ -124,6 +133,7 @@ public class CouponService {
         coupon.setIsActive(dto.getIsActive());
 
         coupon = couponRepository.save(coupon);
+        couponIndexService.refreshAfterCommit();
         return convertToDto(coupon);
     }
 
@@ -141,6 +151,7 @@ public class CouponService {
         }
 
         couponRepository.delete(Objects.requireNonNull(coupon));
+        couponIndexService.refreshAfterCommit();
     }
 
     /**
@@ -153,16 +164,18 @@ public class CouponService {
         
         coupon.setIsActive(!coupon.getIsActive());
         coupon = couponRepository.save(coupon);
+        couponIndexService.refreshAfterCommit();
         return convertToDto(coupon);
     }
 
     /**
      * Validate coupon code
+     * Đọc từ index trong bộ nhớ, không truy vấn DB.
+     * Lượt dùng toàn cục / theo user được kiểm tra chính xác khi {@link #redeemCoupon}.
      */
-    @Transactional(readOnly = true)
     public CouponDto validateCouponCode(String code) {
-        Coupon coupon = couponRepository.findByCode(code)
-                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Mã coupon không tồn tại"));
+        CouponDto coupon = couponIndexService.findByCode(code)
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Mã coupon không tồn tại hoặc đã hết hạn"));
 
         LocalDateTime now = LocalDateTime.now();
 
@@ -184,48 +197,62 @@ public class CouponService {
             throw new ApiException(HttpStatus.BAD_REQUEST, "Mã coupon đã hết lượt sử dụng");
         }
 
-        return convertToDto(coupon);
+        return coupon;
+    }
+
+    /**
+     * Giành 1 lượt dùng coupon cho đơn hàng (gọi trong transaction tạo đơn)
+     *
+     * <p>Lượt toàn cục: 1 câu UPDATE có điều kiện (uses_count &lt; max_uses).
+     * Lượt theo user (nếu có userId): 1 câu MERGE trên Coupon_Usages (uses_count &lt; max_uses_per_user).
+     * Không rollback transaction khi thất bại để luồng guest có thể tiếp tục không dùng coupon.
+     *
+     * @param coupon coupon đã validate
+     * @param userId user đặt đơn, null với khách vãng lai (không giới hạn theo user)
+     * @return reference tới Coupon để gắn vào Order (không load entity)
+     */
+    @Transactional(noRollbackFor = ApiException.class)
+    public Coupon redeemCoupon(CouponDto coupon, Long userId) {
+        Integer couponId = Objects.requireNonNull(coupon.getId());
+
+        if (couponRepository.incrementUsesIfAvailable(couponId, LocalDateTime.now()) == 0) {
+            // Index trên node này đã cũ (hết lượt / bị tắt ở node khác)
+            couponIndexService.refreshAfterCommit();
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Mã coupon đã hết lượt sử dụng");
+        }
+
+        if (userId != null) {
+            int maxPerUser = coupon.getMaxUsesPerUser() != null ? coupon.getMaxUsesPerUser() : Integer.MAX_VALUE;
+            if (couponUsageRepository.incrementIfBelowLimit(couponId, userId, maxPerUser) == 0) {
+                couponRepository.decrementUses(couponId);
+                throw new ApiException(HttpStatus.BAD_REQUEST,
+                        "Bạn đã dùng hết số lượt cho phép của mã coupon này");
+            }
+        }
+
+        couponIndexService.adjustUsesAfterCommit(couponId, 1);
+        log.info("🎟️ Coupon {} redeemed by user {}", coupon.getCode(), userId);
+        return couponRepository.getReferenceById(couponId);
+    }
+
+    /**
+     * Hoàn lại 1 lượt dùng coupon (đơn bị hủy / trả hàng)
+     */
+    @Transactional
+    public void releaseCoupon(Integer couponId, Long userId) {
+        couponRepository.decrementUses(Objects.requireNonNull(couponId));
+        if (userId != null) {
+            couponUsageRepository.decrement(couponId, userId);
+        }
+        couponIndexService.adjustUsesAfterCommit(couponId, -1);
     }
 
     /**
      * Lấy danh sách coupons đang hoạt động (cho user chọn)
+     * Lọc từ index trong bộ nhớ, sắp theo endAt ASC (sắp hết hạn trước)
      */
-    @Transactional(readOnly = true)
     public List<CouponDto> getActiveCoupons() {
-        LocalDateTime now = LocalDateTime.now();
-        
-        Specification<Coupon> spec = (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
-            
-            // Chỉ lấy coupons đang active
-            predicates.add(cb.equal(root.get("isActive"), true));
-            
-            // Đã bắt đầu (startAt <= now)
-            predicates.add(cb.lessThanOrEqualTo(root.get("startAt"), now));
-            
-            // Chưa hết hạn (endAt >= now)
-            predicates.add(cb.greaterThanOrEqualTo(root.get("endAt"), now));
-            
-            // Chưa hết lượt dùng (maxUses IS NULL OR usesCount < maxUses)
-            Predicate maxUsesNull = cb.isNull(root.get("maxUses"));
-            Predicate usesCountLessThanMax = cb.and(
-                cb.isNotNull(root.get("maxUses")),
-                cb.lessThan(root.get("usesCount"), root.get("maxUses"))
-            );
-            predicates.add(cb.or(maxUsesNull, usesCountLessThanMax));
-            
-            // Sắp xếp theo endAt ASC (sắp hết hạn trước)
-            if (query != null) {
-                query.orderBy(cb.asc(root.get("endAt")));
-            }
-            
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
-        
-        List<Coupon> coupons = couponRepository.findAll(spec);
-        return coupons.stream()
-                .map(this::convertToDto)
-                .collect(java.util.stream.Collectors.toList());
+        return couponIndexService.findActive(LocalDateTime.now());
     }
 
     /**
@@ -0,0 +1,496 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.exception.ApiException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service: CustomerSegmentationService
+ * Phân khúc khách hàng theo RFM (recency, frequency, monetary) từ các đơn đã giao / hoàn tất
+ *
+ * <ol>
+ *   <li>Nạp id khách hàng (role USER, chưa xóa) theo keyset vào mảng long đã sắp xếp - vị trí trong mảng là chỉ số dày</li>
+ *   <li>Chia dải khách thành các khoảng user id, mỗi khoảng là một task fork/join tự quét Orders theo keyset
+ *       (user_id, id) và cộng vào các mảng nguyên thủy (ngày đặt gần nhất, số đơn, tổng tiền) ở vùng chỉ số của mình
+ *       nên không cần khóa</li>
+ *   <li>Chấm điểm 1..5 theo ngũ phân vị trên các mảng đã sắp xếp (giá trị bằng nhau cùng điểm) rồi gán nhãn phân khúc</li>
+ *   <li>Đối chiếu với Customer_Segments hiện có (merge theo user id) và chỉ ghi những dòng thay đổi bằng JDBC batch,
+ *       mỗi batch một transaction ngắn</li>
+ * </ol>
+ *
+ * <p>Chạy mỗi đêm (app.customers.segments.cron) dưới {@link SchedulerLockService} nên chỉ một node tính khi chạy cluster.
+ */
+@Slf4j
+@Service
+public class CustomerSegmentationService {
+
+    public static final String CHAMPIONS = "champions";
+    public static final String LOYAL = "loyal";
+    public static final String POTENTIAL_LOYALIST = "potential_loyalist";
+    public static final String NEW_CUSTOMERS = "new_customers";
+    public static final String NEEDS_ATTENTION = "needs_attention";
+    public static final String AT_RISK = "at_risk";
+    public static final String HIBERNATING = "hibernating";
+
+    public static final List<String> SEGMENTS = List.of(
+            CHAMPIONS, LOYAL, POTENTIAL_LOYALIST, NEW_CUSTOMERS, NEEDS_ATTENTION, AT_RISK, HIBERNATING);
+
+    private static final String LOCK_NAME = "customerSegments.compute";
+    private static final int NO_ORDER = Integer.MIN_VALUE;
+
+    private static final String CUSTOMER_IDS_SQL =
+            "SELECT TOP (:pageSize) u.id FROM Users u " +
+            "WHERE u.id > :cursor AND u.role = 'USER' AND u.deleted_at IS NULL AND u.email <> :guestEmail " +
+            "ORDER BY u.id";
+
+    private static final String ORDERS_PAGE_SQL =
+            "SELECT TOP (:pageSize) o.user_id, o.id, o.created_at, o.total_amount FROM Orders o " +
+            "WHERE o.user_id >= :fromUserId AND o.user_id <= :toUserId " +
+            "AND (o.user_id > :cursorUserId OR (o.user_id = :cursorUserId AND o.id > :cursorOrderId)) " +
+            "AND o.status IN ('delivered', 'completed', 'Delivered', 'Completed') " +
+            "ORDER BY o.user_id, o.id";
+
+    private static final String EXISTING_PAGE_SQL =
+            "SELECT TOP (:pageSize) user_id, last_order_date, frequency, monetary, r_score, f_score, m_score, segment " +
+            "FROM Customer_Segments WHERE user_id > :cursor ORDER BY user_id";
+
+    private static final String UPSERT_SQL =
+            "MERGE Customer_Segments WITH (HOLDLOCK) AS t " +
+            "USING (SELECT :userId AS user_id) s ON t.user_id = s.user_id " +
+            "WHEN MATCHED THEN UPDATE SET t.last_order_date = :lastOrderDate, t.frequency = :frequency, " +
+            "   t.monetary = :monetary, t.r_score = :rScore, t.f_score = :fScore, t.m_score = :mScore, " +
+            "   t.segment = :segment, t.updated_at = SYSDATETIME() " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, last_order_date, frequency, monetary, r_score, f_score, m_score, segment) " +
+            "   VALUES (:userId, :lastOrderDate, :frequency, :monetary, :rScore, :fScore, :mScore, :segment);";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM Customer_Segments WHERE user_id = :userId";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final ForkJoinPool pool;
+    private final AtomicBoolean computing = new AtomicBoolean();
+
+    @Value("${app.customers.segments.page-size:10000}")
+    private int pageSize;
+
+    @Value("${app.customers.segments.partition-users:50000}")
+    private int partitionUsers;
+
+    @Value("${app.customers.segments.write-batch-size:1000}")
+    private int writeBatchSize;
+
+    public CustomerSegmentationService(NamedParameterJdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       SchedulerLockService schedulerLockService,
+                                       @Value("${app.customers.segments.threads:4}") int threads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLockService = schedulerLockService;
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+    }
+
+    @PreDestroy
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * Kiểm tra nhãn phân khúc hợp lệ (dùng cho filter user / audience thông báo)
+     */
+    public static void validateSegment(String segment) {
+        if (segment != null && !segment.isBlank() && !SEGMENTS.contains(segment)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Phân khúc khách hàng không hợp lệ: " + segment);
+        }
+    }
+
+    /**
+     * Scheduled task: Tính lại phân khúc toàn bộ khách hàng
+     */
+    @Scheduled(cron = "${app.customers.segments.cron:0 45 2 * * *}")
+    public void scheduledCompute() {
+        computeExclusive();
+    }
+
+    /**
+     * Tính lại nền (admin kích hoạt); báo lỗi nếu đang có lần tính khác chạy trên node này
+     */
+    public void startCompute() {
+        if (computing.get()) {
+            throw new ApiException(HttpStatus.CONFLICT, "Đang tính phân khúc khách hàng");
+        }
+        pool.execute(this::computeExclusive);
+    }
+
+    private void computeExclusive() {
+        if (!computing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            schedulerLockService.runExclusive(LOCK_NAME, Duration.ofHours(1), this::compute);
+        } catch (Exception e) {
+            log.error("❌ Customer segmentation failed: {}", e.getMessage(), e);
+        } finally {
+            computing.set(false);
+        }
+    }
+
+    private void compute() {
+        long startedAt = System.nanoTime();
+        Accumulator acc = new Accumulator(loadCustomerIds());
+        if (acc.userIds.length > 0) {
+            pool.invoke(new ScanTask(acc, 0, acc.userIds.length));
+        }
+        int active = score(acc);
+        long[] written = write(acc);
+        log.info("👥 Customer segments computed: {} customers, {} with orders, {} orders scanned, {} upserted, {} deleted in {} ms",
+                acc.userIds.length, active, acc.ordersScanned.get(), written[0], written[1],
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private long[] loadCustomerIds() {
+        long[] ids = new long[Math.max(16, pageSize)];
+        int size = 0;
+        long cursor = 0;
+        while (true) {
+            List<Long> page = jdbcTemplate.queryForList(CUSTOMER_IDS_SQL, new MapSqlParameterSource()
+                    .addValue("pageSize", pageSize)
+                    .addValue("cursor", cursor)
+                    .addValue("guestEmail", PosContextService.SYSTEM_CUSTOMER_EMAIL), Long.class);
+            for (Long id : page) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[size++] = id;
+            }
+            if (page.size() < pageSize) {
+                return Arrays.copyOf(ids, size);
+            }
+            cursor = page.get(page.size() - 1);
+        }
+    }
+
+    /**
+     * Quét đơn của khách có chỉ số trong [from, to) theo keyset (user_id, id)
+     */
+    private void scanOrders(Accumulator acc, int from, int to) {
+        long[] cursor = {acc.userIds[from], 0L};
+        int[] position = {from};
+        while (true) {
+            int[] rows = {0};
+            jdbcTemplate.query(ORDERS_PAGE_SQL, new MapSqlParameterSource()
+                    .addValue("pageSize", pageSize)
+                    .addValue("fromUserId", acc.userIds[from])
+                    .addValue("toUserId", acc.userIds[to - 1])
+                    .addValue("cursorUserId", cursor[0])
+                    .addValue("cursorOrderId", cursor[1]), rs -> {
+                long userId = rs.getLong(1);
+                cursor[0] = userId;
+                cursor[1] = rs.getLong(2);
+                rows[0]++;
+                // Đơn sắp theo user_id nên chỉ số khách chỉ tiến về phía trước
+                while (position[0] < to && acc.userIds[position[0]] < userId) {
+                    position[0]++;
+                }
+                if (position[0] == to || acc.userIds[position[0]] != userId) {
+                    return; // user không phải khách hàng (admin, đã xóa)
+                }
+                int i = position[0];
+                Timestamp createdAt = rs.getTimestamp(3);
+                BigDecimal total = rs.getBigDecimal(4);
+                int day = createdAt != null ? (int) createdAt.toLocalDateTime().toLocalDate().toEpochDay() : NO_ORDER;
+                acc.lastOrderDay[i] = Math.max(acc.lastOrderDay[i], day);
+                acc.frequency[i]++;
+                acc.monetaryCents[i] += total != null ? total.movePointRight(2).longValue() : 0L;
+            });
+            acc.ordersScanned.addAndGet(rows[0]);
+            if (rows[0] < pageSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Chấm điểm R, F, M theo ngũ phân vị và gán nhãn phân khúc
+     *
+     * @return số khách có đơn
+     */
+    private int score(Accumulator acc) {
+        int customers = acc.userIds.length;
+        int active = 0;
+        for (int i = 0; i < customers; i++) {
+            if (acc.frequency[i] > 0) {
+                active++;
+            }
+        }
+        if (active == 0) {
+            return 0;
+        }
+        long today = LocalDate.now().toEpochDay();
+        long[] recency = new long[active];
+        long[] frequency = new long[active];
+        long[] monetary = new long[active];
+        for (int i = 0, k = 0; i < customers; i++) {
+            if (acc.frequency[i] > 0) {
+                recency[k] = today - acc.lastOrderDay[i];
+                frequency[k] = acc.frequency[i];
+                monetary[k] = acc.monetaryCents[i];
+                k++;
+            }
+        }
+        Arrays.parallelSort(recency);
+        Arrays.parallelSort(frequency);
+        Arrays.parallelSort(monetary);
+        pool.invoke(new ScoreTask(acc, new long[][]{recency, frequency, monetary}, today, 0, customers));
+        return active;
+    }
+
+    /**
+     * Ghi các dòng thay đổi: merge theo user id giữa mảng khách (đã sắp xếp) và Customer_Segments hiện có
+     *
+     * @return {số dòng upsert, số dòng xóa}
+     */
+    private long[] write(Accumulator acc) {
+        Writer writer = new Writer();
+        int i = 0;
+        long cursor = 0;
+        while (true) {
+            List<Object[]> existing = jdbcTemplate.query(EXISTING_PAGE_SQL, new MapSqlParameterSource()
+                    .addValue("pageSize", pageSize)
+                    .addValue("cursor", cursor), (rs, rowNum) -> new Object[]{
+                    rs.getLong(1), rs.getDate(2).toLocalDate().toEpochDay(), rs.getInt(3),
+                    rs.getBigDecimal(4).movePointRight(2).longValue(),
+                    rs.getInt(5) * 100 + rs.getInt(6) * 10 + rs.getInt(7), rs.getString(8)});
+            for (Object[] row : existing) {
+                long userId = (Long) row[0];
+                while (i < acc.userIds.length && acc.userIds[i] < userId) {
+                    if (acc.frequency[i] > 0) {
+                        writer.upsert(acc, i);
+                    }
+                    i++;
+                }
+                if (i < acc.userIds.length && acc.userIds[i] == userId) {
+                    if (acc.frequency[i] == 0) {
+                        writer.delete(userId);
+                    } else if (changed(acc, i, row)) {
+                        writer.upsert(acc, i);
+                    }
+                    i++;
+                } else {
+                    writer.delete(userId); // không còn là khách hàng (đổi role, đã xóa)
+                }
+            }
+            if (existing.size() < pageSize) {
+                break;
+            }
+            cursor = (Long) existing.get(existing.size() - 1)[0];
+        }
+        for (; i < acc.userIds.length; i++) {
+            if (acc.frequency[i] > 0) {
+                writer.upsert(acc, i);
+            }
+        }
+        writer.flush();
+        return new long[]{writer.upserted, writer.deleted};
+    }
+
+    private static boolean changed(Accumulator acc, int i, Object[] row) {
+        return (Long) row[1] != acc.lastOrderDay[i]
+                || (Integer) row[2] != acc.frequency[i]
+                || (Long) row[3] != acc.monetaryCents[i]
+                || (Integer) row[4] != acc.rfm[i]
+                || !SEGMENTS.get(acc.segment[i]).equals(row[5]);
+    }
+
+    /**
+     * Điểm 1..5 theo vị trí lower bound của value trong mảng đã sắp xếp tăng dần
+     */
+    private static int quintile(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return 1 + (int) (5L * low / sorted.length);
+    }
+
+    private static int segmentOf(int r, int f, int m) {
+        if (r >= 4 && f >= 4) {
+            return m >= 4 ? SEGMENTS.indexOf(CHAMPIONS) : SEGMENTS.indexOf(LOYAL);
+        }
+        if (r >= 3 && f >= 4) {
+            return SEGMENTS.indexOf(LOYAL);
+        }
+        if (r >= 4) {
+            return f >= 2 ? SEGMENTS.indexOf(POTENTIAL_LOYALIST) : SEGMENTS.indexOf(NEW_CUSTOMERS);
+        }
+        if (r == 3) {
+            return SEGMENTS.indexOf(NEEDS_ATTENTION);
+        }
+        return f >= 3 ? SEGMENTS.indexOf(AT_RISK) : SEGMENTS.indexOf(HIBERNATING);
+    }
+
+    /**
+     * Số liệu của từng khách theo chỉ số dày (vị trí trong userIds)
+     */
+    private static final class Accumulator {
+        final long[] userIds;
+        final int[] lastOrderDay;
+        final int[] frequency;
+        final long[] monetaryCents;
+        final int[] rfm;
+        final byte[] segment;
+        final AtomicLong ordersScanned = new AtomicLong();
+
+        Accumulator(long[] userIds) {
+            this.userIds = userIds;
+            this.lastOrderDay = new int[userIds.length];
+            this.frequency = new int[userIds.length];
+            this.monetaryCents = new long[userIds.length];
+            this.rfm = new int[userIds.length];
+            this.segment = new byte[userIds.length];
+            Arrays.fill(lastOrderDay, NO_ORDER);
+        }
+    }
+
+    /**
+     * Chia dải khách thành các khoảng app.customers.segments.partition-users, mỗi khoảng quét Orders riêng
+     */
+    private final class ScanTask extends RecursiveAction {
+        private final Accumulator acc;
+        private final int from;
+        private final int to;
+
+        ScanTask(Accumulator acc, int from, int to) {
+            this.acc = acc;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= partitionUsers) {
+                scanOrders(acc, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScanTask(acc, from, middle), new ScanTask(acc, middle, to));
+        }
+    }
+
+    private static final class ScoreTask extends RecursiveAction {
+        private static final int THRESHOLD = 10_000;
+
+        private final Accumulator acc;
+        private final long[][] sorted;
+        private final long today;
+        private final int from;
+        private final int to;
+
+        ScoreTask(Accumulator acc, long[][] sorted, long today, int from, int to) {
+            this.acc = acc;
+            this.sorted = sorted;
+            this.today = today;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    if (acc.frequency[i] == 0) {
+                        continue;
+                    }
+                    // Recency nhỏ (mua gần đây) là tốt nên đảo thang điểm
+                    int r = 6 - quintile(sorted[0], today - acc.lastOrderDay[i]);
+                    int f = quintile(sorted[1], acc.frequency[i]);
+                    int m = quintile(sorted[2], acc.monetaryCents[i]);
+                    acc.rfm[i] = r * 100 + f * 10 + m;
+                    acc.segment[i] = (byte) segmentOf(r, f, m);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreTask(acc, sorted, today, from, middle),
+                    new ScoreTask(acc, sorted, today, middle, to));
+        }
+    }
+
+    /**
+     * Gom các thay đổi thành JDBC batch, mỗi batch một transaction
+     */
+    private final class Writer {
+        private final List<MapSqlParameterSource> upserts = new ArrayList<>();
+        private final List<MapSqlParameterSource> deletes = new ArrayList<>();
+        private long upserted;
+        private long deleted;
+
+        void upsert(Accumulator acc, int i) {
+            int rfm = acc.rfm[i];
+            upserts.add(new MapSqlParameterSource()
+                    .addValue("userId", acc.userIds[i])
+                    .addValue("lastOrderDate", LocalDate.ofEpochDay(acc.lastOrderDay[i]))
+                    .addValue("frequency", acc.frequency[i])
+                    .addValue("monetary", BigDecimal.valueOf(acc.monetaryCents[i], 2))
+                    .addValue("rScore", rfm / 100)
+                    .addValue("fScore", rfm / 10 % 10)
+                    .addValue("mScore", rfm % 10)
+                    .addValue("segment", SEGMENTS.get(acc.segment[i])));
+            if (upserts.size() + deletes.size() >= writeBatchSize) {
+                flush();
+            }
+        }
+
+        void delete(long userId) {
+            deletes.add(new MapSqlParameterSource("userId", userId));
+            if (upserts.size() + deletes.size() >= writeBatchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (upserts.isEmpty() && deletes.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!upserts.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, upserts.toArray(new MapSqlParameterSource[0]));
+                }
+                if (!deletes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE_SQL, deletes.toArray(new MapSqlParameterSource[0]));
+                }
+            });
+            upserted += upserts.size();
+            deleted += deletes.size();
+            upserts.clear();
+            deletes.clear();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.entity.Order;
+import com.sneakery.store.entity.OrderDetail;
+import com.sneakery.store.entity.ProductVariant;
+import com.sneakery.store.exception.ApiException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service: DailySalesService
+ * Duy trì bảng fact Daily_Sales: (ngày đặt đơn, sản phẩm, biến thể) → số lượng, doanh thu, giá vốn
+ *
+ * <p>Đơn được tính từ lúc giao cho vận chuyển: shipped / delivered / completed, giống truy vấn top bán chạy cũ
+ * trên Order_Details. Khách xác nhận đã nhận (shipped → delivered) không ghi thêm.
+ *
+ * <ul>
+ *   <li>Cập nhật tăng dần trong cùng transaction khi đơn vào / rời nhóm trạng thái trên (AdminOrderService)
+ *       và khi bán tại quầy POS: mỗi biến thể của đơn là một MERGE cộng / trừ vào dòng của ngày đặt đơn</li>
+ *   <li>Backfill chia khoảng ngày thành các chunk (app.analytics.daily-sales.chunk-days), các chunk chạy song song
+ *       vì không chung khóa: mỗi chunk xóa rồi tính lại các ngày của mình bằng một câu INSERT ... SELECT GROUP BY</li>
+ *   <li>Cron app.analytics.daily-sales.reconcile-cron tính lại vài ngày gần nhất để tự sửa sai lệch
+ *       (giá vốn thay đổi, đơn đổi trạng thái bằng SQL tay); bảng rỗng thì backfill toàn bộ lịch sử</li>
+ * </ul>
+ *
+ * <p>Doanh thu là tổng thành tiền dòng đơn (Order_Details.total_price), chưa trừ giảm giá cấp đơn và phí ship;
+ * giá vốn lấy Product_Variants.cost_price tại thời điểm ghi nhận.
+ */
+@Slf4j
+@Service
+public class DailySalesService {
+
+    private static final String LOCK_NAME = "dailySales.backfill";
+    private static final Set<String> COUNTED_STATUSES = Set.of("shipped", "delivered", "completed");
+
+    private static final String MERGE_SQL =
+            "MERGE Daily_Sales WITH (HOLDLOCK) AS t " +
+            "USING (SELECT :saleDate AS sale_date, :productId AS product_id, :variantId AS variant_id, " +
+            "              :units AS units, :revenue AS revenue, :cost AS cost) s " +
+            "ON t.sale_date = s.sale_date AND t.product_id = s.product_id AND t.variant_id = s.variant_id " +
+            "WHEN MATCHED THEN UPDATE SET t.units = t.units + s.units, t.revenue = t.revenue + s.revenue, " +
+            "   t.cost = t.cost + s.cost, t.updated_at = SYSDATETIME() " +
+            "WHEN NOT MATCHED THEN INSERT (sale_date, product_id, variant_id, units, revenue, cost) " +
+            "   VALUES (s.sale_date, s.product_id, s.variant_id, s.units, s.revenue, s.cost);";
+
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM Daily_Sales WHERE sale_date >= :fromDate AND sale_date < :toDate";
+
+    private static final String INSERT_RANGE_SQL =
+            "INSERT INTO Daily_Sales (sale_date, product_id, variant_id, units, revenue, cost) " +
+            "SELECT CAST(o.created_at AS DATE), pv.product_id, od.variant_id, " +
+            "       SUM(od.quantity), SUM(od.total_price), SUM(od.quantity * ISNULL(pv.cost_price, 0)) " +
+            "FROM Orders o " +
+            "JOIN Order_Details od ON od.order_id = o.id " +
+            "JOIN Product_Variants pv ON pv.id = od.variant_id " +
+            "WHERE o.status IN ('shipped', 'delivered', 'completed', 'Shipped', 'Delivered', 'Completed') " +
+            "AND o.created_at >= :fromDate AND o.created_at < :toDate " +
+            "GROUP BY CAST(o.created_at AS DATE), pv.product_id, od.variant_id";
+
+    private static final String FIRST_ORDER_DATE_SQL =
+            "SELECT CAST(MIN(created_at) AS DATE) FROM Orders " +
+            "WHERE status IN ('shipped', 'delivered', 'completed', 'Shipped', 'Delivered', 'Completed')";
+
+    private static final String HAS_FACTS_SQL =
+            "SELECT COUNT(*) FROM (SELECT TOP 1 1 AS x FROM Daily_Sales) t";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final int chunkDays;
+    private final int reconcileDays;
+    private final ThreadPoolExecutor backfillExecutor;
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+
+    public DailySalesService(NamedParameterJdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             SchedulerLockService schedulerLockService,
+                             @Value("${app.analytics.daily-sales.chunk-days:30}") int chunkDays,
+                             @Value("${app.analytics.daily-sales.reconcile-days:3}") int reconcileDays,
+                             @Value("${app.analytics.daily-sales.backfill-threads:4}") int backfillThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLockService = schedulerLockService;
+        this.chunkDays = Math.max(1, chunkDays);
+        this.reconcileDays = Math.max(1, reconcileDays);
+        // +1 luồng cho lần backfill do admin kích hoạt (luồng đó chờ các chunk chạy trên các luồng còn lại)
+        this.backfillExecutor = new ThreadPoolExecutor(backfillThreads + 1, backfillThreads + 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("daily-sales-backfill-"));
+        this.backfillExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownBackfillExecutor() {
+        backfillExecutor.shutdown();
+    }
+
+    /**
+     * Trạng thái đơn được tính vào doanh số
+     */
+    public static boolean isCountedStatus(String status) {
+        return status != null && COUNTED_STATUSES.contains(status.toLowerCase());
+    }
+
+    /**
+     * Ghi nhận các dòng của đơn vào Daily_Sales trong transaction hiện tại:
+     * sign = 1 khi đơn vào nhóm trạng thái được tính, -1 khi rời nhóm (hoàn / hủy)
+     */
+    public void recordOrder(Order order, int sign) {
+        LocalDate saleDate = order.getCreatedAt() != null ? order.getCreatedAt().toLocalDate() : LocalDate.now();
+        Map<Long, MapSqlParameterSource> rows = new LinkedHashMap<>();
+        for (OrderDetail detail : order.getOrderDetails()) {
+            ProductVariant variant = detail.getVariant();
+            if (variant == null || detail.getQuantity() <= 0) {
+                continue;
+            }
+            BigDecimal revenue = detail.getTotalPrice() != null ? detail.getTotalPrice() : BigDecimal.ZERO;
+            BigDecimal cost = variant.getCostPrice() != null
+                    ? variant.getCostPrice().multiply(BigDecimal.valueOf(detail.getQuantity()))
+                    : BigDecimal.ZERO;
+            MapSqlParameterSource row = rows.get(variant.getId());
+            if (row == null) {
+                rows.put(variant.getId(), new MapSqlParameterSource()
+                        .addValue("saleDate", saleDate)
+                        .addValue("productId", variant.getProduct().getId())
+                        .addValue("variantId", variant.getId())
+                        .addValue("units", sign * detail.getQuantity())
+                        .addValue("revenue", revenue.multiply(BigDecimal.valueOf(sign)))
+                        .addValue("cost", cost.multiply(BigDecimal.valueOf(sign))));
+            } else {
+                row.addValue("units", (Integer) row.getValue("units") + sign * detail.getQuantity());
+                row.addValue("revenue", ((BigDecimal) row.getValue("revenue")).add(revenue.multiply(BigDecimal.valueOf(sign))));
+                row.addValue("cost", ((BigDecimal) row.getValue("cost")).add(cost.multiply(BigDecimal.valueOf(sign))));
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(MERGE_SQL, rows.values().toArray(new MapSqlParameterSource[0]));
+        }
+    }
+
+    /**
+     * Backfill bất đồng bộ các ngày trong [fromDate, toDate]; fromDate null = từ đơn được tính đầu tiên
+     *
+     * @return số chunk sẽ được tính lại
+     */
+    public int startBackfill(LocalDate fromDate, LocalDate toDate) {
+        LocalDate to = toDate != null ? toDate : LocalDate.now();
+        LocalDate from = fromDate != null ? fromDate : firstOrderDate();
+        if (from == null) {
+            return 0;
+        }
+        if (from.isAfter(to)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Ngày bắt đầu phải trước ngày kết thúc");
+        }
+        if (backfilling.get()) {
+            throw new ApiException(HttpStatus.CONFLICT, "Đang có tiến trình backfill doanh số chạy");
+        }
+        backfillExecutor.execute(() -> backfillExclusive(from, to));
+        return chunkCount(from, to);
+    }
+
+    /**
+     * Scheduled task: Tính lại app.analytics.daily-sales.reconcile-days ngày gần nhất,
+     * hoặc toàn bộ lịch sử nếu bảng chưa có dữ liệu
+     */
+    @Scheduled(cron = "${app.analytics.daily-sales.reconcile-cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        Integer facts = jdbcTemplate.getJdbcTemplate().queryForObject(HAS_FACTS_SQL, Integer.class);
+        LocalDate to = LocalDate.now();
+        LocalDate from = facts != null && facts > 0 ? to.minusDays(reconcileDays - 1L) : firstOrderDate();
+        if (from != null) {
+            backfillExclusive(from, to);
+        }
+    }
+
+    private void backfillExclusive(LocalDate from, LocalDate to) {
+        if (!backfilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            schedulerLockService.runExclusive(LOCK_NAME, Duration.ofHours(2), () -> backfill(from, to));
+        } catch (Exception e) {
+            log.error("❌ Daily sales backfill {} → {} failed: {}", from, to, e.getMessage(), e);
+        } finally {
+            backfilling.set(false);
+        }
+    }
+
+    /**
+     * Tính lại [from, to] theo từng chunk ngày, các chunk chạy song song, mỗi chunk một transaction
+     */
+    private void backfill(LocalDate from, LocalDate to) {
+        long startedAt = System.nanoTime();
+        LocalDate end = to.plusDays(1);
+        List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+        for (LocalDate chunkFrom = from; chunkFrom.isBefore(end); chunkFrom = chunkFrom.plusDays(chunkDays)) {
+            LocalDate chunkStart = chunkFrom;
+            LocalDate chunkEnd = chunkFrom.plusDays(chunkDays).isBefore(end) ? chunkFrom.plusDays(chunkDays) : end;
+            chunks.add(CompletableFuture.supplyAsync(() -> rebuildChunk(chunkStart, chunkEnd), backfillExecutor));
+        }
+        int rows = 0;
+        for (CompletableFuture<Integer> chunk : chunks) {
+            rows += chunk.join();
+        }
+        log.info("📈 Daily sales rebuilt for {} → {}: {} rows, {} chunks in {} ms",
+                from, to, rows, chunks.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private int rebuildChunk(LocalDate fromDate, LocalDate toDate) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("fromDate", fromDate)
+                .addValue("toDate", toDate);
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(DELETE_RANGE_SQL, params);
+            return jdbcTemplate.update(INSERT_RANGE_SQL, params);
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private LocalDate firstOrderDate() {
+        return jdbcTemplate.getJdbcTemplate().queryForObject(FIRST_ORDER_DATE_SQL, LocalDate.class);
+    }
+
+    private int chunkCount(LocalDate from, LocalDate to) {
+        long days = to.toEpochDay() - from.toEpochDay() + 1;
+        return (int) ((days + chunkDays - 1) / chunkDays);
+    }
+}
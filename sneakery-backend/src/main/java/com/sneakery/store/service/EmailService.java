@@ -1,9 +1,9 @@
 package com.sneakery.store.service;
 
-import com.sneakery.store.entity.EmailTemplate;
 import com.sneakery.store.entity.Order;
 import com.sneakery.store.entity.User;
-import com.sneakery.store.repository.EmailTemplateRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import lombok.extern.slf4j.Slf4j;
@@ -22,8 +22,8 @@ import java.util.Objects;
 public class EmailService {
 
     private final JavaMailSender mailSender;
-    private final EmailTemplateRepository emailTemplateRepository;
-    private final EmailTemplateRenderer renderer;
+    private final EmailTemplateCacheService templateCache;
+    private final MeterRegistry meterRegistry;
 
     @Value("${spring.mail.enabled:false}")
     private boolean emailEnabled;
@@ -37,12 +37,15 @@ public class EmailService {
     @Value("${app.reset.token-expire-minutes:30}")
     private int expireMinutes;
 
-    public EmailService(EmailTemplateRepository emailTemplateRepository, 
+    @Value("${app.web.cart-url:http://localhost:5173/cart}")
+    private String cartUrl;
+
+    public EmailService(EmailTemplateCacheService templateCache,
                        JavaMailSender mailSender,
-                       EmailTemplateRenderer renderer) {
-        this.emailTemplateRepository = emailTemplateRepository;
+                       MeterRegistry meterRegistry) {
+        this.templateCache = templateCache;
         this.mailSender = mailSender;
-        this.renderer = renderer;
+        this.meterRegistry = meterRegistry;
     }
 
     public void sendOrderConfirmation(Order order) {
@@ -134,27 +137,40 @@ public class EmailService {
         );
     }
 
+    public void sendAbandonedCart(String email, String customerName, int itemCount) {
+        log.info("🛒 [MOCK EMAIL] Sending abandoned cart reminder");
+        sendEmail(
+            email,
+            "abandoned_cart",
+            Map.of(
+                "customer_name", customerName != null ? customerName : "",
+                "item_count", String.valueOf(itemCount),
+                "cart_link", cartUrl
+            )
+        );
+    }
+
+    /**
+     * Render template rồi gửi (hoặc log mock); timer sneakery.email.send theo template và kết quả
+     * (sent, mock, failed, template_missing)
+     */
     private void sendEmail(String to, String templateName, Map<String, String> variables) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failed";
         try {
-            EmailTemplate template = emailTemplateRepository
-                    .findByTemplateNameAndIsActiveTrue(templateName)
+            EmailTemplateCacheService.CachedEmailTemplate template = templateCache
+                    .findActive(templateName)
                     .orElse(null);
             
             if (template == null) {
                 log.warn("⚠️ Email template '{}' not found", templateName);
+                outcome = "template_missing";
                 return;
             }
             
-            String body = template.getBody();
-            String subject = template.getSubject();
-            
-            // Support both {{var}} and {var} placeholder formats
-            for (Map.Entry<String, String> entry : variables.entrySet()) {
-                String placeholder1 = "{{" + entry.getKey() + "}}";
-                String placeholder2 = "{" + entry.getKey() + "}";
-                body = body.replace(placeholder1, entry.getValue()).replace(placeholder2, entry.getValue());
-                subject = subject.replace(placeholder1, entry.getValue()).replace(placeholder2, entry.getValue());
-            }
+            // Template đã biên dịch sẵn (hỗ trợ cả {{var}} và {var}), render một lượt
+            String body = template.renderBody(variables);
+            String subject = template.renderSubject(variables);
             
             log.debug("📧 Email prepared: Subject: {}", subject);
             log.debug("Body length: {} chars", body.length());
@@ -170,17 +186,21 @@ public class EmailService {
                     helper.setText(body, true);
                     
                     mailSender.send(message);
+                    outcome = "sent";
                     log.info("✅ Email sent to: {}", to);
                 } catch (Exception ex) {
                     log.error("❌ Error sending email: {}", ex.getMessage());
                     logEmailMock(to, subject, body);
                 }
             } else {
+                outcome = "mock";
                 logEmailMock(to, subject, body);
             }
             
         } catch (Exception e) {
             log.error("❌ Failed to send email: {}", e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer("sneakery.email.send", "template", templateName, "outcome", outcome));
         }
     }
     
@@ -191,7 +211,7 @@ public class EmailService {
     }
 
     public void sendResetPasswordEmail(User user, String token) {
-        var tpl = emailTemplateRepository.findByTemplateNameAndIsActiveTrue("password_reset")
+        var tpl = templateCache.findActive("password_reset")
                 .orElseThrow(() -> new IllegalStateException("Missing email template: password_reset"));
 
         String resetLink = resetBaseUrl + "?token=" + URLEncoder.encode(token, StandardCharsets.UTF_8);
@@ -205,8 +225,8 @@ public class EmailService {
                 "logo_url", "https://i.postimg.cc/V6bHkXtR/logo.png"
         );
 
-        String subject = renderer.render(tpl.getSubject(), vars);
-        String html = renderer.render(tpl.getBody(), vars);
+        String subject = tpl.renderSubject(vars);
+        String html = tpl.renderBody(vars);
 
         try {
             MimeMessage msg = mailSender.createMimeMessage();
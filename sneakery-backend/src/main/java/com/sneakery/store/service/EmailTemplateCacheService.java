@@ -0,0 +1,109 @@
+package com.sneakery.store.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.sneakery.store.entity.EmailTemplate;
+import com.sneakery.store.repository.EmailTemplateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Service: EmailTemplateCacheService
+ * Cache template email đã biên dịch theo tên + version (updated_at)
+ *
+ * <ul>
+ *   <li>Mỗi template chỉ được đọc từ DB và parse một lần; các lần gửi sau dùng bản đã biên dịch</li>
+ *   <li>Template không tồn tại / đã tắt cũng được cache (Optional.empty) để không truy vấn lại mỗi lần gửi</li>
+ *   <li>AdminEmailTemplateController evict ngay khi tạo / sửa / xóa / bật tắt template</li>
+ *   <li>Node khác thấy thay đổi sau tối đa app.email.template-cache.refresh-minutes:
+ *       khi refresh, nếu version không đổi thì giữ nguyên bản đã biên dịch</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class EmailTemplateCacheService {
+
+    /**
+     * Subject + body đã biên dịch của một template đang active
+     */
+    public record CachedEmailTemplate(Integer id,
+                                      String templateName,
+                                      LocalDateTime version,
+                                      CompiledEmailTemplate subject,
+                                      CompiledEmailTemplate body) {
+
+        public String renderSubject(Map<String, ?> variables) {
+            return subject.render(variables);
+        }
+
+        public String renderBody(Map<String, ?> variables) {
+            return body.render(variables);
+        }
+    }
+
+    private final EmailTemplateRepository emailTemplateRepository;
+    private final LoadingCache<String, Optional<CachedEmailTemplate>> templates;
+
+    public EmailTemplateCacheService(EmailTemplateRepository emailTemplateRepository,
+                                     @Value("${app.email.template-cache.refresh-minutes:10}") long refreshMinutes) {
+        this.emailTemplateRepository = emailTemplateRepository;
+        this.templates = Caffeine.newBuilder()
+                .maximumSize(500)
+                .refreshAfterWrite(Duration.ofMinutes(refreshMinutes))
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Optional<CachedEmailTemplate> load(String templateName) {
+                        return loadTemplate(templateName, Optional.empty());
+                    }
+
+                    @Override
+                    public Optional<CachedEmailTemplate> reload(String templateName, Optional<CachedEmailTemplate> oldValue) {
+                        return loadTemplate(templateName, oldValue);
+                    }
+                });
+    }
+
+    /**
+     * Lấy template active đã biên dịch theo tên (không truy vấn DB nếu đã có trong cache)
+     */
+    public Optional<CachedEmailTemplate> findActive(String templateName) {
+        return templates.get(Objects.requireNonNull(templateName));
+    }
+
+    /**
+     * Bỏ template khỏi cache; lần gửi tiếp theo sẽ đọc và biên dịch lại
+     */
+    public void evict(String templateName) {
+        if (templateName != null) {
+            templates.invalidate(templateName);
+            log.debug("🧹 Email template cache evicted: {}", templateName);
+        }
+    }
+
+    private Optional<CachedEmailTemplate> loadTemplate(String templateName, Optional<CachedEmailTemplate> previous) {
+        EmailTemplate template = emailTemplateRepository.findByTemplateNameAndIsActiveTrue(templateName).orElse(null);
+        if (template == null) {
+            return Optional.empty();
+        }
+
+        LocalDateTime version = template.getUpdatedAt() != null ? template.getUpdatedAt() : template.getCreatedAt();
+        if (previous.isPresent()
+                && Objects.equals(previous.get().id(), template.getId())
+                && Objects.equals(previous.get().version(), version)) {
+            return previous;
+        }
+
+        CompiledEmailTemplate subject = CompiledEmailTemplate.compile(template.getSubject());
+        CompiledEmailTemplate body = CompiledEmailTemplate.compile(template.getBody());
+        log.debug("📧 Email template '{}' compiled (version {}, {} body slots)", templateName, version, body.slotCount());
+        return Optional.of(new CachedEmailTemplate(template.getId(), template.getTemplateName(), version, subject, body));
+    }
+}
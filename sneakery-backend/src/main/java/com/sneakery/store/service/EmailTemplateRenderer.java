@@ -8,15 +8,10 @@ import java.util.Map;
 public class EmailTemplateRenderer {
 
     /**
-     * Render template string bằng cách thay thế {{variable}} thành giá trị trong map.
+     * Render template string bằng cách thay thế {{variable}} / {variable} thành giá trị trong map.
+     * Template lấy từ DB nên dùng {@link EmailTemplateCacheService} (đã biên dịch sẵn) thay vì hàm này.
      */
-    public String render(String template, Map<String, Object> variables) {
-        String result = template;
-        for (Map.Entry<String, Object> entry : variables.entrySet()) {
-            String key = "{{" + entry.getKey() + "}}";
-            String value = String.valueOf(entry.getValue());
-            result = result.replace(key, value);
-        }
-        return result;
+    public String render(String template, Map<String, ?> variables) {
+        return CompiledEmailTemplate.compile(template).render(variables);
     }
-}
\ No newline at end of file
+}
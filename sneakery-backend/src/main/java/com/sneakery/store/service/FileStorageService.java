@@ -6,21 +6,29 @@ import com.cloudinary.Transformation;
 import com.cloudinary.utils.ObjectUtils;
 import com.sneakery.store.constants.ProductConstants;
 import com.sneakery.store.exception.ApiException;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service xử lý upload và quản lý file với Cloudinary.
@@ -36,14 +44,32 @@ import java.util.UUID;
 @Service
 public class FileStorageService {
 
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] RIFF_MAGIC = {'R', 'I', 'F', 'F'};
+    private static final byte[] WEBP_MAGIC = {'W', 'E', 'B', 'P'};
+
     private final Cloudinary cloudinary;
-    
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    private final LocalMediaStorageService localMediaStorageService;
+    private final ThreadPoolExecutor uploadExecutor;
     
     // Constructor với @Autowired(required = false) để cho phép cloudinary null
-    public FileStorageService(@Autowired(required = false) Cloudinary cloudinary) {
+    public FileStorageService(@Autowired(required = false) Cloudinary cloudinary,
+                              LocalMediaStorageService localMediaStorageService,
+                              @Value("${app.image-upload.concurrency:4}") int uploadConcurrency,
+                              @Value("${app.image-upload.queue-capacity:50}") int uploadQueueCapacity) {
         this.cloudinary = cloudinary;
+        this.localMediaStorageService = localMediaStorageService;
+        // Pool giới hạn cho upload song song; hàng đợi đầy thì thread gọi tự upload (không tạo thêm thread)
+        this.uploadExecutor = new ThreadPoolExecutor(uploadConcurrency, uploadConcurrency,
+                60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(uploadQueueCapacity),
+                new CustomizableThreadFactory("image-upload-"), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.uploadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownUploadExecutor() {
+        uploadExecutor.shutdown();
     }
 
     /**
@@ -57,9 +83,9 @@ public class FileStorageService {
      * <p>Validation bao gồm:
      * <ul>
      *   <li>Kiểm tra file không null/empty</li>
-     *   <li>Kiểm tra file type (chỉ cho phép image/jpeg, image/png, image/webp)</li>
      *   <li>Kiểm tra file size (tối đa 5MB)</li>
      *   <li>Kiểm tra file extension</li>
+     *   <li>Kiểm tra magic bytes ở đầu file (JPEG, PNG, WEBP) thay vì tin Content-Type của client</li>
      * </ul>
      * 
      * @param productId ID sản phẩm
@@ -68,19 +94,78 @@ public class FileStorageService {
      * @throws ApiException nếu validation fails
      */
     public CloudinaryUploadResult storeProductImage(Long productId, MultipartFile file) {
+        String extension = validateProductImage(file);
+        return upload(productFolder(productId), file, extension);
+    }
+
+    /**
+     * Upload ảnh variant (folder upload/sanpham/{productId}/{variantId}), cùng validation + stream như ảnh sản phẩm
+     */
+    public CloudinaryUploadResult storeVariantImage(Long productId, Long variantId, MultipartFile file) {
+        String extension = validateProductImage(file);
+        return upload(String.format("upload/sanpham/%d/%d", productId, variantId), file, extension);
+    }
+
+    /**
+     * Upload nhiều ảnh sản phẩm song song trên thread pool giới hạn (app.image-upload.concurrency)
+     *
+     * <p>Toàn bộ file được validate trước khi upload file nào. Nếu một file upload lỗi,
+     * các file đã upload thành công trong lần gọi này bị xoá lại để không để rác trên storage.
+     *
+     * @return Kết quả upload theo đúng thứ tự danh sách file
+     */
+    public List<CloudinaryUploadResult> storeProductImages(Long productId, List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Chưa chọn file ảnh nào để upload");
+        }
+        List<String> extensions = files.stream().map(this::validateProductImage).toList();
+        String folder = productFolder(productId);
+
+        List<CompletableFuture<CloudinaryUploadResult>> futures = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String extension = extensions.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> upload(folder, file, extension), uploadExecutor));
+        }
+
+        List<CloudinaryUploadResult> results = new ArrayList<>(files.size());
+        ApiException failure = null;
+        for (CompletableFuture<CloudinaryUploadResult> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                failure = e.getCause() instanceof ApiException apiException ? apiException
+                        : new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Không thể upload file: " + e.getCause().getMessage());
+            }
+        }
+
+        if (failure != null) {
+            log.warn("⚠️ Upload {} ảnh cho product {} lỗi, xoá {} ảnh đã upload", files.size(), productId, results.size());
+            deleteUploaded(results);
+            throw failure;
+        }
+        log.info("✅ Uploaded {} images for product {}", results.size(), productId);
+        return results;
+    }
+
+    /**
+     * Xoá các ảnh vừa upload (bù trừ khi bước ghi DB / upload khác thất bại)
+     */
+    public void deleteUploaded(List<CloudinaryUploadResult> uploads) {
+        // Chưa có dòng ảnh nào tham chiếu tới các upload này
+        uploads.forEach(up -> deleteByPublicId(up.publicId(), 0));
+    }
+
+    /**
+     * Validate file ảnh sản phẩm và trả về extension suy ra từ magic bytes
+     */
+    private String validateProductImage(MultipartFile file) {
         // 1. Validate file không null/empty
         if (file == null || file.isEmpty()) {
             throw new ApiException(HttpStatus.BAD_REQUEST, "File upload rỗng hoặc null!");
         }
 
-        // 2. Validate file type
-        String contentType = file.getContentType();
-        if (contentType == null || !Arrays.asList(ProductConstants.ALLOWED_IMAGE_TYPES).contains(contentType.toLowerCase())) {
-            throw new ApiException(HttpStatus.BAD_REQUEST, 
-                "File type không được hỗ trợ. Chỉ chấp nhận: JPG, PNG, WEBP");
-        }
-
-        // 3. Validate file size
+        // 2. Validate file size
         if (file.getSize() > ProductConstants.MAX_IMAGE_FILE_SIZE) {
             long maxSizeMB = ProductConstants.MAX_IMAGE_FILE_SIZE / (1024 * 1024);
             throw new ApiException(HttpStatus.BAD_REQUEST, 
@@ -88,7 +173,7 @@ public class FileStorageService {
                     maxSizeMB, file.getSize() / (1024.0 * 1024.0)));
         }
 
-        // 4. Validate file extension
+        // 3. Validate file extension
         String originalFilename = file.getOriginalFilename();
         if (originalFilename != null) {
             String extension = originalFilename.toLowerCase();
@@ -100,19 +185,76 @@ public class FileStorageService {
             }
         }
 
-        // 5. Upload lên Cloudinary hoặc lưu local
+        // 4. Validate nội dung: đọc vài byte đầu từ stream (file multipart nằm trên đĩa), không tin Content-Type
+        String detectedExtension = detectImageExtension(file);
+        if (detectedExtension == null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, 
+                "File type không được hỗ trợ. Chỉ chấp nhận: JPG, PNG, WEBP");
+        }
+        return detectedExtension;
+    }
+
+    /**
+     * Nhận diện định dạng ảnh qua magic bytes
+     *
+     * @return ".jpg", ".png", ".webp" hoặc null nếu không phải ảnh được hỗ trợ
+     */
+    private String detectImageExtension(MultipartFile file) {
+        byte[] head = new byte[12];
+        int read;
+        try (InputStream in = file.getInputStream()) {
+            read = in.readNBytes(head, 0, head.length);
+        } catch (IOException e) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Không đọc được file upload: " + e.getMessage());
+        }
+
+        if (read >= 3 && startsWith(head, JPEG_MAGIC, 0)) {
+            return ".jpg";
+        }
+        if (read >= 8 && startsWith(head, PNG_MAGIC, 0)) {
+            return ".png";
+        }
+        if (read >= 12 && startsWith(head, RIFF_MAGIC, 0) && startsWith(head, WEBP_MAGIC, 8)) {
+            return ".webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix, int offset) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String productFolder(Long productId) {
+        return "uploads/sanpham/" + productId;
+    }
+
+    /**
+     * Upload lên Cloudinary (vào folder) hoặc lưu local
+     */
+    private CloudinaryUploadResult upload(String folder, MultipartFile file, String extension) {
         if (cloudinary != null) {
+            Path tempFile = null;
             try {
-                log.info("📤 Uploading to Cloudinary: productId={}, filename={}, size={} bytes", 
-                    productId, file.getOriginalFilename(), file.getSize());
-                
+                log.info("📤 Uploading to Cloudinary: folder={}, filename={}, size={} bytes", 
+                    folder, file.getOriginalFilename(), file.getSize());
+
+                // Không dùng file.getBytes(): chuyển part (đã nằm trên đĩa) sang file tạm rồi để SDK stream file đó,
+                // tránh copy cả ảnh vào heap
+                tempFile = Files.createTempFile("sneakery-upload-", extension);
+                file.transferTo(tempFile.toFile());
+
                 // Upload file gốc lên Cloudinary
                 // Transformations sẽ được apply khi generate URL (trong CloudinaryUtil)
                 // Upload file gốc để có thể tạo nhiều size khác nhau sau này
                 Map<?, ?> res = cloudinary.uploader().upload(
-                        file.getBytes(),
+                        tempFile.toFile(),
                         ObjectUtils.asMap(
-                                "folder", "uploads/sanpham/" + productId,
+                                "folder", folder,
                                 "use_filename", true,
                                 "unique_filename", true,
                                 "resource_type", "image"
@@ -132,12 +274,14 @@ public class FileStorageService {
                     e.getCause() != null ? e.getCause().getMessage() : "N/A");
                 throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, 
                     "Không thể upload file lên Cloudinary: " + e.getMessage());
+            } finally {
+                deleteTempFile(tempFile);
             }
         } else {
             // Fallback: Lưu file local
             log.warn("⚠️ Cloudinary chưa được cấu hình, sử dụng local storage");
             try {
-                return storeProductImageLocal(productId, file);
+                return storeImageLocal(folder, file, extension);
             } catch (IOException e) {
                 log.error("❌ Upload local file lỗi: {}", e.getMessage(), e);
                 throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, 
@@ -146,41 +290,41 @@ public class FileStorageService {
         }
     }
 
+    private void deleteTempFile(Path tempFile) {
+        if (tempFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.warn("⚠️ Không thể xoá file tạm {}: {}", tempFile, e.getMessage());
+        }
+    }
+
     /**
      * Lưu file local (fallback khi không có Cloudinary)
+     * Ảnh được lưu theo hash nội dung + tạo derivative trong {@link LocalMediaStorageService}
      */
-    private CloudinaryUploadResult storeProductImageLocal(Long productId, MultipartFile file) throws IOException {
-        // Tạo thư mục nếu chưa có
-        Path productDir = Paths.get(uploadDir, "sanpham", productId.toString());
-        Files.createDirectories(productDir);
-        
-        // Tạo tên file unique
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        }
-        String filename = UUID.randomUUID().toString() + extension;
-        Path filePath = productDir.resolve(filename);
-        
-        // Lưu file
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        // Tạo URL (relative path)
-        String url = "/" + uploadDir + "/sanpham/" + productId + "/" + filename;
-        String publicId = uploadDir + "/sanpham/" + productId + "/" + filename;
-        
-        log.info("✅ Uploaded local file: url={}, path={}", url, filePath);
-        return new CloudinaryUploadResult(url, publicId);
+    private CloudinaryUploadResult storeImageLocal(String folder, MultipartFile file, String extension) throws IOException {
+        LocalMediaStorageService.StoredMedia stored = localMediaStorageService.store(file, extension);
+        log.info("✅ Uploaded local file for {}: url={}", folder, stored.url());
+        return new CloudinaryUploadResult(stored.url(), stored.publicId());
     }
     
     /**
      * Xoá asset Cloudinary bằng public_id (chính xác 100%).
+     * Gọi trước khi xoá dòng ảnh tương ứng: ảnh local dùng chung (trùng nội dung) chỉ bị xoá khi đó là tham chiếu cuối.
      */
     public void deleteByPublicId(String publicId) {
+        deleteByPublicId(publicId, 1);
+    }
+
+    private void deleteByPublicId(String publicId, int remainingReferences) {
         if (publicId == null || publicId.isBlank()) return;
-        
-        if (cloudinary != null) {
+
+        if (localMediaStorageService.isMediaPublicId(publicId)) {
+            localMediaStorageService.release(publicId, remainingReferences);
+        } else if (cloudinary != null) {
             try {
                 cloudinary.uploader().destroy(publicId, ObjectUtils.emptyMap());
                 log.info("🗑️ Đã xoá Cloudinary asset: {}", publicId);
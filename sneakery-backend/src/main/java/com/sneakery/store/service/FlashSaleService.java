@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
@@ -31,6 +32,7 @@ public class FlashSaleService {
 
     private final FlashSaleRepository flashSaleRepository;
     private final ProductRepository productRepository;
+    private final SchedulerLockService schedulerLockService;
 
     /**
      * Lấy tất cả flash sales (cho admin panel)
@@ -190,24 +192,27 @@ public class FlashSaleService {
 
     /**
      * Scheduled task: Auto deactivate expired flash sales
-     * Chạy mỗi giờ
+     * Chạy mỗi giờ, chỉ một node thực thi khi chạy cluster (SchedulerLockService)
      */
     @Scheduled(cron = "0 0 * * * *") // Every hour
     @Transactional
     public void deactivateExpiredFlashSales() {
-        log.info("🔄 Running scheduled task: Deactivate expired flash sales");
-        
-        LocalDateTime now = LocalDateTime.now();
-        
-        List<FlashSale> expiredSales = flashSaleRepository
-                .findByIsActiveTrueAndEndTimeLessThan(now);
-        
-        if (!expiredSales.isEmpty()) {
-            expiredSales.forEach(sale -> sale.setIsActive(false));
-            flashSaleRepository.saveAll(expiredSales);
-            
-            log.info("✅ Deactivated {} expired flash sales", expiredSales.size());
-        }
+        schedulerLockService.runExclusive("flashSale.deactivateExpired",
+                Duration.ofMinutes(10), Duration.ofMinutes(1), () -> {
+            log.info("🔄 Running scheduled task: Deactivate expired flash sales");
+
+            LocalDateTime now = LocalDateTime.now();
+
+            List<FlashSale> expiredSales = flashSaleRepository
+                    .findByIsActiveTrueAndEndTimeLessThan(now);
+
+            if (!expiredSales.isEmpty()) {
+                expiredSales.forEach(sale -> sale.setIsActive(false));
+                flashSaleRepository.saveAll(expiredSales);
+
+                log.info("✅ Deactivated {} expired flash sales", expiredSales.size());
+            }
+        });
     }
 
     /**
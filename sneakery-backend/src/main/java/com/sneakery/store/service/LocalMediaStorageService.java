@@ -0,0 +1,402 @@
+package com.sneakery.store.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service: LocalMediaStorageService
+ * Kho ảnh local (khi chưa cấu hình Cloudinary) lưu theo nội dung (content-addressed)
+ *
+ * <p><b>Lưu trữ:</b> file được stream ra đĩa đồng thời tính SHA-256, đặt tại
+ * {@code {upload-dir}/media/{2 ký tự đầu hash}/{hash}.{ext}}. Upload trùng nội dung chỉ lưu 1 lần;
+ * public_id ({@code media/ab/abcd...}) được nhiều dòng ảnh dùng chung, file chỉ bị xoá khi không còn dòng nào tham chiếu.
+ *
+ * <p><b>Derivative:</b> ngay sau khi lưu bản gốc, worker pool (app.media.derivative-workers) tạo
+ * thumbnail 300px, medium 800px, large 1200px bằng ImageIO của JDK (giữ tỉ lệ, không phóng to),
+ * tương đương {@code CloudinaryUtil.generateThumbnailUrl/MediumUrl/LargeUrl}.
+ * JDK không đọc được WEBP nên ảnh WEBP chỉ có bản gốc; URL derivative khi đó trả về bản gốc.
+ *
+ * <p>File được phục vụ qua {@code MediaController} với cache immutable, ETag và Range.
+ */
+@Slf4j
+@Service
+public class LocalMediaStorageService {
+
+    public static final String URL_PREFIX = "/media/";
+
+    private static final String PUBLIC_ID_PREFIX = "media/";
+    private static final int[] DERIVATIVE_SIZES = {300, 800, 1200};
+    private static final int THUMBNAIL_SIZE = 300;
+    private static final int MEDIUM_SIZE = 800;
+    private static final int LARGE_SIZE = 1200;
+
+    /**
+     * Tên file hợp lệ: {hash}.{ext} hoặc {hash}_{size}.{ext}
+     */
+    private static final Pattern FILE_NAME = Pattern.compile("^([0-9a-f]{64})(?:_(300|800|1200))?\\.(jpg|png|webp)$");
+
+    private static final String COUNT_REFERENCES_SQL =
+            "SELECT (SELECT COUNT(*) FROM Product_Images WHERE cloudinary_public_id = ?) " +
+            "     + (SELECT COUNT(*) FROM Variant_Images WHERE cloudinary_public_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path mediaRoot;
+    private final ThreadPoolExecutor derivativeExecutor;
+
+    @Value("${app.media.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    public LocalMediaStorageService(JdbcTemplate jdbcTemplate,
+                                    @Value("${file.upload-dir:uploads}") String uploadDir,
+                                    @Value("${app.media.derivative-workers:2}") int derivativeWorkers,
+                                    @Value("${app.media.derivative-queue-capacity:100}") int derivativeQueueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mediaRoot = Paths.get(uploadDir, "media").toAbsolutePath().normalize();
+        // Decode ảnh tốn nhiều heap: pool nhỏ, hàng đợi giới hạn
+        this.derivativeExecutor = new ThreadPoolExecutor(derivativeWorkers, derivativeWorkers,
+                60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(derivativeQueueCapacity),
+                new CustomizableThreadFactory("media-derivative-"));
+        this.derivativeExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        derivativeExecutor.shutdown();
+    }
+
+    /**
+     * Kết quả lưu ảnh local
+     */
+    public record StoredMedia(String url, String publicId, boolean duplicate) {}
+
+    /**
+     * Lưu ảnh theo SHA-256 nội dung và lên lịch tạo derivative
+     *
+     * @param extension ".jpg", ".png" hoặc ".webp" (đã nhận diện qua magic bytes)
+     */
+    public StoredMedia store(MultipartFile file, String extension) throws IOException {
+        String ext = extension.startsWith(".") ? extension.substring(1) : extension;
+        Files.createDirectories(mediaRoot);
+
+        // 1. Stream ra file tạm trong cùng thư mục (để move atomic), tính hash trong lúc ghi
+        Path tempFile = Files.createTempFile(mediaRoot, "upload-", ".tmp");
+        String hash;
+        try {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                 OutputStream out = Files.newOutputStream(tempFile)) {
+                in.transferTo(out);
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+
+            // 2. Đặt vào vị trí theo hash; đã tồn tại => nội dung trùng, bỏ file tạm
+            Path target = originalPath(hash, ext);
+            Files.createDirectories(target.getParent());
+            boolean duplicate = !moveIfAbsent(tempFile, target);
+
+            String publicId = PUBLIC_ID_PREFIX + hash.substring(0, 2) + "/" + hash + "." + ext;
+            String url = URL_PREFIX + hash.substring(0, 2) + "/" + hash + "." + ext;
+            if (duplicate) {
+                log.info("♻️ Local media đã tồn tại (trùng nội dung): {}", publicId);
+            } else {
+                log.info("✅ Stored local media: {} ({} bytes)", publicId, file.getSize());
+            }
+
+            // 3. Derivative (kể cả khi trùng: lần trước có thể chưa tạo xong)
+            scheduleDerivatives(hash, ext);
+            return new StoredMedia(url, publicId, duplicate);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * public_id có thuộc kho media content-addressed không
+     */
+    public boolean isMediaPublicId(String publicId) {
+        return publicId != null && publicId.startsWith(PUBLIC_ID_PREFIX);
+    }
+
+    /**
+     * Xoá ảnh nếu không còn dòng Product_Images / Variant_Images nào khác tham chiếu
+     *
+     * @param remainingReferences số tham chiếu được phép còn lại (dòng đang bị xoá trong cùng thao tác)
+     */
+    public void release(String publicId, int remainingReferences) {
+        Matcher matcher = FILE_NAME.matcher(publicId.substring(publicId.lastIndexOf('/') + 1));
+        if (!matcher.matches()) {
+            log.warn("⚠️ public_id media không hợp lệ: {}", publicId);
+            return;
+        }
+        Integer references = jdbcTemplate.queryForObject(COUNT_REFERENCES_SQL, Integer.class, publicId, publicId);
+        if (references != null && references > remainingReferences) {
+            log.info("♻️ Giữ local media {} ({} ảnh khác đang dùng)", publicId, references - remainingReferences);
+            return;
+        }
+
+        String hash = matcher.group(1);
+        String ext = matcher.group(3);
+        try {
+            Files.deleteIfExists(originalPath(hash, ext));
+            for (int size : DERIVATIVE_SIZES) {
+                Files.deleteIfExists(derivativePath(hash, size, ext));
+            }
+            log.info("🗑️ Đã xoá local media: {}", publicId);
+        } catch (IOException e) {
+            log.warn("⚠️ Không thể xoá local media {}: {}", publicId, e.getMessage());
+        }
+    }
+
+    /**
+     * URL của derivative (300 / 800 / 1200) cho URL media gốc; URL khác giữ nguyên
+     */
+    public String thumbnailUrl(String url) {
+        return derivativeUrl(url, THUMBNAIL_SIZE);
+    }
+
+    public String mediumUrl(String url) {
+        return derivativeUrl(url, MEDIUM_SIZE);
+    }
+
+    public String largeUrl(String url) {
+        return derivativeUrl(url, LARGE_SIZE);
+    }
+
+    public boolean isMediaUrl(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    /**
+     * File trên đĩa cho request /media/{shard}/{fileName}
+     * Derivative chưa có (đang tạo, hoặc ảnh WEBP) => trả về bản gốc, đánh dấu fallback để không cache lâu
+     */
+    public Optional<ResolvedMedia> resolve(String shard, String fileName) {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches() || !matcher.group(1).startsWith(shard)) {
+            return Optional.empty();
+        }
+        String hash = matcher.group(1);
+        String ext = matcher.group(3);
+        Path original = originalPath(hash, ext);
+
+        if (matcher.group(2) != null) {
+            Path derivative = derivativePath(hash, Integer.parseInt(matcher.group(2)), ext);
+            if (Files.isRegularFile(derivative)) {
+                return Optional.of(new ResolvedMedia(derivative, hash + "_" + matcher.group(2), ext, false));
+            }
+            return Files.isRegularFile(original)
+                    ? Optional.of(new ResolvedMedia(original, hash, ext, true))
+                    : Optional.empty();
+        }
+        return Files.isRegularFile(original)
+                ? Optional.of(new ResolvedMedia(original, hash, ext, false))
+                : Optional.empty();
+    }
+
+    /**
+     * File media đã xác định: path, ETag (hash nội dung), định dạng, có phải bản gốc thay cho derivative không
+     */
+    public record ResolvedMedia(Path path, String etag, String extension, boolean fallback) {}
+
+    private String derivativeUrl(String url, int size) {
+        if (!isMediaUrl(url)) {
+            return url;
+        }
+        int dot = url.lastIndexOf('.');
+        if (dot < 0 || url.endsWith(".webp")) {
+            return url;
+        }
+        return url.substring(0, dot) + "_" + size + url.substring(dot);
+    }
+
+    private void scheduleDerivatives(String hash, String ext) {
+        if ("webp".equals(ext)) {
+            return;
+        }
+        try {
+            derivativeExecutor.execute(() -> generateDerivatives(hash, ext));
+        } catch (RejectedExecutionException e) {
+            // Hàng đợi đầy: bản gốc vẫn được phục vụ thay cho derivative
+            log.warn("⚠️ Bỏ qua tạo derivative cho {} (hàng đợi đầy)", hash);
+        }
+    }
+
+    private void generateDerivatives(String hash, String ext) {
+        long start = System.currentTimeMillis();
+        Path original = originalPath(hash, ext);
+        try {
+            BufferedImage source = readSubsampled(original, LARGE_SIZE);
+            if (source == null) {
+                log.warn("⚠️ ImageIO không đọc được ảnh {}", original);
+                return;
+            }
+            for (int size : DERIVATIVE_SIZES) {
+                Path target = derivativePath(hash, size, ext);
+                if (Files.exists(target)) {
+                    continue;
+                }
+                BufferedImage resized = resizeWithin(source, size, "png".equals(ext));
+                Path temp = Files.createTempFile(target.getParent(), "derivative-", ".tmp");
+                try {
+                    write(resized, ext, temp);
+                    moveIfAbsent(temp, target);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            log.debug("🖼️ Generated derivatives for {} in {} ms", hash, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("⚠️ Không thể tạo derivative cho {}: {}", hash, e.getMessage());
+        }
+    }
+
+    /**
+     * Đọc ảnh với source subsampling: giải mã ở độ phân giải vừa đủ cho derivative lớn nhất,
+     * không giải mã toàn bộ ảnh 24MP vào heap
+     */
+    private BufferedImage readSubsampled(Path path, int maxTargetSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestSide / (maxTargetSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Thu nhỏ để cạnh dài nhất <= maxSize (tương đương c_limit của Cloudinary), không phóng to
+     */
+    private static BufferedImage resizeWithin(BufferedImage source, int maxSize, boolean keepAlpha) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+                keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (!keepAlpha) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, targetWidth, targetHeight);
+            }
+            g.drawImage(source, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, String ext, Path target) throws IOException {
+        String format = "png".equals(ext) ? "png" : "jpeg";
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Move atomic tới target nếu target chưa tồn tại
+     *
+     * @return false nếu target đã có (nội dung trùng)
+     */
+    private static boolean moveIfAbsent(Path source, Path target) throws IOException {
+        if (Files.exists(target)) {
+            return false;
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(source, target);
+                return true;
+            } catch (FileAlreadyExistsException alreadyExists) {
+                return false;
+            }
+        }
+    }
+
+    private Path originalPath(String hash, String ext) {
+        return mediaRoot.resolve(hash.substring(0, 2)).resolve(hash + "." + ext);
+    }
+
+    private Path derivativePath(String hash, int size, String ext) {
+        return mediaRoot.resolve(hash.substring(0, 2)).resolve(hash + "_" + size + "." + ext);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng", e);
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.entity.LoyaltyBalance;
+import com.sneakery.store.entity.LoyaltyPoint;
+import com.sneakery.store.entity.LoyaltyPointBucket;
+import com.sneakery.store.exception.ApiException;
+import com.sneakery.store.repository.LoyaltyBalanceRepository;
+import com.sneakery.store.repository.LoyaltyPointBucketRepository;
+import com.sneakery.store.repository.LoyaltyPointRepository;
+import com.sneakery.store.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service: LoyaltyLedgerService
+ * Sổ cái điểm tích lũy: số dư materialized + bucket theo tháng hết hạn
+ *
+ * <p><b>Mô hình:</b>
+ * <ul>
+ *   <li>Loyalty_Points: lịch sử giao dịch (giữ nguyên, là nguồn sự thật)</li>
+ *   <li>Loyalty_Point_Buckets: điểm còn lại theo tháng hết hạn; điểm earn có expiresAt trong tháng M
+ *       hết hạn khi sang tháng M+1</li>
+ *   <li>Loyalty_Balances: số dư = tổng remaining của các bucket, đọc bằng 1 lookup theo primary key</li>
+ * </ul>
+ *
+ * <p><b>Quy tắc ghi (cùng transaction với dòng Loyalty_Points):</b>
+ * <ul>
+ *   <li>Cộng điểm: trả nợ điểm (bucket NO_EXPIRY âm) trước, phần còn lại vào bucket tháng hết hạn</li>
+ *   <li>Trừ điểm: trừ bucket sắp hết hạn trước (FIFO); thiếu thì ghi nợ vào bucket NO_EXPIRY
+ *       (chỉ cho phép với giao dịch hệ thống như thu hồi điểm khi trả hàng)</li>
+ * </ul>
+ *
+ * <p>User chưa có sổ cái (dữ liệu trước migration V33) được dựng lại từ lịch sử ở lần truy cập đầu tiên.
+ * Job đối soát định kỳ phát lại lịch sử và sửa các sổ cái bị lệch.
+ */
+@Slf4j
+@Service
+public class LoyaltyLedgerService {
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("MM/yyyy");
+
+    private final LoyaltyPointRepository loyaltyPointRepository;
+    private final LoyaltyBalanceRepository balanceRepository;
+    private final LoyaltyPointBucketRepository bucketRepository;
+    private final UserRepository userRepository;
+    private final SchedulerLockService schedulerLockService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    @Value("${app.loyalty.expiry-batch-size:500}")
+    private int expiryBatchSize;
+
+    @Value("${app.loyalty.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    public LoyaltyLedgerService(LoyaltyPointRepository loyaltyPointRepository,
+                                LoyaltyBalanceRepository balanceRepository,
+                                LoyaltyPointBucketRepository bucketRepository,
+                                UserRepository userRepository,
+                                SchedulerLockService schedulerLockService,
+                                PlatformTransactionManager transactionManager) {
+        this.loyaltyPointRepository = loyaltyPointRepository;
+        this.balanceRepository = balanceRepository;
+        this.bucketRepository = bucketRepository;
+        this.userRepository = userRepository;
+        this.schedulerLockService = schedulerLockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Số dư hiện tại của user (có thể âm nếu đang nợ điểm)
+     * Lookup theo primary key; chỉ dựng lại từ lịch sử nếu user chưa có sổ cái
+     */
+    public int getBalance(Long userId) {
+        return balanceRepository.findById(userId)
+                .map(LoyaltyBalance::getBalance)
+                .orElseGet(() -> {
+                    Integer balance = newTransactionTemplate.execute(status -> lockLedger(userId).getBalance());
+                    return balance != null ? balance : 0;
+                });
+    }
+
+    /**
+     * Ghi một giao dịch điểm: lưu dòng lịch sử và cập nhật bucket + số dư trong cùng transaction
+     *
+     * @param entry dòng Loyalty_Points (points dương = cộng, âm = trừ)
+     * @param allowDebt cho phép số dư âm (giao dịch hệ thống); false thì báo lỗi khi không đủ điểm
+     * @return dòng lịch sử đã lưu
+     * @throws ApiException nếu trừ điểm vượt số dư và allowDebt = false
+     */
+    @Transactional
+    public LoyaltyPoint record(LoyaltyPoint entry, boolean allowDebt) {
+        Long userId = entry.getUser().getId();
+
+        // Khóa sổ cái trước khi lưu để lần dựng lại (nếu có) không tính trùng dòng mới
+        LoyaltyBalance balance = lockLedger(userId);
+        int points = entry.getPoints();
+
+        if (points < 0 && !allowDebt && balance.getBalance() < -points) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    String.format("Không đủ điểm. Số dư: %d, yêu cầu: %d", Math.max(balance.getBalance(), 0), -points));
+        }
+
+        LoyaltyPoint saved = loyaltyPointRepository.save(entry);
+
+        List<LoyaltyPointBucket> buckets = bucketRepository.findByUserIdOrderByExpiryMonthAsc(userId);
+        TreeMap<LocalDate, Integer> remaining = toMap(buckets);
+        applyEntry(remaining, points, LoyaltyPointBucket.monthOf(entry.getExpiresAt()));
+        saveBuckets(userId, buckets, remaining);
+
+        balance.setBalance(balance.getBalance() + points);
+        balanceRepository.save(balance);
+        return saved;
+    }
+
+    /**
+     * Scheduled task: Hết hạn các bucket điểm đã qua tháng hết hạn
+     * Chạy mỗi giờ (phút 15), chỉ một node thực thi
+     */
+    @Scheduled(cron = "${app.loyalty.expiry-cron:0 15 * * * *}")
+    public void expireBucketsJob() {
+        schedulerLockService.runExclusive("loyalty.expireBuckets", Duration.ofMinutes(30), Duration.ofMinutes(1),
+                () -> expireBuckets(LocalDate.now().withDayOfMonth(1)));
+    }
+
+    /**
+     * Hết hạn các bucket có expiry_month &lt; currentMonth, mỗi batch một transaction
+     * Với mỗi bucket: ghi dòng 'expire' (điểm âm), trừ số dư, remaining = 0
+     *
+     * @return tổng số điểm đã hết hạn
+     */
+    public long expireBuckets(LocalDate currentMonth) {
+        long totalExpired = 0;
+        while (true) {
+            Long expired = transactionTemplate.execute(status -> expireOneBatch(currentMonth));
+            if (expired == null || expired < 0) {
+                break;
+            }
+            totalExpired += expired;
+        }
+        if (totalExpired > 0) {
+            log.info("⌛ Expired {} loyalty points (buckets before {})", totalExpired, currentMonth);
+        }
+        return totalExpired;
+    }
+
+    /**
+     * @return số điểm đã hết hạn trong batch, -1 nếu không còn bucket nào
+     */
+    private long expireOneBatch(LocalDate currentMonth) {
+        List<Object[]> candidates = bucketRepository.findExpiredBuckets(currentMonth, PageRequest.of(0, expiryBatchSize));
+        if (candidates.isEmpty()) {
+            return -1;
+        }
+
+        long expired = 0;
+        for (Object[] candidate : candidates) {
+            Long bucketId = ((Number) candidate[0]).longValue();
+            Long userId = ((Number) candidate[1]).longValue();
+
+            // Khóa sổ cái của user trước rồi mới đọc bucket để thấy giá trị mới nhất
+            LoyaltyBalance balance = lockLedger(userId);
+            LoyaltyPointBucket bucket = bucketRepository.findById(bucketId).orElse(null);
+            if (bucket == null || bucket.getRemaining() <= 0) {
+                continue; // Đã bị redeem hết trong lúc chờ khóa
+            }
+
+            int points = bucket.getRemaining();
+            LoyaltyPoint expireEntry = new LoyaltyPoint();
+            expireEntry.setUser(userRepository.getReferenceById(bucket.getUserId()));
+            expireEntry.setPoints(-points);
+            expireEntry.setTransactionType("expire");
+            expireEntry.setDescription("Điểm hết hạn tháng " + bucket.getExpiryMonth().format(MONTH_FORMAT));
+            expireEntry.setExpiresAt(null);
+            loyaltyPointRepository.save(expireEntry);
+
+            bucketRepository.delete(bucket);
+            balance.setBalance(balance.getBalance() - points);
+            balanceRepository.save(balance);
+            expired += points;
+        }
+        return expired;
+    }
+
+    /**
+     * Scheduled task: Đối soát sổ cái với lịch sử Loyalty_Points
+     * Chạy mỗi đêm (03:30), chỉ một node thực thi
+     */
+    @Scheduled(cron = "${app.loyalty.reconcile-cron:0 30 3 * * *}")
+    public void reconcileJob() {
+        schedulerLockService.runExclusive("loyalty.reconcile", Duration.ofHours(2), Duration.ofMinutes(5),
+                this::reconcileAll);
+    }
+
+    /**
+     * Phát lại lịch sử của từng user (keyset theo user_id) và sửa sổ cái bị lệch
+     *
+     * @return số user có sổ cái bị lệch đã được sửa
+     */
+    public int reconcileAll() {
+        int repaired = 0;
+        int checked = 0;
+        long lastUserId = 0L;
+        while (true) {
+            List<Long> userIds = balanceRepository.findUserIdsAfter(lastUserId, reconcileBatchSize);
+            if (userIds.isEmpty()) {
+                break;
+            }
+            for (Long userId : userIds) {
+                Boolean fixed = transactionTemplate.execute(status -> reconcileUser(userId));
+                if (Boolean.TRUE.equals(fixed)) {
+                    repaired++;
+                }
+            }
+            checked += userIds.size();
+            lastUserId = userIds.get(userIds.size() - 1);
+        }
+        log.info("🧾 Loyalty ledger reconciliation: checked {} users, repaired {}", checked, repaired);
+        return repaired;
+    }
+
+    private boolean reconcileUser(Long userId) {
+        LoyaltyBalance balance = lockLedger(userId);
+        List<LoyaltyPointBucket> buckets = bucketRepository.findByUserIdOrderByExpiryMonthAsc(userId);
+        TreeMap<LocalDate, Integer> expected = replayHistory(userId);
+
+        int expectedBalance = expected.values().stream().mapToInt(Integer::intValue).sum();
+        if (expected.equals(toMap(buckets)) && expectedBalance == balance.getBalance()) {
+            return false;
+        }
+
+        log.warn("⚠️ Loyalty ledger mismatch for user {}: balance {} vs history {} - rebuilding",
+                userId, balance.getBalance(), expectedBalance);
+        saveBuckets(userId, buckets, expected);
+        balance.setBalance(expectedBalance);
+        balanceRepository.save(balance);
+        return true;
+    }
+
+    /**
+     * Khóa sổ cái của user; dựng lại từ lịch sử nếu chưa có
+     * Phải gọi trong transaction
+     */
+    private LoyaltyBalance lockLedger(Long userId) {
+        return balanceRepository.findByUserIdForUpdate(userId).orElseGet(() -> {
+            TreeMap<LocalDate, Integer> remaining = replayHistory(userId);
+            saveBuckets(userId, List.of(), remaining);
+            LoyaltyBalance created = LoyaltyBalance.builder()
+                    .userId(userId)
+                    .balance(remaining.values().stream().mapToInt(Integer::intValue).sum())
+                    .build();
+            return balanceRepository.save(created);
+        });
+    }
+
+    /**
+     * Phát lại toàn bộ lịch sử theo thứ tự thời gian với cùng quy tắc FIFO như khi ghi
+     */
+    private TreeMap<LocalDate, Integer> replayHistory(Long userId) {
+        TreeMap<LocalDate, Integer> remaining = new TreeMap<>();
+        for (LoyaltyPoint entry : loyaltyPointRepository.findByUserIdOrderByCreatedAtAscIdAsc(userId)) {
+            if (entry.getPoints() != null) {
+                applyEntry(remaining, entry.getPoints(), LoyaltyPointBucket.monthOf(entry.getExpiresAt()));
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Áp dụng một giao dịch lên map (tháng hết hạn → điểm còn lại)
+     */
+    private static void applyEntry(TreeMap<LocalDate, Integer> remaining, int points, LocalDate expiryMonth) {
+        LocalDate noExpiry = LoyaltyPointBucket.NO_EXPIRY_MONTH;
+        if (points > 0) {
+            // Trả nợ điểm trước
+            int debt = Math.max(0, -remaining.getOrDefault(noExpiry, 0));
+            int payDebt = Math.min(debt, points);
+            if (payDebt > 0) {
+                remaining.merge(noExpiry, payDebt, Integer::sum);
+                points -= payDebt;
+            }
+            if (points > 0) {
+                remaining.merge(expiryMonth, points, Integer::sum);
+            }
+        } else if (points < 0) {
+            int toConsume = -points;
+            for (Map.Entry<LocalDate, Integer> bucket : remaining.entrySet()) {
+                if (toConsume == 0) {
+                    break;
+                }
+                int available = bucket.getValue();
+                if (available <= 0) {
+                    continue;
+                }
+                int used = Math.min(available, toConsume);
+                bucket.setValue(available - used);
+                toConsume -= used;
+            }
+            if (toConsume > 0) {
+                remaining.merge(noExpiry, -toConsume, Integer::sum);
+            }
+        }
+        remaining.values().removeIf(value -> value == 0);
+    }
+
+    private static TreeMap<LocalDate, Integer> toMap(List<LoyaltyPointBucket> buckets) {
+        TreeMap<LocalDate, Integer> map = new TreeMap<>();
+        for (LoyaltyPointBucket bucket : buckets) {
+            if (bucket.getRemaining() != 0) {
+                map.merge(bucket.getExpiryMonth(), bucket.getRemaining(), Integer::sum);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Đồng bộ các bucket entity với map mới: cập nhật bucket thay đổi, thêm bucket mới, xóa bucket về 0
+     */
+    private void saveBuckets(Long userId, List<LoyaltyPointBucket> existing, TreeMap<LocalDate, Integer> remaining) {
+        List<LoyaltyPointBucket> toSave = new ArrayList<>();
+        List<LoyaltyPointBucket> toDelete = new ArrayList<>();
+        TreeMap<LocalDate, Integer> pending = new TreeMap<>(remaining);
+
+        for (LoyaltyPointBucket bucket : existing) {
+            Integer value = pending.remove(bucket.getExpiryMonth());
+            if (value == null) {
+                toDelete.add(bucket);
+            } else if (!value.equals(bucket.getRemaining())) {
+                bucket.setRemaining(value);
+                toSave.add(bucket);
+            }
+        }
+        pending.forEach((month, value) -> toSave.add(LoyaltyPointBucket.builder()
+                .userId(userId)
+                .expiryMonth(month)
+                .remaining(value)
+                .build()));
+
+        if (!toDelete.isEmpty()) {
+            bucketRepository.deleteAll(toDelete);
+        }
+        if (!toSave.isEmpty()) {
+            bucketRepository.saveAll(toSave);
+        }
+    }
+}
@@ -22,6 +22,9 @@ import java.util.Objects;
  * Loyalty Points Service
  * Quản lý hệ thống tích điểm thưởng
  * Quy tắc: 1 điểm = 1,000 VND
+ *
+ * <p>Mọi giao dịch điểm phải đi qua {@link #recordTransaction} (hoặc các hàm earn/redeem ở đây)
+ * để sổ cái {@link LoyaltyLedgerService} được cập nhật cùng transaction.
  */
 @Slf4j
 @Service
@@ -30,21 +33,20 @@ public class LoyaltyService {
 
     private final LoyaltyPointRepository loyaltyPointRepository;
     private final UserRepository userRepository;
+    private final LoyaltyLedgerService loyaltyLedgerService;
 
     // 1 point = 1,000 VND
     private static final int VND_PER_POINT = 1000;
 
     /**
      * Lấy balance điểm của user
+     * Đọc từ sổ cái Loyalty_Balances (lookup theo primary key)
      */
     @Transactional(readOnly = true)
     public int getUserPointsBalance(Long userId) {
-        log.info("Fetching balance for user {}", userId);
+        log.debug("Fetching balance for user {}", userId);
 
-        Integer balance = loyaltyPointRepository.calculateCurrentPoints(userId, LocalDateTime.now());
-        int safeBalance = balance != null ? balance : 0;
-
-        return Math.max(safeBalance, 0); // Không cho âm
+        return Math.max(loyaltyLedgerService.getBalance(userId), 0); // Không cho âm
     }
 
     /**
@@ -91,7 +93,7 @@ public class LoyaltyService {
         lp.setDescription("Tích điểm từ đơn hàng " + order.getOrderNumber());
         lp.setExpiresAt(LocalDateTime.now().plusYears(1));
 
-        loyaltyPointRepository.save(lp);
+        loyaltyLedgerService.record(lp, true);
         order.setPointsEarned(points);
 
         log.info("🏆 User {} earned {} points on taxable {}",
@@ -137,7 +139,8 @@ public class LoyaltyService {
         // ⭐ DB CHECK: redeem phải expiresAt = NULL
         redemption.setExpiresAt(null);
 
-        loyaltyPointRepository.save(redemption);
+        // Sổ cái kiểm tra lại số dư dưới khóa (tránh 2 đơn cùng dùng một lượng điểm)
+        loyaltyLedgerService.record(redemption, false);
 
         // Update order
         order.setPointsUsed(pointsToUse);
@@ -165,11 +168,20 @@ public class LoyaltyService {
         bonus.setDescription(reason != null ? reason : "Điểm thưởng từ quản trị viên");
         bonus.setExpiresAt(LocalDateTime.now().plusYears(1));
         
-        loyaltyPointRepository.save(bonus);
+        loyaltyLedgerService.record(bonus, true);
         
         log.info("✅ Awarded {} bonus points to user {}", points, userId);
     }
 
+    /**
+     * Ghi một giao dịch điểm do hệ thống/admin tạo (hoàn điểm, thu hồi, điều chỉnh)
+     * Cho phép số dư âm (nợ điểm) - sẽ được bù bằng các lần tích điểm sau
+     */
+    @Transactional
+    public LoyaltyPoint recordTransaction(LoyaltyPoint entry) {
+        return loyaltyLedgerService.record(entry, true);
+    }
+
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void redeemPointsInNewTx(Long userId, int pointsToUse, Order order) {
         redeemPoints(userId, pointsToUse, order);
@@ -0,0 +1,534 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.entity.NewsletterCampaign;
+import com.sneakery.store.exception.ApiException;
+import com.sneakery.store.repository.NewsletterCampaignRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service: NewsletterCampaignService
+ * Gửi email newsletter hàng loạt tới Newsletter_Subscriptions từ một {@link com.sneakery.store.entity.EmailTemplate}
+ *
+ * <ul>
+ *   <li>Subscriber active được đưa vào hàng đợi Newsletter_Deliveries theo chunk keyset id: tìm id cuối của n subscriber
+ *       tiếp theo rồi INSERT ... SELECT trong khoảng id đó; cursor lưu cùng transaction nên restart giữa chừng
+ *       không bỏ sót / không nhân đôi người nhận. SQL chỉ dùng cú pháp chung nên chạy được cả trên H2 (load test)</li>
+ *   <li>Template được biên dịch một lần ({@link EmailTemplateCacheService}) và render cho từng người nhận</li>
+ *   <li>Mỗi batch chia cho app.newsletter.smtp-connections luồng, mỗi luồng gửi cả phần của mình
+ *       qua một kết nối SMTP (JavaMailSender.send(MimeMessage...)) thay vì mở kết nối cho từng email</li>
+ *   <li>Throughput bị giới hạn bởi app.newsletter.max-per-minute</li>
+ *   <li>Trạng thái từng người nhận: queued → sent / failed / skipped (đã hủy đăng ký).
+ *       Lỗi tạm thời (mất kết nối, timeout) giữ lại queued để thử lại, tối đa app.newsletter.max-attempts lần</li>
+ * </ul>
+ *
+ * <p>Kết quả gửi được ghi sau mỗi batch: nếu node chết giữa lúc gửi và lúc ghi, batch đó sẽ được gửi lại
+ * (at-least-once, tối đa một batch).
+ *
+ * <p>Worker chạy dưới {@link SchedulerLockService} nên chỉ một node gửi tại một thời điểm. Vòng gửi (có sleep để
+ * giới hạn throughput, tối đa app.newsletter.max-run-seconds) chạy trên thread riêng "newsletter-sender-",
+ * không giữ thread của scheduler dùng chung.
+ */
+@Slf4j
+@Service
+public class NewsletterCampaignService {
+
+    private static final String LOCK_NAME = "newsletter.campaign";
+    private static final List<String> OPEN_STATUSES = List.of("pending", "running");
+    private static final String APP_NAME = "Sneakery Store";
+    private static final int MAX_ERROR_LENGTH = 500;
+    // SQL Server giới hạn 2100 tham số / câu lệnh (MARK_SENT_SQL dùng IN (:ids))
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private static final String COUNT_ACTIVE_SUBSCRIBERS_SQL =
+            "SELECT COUNT(*) FROM Newsletter_Subscriptions WHERE is_active = 1";
+
+    // Id cuối của chunk tiếp theo (NULL = hết subscriber)
+    private static final String CHUNK_END_SQL =
+            "SELECT MAX(id) FROM (" +
+            "  SELECT TOP (:chunkSize) s.id FROM Newsletter_Subscriptions s " +
+            "  WHERE s.is_active = 1 AND s.id > :cursor ORDER BY s.id" +
+            ") chunk";
+
+    private static final String ENQUEUE_CHUNK_SQL =
+            "INSERT INTO Newsletter_Deliveries (campaign_id, subscription_id, email, status, attempts, created_at) " +
+            "SELECT :campaignId, s.id, s.email, 'queued', 0, SYSDATETIME() " +
+            "FROM Newsletter_Subscriptions s " +
+            "WHERE s.is_active = 1 AND s.id > :cursor AND s.id <= :chunkEnd";
+
+    private static final String SKIP_UNSUBSCRIBED_SQL =
+            "UPDATE Newsletter_Deliveries SET status = 'skipped', error = 'unsubscribed' " +
+            "WHERE campaign_id = :campaignId AND status = 'queued' " +
+            "AND EXISTS (SELECT 1 FROM Newsletter_Subscriptions s " +
+            "            WHERE s.id = Newsletter_Deliveries.subscription_id AND s.is_active = 0)";
+
+    private static final String NEXT_BATCH_SQL =
+            "SELECT TOP (:batchSize) id, email, attempts FROM Newsletter_Deliveries " +
+            "WHERE campaign_id = :campaignId AND status = 'queued' " +
+            "ORDER BY id";
+
+    private static final String MARK_SENT_SQL =
+            "UPDATE Newsletter_Deliveries " +
+            "SET status = 'sent', attempts = attempts + 1, error = NULL, sent_at = SYSDATETIME() " +
+            "WHERE id IN (:ids)";
+
+    private static final String MARK_FAILED_SQL =
+            "UPDATE Newsletter_Deliveries " +
+            "SET status = :status, attempts = attempts + 1, error = :error " +
+            "WHERE id = :id";
+
+    private static final String DELIVERIES_SQL =
+            "SELECT TOP (:limit) subscription_id, email, status, attempts, error, sent_at " +
+            "FROM Newsletter_Deliveries WHERE campaign_id = :campaignId ORDER BY id";
+
+    private static final String DELIVERIES_BY_STATUS_SQL =
+            "SELECT TOP (:limit) subscription_id, email, status, attempts, error, sent_at " +
+            "FROM Newsletter_Deliveries WHERE campaign_id = :campaignId AND status = :status ORDER BY id";
+
+    private record Delivery(Long id, String email, int attempts) {
+    }
+
+    private record Failure(Long id, String error, boolean permanent) {
+    }
+
+    private record BatchResult(List<Long> sentIds, List<Failure> failures) {
+
+        long transientFailures() {
+            return failures.stream().filter(f -> !f.permanent()).count();
+        }
+    }
+
+    private final NewsletterCampaignRepository campaignRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final EmailTemplateCacheService templateCache;
+    private final JavaMailSender mailSender;
+    private final NewsletterService newsletterService;
+    private final ThreadPoolExecutor senderExecutor;
+    private final ThreadPoolExecutor smtpExecutor;
+    private final int smtpConnections;
+
+    @Value("${spring.mail.enabled:false}")
+    private boolean emailEnabled;
+
+    @Value("${spring.mail.from:storesneakery@gmail.com}")
+    private String fromEmail;
+
+    @Value("${app.newsletter.unsubscribe-url:http://localhost:5173/newsletter/unsubscribe}")
+    private String unsubscribeUrl;
+
+    @Value("${app.newsletter.chunk-size:2000}")
+    private int chunkSize;
+
+    @Value("${app.newsletter.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.newsletter.max-per-minute:1200}")
+    private int maxPerMinute;
+
+    @Value("${app.newsletter.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.newsletter.max-run-seconds:240}")
+    private long maxRunSeconds;
+
+    // Chỉ thread đang giữ lock "newsletter.campaign" đọc/ghi
+    private long nextSendAtNanos = System.nanoTime();
+
+    public NewsletterCampaignService(NewsletterCampaignRepository campaignRepository,
+                                     NamedParameterJdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     SchedulerLockService schedulerLockService,
+                                     EmailTemplateCacheService templateCache,
+                                     JavaMailSender mailSender,
+                                     NewsletterService newsletterService,
+                                     @Value("${app.newsletter.smtp-connections:4}") int smtpConnections) {
+        this.campaignRepository = campaignRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLockService = schedulerLockService;
+        this.templateCache = templateCache;
+        this.mailSender = mailSender;
+        this.newsletterService = newsletterService;
+        // 1 thread gửi; đang gửi thì lượt kích hoạt mới của scheduler bị bỏ qua
+        this.senderExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new CustomizableThreadFactory("newsletter-sender-"), new ThreadPoolExecutor.DiscardPolicy());
+        this.senderExecutor.allowCoreThreadTimeOut(true);
+        this.smtpConnections = Math.max(1, smtpConnections);
+        this.smtpExecutor = new ThreadPoolExecutor(this.smtpConnections, this.smtpConnections,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("newsletter-smtp-"));
+        this.smtpExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownExecutors() {
+        // Interrupt vòng gửi đang chờ throttle: batch hiện tại dừng, phần queued gửi tiếp ở lần chạy sau
+        senderExecutor.shutdownNow();
+        smtpExecutor.shutdown();
+    }
+
+    /**
+     * Tạo chiến dịch newsletter từ một email template đang active
+     */
+    @Transactional
+    public NewsletterCampaign enqueue(String templateName, String requestedBy) {
+        if (templateName == null || templateName.isBlank()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Vui lòng chọn email template");
+        }
+        if (!emailEnabled) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Chưa bật gửi email (spring.mail.enabled=false)");
+        }
+        if (templateCache.findActive(templateName).isEmpty()) {
+            throw new ApiException(HttpStatus.NOT_FOUND, "Không tìm thấy email template đang hoạt động: " + templateName);
+        }
+
+        Integer total = jdbcTemplate.getJdbcTemplate().queryForObject(COUNT_ACTIVE_SUBSCRIBERS_SQL, Integer.class);
+        NewsletterCampaign campaign = campaignRepository.save(NewsletterCampaign.builder()
+                .templateName(templateName)
+                .totalRecipients(total != null ? total : 0)
+                .requestedBy(requestedBy)
+                .build());
+
+        log.info("📰 Newsletter campaign #{} queued by {}: template '{}', {} subscribers",
+                campaign.getId(), requestedBy, templateName, campaign.getTotalRecipients());
+        return campaign;
+    }
+
+    /**
+     * Lấy tiến độ chiến dịch
+     */
+    @Transactional(readOnly = true)
+    public NewsletterCampaign getCampaign(Long id) {
+        return campaignRepository.findById(Objects.requireNonNull(id))
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Không tìm thấy chiến dịch newsletter"));
+    }
+
+    /**
+     * Trạng thái gửi của từng người nhận (lọc theo status nếu có)
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getDeliveries(Long campaignId, String status, int limit) {
+        getCampaign(campaignId);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("campaignId", campaignId)
+                .addValue("limit", limit);
+        if (status == null || status.isBlank()) {
+            return jdbcTemplate.queryForList(DELIVERIES_SQL, params);
+        }
+        return jdbcTemplate.queryForList(DELIVERIES_BY_STATUS_SQL, params.addValue("status", status));
+    }
+
+    /**
+     * Scheduled task: Gửi các chiến dịch newsletter đang chờ
+     * Chạy mỗi 10 giây (app.newsletter.interval-ms); chỉ chuyển việc sang thread gửi riêng rồi trả thread scheduler
+     */
+    @Scheduled(fixedDelayString = "${app.newsletter.interval-ms:10000}",
+            initialDelayString = "${app.newsletter.interval-ms:10000}")
+    public void processCampaignsJob() {
+        if (!emailEnabled) {
+            return;
+        }
+        senderExecutor.execute(() -> {
+            try {
+                schedulerLockService.runExclusive(LOCK_NAME, Duration.ofMinutes(10), this::processCampaigns);
+            } catch (Exception e) {
+                log.error("❌ Newsletter sender failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Gửi cho tới khi hết hàng đợi hoặc hết app.newsletter.max-run-seconds, chiến dịch cũ nhất trước
+     *
+     * @return số email đã gửi thành công trong lần chạy này
+     */
+    public int processCampaigns() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxRunSeconds);
+        int effectiveBatchSize = Math.max(1, Math.min(Math.min(batchSize, maxPerMinute), MAX_BATCH_SIZE));
+        int totalSent = 0;
+
+        while (System.nanoTime() < deadline) {
+            NewsletterCampaign campaign = campaignRepository.findFirstByStatusInOrderByIdAsc(OPEN_STATUSES).orElse(null);
+            if (campaign == null) {
+                break;
+            }
+            Long campaignId = campaign.getId();
+
+            EmailTemplateCacheService.CachedEmailTemplate template =
+                    templateCache.findActive(campaign.getTemplateName()).orElse(null);
+            if (template == null) {
+                transactionTemplate.executeWithoutResult(status -> failCampaign(campaignId,
+                        "Email template '" + campaign.getTemplateName() + "' không tồn tại hoặc đã tắt"));
+                continue;
+            }
+
+            List<Delivery> batch = transactionTemplate.execute(status -> nextBatch(campaignId, effectiveBatchSize));
+            if (batch == null || batch.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> enqueueChunk(campaignId));
+                continue;
+            }
+
+            if (!throttle(batch.size())) {
+                break;
+            }
+            BatchResult result = sendBatch(batch, template);
+            transactionTemplate.executeWithoutResult(status -> recordResult(campaignId, result));
+            totalSent += result.sentIds().size();
+
+            if (result.transientFailures() > 0) {
+                // Lỗi kết nối SMTP: dừng lần chạy này, lần sau thử lại các email còn queued
+                log.warn("⚠️ Newsletter campaign #{}: {} emails failed temporarily, retrying next run",
+                        campaignId, result.transientFailures());
+                break;
+            }
+        }
+
+        if (totalSent > 0) {
+            log.info("📨 Newsletter sender delivered {} emails", totalSent);
+        }
+        return totalSent;
+    }
+
+    /**
+     * Đưa chunk subscriber tiếp theo vào hàng đợi; hết subscriber thì hoàn tất chiến dịch
+     * Chỉ gọi khi chiến dịch không còn delivery queued
+     */
+    private void enqueueChunk(Long campaignId) {
+        NewsletterCampaign campaign = campaignRepository.findById(campaignId).orElse(null);
+        if (campaign == null || !OPEN_STATUSES.contains(campaign.getStatus())) {
+            return;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("chunkSize", chunkSize)
+                .addValue("campaignId", campaignId)
+                .addValue("cursor", campaign.getCursorSubscriptionId());
+        Long chunkEnd = jdbcTemplate.queryForObject(CHUNK_END_SQL, params, Long.class);
+
+        if (chunkEnd == null) {
+            campaign.setStatus("completed");
+            campaign.setCompletedAt(LocalDateTime.now());
+            log.info("✅ Newsletter campaign #{} completed: {} sent, {} failed, {} skipped",
+                    campaignId, campaign.getSentCount(), campaign.getFailedCount(), campaign.getSkippedCount());
+        } else {
+            int queued = jdbcTemplate.update(ENQUEUE_CHUNK_SQL, params.addValue("chunkEnd", chunkEnd));
+            campaign.setCursorSubscriptionId(chunkEnd);
+            campaign.setQueuedCount(campaign.getQueuedCount() + queued);
+            campaign.setStatus("running");
+        }
+        campaignRepository.save(campaign);
+    }
+
+    /**
+     * Bỏ qua người đã hủy đăng ký sau khi vào hàng đợi, rồi lấy batch queued tiếp theo
+     */
+    private List<Delivery> nextBatch(Long campaignId, int size) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("campaignId", campaignId)
+                .addValue("batchSize", size);
+
+        int skipped = jdbcTemplate.update(SKIP_UNSUBSCRIBED_SQL, params);
+        if (skipped > 0) {
+            campaignRepository.findById(campaignId).ifPresent(campaign -> {
+                campaign.setSkippedCount(campaign.getSkippedCount() + skipped);
+                campaignRepository.save(campaign);
+            });
+        }
+
+        return jdbcTemplate.query(NEXT_BATCH_SQL, params, (rs, rowNum) ->
+                new Delivery(rs.getLong("id"), rs.getString("email"), rs.getInt("attempts")));
+    }
+
+    private void recordResult(Long campaignId, BatchResult result) {
+        if (!result.sentIds().isEmpty()) {
+            jdbcTemplate.update(MARK_SENT_SQL, new MapSqlParameterSource("ids", result.sentIds()));
+        }
+
+        int failed = 0;
+        String lastError = null;
+        if (!result.failures().isEmpty()) {
+            MapSqlParameterSource[] batchParams = new MapSqlParameterSource[result.failures().size()];
+            for (int i = 0; i < batchParams.length; i++) {
+                Failure failure = result.failures().get(i);
+                batchParams[i] = new MapSqlParameterSource()
+                        .addValue("id", failure.id())
+                        .addValue("status", failure.permanent() ? "failed" : "queued")
+                        .addValue("error", failure.error());
+                if (failure.permanent()) {
+                    failed++;
+                }
+                lastError = failure.error();
+            }
+            jdbcTemplate.batchUpdate(MARK_FAILED_SQL, batchParams);
+        }
+
+        NewsletterCampaign campaign = campaignRepository.findById(campaignId).orElse(null);
+        if (campaign != null) {
+            campaign.setSentCount(campaign.getSentCount() + result.sentIds().size());
+            campaign.setFailedCount(campaign.getFailedCount() + failed);
+            if (lastError != null) {
+                campaign.setLastError(lastError);
+            }
+            campaignRepository.save(campaign);
+        }
+    }
+
+    private void failCampaign(Long campaignId, String reason) {
+        campaignRepository.findById(campaignId).ifPresent(campaign -> {
+            campaign.setStatus("failed");
+            campaign.setLastError(truncate(reason));
+            campaign.setCompletedAt(LocalDateTime.now());
+            campaignRepository.save(campaign);
+            log.error("❌ Newsletter campaign #{} failed: {}", campaignId, reason);
+        });
+    }
+
+    /**
+     * Chia batch cho các kết nối SMTP song song rồi gom kết quả
+     */
+    private BatchResult sendBatch(List<Delivery> batch, EmailTemplateCacheService.CachedEmailTemplate template) {
+        int partitions = Math.min(smtpConnections, batch.size());
+        int partitionSize = (batch.size() + partitions - 1) / partitions;
+
+        List<CompletableFuture<BatchResult>> futures = new ArrayList<>(partitions);
+        for (int from = 0; from < batch.size(); from += partitionSize) {
+            List<Delivery> part = batch.subList(from, Math.min(from + partitionSize, batch.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> sendOverConnection(part, template), smtpExecutor));
+        }
+
+        List<Long> sentIds = new ArrayList<>(batch.size());
+        List<Failure> failures = new ArrayList<>();
+        for (CompletableFuture<BatchResult> future : futures) {
+            BatchResult partResult = future.join();
+            sentIds.addAll(partResult.sentIds());
+            failures.addAll(partResult.failures());
+        }
+        return new BatchResult(sentIds, failures);
+    }
+
+    /**
+     * Render và gửi một phần batch qua cùng một kết nối SMTP
+     */
+    private BatchResult sendOverConnection(List<Delivery> part, EmailTemplateCacheService.CachedEmailTemplate template) {
+        Map<MimeMessage, Delivery> messages = new IdentityHashMap<>(part.size());
+        List<Long> sentIds = new ArrayList<>(part.size());
+        List<Failure> failures = new ArrayList<>();
+
+        for (Delivery delivery : part) {
+            try {
+                messages.put(buildMessage(delivery.email(), template), delivery);
+            } catch (MessagingException | RuntimeException e) {
+                // Địa chỉ email không hợp lệ: không thể gửi lại
+                failures.add(new Failure(delivery.id(), truncate(e.getMessage()), true));
+            }
+        }
+        if (messages.isEmpty()) {
+            return new BatchResult(sentIds, failures);
+        }
+
+        try {
+            mailSender.send(messages.keySet().toArray(MimeMessage[]::new));
+            messages.values().forEach(delivery -> sentIds.add(delivery.id()));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            messages.forEach((message, delivery) -> {
+                Exception error = failedMessages.get(message);
+                if (error == null) {
+                    sentIds.add(delivery.id());
+                } else {
+                    failures.add(failure(delivery, error, error instanceof SendFailedException));
+                }
+            });
+        } catch (MailException e) {
+            // Lỗi xác thực / cấu hình SMTP: toàn bộ phần này thử lại sau
+            messages.values().forEach(delivery -> failures.add(failure(delivery, e, false)));
+        }
+        return new BatchResult(sentIds, failures);
+    }
+
+    private MimeMessage buildMessage(String email, EmailTemplateCacheService.CachedEmailTemplate template) throws MessagingException {
+        // Link hủy đăng ký mang token ký HMAC: không hủy được email khác bằng cách sửa tham số
+        String unsubscribeLink = unsubscribeUrl + "?token="
+                + URLEncoder.encode(newsletterService.createUnsubscribeToken(email), StandardCharsets.UTF_8);
+        Map<String, Object> vars = Map.of(
+                "email", email,
+                "unsubscribe_link", unsubscribeLink,
+                "app_name", APP_NAME
+        );
+
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(Objects.requireNonNull(fromEmail));
+        helper.setTo(email);
+        helper.setSubject(template.renderSubject(vars));
+        helper.setText(template.renderBody(vars), true);
+        message.setHeader("List-Unsubscribe", "<" + unsubscribeLink + ">");
+        return message;
+    }
+
+    private Failure failure(Delivery delivery, Exception error, boolean permanent) {
+        boolean exhausted = delivery.attempts() + 1 >= maxAttempts;
+        return new Failure(delivery.id(), truncate(error.getMessage()), permanent || exhausted);
+    }
+
+    /**
+     * Giới hạn throughput: mỗi batch giữ chỗ batch.size() suất gửi trong app.newsletter.max-per-minute,
+     * batch sau chờ tới khi phần suất của batch trước đã trôi qua
+     *
+     * @return false nếu thread bị interrupt (ứng dụng đang tắt)
+     */
+    private boolean throttle(int permits) {
+        long nanosPerMessage = TimeUnit.MINUTES.toNanos(1) / Math.max(1, maxPerMinute);
+        long now = System.nanoTime();
+        long start = Math.max(now, nextSendAtNanos);
+        nextSendAtNanos = start + permits * nanosPerMessage;
+        try {
+            TimeUnit.NANOSECONDS.sleep(start - now);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
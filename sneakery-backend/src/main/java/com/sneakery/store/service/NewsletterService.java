@@ -6,10 +6,17 @@ import com.sneakery.store.exception.ApiException;
 import com.sneakery.store.repository.NewsletterSubscriptionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
 import java.util.Optional;
 import java.util.regex.Pattern;
 
@@ -21,7 +28,13 @@ import java.util.regex.Pattern;
 @RequiredArgsConstructor
 public class NewsletterService {
 
+    private static final String UNSUBSCRIBE_TOKEN_PURPOSE = "newsletter-unsubscribe:";
+
     private final NewsletterSubscriptionRepository newsletterRepository;
+
+    // Khóa ký link hủy đăng ký trong email newsletter (mặc định dùng chung JWT secret)
+    @Value("${app.newsletter.unsubscribe-secret:${app.jwt.secret}}")
+    private String unsubscribeSecret;
     
     // Email validation pattern
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
@@ -96,6 +109,59 @@ public class NewsletterService {
         log.info("Unsubscribed newsletter for email: {}", email);
     }
 
+    /**
+     * Token hủy đăng ký gắn vào link trong email newsletter: base64url(email) + "." + HMAC-SHA256(email)
+     * Không hết hạn (link trong email cũ vẫn dùng được), chỉ hủy được đúng email đã ký
+     */
+    public String createUnsubscribeToken(String email) {
+        String normalized = email.trim().toLowerCase();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(normalized.getBytes(StandardCharsets.UTF_8))
+                + "." + encoder.encodeToString(sign(normalized));
+    }
+
+    /**
+     * Hủy đăng ký từ link trong email newsletter
+     *
+     * @throws ApiException nếu token sai chữ ký hoặc email chưa đăng ký
+     */
+    @Transactional
+    public void unsubscribeByToken(String token) {
+        String email = verifyUnsubscribeToken(token);
+        if (email == null) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Link hủy đăng ký không hợp lệ");
+        }
+        unsubscribe(email);
+    }
+
+    private String verifyUnsubscribeToken(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            String email = new String(decoder.decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+            return MessageDigest.isEqual(signature, sign(email)) ? email : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String email) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(unsubscribeSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal((UNSUBSCRIBE_TOKEN_PURPOSE + email).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Không ký được token hủy đăng ký", e);
+        }
+    }
+
     private NewsletterSubscriptionDto convertToDto(NewsletterSubscription subscription) {
         return NewsletterSubscriptionDto.builder()
             .id(subscription.getId())
@@ -0,0 +1,284 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.entity.NotificationCampaign;
+import com.sneakery.store.entity.Product;
+import com.sneakery.store.exception.ApiException;
+import com.sneakery.store.repository.NotificationCampaignRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Service: NotificationFanoutService
+ * Gửi thông báo hàng loạt (khuyến mãi cho toàn bộ khách, báo có hàng cho người đã wishlist)
+ *
+ * <p>Thay vì findById + save cho từng user, mỗi chiến dịch ({@link NotificationCampaign}) được xử lý theo chunk:
+ * <ul>
+ *   <li>Audience được chọn bằng 1 câu set-based (Users active, Wishlists theo product_id,
+ *       hoặc Customer_Segments theo phân khúc RFM)</li>
+ *   <li>Mỗi chunk là 1 câu INSERT ... SELECT TOP (n) theo keyset user_id, OUTPUT danh sách user đã nhận</li>
+ *   <li>Cursor (cursor_user_id) được lưu cùng transaction với chunk nên restart giữa chừng không gửi trùng</li>
+ *   <li>Giới hạn số chunk mỗi lần chạy + nghỉ giữa các chunk để không chiếm DB của luồng checkout</li>
+ * </ul>
+ *
+ * <p>Worker chạy dưới {@link SchedulerLockService} nên chỉ một node gửi tại một thời điểm.
+ */
+@Slf4j
+@Service
+public class NotificationFanoutService {
+
+    public static final String AUDIENCE_ALL_USERS = "all_users";
+    public static final String AUDIENCE_WISHLIST = "wishlist";
+    public static final String AUDIENCE_SEGMENT = "segment";
+
+    private static final String LOCK_NAME = "notification.fanout";
+    private static final List<String> OPEN_STATUSES = List.of("pending", "running");
+
+    private static final String FANOUT_ALL_USERS_SQL =
+            "INSERT INTO Notifications (user_id, type, title, message, link, is_read, created_at) " +
+            "OUTPUT inserted.user_id " +
+            "SELECT TOP (:chunkSize) u.id, :type, :title, :message, :link, 0, SYSDATETIME() " +
+            "FROM Users u " +
+            "WHERE u.id > :cursor AND u.role = 'USER' AND u.is_active = 1 AND u.email <> :guestEmail " +
+            "ORDER BY u.id";
+
+    private static final String FANOUT_WISHLIST_SQL =
+            "INSERT INTO Notifications (user_id, type, title, message, link, is_read, created_at) " +
+            "OUTPUT inserted.user_id " +
+            "SELECT TOP (:chunkSize) w.user_id, :type, :title, :message, :link, 0, SYSDATETIME() " +
+            "FROM Wishlists w " +
+            "JOIN Users u ON u.id = w.user_id " +
+            "WHERE w.product_id = :productId AND w.user_id > :cursor AND u.is_active = 1 " +
+            "ORDER BY w.user_id";
+
+    private static final String FANOUT_SEGMENT_SQL =
+            "INSERT INTO Notifications (user_id, type, title, message, link, is_read, created_at) " +
+            "OUTPUT inserted.user_id " +
+            "SELECT TOP (:chunkSize) s.user_id, :type, :title, :message, :link, 0, SYSDATETIME() " +
+            "FROM Customer_Segments s " +
+            "JOIN Users u ON u.id = s.user_id " +
+            "WHERE s.segment = :segment AND s.user_id > :cursor AND u.is_active = 1 " +
+            "ORDER BY s.user_id";
+
+    private final NotificationCampaignRepository campaignRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final NotificationPushService notificationPushService;
+
+    @Value("${app.notification.fanout.enabled:true}")
+    private boolean fanoutEnabled;
+
+    @Value("${app.notification.fanout.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.notification.fanout.max-chunks-per-run:50}")
+    private int maxChunksPerRun;
+
+    @Value("${app.notification.fanout.chunk-delay-ms:200}")
+    private long chunkDelayMs;
+
+    @Value("${app.notification.fanout.restock-cooldown-hours:24}")
+    private long restockCooldownHours;
+
+    public NotificationFanoutService(NotificationCampaignRepository campaignRepository,
+                                     NamedParameterJdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     SchedulerLockService schedulerLockService,
+                                     NotificationPushService notificationPushService) {
+        this.campaignRepository = campaignRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLockService = schedulerLockService;
+        this.notificationPushService = notificationPushService;
+    }
+
+    /**
+     * Tạo chiến dịch khuyến mãi gửi tới toàn bộ khách hàng đang hoạt động
+     */
+    @Transactional
+    public NotificationCampaign enqueuePromotion(String title, String message, String link) {
+        return enqueuePromotion(title, message, link, null);
+    }
+
+    /**
+     * Tạo chiến dịch khuyến mãi gửi tới một phân khúc RFM (segment null = toàn bộ khách hàng)
+     */
+    @Transactional
+    public NotificationCampaign enqueuePromotion(String title, String message, String link, String segment) {
+        if (title == null || title.isBlank() || message == null || message.isBlank()) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Tiêu đề và nội dung khuyến mãi không được để trống");
+        }
+        boolean bySegment = segment != null && !segment.isBlank();
+        CustomerSegmentationService.validateSegment(segment);
+
+        NotificationCampaign campaign = campaignRepository.save(NotificationCampaign.builder()
+                .type("promotion")
+                .title(title)
+                .message(message)
+                .link(link != null && !link.isBlank() ? link : "/promotions")
+                .audience(bySegment ? AUDIENCE_SEGMENT : AUDIENCE_ALL_USERS)
+                .segment(bySegment ? segment : null)
+                .build());
+
+        log.info("📣 Promotion campaign #{} queued: {} (audience: {})", campaign.getId(), title,
+                bySegment ? segment : AUDIENCE_ALL_USERS);
+        return campaign;
+    }
+
+    /**
+     * Tạo chiến dịch báo có hàng cho mọi user đã wishlist sản phẩm
+     * Bỏ qua nếu sản phẩm đã có chiến dịch restock trong khoảng cooldown (tránh spam khi nhập kho nhiều lần)
+     *
+     * @return chiến dịch vừa tạo, hoặc null nếu đang trong cooldown
+     */
+    @Transactional
+    public NotificationCampaign enqueueRestock(Product product) {
+        LocalDateTime cooldownStart = LocalDateTime.now().minusHours(restockCooldownHours);
+        if (campaignRepository.existsByTypeAndProductIdAndCreatedAtAfter("product_restock", product.getId(), cooldownStart)) {
+            log.debug("⏭️ Skip restock campaign for product {} (cooldown)", product.getId());
+            return null;
+        }
+
+        NotificationCampaign campaign = campaignRepository.save(NotificationCampaign.builder()
+                .type("product_restock")
+                .title("Sản phẩm đã có hàng trở lại")
+                .message(String.format("'%s' đã có hàng. Đặt ngay!", product.getName()))
+                .link("/products/" + product.getSlug())
+                .audience(AUDIENCE_WISHLIST)
+                .productId(product.getId())
+                .build());
+
+        log.info("📦 Restock campaign #{} queued for product {}", campaign.getId(), product.getId());
+        return campaign;
+    }
+
+    /**
+     * Lấy trạng thái chiến dịch
+     */
+    @Transactional(readOnly = true)
+    public NotificationCampaign getCampaign(Long id) {
+        return campaignRepository.findById(Objects.requireNonNull(id))
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Không tìm thấy chiến dịch thông báo"));
+    }
+
+    /**
+     * Scheduled task: Xử lý các chiến dịch đang chờ
+     * Chạy mỗi 10 giây (app.notification.fanout.interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.notification.fanout.interval-ms:10000}",
+            initialDelayString = "${app.notification.fanout.interval-ms:10000}")
+    public void processCampaignsJob() {
+        if (!fanoutEnabled) {
+            return;
+        }
+        schedulerLockService.runExclusive(LOCK_NAME, Duration.ofMinutes(10), this::processCampaigns);
+    }
+
+    /**
+     * Xử lý tối đa app.notification.fanout.max-chunks-per-run chunk, chiến dịch cũ nhất trước
+     *
+     * @return tổng số thông báo đã ghi trong lần chạy này
+     */
+    public int processCampaigns() {
+        int totalSent = 0;
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            Long campaignId = campaignRepository.findFirstByStatusInOrderByIdAsc(OPEN_STATUSES)
+                    .map(NotificationCampaign::getId)
+                    .orElse(null);
+            if (campaignId == null) {
+                break;
+            }
+
+            Integer sent = transactionTemplate.execute(status -> processChunk(campaignId));
+            totalSent += sent != null ? sent : 0;
+
+            if (!pause()) {
+                break;
+            }
+        }
+
+        if (totalSent > 0) {
+            log.info("📨 Fan-out wrote {} notifications", totalSent);
+        }
+        return totalSent;
+    }
+
+    private int processChunk(Long campaignId) {
+        NotificationCampaign campaign = campaignRepository.findById(campaignId).orElse(null);
+        if (campaign == null || !OPEN_STATUSES.contains(campaign.getStatus())) {
+            return 0;
+        }
+
+        List<Long> recipients = insertChunk(campaign);
+
+        if (!recipients.isEmpty()) {
+            campaign.setCursorUserId(Collections.max(recipients));
+            campaign.setSentCount(campaign.getSentCount() + recipients.size());
+        }
+        if (recipients.size() < chunkSize) {
+            campaign.setStatus("completed");
+            campaign.setCompletedAt(LocalDateTime.now());
+            log.info("✅ Campaign #{} completed: {} notifications", campaign.getId(), campaign.getSentCount());
+        } else {
+            campaign.setStatus("running");
+        }
+        campaignRepository.save(campaign);
+
+        notificationPushService.publishBulkAfterCommit(recipients, campaign.getType(), campaign.getTitle(),
+                campaign.getMessage(), campaign.getLink());
+        return recipients.size();
+    }
+
+    private List<Long> insertChunk(NotificationCampaign campaign) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("chunkSize", chunkSize)
+                .addValue("cursor", campaign.getCursorUserId())
+                .addValue("type", campaign.getType())
+                .addValue("title", campaign.getTitle())
+                .addValue("message", campaign.getMessage())
+                .addValue("link", campaign.getLink());
+
+        if (AUDIENCE_WISHLIST.equals(campaign.getAudience())) {
+            params.addValue("productId", campaign.getProductId());
+            return jdbcTemplate.queryForList(FANOUT_WISHLIST_SQL, params, Long.class);
+        }
+        if (AUDIENCE_SEGMENT.equals(campaign.getAudience())) {
+            params.addValue("segment", campaign.getSegment());
+            return jdbcTemplate.queryForList(FANOUT_SEGMENT_SQL, params, Long.class);
+        }
+        params.addValue("guestEmail", PosContextService.SYSTEM_CUSTOMER_EMAIL);
+        return jdbcTemplate.queryForList(FANOUT_ALL_USERS_SQL, params, Long.class);
+    }
+
+    /**
+     * Nghỉ giữa các chunk (throttle)
+     *
+     * @return false nếu thread bị interrupt (ứng dụng đang tắt)
+     */
+    private boolean pause() {
+        if (chunkDelayMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(chunkDelayMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
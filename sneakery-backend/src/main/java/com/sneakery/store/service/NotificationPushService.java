@@ -0,0 +1,278 @@
+package com.sneakery.store.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sneakery.store.entity.Notification;
+import com.sneakery.store.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service: NotificationPushService
+ * Đẩy thông báo tới trình duyệt qua Server-Sent Events thay cho polling /unread-count
+ *
+ * <p><b>Registry kết nối:</b> mỗi tab mở là một {@link SseEmitter} (servlet async),
+ * không giữ thread hay DB connection khi idle, chỉ tốn object emitter + entry trong map.
+ * Nhờ vậy một node có thể giữ hàng chục nghìn kết nối rảnh.
+ *
+ * <p><b>Bộ đếm unread:</b> giữ trong bộ nhớ theo user, nạp lười (1 câu COUNT) ở lần đầu cần đến,
+ * sau đó chỉ cộng/trừ khi có thông báo mới / đánh dấu đã đọc. Bộ đếm hết hạn sau
+ * app.notification.unread-counter-ttl-minutes để tự sửa sai lệch (vd: admin xóa thông báo, node khác ghi).
+ *
+ * <p>Mọi sự kiện được gửi sau khi transaction commit, không bao giờ đẩy dữ liệu bị rollback.
+ * Registry là cục bộ theo node: khi chạy nhiều node, tab chỉ nhận sự kiện phát ra trên node nó kết nối.
+ */
+@Slf4j
+@Service
+public class NotificationPushService {
+
+    private static final String EVENT_NOTIFICATION = "notification";
+    private static final String EVENT_UNREAD_COUNT = "unread-count";
+
+    private final NotificationRepository notificationRepository;
+    private final Map<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final Cache<Long, AtomicLong> unreadCounters;
+    private final ThreadPoolExecutor heartbeatExecutor;
+
+    @Value("${app.notification.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${app.notification.max-connections-per-user:10}")
+    private int maxConnectionsPerUser;
+
+    public NotificationPushService(NotificationRepository notificationRepository,
+                                   @Value("${app.notification.unread-counter-ttl-minutes:10}") long counterTtlMinutes,
+                                   @Value("${app.notification.unread-counter-max-size:100000}") long counterMaxSize) {
+        this.notificationRepository = notificationRepository;
+        this.unreadCounters = Caffeine.newBuilder()
+                .maximumSize(counterMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(counterTtlMinutes))
+                .build();
+        // SseEmitter.send ghi thẳng ra socket (chặn nếu client chậm): heartbeat chạy trên thread riêng,
+        // lượt trước chưa xong thì lượt mới bị bỏ qua
+        this.heartbeatExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new CustomizableThreadFactory("sse-heartbeat-"), new ThreadPoolExecutor.DiscardPolicy());
+        this.heartbeatExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownHeartbeatExecutor() {
+        heartbeatExecutor.shutdown();
+    }
+
+    /**
+     * Mở kết nối SSE cho user và gửi ngay số unread hiện tại
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Set<SseEmitter> emitters = subscribers.compute(userId, (id, existing) -> {
+            Set<SseEmitter> set = existing != null ? existing : new CopyOnWriteArraySet<>();
+            set.add(emitter);
+            return set;
+        });
+        connectionCount.incrementAndGet();
+
+        // Giới hạn số tab / user: đóng kết nối cũ nhất
+        if (emitters.size() > maxConnectionsPerUser) {
+            emitters.stream().filter(other -> other != emitter).findFirst().ifPresent(SseEmitter::complete);
+        }
+
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove(userId, emitter));
+
+        send(userId, emitter, EVENT_UNREAD_COUNT, Map.of("count", getUnreadCount(userId)));
+        log.debug("📡 SSE subscribed: user {} ({} connections on this node)", userId, connectionCount.get());
+        return emitter;
+    }
+
+    /**
+     * Số unread từ bộ đếm trong bộ nhớ (nạp bằng COUNT nếu chưa có)
+     */
+    public long getUnreadCount(Long userId) {
+        return unreadCounters.get(userId,
+                id -> new AtomicLong(notificationRepository.countByUserIdAndIsReadFalse(id))).get();
+    }
+
+    /**
+     * Sau commit: tăng bộ đếm và đẩy thông báo mới tới các tab của user
+     */
+    public void publishCreatedAfterCommit(Notification notification) {
+        Long userId = notification.getUser().getId();
+        Map<String, Object> payload = toPayload(notification);
+        afterCommit(() -> {
+            AtomicLong counter = unreadCounters.getIfPresent(userId);
+            if (counter != null) {
+                counter.incrementAndGet();
+            }
+            if (subscribers.containsKey(userId)) {
+                payload.put("unreadCount", getUnreadCount(userId));
+                broadcast(userId, EVENT_NOTIFICATION, payload);
+            }
+        });
+    }
+
+    /**
+     * Sau commit: thông báo ghi hàng loạt (fan-out) - tăng bộ đếm của từng người nhận
+     * và chỉ đẩy sự kiện tới những user đang mở kết nối trên node này
+     */
+    public void publishBulkAfterCommit(List<Long> userIds, String type, String title, String message, String link) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        afterCommit(() -> userIds.forEach(userId -> {
+            AtomicLong counter = unreadCounters.getIfPresent(userId);
+            if (counter != null) {
+                counter.incrementAndGet();
+            }
+            if (subscribers.containsKey(userId)) {
+                Map<String, Object> payload = new LinkedHashMap<>();
+                payload.put("type", type);
+                payload.put("title", title);
+                payload.put("message", message);
+                payload.put("link", link);
+                payload.put("isRead", false);
+                payload.put("createdAt", LocalDateTime.now());
+                payload.put("unreadCount", getUnreadCount(userId));
+                broadcast(userId, EVENT_NOTIFICATION, payload);
+            }
+        }));
+    }
+
+    /**
+     * Sau commit: nạp lại bộ đếm unread (1 câu COUNT) và đẩy số mới
+     * Dùng khi không biết chính xác số thông báo chuyển sang đã đọc
+     */
+    public void publishRecountAfterCommit(Long userId) {
+        afterCommit(() -> {
+            unreadCounters.invalidate(userId);
+            pushUnreadCount(userId);
+        });
+    }
+
+    /**
+     * Sau commit: đặt bộ đếm unread về 0 (đánh dấu đọc tất cả)
+     */
+    public void publishAllReadAfterCommit(Long userId) {
+        afterCommit(() -> {
+            unreadCounters.put(userId, new AtomicLong());
+            pushUnreadCount(userId);
+        });
+    }
+
+    /**
+     * Bỏ bộ đếm unread của user (dữ liệu bị sửa ngoài luồng thông thường, vd: admin xóa)
+     */
+    public void invalidateUnreadCount(Long userId) {
+        unreadCounters.invalidate(userId);
+    }
+
+    /**
+     * Số kết nối SSE đang mở trên node này
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Scheduled task: Gửi heartbeat (SSE comment) để proxy không cắt kết nối idle
+     * và phát hiện tab đã đóng (lỗi ghi -> gỡ khỏi registry)
+     * Chỉ chuyển việc sang thread "sse-heartbeat-", không giữ thread của scheduler dùng chung
+     */
+    @Scheduled(fixedDelayString = "${app.notification.heartbeat-ms:25000}",
+            initialDelayString = "${app.notification.heartbeat-ms:25000}")
+    public void sendHeartbeatsJob() {
+        heartbeatExecutor.execute(this::sendHeartbeats);
+    }
+
+    private void sendHeartbeats() {
+        subscribers.forEach((userId, emitters) -> emitters.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                remove(userId, emitter);
+            }
+        }));
+    }
+
+    private void pushUnreadCount(Long userId) {
+        if (subscribers.containsKey(userId)) {
+            broadcast(userId, EVENT_UNREAD_COUNT, Map.of("count", getUnreadCount(userId)));
+        }
+    }
+
+    private void broadcast(Long userId, String eventName, Object payload) {
+        Set<SseEmitter> emitters = subscribers.get(userId);
+        if (emitters == null) {
+            return;
+        }
+        emitters.forEach(emitter -> send(userId, emitter, eventName, payload));
+    }
+
+    private void send(Long userId, SseEmitter emitter, String eventName, Object payload) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(payload, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Tab đã đóng: gỡ khỏi registry, không ảnh hưởng các tab khác
+            remove(userId, emitter);
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        subscribers.computeIfPresent(userId, (id, emitters) -> {
+            if (emitters.remove(emitter)) {
+                connectionCount.decrementAndGet();
+            }
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Map<String, Object> toPayload(Notification notification) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", notification.getId());
+        payload.put("type", notification.getType());
+        payload.put("title", notification.getTitle());
+        payload.put("message", notification.getMessage());
+        payload.put("link", notification.getLink());
+        payload.put("isRead", notification.getIsRead());
+        payload.put("createdAt", notification.getCreatedAt());
+        return payload;
+    }
+}
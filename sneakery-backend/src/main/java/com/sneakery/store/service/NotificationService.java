@@ -19,6 +19,7 @@ import java.util.Objects;
 /**
  * Notification Service
  * Quản lý real-time notifications cho users
+ * Thông báo mới / thay đổi trạng thái đọc được đẩy qua SSE bởi {@link NotificationPushService}
  */
 @Slf4j
 @Service
@@ -27,6 +28,7 @@ public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final NotificationPushService notificationPushService;
 
     /**
      * Lấy notifications của user (phân trang)
@@ -39,10 +41,10 @@ public class NotificationService {
 
     /**
      * Đếm unread notifications
+     * Đọc từ bộ đếm trong bộ nhớ, chỉ COUNT lần đầu (hoặc khi bộ đếm hết hạn)
      */
-    @Transactional(readOnly = true)
     public long getUnreadCount(Long userId) {
-        return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        return notificationPushService.getUnreadCount(userId);
     }
 
     /**
@@ -57,6 +59,9 @@ public class NotificationService {
         if (updated == 0) {
             throw new ApiException(HttpStatus.NOT_FOUND, "Notification không tồn tại hoặc không thuộc về user này");
         }
+
+        // markAsRead không lọc isRead nên không biết thông báo trước đó đã đọc chưa -> nạp lại bộ đếm
+        notificationPushService.publishRecountAfterCommit(userId);
     }
 
     /**
@@ -66,6 +71,7 @@ public class NotificationService {
     public void markAllAsRead(Long userId) {
         log.info("Marking all notifications as read for user {}", userId);
         notificationRepository.markAllAsRead(userId);
+        notificationPushService.publishAllReadAfterCommit(userId);
     }
 
     /**
@@ -86,6 +92,7 @@ public class NotificationService {
         notification.setLink(link);
         
         notification = notificationRepository.save(notification);
+        notificationPushService.publishCreatedAfterCommit(notification);
         
         log.info("Created notification ID: {}", notification.getId());
         return notification;
@@ -0,0 +1,46 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.entity.Order;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service: OrderSalesSignalService
+ * Đưa thay đổi trạng thái đơn vào các chỉ số bán hàng cập nhật tăng dần:
+ * Daily_Sales, tốc độ bán (RestockAdvisorService) và index mua chung
+ *
+ * <p>Mỗi chỉ số có nhóm trạng thái được tính của riêng nó: đơn vào nhóm thì +1, rời nhóm thì -1,
+ * đổi trạng thái trong cùng phía thì không ghi. Mọi chỗ đổi Orders.status (admin, POS, khách xác nhận /
+ * yêu cầu trả hàng, admin xử lý trả hàng) gọi qua đây để không chỗ nào thiếu chiều trừ.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderSalesSignalService {
+
+    private final DailySalesService dailySalesService;
+    private final RestockAdvisorService restockAdvisorService;
+    private final CoPurchaseIndexService coPurchaseIndexService;
+
+    /**
+     * Ghi nhận đơn đổi trạng thái oldStatus → newStatus trong transaction hiện tại
+     * oldStatus null = đơn mới (vd. bán tại quầy POS)
+     */
+    public void recordStatusChange(Order order, String oldStatus, String newStatus) {
+        int sales = delta(DailySalesService.isCountedStatus(oldStatus), DailySalesService.isCountedStatus(newStatus));
+        if (sales != 0) {
+            // Tốc độ bán tính lại từ Daily_Sales nên dùng cùng nhóm trạng thái, tránh đếm đơn shipped hai lần
+            dailySalesService.recordOrder(order, sales);
+            restockAdvisorService.recordOrder(order, sales);
+        }
+
+        int completed = delta(CoPurchaseIndexService.isCompletedStatus(oldStatus),
+                CoPurchaseIndexService.isCompletedStatus(newStatus));
+        if (completed != 0) {
+            coPurchaseIndexService.recordOrderAfterCommit(order, completed);
+        }
+    }
+
+    private static int delta(boolean before, boolean after) {
+        return before == after ? 0 : after ? 1 : -1;
+    }
+}
@@ -5,6 +5,8 @@ import com.sneakery.store.entity.*;
 import com.sneakery.store.exception.ApiException;
 import com.sneakery.store.repository.*;
 import com.sneakery.store.util.JsonUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -75,12 +77,14 @@ public class OrderService {
     private final UserRepository userRepository;
     private final EmailService emailService;
     private final PaymentGatewayService paymentGatewayService;
-    private final CouponRepository couponRepository;
     private final CouponService couponService;
     private final LoyaltyService loyaltyService;
     private final OrderStatusHistoryRepository statusHistoryRepository;
     private final ReturnRequestRepository returnRequestRepository;
     private final ShippingService shippingService;
+    private final OrderSalesSignalService orderSalesSignalService;
+    private final PosContextService posContextService;
+    private final MeterRegistry meterRegistry;
 
     /**
      * Xử lý Checkout - Tạo đơn hàng từ giỏ hàng
@@ -131,6 +135,7 @@ public class OrderService {
      */
     @Transactional
     public OrderDto createOrderFromCart(Long userId, CheckoutRequestDto requestDto) {
+        Timer.Sample stage = Timer.start(meterRegistry);
 
         // 1. Lấy giỏ hàng (đã tối ưu)
         Cart cart = cartRepository.findByUserIdWithDetails(userId)
@@ -153,6 +158,7 @@ public class OrderService {
                 addressRepository.findByIdAndUserId(requestDto.getAddressBillingId(), userId)
                         .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Địa chỉ thanh toán không hợp lệ"))
                 : shippingAddress;
+        stage = checkoutStage(stage, "load");
 
         // 5. Generate order number
         String orderNumber = generateOrderNumber();
@@ -218,47 +224,41 @@ public class OrderService {
         // Set subtotal
         BigDecimal subtotal = totalAmount;
         order.setSubtotal(subtotal);
+        stage = checkoutStage(stage, "reserve_stock");
 
         // 8. Xử lý coupon nếu có
         BigDecimal discountAmount = BigDecimal.ZERO;
         Coupon coupon = null;
         if (requestDto.getCouponCode() != null && !requestDto.getCouponCode().trim().isEmpty()) {
             try {
+                // Validate từ index trong bộ nhớ (không truy vấn DB)
                 CouponDto couponDto = couponService.validateCouponCode(requestDto.getCouponCode());
-                coupon = couponRepository.findById(Objects.requireNonNull(couponDto.getId())).orElse(null);
-
-                if (coupon != null) {
-                    // Tính discount amount
-                    if ("percent".equalsIgnoreCase(coupon.getDiscountType())) {
-                        BigDecimal discount = subtotal.multiply(coupon.getValue()).divide(BigDecimal.valueOf(100), 2, java.math.RoundingMode.HALF_UP);
-                        if (coupon.getMaxDiscountAmount() != null && discount.compareTo(coupon.getMaxDiscountAmount()) > 0) {
-                            discount = coupon.getMaxDiscountAmount();
-                        }
-                        discountAmount = discount;
-                    } else if ("fixed".equalsIgnoreCase(coupon.getDiscountType())) {
-                        discountAmount = coupon.getValue();
-                        // Đảm bảo không giảm nhiều hơn subtotal
-                        if (discountAmount.compareTo(subtotal) > 0) {
-                            discountAmount = subtotal;
-                        }
-                    }
 
-                    // Kiểm tra minOrderAmount
-                    if (coupon.getMinOrderAmount() != null && subtotal.compareTo(coupon.getMinOrderAmount()) < 0) {
-                        throw new ApiException(HttpStatus.BAD_REQUEST,
-                                String.format("Đơn hàng tối thiểu %s để áp dụng mã giảm giá",
-                                        formatCurrency(coupon.getMinOrderAmount())));
+                // Tính discount amount
+                if ("percent".equalsIgnoreCase(couponDto.getDiscountType())) {
+                    BigDecimal discount = subtotal.multiply(couponDto.getValue()).divide(BigDecimal.valueOf(100), 2, java.math.RoundingMode.HALF_UP);
+                    if (couponDto.getMaxDiscountAmount() != null && discount.compareTo(couponDto.getMaxDiscountAmount()) > 0) {
+                        discount = couponDto.getMaxDiscountAmount();
                     }
-
-                    // Cập nhật usesCount
-                    if (coupon.getUsesCount() == null) {
-                        coupon.setUsesCount(0);
+                    discountAmount = discount;
+                } else if ("fixed".equalsIgnoreCase(couponDto.getDiscountType())) {
+                    discountAmount = couponDto.getValue();
+                    // Đảm bảo không giảm nhiều hơn subtotal
+                    if (discountAmount.compareTo(subtotal) > 0) {
+                        discountAmount = subtotal;
                     }
-                    coupon.setUsesCount(coupon.getUsesCount() + 1);
-                    couponRepository.save(coupon);
+                }
 
-                    order.setCoupon(coupon);
+                // Kiểm tra minOrderAmount
+                if (couponDto.getMinOrderAmount() != null && subtotal.compareTo(couponDto.getMinOrderAmount()) < 0) {
+                    throw new ApiException(HttpStatus.BAD_REQUEST,
+                            String.format("Đơn hàng tối thiểu %s để áp dụng mã giảm giá",
+                                    formatCurrency(couponDto.getMinOrderAmount())));
                 }
+
+                // Giành lượt dùng (atomic, có giới hạn theo user)
+                coupon = couponService.redeemCoupon(couponDto, userId);
+                order.setCoupon(coupon);
             } catch (ApiException e) {
                 throw e;
             } catch (Exception e) {
@@ -268,10 +268,12 @@ public class OrderService {
         }
 
         order.setDiscountAmount(discountAmount);
+        stage = checkoutStage(stage, "coupon");
 
         // 9. Tính shipping fee dựa trên địa chỉ giao hàng
         BigDecimal shippingFee = calculateShippingFee(shippingAddress);
         order.setShippingFee(shippingFee);
+        stage = checkoutStage(stage, "shipping_fee");
 
         // 9. amountAfterCoupon
         BigDecimal amountAfterCoupon = subtotal.subtract(discountAmount);
@@ -364,11 +366,13 @@ public class OrderService {
         // Trigger sẽ tự động log mọi thay đổi inventory
 
         cartRepository.delete(cart);
+        stage = checkoutStage(stage, "persist");
 
         String paymentUrl = null;
         if ("online".equalsIgnoreCase(requestDto.getPaymentMethod())) {
             paymentUrl = paymentGatewayService.createVNPayPaymentUrl(savedOrder.getId(), finalTotal, "Thanh toan don hang " + savedOrder.getOrderNumber());
         }
+        stage = checkoutStage(stage, "payment_url");
 
         try {
             emailService.sendOrderConfirmation(savedOrder);
@@ -376,8 +380,20 @@ public class OrderService {
             log.error("Failed to send order confirmation email for order {}: {}",
                     savedOrder.getOrderNumber(), e.getMessage(), e);
         }
+        stage = checkoutStage(stage, "confirmation_email");
 
-        return convertToOrderDto(savedOrder, paymentUrl);
+        OrderDto result = convertToOrderDto(savedOrder, paymentUrl);
+        checkoutStage(stage, "build_response");
+        return result;
+    }
+
+    /**
+     * Ghi thời gian của bước checkout vừa xong vào timer sneakery.checkout.stage (tag stage) và bắt đầu đo bước kế tiếp.
+     * Bước lỗi (throw) không được ghi nên timer chỉ phản ánh các checkout thành công tới bước đó.
+     */
+    private Timer.Sample checkoutStage(Timer.Sample sample, String stage) {
+        sample.stop(meterRegistry.timer("sneakery.checkout.stage", "stage", stage));
+        return Timer.start(meterRegistry);
     }
 
     /**
@@ -492,34 +508,31 @@ public class OrderService {
         if (requestDto.getCouponCode() != null && !requestDto.getCouponCode().trim().isEmpty()) {
             try {
                 CouponDto couponDto = couponService.validateCouponCode(requestDto.getCouponCode());
-                coupon = couponRepository.findById(couponDto.getId()).orElse(null);
-
-                if (coupon != null) {
-                    if ("percent".equalsIgnoreCase(coupon.getDiscountType())) {
-                        BigDecimal discount = subtotal.multiply(coupon.getValue())
-                                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
-
-                        if (coupon.getMaxDiscountAmount() != null &&
-                                discount.compareTo(coupon.getMaxDiscountAmount()) > 0) {
-                            discount = coupon.getMaxDiscountAmount();
-                        }
-                        discountAmount = discount;
-                    } else if ("fixed".equalsIgnoreCase(coupon.getDiscountType())) {
-                        discountAmount = coupon.getValue().min(subtotal);
-                    }
 
-                    if (coupon.getMinOrderAmount() != null &&
-                            subtotal.compareTo(coupon.getMinOrderAmount()) < 0) {
-                        throw new ApiException(HttpStatus.BAD_REQUEST,
-                                "Đơn hàng tối thiểu " + formatCurrency(coupon.getMinOrderAmount())
-                                        + " để áp dụng mã giảm giá");
-                    }
+                BigDecimal couponDiscount = BigDecimal.ZERO;
+                if ("percent".equalsIgnoreCase(couponDto.getDiscountType())) {
+                    couponDiscount = subtotal.multiply(couponDto.getValue())
+                            .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
 
-                    coupon.setUsesCount(Optional.ofNullable(coupon.getUsesCount()).orElse(0) + 1);
-                    couponRepository.save(coupon);
+                    if (couponDto.getMaxDiscountAmount() != null &&
+                            couponDiscount.compareTo(couponDto.getMaxDiscountAmount()) > 0) {
+                        couponDiscount = couponDto.getMaxDiscountAmount();
+                    }
+                } else if ("fixed".equalsIgnoreCase(couponDto.getDiscountType())) {
+                    couponDiscount = couponDto.getValue().min(subtotal);
+                }
 
-                    order.setCoupon(coupon);
+                if (couponDto.getMinOrderAmount() != null &&
+                        subtotal.compareTo(couponDto.getMinOrderAmount()) < 0) {
+                    throw new ApiException(HttpStatus.BAD_REQUEST,
+                            "Đơn hàng tối thiểu " + formatCurrency(couponDto.getMinOrderAmount())
+                                    + " để áp dụng mã giảm giá");
                 }
+
+                // Guest dùng chung 1 user hệ thống nên không giới hạn theo user
+                coupon = couponService.redeemCoupon(couponDto, null);
+                discountAmount = couponDiscount;
+                order.setCoupon(coupon);
             } catch (Exception e) {
                 log.warn("Coupon error: {}", e.getMessage());
             }
@@ -592,19 +605,10 @@ public class OrderService {
     }
 
     /**
-     * Helper: Lấy hoặc tạo guest user (system account cho guest orders)
+     * Helper: Lấy hoặc tạo guest user (system account cho guest orders, dùng chung với POS)
      */
     private User getOrCreateGuestUser() {
-        // Tìm user với email "guest@system.sneakery" hoặc tạo mới
-        return userRepository.findByEmail("guest@system.sneakery").orElseGet(() -> {
-            User guestUser = new User();
-            guestUser.setEmail("guest@system.sneakery");
-            guestUser.setPasswordHash("$2a$10$GUEST_USER_SYSTEM_ACCOUNT"); // Dummy password, không thể đăng nhập
-            guestUser.setFullName("Khách vãng lai");
-            guestUser.setRole("USER");
-            guestUser.setIsActive(true);
-            return userRepository.save(guestUser);
-        });
+        return posContextService.systemCustomer();
     }
 
     /**
@@ -667,7 +671,7 @@ public class OrderService {
      * <ul>
      *   <li>Chỉ cho phép hủy khi đơn hàng đang ở trạng thái "pending" (chờ xác nhận)</li>
      *   <li>Nếu đơn hàng đã được xác nhận hoặc đang xử lý, không cho phép hủy</li>
-     *   <li>Sẽ hoàn trả tồn kho cho các sản phẩm trong đơn hàng</li>
+     *   <li>Sẽ hoàn trả tồn kho cho các sản phẩm trong đơn hàng và lượt dùng coupon (nếu có)</li>
      * </ul>
      *
      * @param orderId ID của đơn hàng cần hủy
@@ -699,6 +703,12 @@ public class OrderService {
             variantRepository.save(variant);
         }
 
+        // 🎟️ Hoàn lại lượt dùng coupon (index trong bộ nhớ cập nhật sau commit)
+        if (order.getCoupon() != null) {
+            couponService.releaseCoupon(order.getCoupon().getId(), userId);
+            log.info("🎟️ Released coupon use for cancelled order #{}", orderId);
+        }
+
         // Cập nhật trạng thái đơn hàng thành "cancelled"
         order.setStatus("cancelled");
 
@@ -813,6 +823,9 @@ public class OrderService {
 
         log.info("✅ Order #{} is now DELIVERED and PAYMENT COMPLETED", orderId);
 
+        // Ghi nhận index mua chung (Daily_Sales + tốc độ bán đã tính đơn từ lúc shipped)
+        orderSalesSignalService.recordStatusChange(order, currentStatus, "delivered");
+
         // 7. Cộng điểm loyalty cho đơn hàng đã hoàn thành
         try {
             loyaltyService.earnPointsFromOrder(order);
@@ -901,7 +914,8 @@ public class OrderService {
                 .bankAccountHolder(requestDto.getBankAccountHolder())
                 .adminNote(null) // Admin note sẽ được set sau khi admin duyệt
                 .build();
-        // 🔥 6. CẬP NHẬT ORDER STATUS
+        // 🔥 6. CẬP NHẬT ORDER STATUS (đơn rời doanh số / tốc độ bán / index mua chung)
+        orderSalesSignalService.recordStatusChange(order, order.getStatus(), "return_pending");
         order.setStatus("return_pending");
         orderRepository.save(order);
 
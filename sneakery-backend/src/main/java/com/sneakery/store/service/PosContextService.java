@@ -0,0 +1,138 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.entity.Address;
+import com.sneakery.store.entity.User;
+import com.sneakery.store.repository.AddressRepository;
+import com.sneakery.store.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Service: PosContextService
+ * Khách hệ thống và địa chỉ cửa hàng dùng chung cho mọi đơn POS
+ *
+ * <p>Đơn khách vãng lai được gán cho tài khoản hệ thống guest@system.sneakery (cùng tài khoản với đơn guest online).
+ * Đơn không có thông tin người nhận dùng một địa chỉ cửa hàng duy nhất thuộc tài khoản đó;
+ * hai id này được tìm (hoặc tạo) một lần trong transaction riêng rồi giữ trong bộ nhớ,
+ * mỗi lần bán chỉ lấy reference (getReferenceById), không truy vấn thêm.
+ * Đơn có người nhận thật (khách đã đăng ký hoặc khách vãng lai có nhập tên / SĐT) dùng địa chỉ cửa hàng
+ * mang tên và SĐT đó, tạo một lần cho mỗi cặp (khách, người nhận) rồi tái sử dụng.
+ */
+@Slf4j
+@Service
+public class PosContextService {
+
+    public static final String SYSTEM_CUSTOMER_EMAIL = "guest@system.sneakery";
+
+    private static final String POS_LINE1 = "Cửa hàng Sneakery";
+    private static final String POS_ADDRESS_TYPE = "other";
+    private static final String WALK_IN_RECIPIENT = "Khách vãng lai";
+    private static final String WALK_IN_PHONE = "0900000000"; // 📌 phone mặc định cho POS guest
+
+    private final UserRepository userRepository;
+    private final AddressRepository addressRepository;
+    private final TransactionTemplate requiresNewTransaction;
+
+    private volatile Long systemCustomerId;
+    private volatile Long posAddressId;
+
+    public PosContextService(UserRepository userRepository,
+                             AddressRepository addressRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.addressRepository = addressRepository;
+        this.requiresNewTransaction = new TransactionTemplate(transactionManager);
+        this.requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Khách hệ thống cho đơn khách vãng lai
+     */
+    public User systemCustomer() {
+        resolveIfNeeded();
+        return userRepository.getReferenceById(systemCustomerId);
+    }
+
+    /**
+     * Địa chỉ cửa hàng dùng chung cho mọi đơn POS
+     */
+    public Address posAddress() {
+        resolveIfNeeded();
+        return addressRepository.getReferenceById(posAddressId);
+    }
+
+    /**
+     * Địa chỉ cửa hàng cho một đơn POS, giữ tên / SĐT người nhận thật của đơn
+     * Không có người nhận (tên và SĐT mặc định của khách vãng lai) → địa chỉ dùng chung đã cache
+     *
+     * @param owner khách của đơn (khách đã đăng ký hoặc khách hệ thống)
+     */
+    public Address posAddressFor(User owner, String recipientName, String phone) {
+        String recipient = recipientName != null && !recipientName.isBlank() ? recipientName.trim() : WALK_IN_RECIPIENT;
+        String recipientPhone = phone != null && !phone.isBlank() ? phone.trim() : WALK_IN_PHONE;
+        resolveIfNeeded();
+        if (owner.getId().equals(systemCustomerId)
+                && WALK_IN_RECIPIENT.equals(recipient) && WALK_IN_PHONE.equals(recipientPhone)) {
+            return posAddress();
+        }
+        return addressRepository
+                .findFirstByUserIdAndLine1AndAddressTypeAndRecipientNameAndPhoneAndDeletedAtIsNullOrderByIdAsc(
+                        owner.getId(), POS_LINE1, POS_ADDRESS_TYPE, recipient, recipientPhone)
+                .orElseGet(() -> createPosAddress(owner, recipient, recipientPhone));
+    }
+
+    private void resolveIfNeeded() {
+        if (systemCustomerId != null && posAddressId != null) {
+            return;
+        }
+        synchronized (this) {
+            if (systemCustomerId != null && posAddressId != null) {
+                return;
+            }
+            // Transaction riêng: nếu đơn POS hiện tại rollback, user / địa chỉ hệ thống vẫn tồn tại
+            requiresNewTransaction.executeWithoutResult(status -> {
+                User customer = userRepository.findByEmail(SYSTEM_CUSTOMER_EMAIL).orElseGet(this::createSystemCustomer);
+                Address address = addressRepository
+                        .findFirstByUserIdAndLine1AndAddressTypeAndDeletedAtIsNullOrderByIdAsc(
+                                customer.getId(), POS_LINE1, POS_ADDRESS_TYPE)
+                        .orElseGet(() -> createPosAddress(customer, WALK_IN_RECIPIENT, WALK_IN_PHONE));
+                systemCustomerId = customer.getId();
+                posAddressId = address.getId();
+            });
+            log.info("🏪 POS context resolved: system customer #{}, POS address #{}", systemCustomerId, posAddressId);
+        }
+    }
+
+    private User createSystemCustomer() {
+        User guestUser = new User();
+        guestUser.setEmail(SYSTEM_CUSTOMER_EMAIL);
+        guestUser.setPasswordHash("$2a$10$GUEST_USER_SYSTEM_ACCOUNT"); // Dummy password, không thể đăng nhập
+        guestUser.setFullName(WALK_IN_RECIPIENT);
+        guestUser.setRole("USER");
+        guestUser.setIsActive(true);
+        return userRepository.save(guestUser);
+    }
+
+    private Address createPosAddress(User customer, String recipientName, String phone) {
+        Address posAddress = new Address();
+        posAddress.setUser(customer);
+        posAddress.setRecipientName(recipientName);
+        posAddress.setPhone(phone);
+        posAddress.setLine1(POS_LINE1);
+        posAddress.setLine2("Bán tại quầy POS - 13 Trịnh Văn Bô");
+        posAddress.setCity("Hà Nội");
+        posAddress.setDistrict("Quận Nam Từ Liêm");
+        posAddress.setWard("Phường Xuân Phương");
+        posAddress.setPostalCode("100000");
+        posAddress.setAddressType(POS_ADDRESS_TYPE); // CHECK constraint chỉ cho phép 'home', 'office', 'other'
+        posAddress.setIsDefault(false);
+        posAddress.setCreatedAt(LocalDateTime.now());
+        posAddress.setUpdatedAt(LocalDateTime.now());
+        return addressRepository.save(posAddress);
+    }
+}
@@ -0,0 +1,249 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.repository.ProductVariantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service: PosSkuIndexService
+ * Index SKU / mã vạch → biến thể trong bộ nhớ cho quầy POS
+ *
+ * <p>Mã vạch in trên tem chính là SKU của biến thể, nên quét mã = tra SKU (không phân biệt hoa thường).
+ * <ul>
+ *   <li>Dựng từ projection hẹp (findPosIndexProjections), chỉ biến thể / sản phẩm đang bán</li>
+ *   <li>Cập nhật theo sản phẩm sau commit khi tạo / sửa / xóa biến thể</li>
+ *   <li>Tồn kho trong index là ảnh chụp: bán POS trừ ngay sau commit, các luồng khác (đơn online, nhập kho)
+ *       được đồng bộ bởi job định kỳ app.pos.sku-index-refresh-ms. Tạo đơn vẫn kiểm tra tồn kho từ DB</li>
+ * </ul>
+ *
+ * <p>Tra cứu chỉ là một lần get trên ConcurrentHashMap, không chạm DB.
+ */
+@Slf4j
+@Service
+public class PosSkuIndexService {
+
+    /**
+     * Biến thể đang bán tại quầy (bất biến; đổi giá / tồn kho thì thay bằng instance mới)
+     */
+    public record PosVariant(Long variantId,
+                             Long productId,
+                             String sku,
+                             String productName,
+                             String size,
+                             String color,
+                             BigDecimal priceBase,
+                             BigDecimal priceSale,
+                             Integer stockQuantity,
+                             String imageUrl) {
+
+        public BigDecimal effectivePrice() {
+            return priceSale != null && priceSale.compareTo(BigDecimal.ZERO) > 0 ? priceSale : priceBase;
+        }
+
+        PosVariant withStock(Integer stock) {
+            return new PosVariant(variantId, productId, sku, productName, size, color, priceBase, priceSale, stock, imageUrl);
+        }
+    }
+
+    private static final class Index {
+        final Map<String, PosVariant> bySku = new ConcurrentHashMap<>();
+        final Map<Long, PosVariant> byId = new ConcurrentHashMap<>();
+        final Map<Long, List<Long>> variantIdsByProduct = new ConcurrentHashMap<>();
+    }
+
+    private final ProductVariantRepository variantRepository;
+
+    private volatile Index index;
+
+    public PosSkuIndexService(ProductVariantRepository variantRepository) {
+        this.variantRepository = variantRepository;
+    }
+
+    /**
+     * Scheduled task: Nạp lại index (đồng bộ tồn kho và thay đổi từ node khác)
+     */
+    @Scheduled(fixedDelayString = "${app.pos.sku-index-refresh-ms:60000}",
+            initialDelayString = "${app.pos.sku-index-refresh-ms:60000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    /**
+     * Nạp lại toàn bộ index từ projection
+     */
+    public void refresh() {
+        Index rebuilt = new Index();
+        for (Object[] row : variantRepository.findPosIndexProjections()) {
+            put(rebuilt, toVariant(row));
+        }
+        synchronized (this) {
+            index = rebuilt;
+        }
+        log.debug("🏷️ POS SKU index refreshed: {} variants", rebuilt.byId.size());
+    }
+
+    /**
+     * Tra biến thể theo mã quét (SKU / mã vạch)
+     */
+    public Optional<PosVariant> findByCode(String code) {
+        String key = normalize(code);
+        return key == null ? Optional.empty() : Optional.ofNullable(current().bySku.get(key));
+    }
+
+    /**
+     * Tra biến thể theo id
+     */
+    public Optional<PosVariant> findById(Long variantId) {
+        return variantId == null ? Optional.empty() : Optional.ofNullable(current().byId.get(variantId));
+    }
+
+    /**
+     * Biến thể mặc định của sản phẩm khi POS gửi item không có variantId:
+     * biến thể đầu tiên còn đủ hàng, nếu không có thì biến thể đầu tiên
+     */
+    public Optional<PosVariant> findDefaultForProduct(Long productId, int quantity) {
+        Index current = current();
+        List<Long> variantIds = current.variantIdsByProduct.get(productId);
+        if (variantIds == null || variantIds.isEmpty()) {
+            return Optional.empty();
+        }
+        PosVariant first = null;
+        for (Long variantId : variantIds) {
+            PosVariant variant = current.byId.get(variantId);
+            if (variant == null) {
+                continue;
+            }
+            if (first == null) {
+                first = variant;
+            }
+            if (variant.stockQuantity() != null && variant.stockQuantity() >= quantity) {
+                return Optional.of(variant);
+            }
+        }
+        return Optional.ofNullable(first);
+    }
+
+    /**
+     * Nạp lại các biến thể của một sản phẩm sau khi transaction hiện tại commit
+     * (gọi khi tạo / sửa / xóa biến thể hoặc sản phẩm)
+     */
+    public void reloadProductAfterCommit(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        afterCommit(() -> reloadProduct(productId));
+    }
+
+    /**
+     * Ghi nhận tồn kho mới của biến thể sau commit (bán tại quầy)
+     */
+    public void updateStockAfterCommit(Long variantId, Integer stockQuantity) {
+        afterCommit(() -> {
+            Index current = index;
+            if (current == null) {
+                return;
+            }
+            synchronized (this) {
+                PosVariant variant = current.byId.get(variantId);
+                if (variant != null) {
+                    PosVariant updated = variant.withStock(stockQuantity);
+                    current.byId.put(variantId, updated);
+                    current.bySku.put(normalize(updated.sku()), updated);
+                }
+            }
+        });
+    }
+
+    private void reloadProduct(Long productId) {
+        Index current = index;
+        if (current == null) {
+            // Chưa nạp: lần tra cứu đầu tiên sẽ dựng toàn bộ
+            return;
+        }
+        List<Object[]> rows = variantRepository.findPosIndexProjectionsByProductId(productId);
+        synchronized (this) {
+            List<Long> previousIds = current.variantIdsByProduct.remove(productId);
+            if (previousIds != null) {
+                for (Long variantId : previousIds) {
+                    PosVariant previous = current.byId.remove(variantId);
+                    if (previous != null) {
+                        current.bySku.remove(normalize(previous.sku()), previous);
+                    }
+                }
+            }
+            for (Object[] row : rows) {
+                put(current, toVariant(row));
+            }
+        }
+        log.debug("🏷️ POS SKU index updated for product {}: {} variants", productId, rows.size());
+    }
+
+    private Index current() {
+        Index current = index;
+        if (current == null) {
+            synchronized (this) {
+                if (index == null) {
+                    refresh();
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    private static void put(Index target, PosVariant variant) {
+        target.byId.put(variant.variantId(), variant);
+        target.bySku.put(normalize(variant.sku()), variant);
+        target.variantIdsByProduct.compute(variant.productId(), (id, ids) -> {
+            List<Long> updated = ids == null ? new ArrayList<>() : new ArrayList<>(ids);
+            updated.add(variant.variantId());
+            return List.copyOf(updated);
+        });
+    }
+
+    private static PosVariant toVariant(Object[] row) {
+        return new PosVariant(
+                (Long) row[0],
+                (Long) row[1],
+                (String) row[2],
+                (String) row[3],
+                (String) row[4],
+                (String) row[5],
+                (BigDecimal) row[6],
+                (BigDecimal) row[7],
+                (Integer) row[8],
+                (String) row[9]);
+    }
+
+    private static String normalize(String code) {
+        if (code == null) {
+            return null;
+        }
+        String trimmed = code.trim();
+        return trimmed.isEmpty() ? null : trimmed.toUpperCase(Locale.ROOT);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
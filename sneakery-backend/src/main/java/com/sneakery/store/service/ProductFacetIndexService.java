@@ -0,0 +1,429 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.dto.ProductFacetSearchDto.FacetCount;
+import com.sneakery.store.repository.ProductRepository;
+import com.sneakery.store.repository.ProductVariantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service: ProductFacetIndexService
+ * Index facet cho bộ lọc storefront: mỗi giá trị facet là một bitmap các sản phẩm
+ *
+ * <ul>
+ *   <li>Facet: brand, category, size, màu, khoảng giá (giá thấp nhất của sản phẩm), còn hàng / hết hàng</li>
+ *   <li>Sản phẩm được đánh số thứ tự liên tục (ordinal) nên BitSet luôn đặc và nhỏ:
+ *       100k sản phẩm ≈ 12.5 KB cho mỗi giá trị facet</li>
+ *   <li>Lọc: OR các giá trị trong cùng facet, AND giữa các facet.
+ *       Số lượng của một facet tính với các facet khác đã chọn (bỏ qua chính nó) để người dùng chọn thêm</li>
+ *   <li>Dựng từ hai projection hẹp (sản phẩm + category, biến thể), cập nhật từng sản phẩm sau commit
+ *       khi admin / POS thay đổi catalog, job định kỳ app.catalog.facets.refresh-ms đồng bộ phần còn lại
+ *       (tồn kho từ đơn online, đổi tên brand / category, node khác)</li>
+ * </ul>
+ *
+ * <p>Truy vấn chỉ là vài phép AND / OR trên BitSet, không chạm DB; trang kết quả (sản phẩm mới nhất trước)
+ * được load thành ProductCardDto bởi {@link ProductService}.
+ */
+@Slf4j
+@Service
+public class ProductFacetIndexService {
+
+    /**
+     * Facet storefront; param là tên tham số query và key trong kết quả
+     */
+    public enum Facet {
+        BRAND("brand"),
+        CATEGORY("category"),
+        SIZE("shoeSize"),
+        COLOR("color"),
+        PRICE("price"),
+        STOCK("stock");
+
+        private final String param;
+
+        Facet(String param) {
+            this.param = param;
+        }
+
+        public String param() {
+            return param;
+        }
+    }
+
+    public static final String IN_STOCK = "in_stock";
+    public static final String OUT_OF_STOCK = "out_of_stock";
+
+    /**
+     * Kết quả lọc: id sản phẩm của trang hiện tại, tổng số sản phẩm khớp, số lượng theo facet
+     */
+    public record FacetResult(List<Long> productIds, int total, Map<String, List<FacetCount>> facets) {
+    }
+
+    private static final class FacetValue {
+        final String label;
+        final BitSet products = new BitSet();
+
+        FacetValue(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final class Index {
+        final Map<Long, Integer> ordinalById = new HashMap<>();
+        final BitSet live = new BitSet();
+        final Map<Facet, Map<String, FacetValue>> values = new EnumMap<>(Facet.class);
+        long[] productIds = new long[1024];
+        int size;
+
+        Index() {
+            for (Facet facet : Facet.values()) {
+                values.put(facet, new HashMap<>());
+            }
+        }
+
+        int ordinalOf(Long productId) {
+            Integer ordinal = ordinalById.get(productId);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+            }
+            productIds[size] = productId;
+            ordinalById.put(productId, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Facet của một sản phẩm, gom từ các dòng projection
+     */
+    private static final class ProductFacets {
+        String brand;
+        final Set<String> categories = new LinkedHashSet<>();
+        final Set<String> sizes = new LinkedHashSet<>();
+        final Set<String> colors = new LinkedHashSet<>();
+        BigDecimal minPrice;
+        int availableStock;
+    }
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final long[] priceBounds;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Index index;
+
+    public ProductFacetIndexService(ProductRepository productRepository,
+                                    ProductVariantRepository variantRepository,
+                                    @Value("${app.catalog.facets.price-buckets:1000000,2000000,3000000,5000000}") long[] priceBounds) {
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.priceBounds = priceBounds.clone();
+        Arrays.sort(this.priceBounds);
+    }
+
+    /**
+     * Scheduled task: Nạp lại toàn bộ index
+     */
+    @Scheduled(fixedDelayString = "${app.catalog.facets.refresh-ms:300000}",
+            initialDelayString = "${app.catalog.facets.refresh-ms:300000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    /**
+     * Dựng lại index từ projection rồi thay thế bản hiện tại
+     */
+    public void refresh() {
+        Map<Long, ProductFacets> products = new LinkedHashMap<>();
+        for (Object[] row : productRepository.findFacetProductProjections()) {
+            collectProduct(products, row);
+        }
+        for (Object[] row : variantRepository.findFacetVariantProjections()) {
+            collectVariant(products, row);
+        }
+
+        Index rebuilt = new Index();
+        products.forEach((productId, facets) -> add(rebuilt, productId, facets));
+
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("🧭 Product facet index refreshed: {} products", rebuilt.live.cardinality());
+    }
+
+    /**
+     * Nạp lại facet của một sản phẩm sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+     */
+    public void reloadProductAfterCommit(Long productId) {
+        if (productId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reloadProduct(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reloadProduct(productId);
+            }
+        });
+    }
+
+    /**
+     * Lọc sản phẩm theo các giá trị facet đã chọn và đếm số lượng cho từng giá trị facet
+     *
+     * @param selections facet → các giá trị đã chọn (không phân biệt hoa thường); facet rỗng = không lọc
+     * @param page       số trang (bắt đầu từ 0)
+     * @param size       số sản phẩm mỗi trang
+     */
+    public FacetResult search(Map<Facet, ? extends Collection<String>> selections, int page, int size) {
+        Index current = current();
+        lock.readLock().lock();
+        try {
+            Map<Facet, Set<String>> selectedKeys = new EnumMap<>(Facet.class);
+            Map<Facet, BitSet> selected = new EnumMap<>(Facet.class);
+            selections.forEach((facet, rawValues) -> {
+                Set<String> keys = new LinkedHashSet<>();
+                BitSet union = new BitSet();
+                for (String raw : rawValues) {
+                    String key = key(raw);
+                    if (key != null && keys.add(key)) {
+                        FacetValue value = current.values.get(facet).get(key);
+                        if (value != null) {
+                            union.or(value.products);
+                        }
+                    }
+                }
+                if (!keys.isEmpty()) {
+                    selectedKeys.put(facet, keys);
+                    selected.put(facet, union);
+                }
+            });
+
+            BitSet matches = (BitSet) current.live.clone();
+            selected.values().forEach(matches::and);
+
+            return new FacetResult(
+                    page(current, matches, page, size),
+                    matches.cardinality(),
+                    countFacets(current, matches, selected, selectedKeys));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> page(Index current, BitSet matches, int page, int size) {
+        List<Long> productIds = new ArrayList<>(size);
+        long skip = (long) page * size;
+        // Ordinal tăng theo id sản phẩm → duyệt ngược để sản phẩm mới nhất lên trước
+        for (int ordinal = matches.previousSetBit(current.size - 1);
+             ordinal >= 0 && productIds.size() < size;
+             ordinal = matches.previousSetBit(ordinal - 1)) {
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            productIds.add(current.productIds[ordinal]);
+        }
+        return productIds;
+    }
+
+    private Map<String, List<FacetCount>> countFacets(Index current,
+                                                      BitSet matches,
+                                                      Map<Facet, BitSet> selected,
+                                                      Map<Facet, Set<String>> selectedKeys) {
+        Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+        BitSet scratch = new BitSet(current.size);
+        for (Facet facet : Facet.values()) {
+            BitSet base = matches;
+            if (selected.containsKey(facet)) {
+                base = (BitSet) current.live.clone();
+                for (Map.Entry<Facet, BitSet> other : selected.entrySet()) {
+                    if (other.getKey() != facet) {
+                        base.and(other.getValue());
+                    }
+                }
+            }
+
+            Set<String> chosen = selectedKeys.getOrDefault(facet, Set.of());
+            List<FacetCount> counts = new ArrayList<>();
+            for (Map.Entry<String, FacetValue> entry : current.values.get(facet).entrySet()) {
+                scratch.clear();
+                scratch.or(entry.getValue().products);
+                scratch.and(base);
+                int count = scratch.cardinality();
+                boolean isSelected = chosen.contains(entry.getKey());
+                if (count > 0 || isSelected) {
+                    counts.add(new FacetCount(entry.getKey(), entry.getValue().label, count, isSelected));
+                }
+            }
+            counts.sort(facet == Facet.PRICE
+                    ? Comparator.comparingLong((FacetCount c) -> priceBucketLowerBound(c.getValue()))
+                    : Comparator.comparingInt(FacetCount::getCount).reversed().thenComparing(FacetCount::getLabel));
+            facets.put(facet.param(), counts);
+        }
+        return facets;
+    }
+
+    private void reloadProduct(Long productId) {
+        if (index == null) {
+            // Chưa nạp: lần tra cứu đầu tiên sẽ dựng toàn bộ
+            return;
+        }
+        Map<Long, ProductFacets> products = new LinkedHashMap<>();
+        for (Object[] row : productRepository.findFacetProductProjectionsByProductId(productId)) {
+            collectProduct(products, row);
+        }
+        for (Object[] row : variantRepository.findFacetVariantProjectionsByProductId(productId)) {
+            collectVariant(products, row);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Index current = index;
+            Integer ordinal = current.ordinalById.get(productId);
+            if (ordinal != null) {
+                current.live.clear(ordinal);
+                for (Map<String, FacetValue> values : current.values.values()) {
+                    values.values().removeIf(value -> {
+                        value.products.clear(ordinal);
+                        return value.products.isEmpty();
+                    });
+                }
+            }
+            ProductFacets facets = products.get(productId);
+            if (facets != null) {
+                add(current, productId, facets);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("🧭 Product facet index updated for product {}", productId);
+    }
+
+    private Index current() {
+        Index current = index;
+        if (current == null) {
+            synchronized (this) {
+                if (index == null) {
+                    refresh();
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    private void add(Index target, Long productId, ProductFacets facets) {
+        int ordinal = target.ordinalOf(productId);
+        target.live.set(ordinal);
+        mark(target, Facet.BRAND, facets.brand, ordinal);
+        facets.categories.forEach(category -> mark(target, Facet.CATEGORY, category, ordinal));
+        facets.sizes.forEach(size -> mark(target, Facet.SIZE, size, ordinal));
+        facets.colors.forEach(color -> mark(target, Facet.COLOR, color, ordinal));
+        if (facets.minPrice != null) {
+            mark(target, Facet.PRICE, priceBucket(facets.minPrice), ordinal);
+        }
+        mark(target, Facet.STOCK, facets.availableStock > 0 ? IN_STOCK : OUT_OF_STOCK, ordinal);
+    }
+
+    private static void mark(Index target, Facet facet, String label, int ordinal) {
+        String key = key(label);
+        if (key != null) {
+            target.values.get(facet)
+                    .computeIfAbsent(key, k -> new FacetValue(label.trim()))
+                    .products.set(ordinal);
+        }
+    }
+
+    private static void collectProduct(Map<Long, ProductFacets> products, Object[] row) {
+        ProductFacets facets = products.computeIfAbsent((Long) row[0], id -> new ProductFacets());
+        facets.brand = (String) row[1];
+        if (row[2] != null) {
+            facets.categories.add((String) row[2]);
+        }
+    }
+
+    private static void collectVariant(Map<Long, ProductFacets> products, Object[] row) {
+        ProductFacets facets = products.get((Long) row[0]);
+        if (facets == null) {
+            return;
+        }
+        if (row[1] != null) {
+            facets.colors.add((String) row[1]);
+        }
+        if (row[2] != null) {
+            // Cùng quy tắc tách với trigger trg_ProductVariants_SyncSizes
+            for (String size : ((String) row[2]).split(",")) {
+                if (!size.isBlank()) {
+                    facets.sizes.add(size.trim());
+                }
+            }
+        }
+
+        BigDecimal priceBase = (BigDecimal) row[3];
+        BigDecimal priceSale = (BigDecimal) row[4];
+        BigDecimal price = priceSale != null && priceSale.compareTo(BigDecimal.ZERO) > 0 ? priceSale : priceBase;
+        if (price != null && (facets.minPrice == null || price.compareTo(facets.minPrice) < 0)) {
+            facets.minPrice = price;
+        }
+
+        int stock = row[5] != null ? (Integer) row[5] : 0;
+        int reserved = row[6] != null ? (Integer) row[6] : 0;
+        facets.availableStock += Math.max(0, stock - reserved);
+    }
+
+    /**
+     * Khoảng giá dạng "from-to" (VD: "1000000-2000000"), khoảng cuối dạng "from+"
+     */
+    private String priceBucket(BigDecimal price) {
+        long lower = 0;
+        for (long bound : priceBounds) {
+            if (price.compareTo(BigDecimal.valueOf(bound)) < 0) {
+                return lower + "-" + bound;
+            }
+            lower = bound;
+        }
+        return lower + "+";
+    }
+
+    private static long priceBucketLowerBound(String bucket) {
+        int end = bucket.indexOf('-');
+        String lower = end >= 0 ? bucket.substring(0, end) : bucket.substring(0, bucket.length() - 1);
+        return Long.parseLong(lower);
+    }
+
+    private static String key(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+}
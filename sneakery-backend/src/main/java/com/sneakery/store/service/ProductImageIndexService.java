@@ -0,0 +1,166 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.dto.ProductImagePublicDto;
+import com.sneakery.store.repository.ProductImageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Service: ProductImageIndexService
+ * Index ảnh gallery public trong bộ nhớ: productId → danh sách URL theo display_order
+ *
+ * <p>Thay cho findAll() toàn bộ entity ProductImage rồi group trong Java ở mỗi request:
+ * <ul>
+ *   <li>Dựng từ projection hẹp (product_id, image_url, display_order), không load entity</li>
+ *   <li>Cập nhật từng sản phẩm sau commit khi {@link ProductImageService} thêm / xóa / sắp xếp / đặt primary</li>
+ *   <li>Job định kỳ (app.product-image.index-refresh-ms) nạp lại toàn bộ để đồng bộ thay đổi từ node khác</li>
+ * </ul>
+ *
+ * <p>Request public chỉ đọc index theo tập productId (hoặc một trang), không chạm DB.
+ */
+@Slf4j
+@Service
+public class ProductImageIndexService {
+
+    private final ProductImageRepository productImageRepository;
+
+    private volatile ConcurrentNavigableMap<Long, List<String>> index;
+
+    public ProductImageIndexService(ProductImageRepository productImageRepository) {
+        this.productImageRepository = productImageRepository;
+    }
+
+    /**
+     * Scheduled task: Nạp lại index (đồng bộ thay đổi từ node khác)
+     */
+    @Scheduled(fixedDelayString = "${app.product-image.index-refresh-ms:300000}",
+            initialDelayString = "${app.product-image.index-refresh-ms:300000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    /**
+     * Nạp lại toàn bộ index từ projection (product_id, image_url, display_order)
+     */
+    public void refresh() {
+        ConcurrentNavigableMap<Long, List<String>> rebuilt = new ConcurrentSkipListMap<>();
+        Long currentProductId = null;
+        List<String> currentUrls = null;
+        for (Object[] row : productImageRepository.findAllImageProjections()) {
+            Long productId = (Long) row[0];
+            if (!productId.equals(currentProductId)) {
+                if (currentProductId != null) {
+                    rebuilt.put(currentProductId, List.copyOf(currentUrls));
+                }
+                currentProductId = productId;
+                currentUrls = new ArrayList<>();
+            }
+            if (row[1] != null) {
+                currentUrls.add((String) row[1]);
+            }
+        }
+        if (currentProductId != null) {
+            rebuilt.put(currentProductId, List.copyOf(currentUrls));
+        }
+
+        index = rebuilt;
+        log.debug("🖼️ Product image index refreshed: {} products", rebuilt.size());
+    }
+
+    /**
+     * Nạp lại ảnh của một sản phẩm sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+     */
+    public void reloadProductAfterCommit(Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reloadProduct(productId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reloadProduct(productId);
+            }
+        });
+    }
+
+    /**
+     * Ảnh của các sản phẩm được yêu cầu, giữ thứ tự productIds; sản phẩm không có ảnh bị bỏ qua
+     */
+    public List<ProductImagePublicDto> findByProductIds(Collection<Long> productIds) {
+        Map<Long, List<String>> current = current();
+        List<ProductImagePublicDto> result = new ArrayList<>();
+        for (Long productId : new LinkedHashSet<>(productIds)) {
+            List<String> urls = productId != null ? current.get(productId) : null;
+            if (urls != null && !urls.isEmpty()) {
+                result.add(toDto(productId, urls));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Một trang của index theo productId tăng dần (cho client chưa biết danh sách sản phẩm)
+     */
+    public List<ProductImagePublicDto> findPage(int page, int size) {
+        return current().entrySet().stream()
+                .skip((long) page * size)
+                .limit(size)
+                .map(e -> toDto(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    /**
+     * Toàn bộ index (chỉ dùng cho màn hình admin / POS đã xác thực)
+     */
+    public List<ProductImagePublicDto> findAll() {
+        return current().entrySet().stream()
+                .map(e -> toDto(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    private void reloadProduct(Long productId) {
+        ConcurrentNavigableMap<Long, List<String>> current = index;
+        if (current == null) {
+            // Chưa nạp: lần đọc đầu tiên sẽ dựng toàn bộ
+            return;
+        }
+        List<String> urls = productImageRepository.findImageUrlsByProductId(productId);
+        if (urls.isEmpty()) {
+            current.remove(productId);
+        } else {
+            current.put(productId, List.copyOf(urls));
+        }
+        log.debug("🖼️ Product image index updated for product {}: {} images", productId, urls.size());
+    }
+
+    private ConcurrentNavigableMap<Long, List<String>> current() {
+        ConcurrentNavigableMap<Long, List<String>> current = index;
+        if (current == null) {
+            synchronized (this) {
+                if (index == null) {
+                    refresh();
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
+
+    private static ProductImagePublicDto toDto(Long productId, List<String> urls) {
+        ProductImagePublicDto dto = new ProductImagePublicDto();
+        dto.setProductId(productId);
+        dto.setImages(urls);
+        return dto;
+    }
+}
@@ -1,20 +1,27 @@
 package com.sneakery.store.service;
 
+import com.sneakery.store.constants.ProductConstants;
 import com.sneakery.store.dto.ProductImageDto;
-import com.sneakery.store.dto.ProductImagePublicDto;
 import com.sneakery.store.entity.Product;
 import com.sneakery.store.entity.ProductImage;
 import com.sneakery.store.exception.ApiException;
 import com.sneakery.store.repository.ProductImageRepository;
 import com.sneakery.store.repository.ProductRepository;
 import com.sneakery.store.util.CloudinaryUtil;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -28,13 +35,38 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ProductImageService {
 
+    private static final String INSERT_IMAGE_SQL =
+            "INSERT INTO Product_Images (product_id, image_url, alt_text, is_primary, display_order, created_at, cloudinary_public_id) " +
+            "VALUES (:productId, :imageUrl, :altText, 0, :displayOrder, SYSDATETIME(), :publicId)";
+
     private final ProductImageRepository productImageRepository;
     private final ProductRepository productRepository;
     private final FileStorageService fileStorageService;
     private final CloudinaryUtil cloudinaryUtil;
+    private final ProductImageIndexService productImageIndexService;
+    private final LocalMediaStorageService localMediaStorageService;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ProductImageService(ProductImageRepository productImageRepository,
+                               ProductRepository productRepository,
+                               FileStorageService fileStorageService,
+                               CloudinaryUtil cloudinaryUtil,
+                               ProductImageIndexService productImageIndexService,
+                               LocalMediaStorageService localMediaStorageService,
+                               NamedParameterJdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager) {
+        this.productImageRepository = productImageRepository;
+        this.productRepository = productRepository;
+        this.fileStorageService = fileStorageService;
+        this.cloudinaryUtil = cloudinaryUtil;
+        this.productImageIndexService = productImageIndexService;
+        this.localMediaStorageService = localMediaStorageService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     // ==========================================================
     // [1] LẤY DANH SÁCH ẢNH CỦA SẢN PHẨM
@@ -82,6 +114,7 @@ public class ProductImageService {
 //            syncProductMainImageUrl(productId, dto.getImageUrl());
 //        }
 
+        productImageIndexService.reloadProductAfterCommit(productId);
         log.info("✅ Added image from URL for product {}: {}", productId, dto.getImageUrl());
         return convertToDto(saved);
     }
@@ -130,11 +163,108 @@ public class ProductImageService {
             syncProductMainImageUrl(productId, imageUrl);
         }
 
+        productImageIndexService.reloadProductAfterCommit(productId);
         log.info("✅ Uploaded image {} for product {}", imageUrl, productId);
         return convertToDto(saved);
     }
 
 
+    // ==========================================================
+    // [3b] UPLOAD NHIỀU FILE ẢNH CÙNG LÚC
+    // ==========================================================
+    /**
+     * Upload nhiều ảnh cho sản phẩm trong 1 request
+     *
+     * <p>Không mở transaction trong lúc upload: các file được stream song song lên storage
+     * ({@link FileStorageService#storeProductImages}), sau đó mọi dòng Product_Images được ghi
+     * bằng 1 batch INSERT trong transaction ngắn. Nếu ghi DB lỗi, ảnh vừa upload bị xoá lại.
+     *
+     * @param displayOrders thứ tự hiển thị của từng file (cùng độ dài với files); null = nối tiếp ảnh hiện có
+     * @param primaryIndex  vị trí file được chọn làm ảnh đại diện; null = không đổi (ảnh đầu tiên nếu sản phẩm chưa có ảnh primary)
+     * @return ảnh đã lưu, đúng thứ tự và số lượng file gửi lên
+     */
+    public List<ProductImageDto> uploadImageFiles(Long productId, List<MultipartFile> files,
+                                                  List<Integer> displayOrders, Integer primaryIndex) {
+        log.info("🖼️ Uploading {} local files for product ID: {}", files != null ? files.size() : 0, productId);
+        Product product = productRepository.findById(Objects.requireNonNull(productId))
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Sản phẩm không tồn tại"));
+
+        int fileCount = files != null ? files.size() : 0;
+        if (displayOrders != null && displayOrders.size() != fileCount) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Số displayOrders phải bằng số file ảnh");
+        }
+        if (primaryIndex != null && (primaryIndex < 0 || primaryIndex >= fileCount)) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "primaryIndex không hợp lệ");
+        }
+        if (productImageRepository.countByProductId(productId) + fileCount > ProductConstants.MAX_IMAGES_PER_PRODUCT) {
+            throw new ApiException(HttpStatus.BAD_REQUEST,
+                    "Mỗi sản phẩm tối đa " + ProductConstants.MAX_IMAGES_PER_PRODUCT + " ảnh");
+        }
+
+        List<FileStorageService.CloudinaryUploadResult> uploads = fileStorageService.storeProductImages(productId, files);
+        try {
+            return transactionTemplate.execute(status -> insertUploadedImages(product, uploads, displayOrders, primaryIndex));
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Ghi ảnh sản phẩm {} vào DB lỗi, xoá {} ảnh vừa upload: {}", productId, uploads.size(), e.getMessage());
+            fileStorageService.deleteUploaded(uploads);
+            throw e;
+        }
+    }
+
+    private List<ProductImageDto> insertUploadedImages(Product product, List<FileStorageService.CloudinaryUploadResult> uploads,
+                                                       List<Integer> displayOrders, Integer primaryIndex) {
+        Long productId = product.getId();
+
+        // Nếu chưa có ảnh primary => tự động dùng ảnh đầu tiên
+        Integer finalPrimaryIndex = primaryIndex;
+        if (finalPrimaryIndex == null && !productImageRepository.existsByProductIdAndIsPrimaryTrue(productId)) {
+            finalPrimaryIndex = 0;
+        }
+        if (finalPrimaryIndex != null) {
+            productImageRepository.clearPrimaryForProduct(productId);
+        }
+
+        // displayOrder theo request; thiếu thì nối tiếp ảnh hiện có (bắt đầu từ 1)
+        int nextOrder = (int) productImageRepository.countByProductId(productId) + 1;
+        int[] orders = new int[uploads.size()];
+        MapSqlParameterSource[] batch = new MapSqlParameterSource[uploads.size()];
+        for (int i = 0; i < uploads.size(); i++) {
+            Integer requested = displayOrders != null ? displayOrders.get(i) : null;
+            orders[i] = requested != null && requested > 0 ? requested : nextOrder + i;
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("productId", productId)
+                    .addValue("imageUrl", uploads.get(i).url())
+                    .addValue("altText", product.getName())
+                    .addValue("displayOrder", orders[i])
+                    .addValue("publicId", uploads.get(i).publicId());
+        }
+        jdbcTemplate.batchUpdate(INSERT_IMAGE_SQL, batch);
+
+        // 🔄 Tự động sync Product.mainImageUrl nếu là ảnh primary
+        if (finalPrimaryIndex != null) {
+            syncProductMainImageUrl(productId, uploads.get(finalPrimaryIndex).url());
+        }
+        productImageIndexService.reloadProductAfterCommit(productId);
+
+        // Trả về 1 dòng / file theo thứ tự request. Ảnh local lưu theo hash nên 2 file giống nhau có cùng URL:
+        // ghép theo (URL, displayOrder) và mỗi dòng DB chỉ được dùng 1 lần
+        Map<String, Deque<ProductImage>> inserted = new HashMap<>();
+        for (ProductImage image : productImageRepository.findByProductIdOrderByDisplayOrderAsc(productId)) {
+            inserted.computeIfAbsent(image.getImageUrl() + "#" + image.getDisplayOrder(), key -> new ArrayDeque<>())
+                    .add(image);
+        }
+        List<ProductImageDto> result = new ArrayList<>(uploads.size());
+        for (int i = 0; i < uploads.size(); i++) {
+            Deque<ProductImage> matches = inserted.get(uploads.get(i).url() + "#" + orders[i]);
+            ProductImage image = matches != null ? matches.pollFirst() : null;
+            if (image == null) {
+                throw new IllegalStateException("Không tìm thấy dòng ảnh vừa ghi: " + uploads.get(i).url());
+            }
+            result.add(convertToDto(image));
+        }
+        return result;
+    }
+
     // ==========================================================
     // [4] XÓA ẢNH THEO URL (FE gửi { imageUrl }) ưu tiên xoá bằng publicId
     // ==========================================================
@@ -170,6 +300,7 @@ public class ProductImageService {
 //        boolean wasPrimary = Boolean.TRUE.equals(image.getIsPrimary());
         productImageRepository.delete(image);
         reorderDisplayOrder(pid);
+        productImageIndexService.reloadProductAfterCommit(pid);
 
 //        // 🔄 Nếu xóa ảnh primary, tự động sync ảnh primary mới (nếu có)
 //        if (wasPrimary) {
@@ -207,6 +338,7 @@ public class ProductImageService {
 
         // Reorder lại thứ tự hiển thị
         reorderDisplayOrder(productId);
+        productImageIndexService.reloadProductAfterCommit(productId);
 
         // 🔄 Nếu xóa ảnh primary, tự động sync ảnh primary mới (nếu có)
 //        if (wasPrimary) {
@@ -230,6 +362,7 @@ public class ProductImageService {
 
         // 🔄 Tự động sync Product.mainImageUrl
         syncProductMainImageUrl(productId, saved.getImageUrl());
+        productImageIndexService.reloadProductAfterCommit(productId);
 
         log.info("⭐ Set image {} as primary", imageId);
         return convertToDto(saved);
@@ -298,76 +431,7 @@ public class ProductImageService {
     }
 
     // ==========================================================
-    // [9] SYNC ALL PRODUCTS MAIN IMAGE URL
-    // ==========================================================
-    /**
-     * Đồng bộ Product.mainImageUrl cho tất cả sản phẩm
-     * Method này sẽ:
-     * 1. Set isPrimary=true cho ảnh đầu tiên nếu sản phẩm chưa có ảnh primary
-     * 2. Update Product.mainImageUrl từ ProductImage có isPrimary=true
-     *
-     * @return Số lượng sản phẩm đã được sync
-     */
-    @Transactional
-    public int syncAllProductsMainImageUrl() {
-        log.info("🔄 Bắt đầu sync mainImageUrl cho tất cả sản phẩm...");
-        int syncedCount = 0;
-        int setPrimaryCount = 0;
-
-        // Lấy tất cả sản phẩm (chưa bị xóa)
-        List<Product> products = productRepository.findAll().stream()
-                .filter(p -> p.getDeletedAt() == null)
-                .collect(Collectors.toList());
-
-        log.info("📦 Tìm thấy {} sản phẩm cần sync", products.size());
-
-        for (Product product : products) {
-            try {
-                Long productId = product.getId();
-
-                // Kiểm tra xem có ảnh primary chưa
-                Optional<ProductImage> primaryImageOpt = productImageRepository.findByProductIdAndIsPrimaryTrue(productId);
-
-                if (primaryImageOpt.isEmpty()) {
-                    // Chưa có ảnh primary, set ảnh đầu tiên làm primary
-                    List<ProductImage> images = productImageRepository.findByProductIdOrderByDisplayOrderAsc(productId);
-                    if (!images.isEmpty()) {
-                        ProductImage firstImage = images.get(0);
-//                        firstImage.setIsPrimary(true);
-                        productImageRepository.save(firstImage);
-                        setPrimaryCount++;
-                        log.debug("✅ Set primary cho ảnh đầu tiên của product {}", productId);
-
-                        // Sync mainImageUrl
-                        product.setMainImageUrl(firstImage.getImageUrl());
-                        productRepository.save(product);
-                        syncedCount++;
-                    }
-                } else {
-                    // Đã có ảnh primary, sync mainImageUrl
-                    ProductImage primaryImage = primaryImageOpt.get();
-                    String primaryUrl = primaryImage.getImageUrl();
-
-                    // Chỉ update nếu khác nhau hoặc null
-                    if (product.getMainImageUrl() == null ||
-                            !product.getMainImageUrl().equals(primaryUrl)) {
-                        product.setMainImageUrl(primaryUrl);
-                        productRepository.save(product);
-                        syncedCount++;
-                    }
-                }
-            } catch (Exception e) {
-                log.warn("⚠️ Lỗi khi sync product {}: {}", product.getId(), e.getMessage());
-            }
-        }
-
-        log.info("✅ Hoàn thành sync: {} sản phẩm đã được sync, {} ảnh được set primary",
-                syncedCount, setPrimaryCount);
-        return syncedCount;
-    }
-
-    // ==========================================================
-    // [10] MAPPING ENTITY ↔ DTO
+    // [9] MAPPING ENTITY ↔ DTO
     // ==========================================================
     private ProductImageDto convertToDto(ProductImage image) {
         String imageUrl = image.getImageUrl();
@@ -377,10 +441,17 @@ public class ProductImageService {
         String mediumUrl = null;
         String largeUrl = null;
 
-        if (cloudinaryUtil != null && cloudinaryUtil.isCloudinaryUrl(imageUrl)) {
-            thumbnailUrl = cloudinaryUtil.generateThumbnailUrl(imageUrl);
-            mediumUrl = cloudinaryUtil.generateMediumUrl(imageUrl);
-            largeUrl = cloudinaryUtil.generateLargeUrl(imageUrl);
+        // Bộ URL responsive được tính 1 lần / ảnh rồi memo trong CloudinaryUtil
+        CloudinaryUtil.ResponsiveUrls responsiveUrls = cloudinaryUtil.getResponsiveUrls(imageUrl);
+        if (responsiveUrls != null) {
+            thumbnailUrl = responsiveUrls.thumbnailUrl();
+            mediumUrl = responsiveUrls.mediumUrl();
+            largeUrl = responsiveUrls.largeUrl();
+        } else if (localMediaStorageService.isMediaUrl(imageUrl)) {
+            // Ảnh local content-addressed: derivative 300/800/1200 được tạo lúc upload
+            thumbnailUrl = localMediaStorageService.thumbnailUrl(imageUrl);
+            mediumUrl = localMediaStorageService.mediumUrl(imageUrl);
+            largeUrl = localMediaStorageService.largeUrl(imageUrl);
         }
 
         return ProductImageDto.builder()
@@ -397,25 +468,4 @@ public class ProductImageService {
                 .build();
     }
 
-    public List<ProductImagePublicDto> getAllImagesPublic() {
-        Map<Long, List<String>> grouped = productImageRepository.findAll()
-                .stream()
-                .collect(Collectors.groupingBy(
-                        img -> img.getProduct().getId(),
-                        Collectors.mapping(
-                                ProductImage::getImageUrl,
-                                Collectors.toList()
-                        )
-                ));
-
-        return grouped.entrySet().stream()
-                .map(e -> {
-                    ProductImagePublicDto dto = new ProductImagePublicDto();
-                    dto.setProductId(e.getKey());
-                    dto.setImages(e.getValue());
-                    return dto;
-                })
-                .toList();
-    }
-
 }
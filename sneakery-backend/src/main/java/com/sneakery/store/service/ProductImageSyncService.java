@@ -0,0 +1,212 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.entity.ImageSyncJob;
+import com.sneakery.store.exception.ApiException;
+import com.sneakery.store.repository.ImageSyncJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Service: ProductImageSyncService
+ * Đồng bộ Products.main_image_url từ gallery (Product_Images) cho toàn bộ catalog
+ *
+ * <p>Thay cho findAll() + 2-3 câu truy vấn / save cho từng sản phẩm trong một transaction lớn:
+ * <ul>
+ *   <li>Ảnh đại diện của mỗi sản phẩm được chọn bằng ROW_NUMBER() OVER (PARTITION BY product_id
+ *       ORDER BY is_primary DESC, display_order, id) - ảnh primary, nếu không có thì ảnh đầu tiên</li>
+ *   <li>Áp dụng bằng 1 câu UPDATE ... FROM join cho mỗi chunk sản phẩm (keyset theo id),
+ *       chỉ ghi những dòng thực sự thay đổi và OUTPUT id để evict cache</li>
+ *   <li>Mỗi chunk là một transaction ngắn; cursor + số liệu tiến độ lưu cùng transaction
+ *       nên job chạy tiếp đúng chỗ sau khi restart</li>
+ * </ul>
+ *
+ * <p>Worker chạy dưới {@link SchedulerLockService} nên chỉ một node xử lý tại một thời điểm.
+ */
+@Slf4j
+@Service
+public class ProductImageSyncService {
+
+    private static final String LOCK_NAME = "productImage.sync";
+    private static final List<String> OPEN_STATUSES = List.of("pending", "running");
+
+    private static final String COUNT_PRODUCTS_SQL =
+            "SELECT COUNT(*) FROM Products WHERE deleted_at IS NULL";
+
+    /**
+     * Biên của chunk tiếp theo: số sản phẩm và id lớn nhất trong TOP (n) sau cursor
+     */
+    private static final String NEXT_CHUNK_SQL =
+            "SELECT COUNT(*) AS cnt, MAX(c.id) AS max_id " +
+            "FROM (SELECT TOP (:chunkSize) id FROM Products " +
+            "      WHERE id > :cursor AND deleted_at IS NULL ORDER BY id) c";
+
+    /**
+     * Products có trigger AFTER UPDATE (trg_Products_UpdateTimestamp, tự set updated_at) nên OUTPUT phải ghi
+     * vào biến bảng (OUTPUT không INTO bị SQL Server từ chối, lỗi 334); NOCOUNT để câu SELECT cuối là kết quả đầu tiên
+     */
+    private static final String SYNC_CHUNK_SQL =
+            "SET NOCOUNT ON; " +
+            "DECLARE @changed TABLE (id BIGINT); " +
+            "WITH ranked AS (" +
+            "   SELECT i.product_id, i.image_url, " +
+            "          ROW_NUMBER() OVER (PARTITION BY i.product_id " +
+            "                             ORDER BY i.is_primary DESC, i.display_order, i.id) AS rn " +
+            "   FROM Product_Images i " +
+            "   WHERE i.product_id > :cursor AND i.product_id <= :maxId) " +
+            "UPDATE p " +
+            "SET p.main_image_url = r.image_url " +
+            "OUTPUT inserted.id INTO @changed(id) " +
+            "FROM Products p " +
+            "JOIN ranked r ON r.product_id = p.id AND r.rn = 1 " +
+            "WHERE p.id > :cursor AND p.id <= :maxId AND p.deleted_at IS NULL " +
+            "AND (p.main_image_url IS NULL OR p.main_image_url <> r.image_url); " +
+            "SELECT id FROM @changed";
+
+    private final ImageSyncJobRepository jobRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final CacheManager cacheManager;
+
+    @Value("${app.product-image.sync.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.product-image.sync.max-chunks-per-run:100}")
+    private int maxChunksPerRun;
+
+    public ProductImageSyncService(ImageSyncJobRepository jobRepository,
+                                   NamedParameterJdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   SchedulerLockService schedulerLockService,
+                                   CacheManager cacheManager) {
+        this.jobRepository = jobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLockService = schedulerLockService;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Tạo job đồng bộ ảnh đại diện; nếu đang có job chưa xong thì trả về job đó
+     */
+    @Transactional
+    public ImageSyncJob enqueue(String requestedBy) {
+        return jobRepository.findFirstByStatusInOrderByIdAsc(OPEN_STATUSES)
+                .orElseGet(() -> {
+                    Integer total = jdbcTemplate.getJdbcTemplate().queryForObject(COUNT_PRODUCTS_SQL, Integer.class);
+                    ImageSyncJob job = jobRepository.save(ImageSyncJob.builder()
+                            .totalProducts(total != null ? total : 0)
+                            .requestedBy(requestedBy)
+                            .build());
+                    log.info("🔄 Image sync job #{} queued by {} ({} products)", job.getId(), requestedBy, job.getTotalProducts());
+                    return job;
+                });
+    }
+
+    /**
+     * Lấy tiến độ job
+     */
+    @Transactional(readOnly = true)
+    public ImageSyncJob getJob(Long id) {
+        return jobRepository.findById(Objects.requireNonNull(id))
+                .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, "Không tìm thấy job đồng bộ ảnh"));
+    }
+
+    /**
+     * Scheduled task: Xử lý job đồng bộ đang chờ
+     * Chạy mỗi 5 giây (app.product-image.sync.interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.product-image.sync.interval-ms:5000}",
+            initialDelayString = "${app.product-image.sync.interval-ms:5000}")
+    public void processJobs() {
+        schedulerLockService.runExclusive(LOCK_NAME, Duration.ofMinutes(10), this::processChunks);
+    }
+
+    /**
+     * Xử lý tối đa app.product-image.sync.max-chunks-per-run chunk, job cũ nhất trước
+     *
+     * @return số sản phẩm đã đổi main_image_url trong lần chạy này
+     */
+    public int processChunks() {
+        int totalChanged = 0;
+        for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+            Long jobId = jobRepository.findFirstByStatusInOrderByIdAsc(OPEN_STATUSES)
+                    .map(ImageSyncJob::getId)
+                    .orElse(null);
+            if (jobId == null) {
+                break;
+            }
+            Integer changed = transactionTemplate.execute(status -> processChunk(jobId));
+            totalChanged += changed != null ? changed : 0;
+        }
+        return totalChanged;
+    }
+
+    private int processChunk(Long jobId) {
+        ImageSyncJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || !OPEN_STATUSES.contains(job.getStatus())) {
+            return 0;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("chunkSize", chunkSize)
+                .addValue("cursor", job.getCursorProductId());
+        Map<String, Object> bounds = jdbcTemplate.queryForMap(NEXT_CHUNK_SQL, params);
+        int scanned = ((Number) bounds.get("cnt")).intValue();
+
+        List<Long> changedIds = List.of();
+        if (scanned > 0) {
+            long maxId = ((Number) bounds.get("max_id")).longValue();
+            changedIds = jdbcTemplate.queryForList(SYNC_CHUNK_SQL, params.addValue("maxId", maxId), Long.class);
+            job.setCursorProductId(maxId);
+            job.setScannedCount(job.getScannedCount() + scanned);
+            job.setChangedCount(job.getChangedCount() + changedIds.size());
+        }
+
+        if (scanned < chunkSize) {
+            job.setStatus("completed");
+            job.setCompletedAt(LocalDateTime.now());
+            log.info("✅ Image sync job #{} completed: {} products scanned, {} main images updated",
+                    job.getId(), job.getScannedCount(), job.getChangedCount());
+        } else {
+            job.setStatus("running");
+        }
+        jobRepository.save(job);
+
+        evictProductCacheAfterCommit(changedIds);
+        return changedIds.size();
+    }
+
+    private void evictProductCacheAfterCommit(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Cache productsCache = cacheManager.getCache("products");
+                if (productsCache != null) {
+                    productIds.forEach(productsCache::evict);
+                }
+            }
+        });
+    }
+}
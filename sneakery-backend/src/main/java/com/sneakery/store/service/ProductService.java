@@ -4,13 +4,17 @@ import com.sneakery.store.dto.AdminProductDetailDto;
 import com.sneakery.store.dto.AdminVariantRequestDto;
 import com.sneakery.store.dto.CategoryDto;
 import com.sneakery.store.dto.ProductCardDto;
+import com.sneakery.store.dto.ProductFacetSearchDto;
 import com.sneakery.store.entity.Category;
 import com.sneakery.store.entity.Product;
 import com.sneakery.store.entity.ProductVariant;
 import com.sneakery.store.exception.ApiException;
 import com.sneakery.store.repository.ProductRepository;
+import com.sneakery.store.service.ProductFacetIndexService.Facet;
+import com.sneakery.store.service.ProductFacetIndexService.FacetResult;
 import lombok.RequiredArgsConstructor; // SỬA ĐỔI: Thêm import
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -19,10 +23,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -66,6 +74,9 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductFacetIndexService productFacetIndexService;
+    private final RelatedProductService relatedProductService;
+    private final CoPurchaseIndexService coPurchaseIndexService;
 
     /**
      * Lấy danh sách sản phẩm với phân trang (dạng card - tóm tắt)
@@ -383,51 +394,90 @@ public class ProductService {
         return convertToAdminDetailDto(product);
     }
 
-    public List<ProductCardDto> getRelatedProducts(Long productId, Long brandId, List<Long> categoryIds, int limit) {
-        int max = limit;
-
-        // 1) Lấy theo BRAND
-        List<Product> brandProducts = productRepository
-                .findTop4ByBrandIdAndIdNotAndIsActiveTrueAndDeletedAtIsNull(brandId, productId);
-
-        List<ProductCardDto> result = brandProducts.stream()
+    /**
+     * Sản phẩm liên quan: đọc top-K đã tính sẵn ({@link RelatedProductService}) rồi load card theo lô
+     *
+     * <p>Sản phẩm chưa có kết quả (mới tạo / batch chưa chạy xong) tạm lấy tối đa 4 sản phẩm cùng brand
+     */
+    @Transactional(readOnly = true)
+    public List<ProductCardDto> getRelatedProducts(Long productId, Long brandId, int limit) {
+        List<Long> relatedIds = relatedProductService.findRelatedIds(productId, limit);
+        if (!relatedIds.isEmpty()) {
+            return loadCards(relatedIds);
+        }
+        if (brandId == null) {
+            return List.of();
+        }
+        return productRepository.findTop4ByBrandIdAndIdNotAndIsActiveTrueAndDeletedAtIsNull(brandId, productId).stream()
+                .limit(limit)
                 .map(this::convertToProductCardDto)
                 .collect(Collectors.toList());
+    }
 
-        // Nếu đủ 4 thì return luôn
-        if (result.size() >= max) {
-            return result.subList(0, max);
-        }
-
-        // 2) Lấy theo CATEGORY, tránh trùng brand
-        List<Product> categoryProducts = productRepository.findByCategories(productId, categoryIds);
-
-        for (Product p : categoryProducts) {
-            if (result.size() >= max) break;
-
-            // Loại sản phẩm cùng brand với main brand (để ưu tiên brand trước)
-            if (!p.getBrand().getId().equals(brandId)) {
-                result.add(convertToProductCardDto(p));
-            }
-        }
+    /**
+     * Sản phẩm thường được mua cùng một sản phẩm (từ lịch sử đơn đã giao)
+     */
+    @Transactional(readOnly = true)
+    public List<ProductCardDto> getFrequentlyBoughtTogether(Long productId, int limit) {
+        return loadCards(coPurchaseIndexService.findCompanions(productId, limit));
+    }
 
-        return result;
+    /**
+     * Sản phẩm thường được mua cùng các sản phẩm đang có trong giỏ
+     */
+    @Transactional(readOnly = true)
+    public List<ProductCardDto> getFrequentlyBoughtTogetherForCart(List<Long> productIds, int limit) {
+        return loadCards(coPurchaseIndexService.findCompanionsForBasket(productIds, limit));
     }
 
+    /**
+     * Tìm theo brand / category (tên, không phân biệt hoa thường) qua index facet
+     */
+    @Transactional(readOnly = true)
     public Page<ProductCardDto> searchProductsAdvanced(
             String brand,
             String category,
             int page,
             int size
     ) {
-        Pageable pageable = PageRequest.of(page, size);
+        Map<Facet, List<String>> selections = new EnumMap<>(Facet.class);
+        if (brand != null) {
+            selections.put(Facet.BRAND, List.of(brand));
+        }
+        if (category != null) {
+            selections.put(Facet.CATEGORY, List.of(category));
+        }
+        FacetResult result = productFacetIndexService.search(selections, page, size);
+        return new PageImpl<>(loadCards(result.productIds()), PageRequest.of(page, size), result.total());
+    }
 
-        Page<Product> products = productRepository.searchAdvanced(
-                brand,
-                category,
-                pageable
-        );
+    /**
+     * Lọc storefront theo facet (brand, category, size, màu, khoảng giá, còn hàng) kèm số lượng từng giá trị
+     *
+     * <p>Index facet trả về id của trang hiện tại, sau đó chỉ load đúng các sản phẩm đó trong 1 query
+     */
+    @Transactional(readOnly = true)
+    public ProductFacetSearchDto searchProductsFaceted(Map<Facet, List<String>> selections, int page, int size) {
+        FacetResult result = productFacetIndexService.search(selections, page, size);
+        return ProductFacetSearchDto.builder()
+                .products(new PageImpl<>(loadCards(result.productIds()), PageRequest.of(page, size), result.total()))
+                .facets(result.facets())
+                .build();
+    }
 
-        return products.map(this::convertToProductCardDto);
+    /**
+     * Load ProductCardDto theo danh sách id, giữ nguyên thứ tự của danh sách
+     */
+    private List<ProductCardDto> loadCards(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> productsById = productRepository.findCardDataByIdIn(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return productIds.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToProductCardDto)
+                .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,199 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.repository.DailySaleRepository;
+import com.sneakery.store.repository.ProductRepository;
+import com.sneakery.store.repository.ProductVariantRepository;
+import com.sneakery.store.util.LongIntHashMap;
+import com.sneakery.store.util.LongObjectHashMap;
+import com.sneakery.store.util.PrefixSuggestIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service: ProductSuggestIndexService
+ * Gợi ý khi gõ ô tìm kiếm storefront (typeahead) từ index tiền tố trong bộ nhớ, không chạm DB
+ *
+ * <ul>
+ *   <li>Entry: sản phẩm (tên), brand, category, SKU biến thể; so khớp không dấu, không phân biệt hoa thường</li>
+ *   <li>Điểm phổ biến: số lượng bán của sản phẩm trong app.catalog.suggest.popularity-days ngày gần nhất
+ *       (Daily_Sales); brand / category cộng dồn điểm các sản phẩm của mình</li>
+ *   <li>Dựng lại toàn bộ trên một luồng nền rồi thay tham chiếu (request đang đọc vẫn dùng bản cũ):
+ *       sau commit khi admin thay đổi sản phẩm / biến thể, job định kỳ app.catalog.suggest.refresh-ms
+ *       đồng bộ phần còn lại (đổi tên brand / category, điểm phổ biến, node khác).
+ *       Nhiều thay đổi liên tiếp được gộp: tối đa một lần dựng đang chạy và một lần chờ</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class ProductSuggestIndexService {
+
+    public static final String TYPE_PRODUCT = "product";
+    public static final String TYPE_BRAND = "brand";
+    public static final String TYPE_CATEGORY = "category";
+    public static final String TYPE_SKU = "sku";
+
+    /**
+     * Một gợi ý: id là id sản phẩm / brand / category (SKU trỏ về sản phẩm, variantId là biến thể)
+     */
+    public record Suggestion(String type, String text, Long id, String slug, String imageUrl, Long variantId) {
+    }
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final DailySaleRepository dailySaleRepository;
+    private final int topK;
+    private final int heavyThreshold;
+    private final int popularityDays;
+    // 1 luồng, hàng đợi 1 chỗ: yêu cầu dựng lại khi đã có một lần chờ thì bỏ qua (lần chờ đó sẽ thấy thay đổi)
+    private final ThreadPoolExecutor buildExecutor;
+
+    private volatile PrefixSuggestIndex<Suggestion> index;
+
+    public ProductSuggestIndexService(ProductRepository productRepository,
+                                      ProductVariantRepository variantRepository,
+                                      DailySaleRepository dailySaleRepository,
+                                      @Value("${app.catalog.suggest.top-k:20}") int topK,
+                                      @Value("${app.catalog.suggest.heavy-threshold:64}") int heavyThreshold,
+                                      @Value("${app.catalog.suggest.popularity-days:90}") int popularityDays) {
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.dailySaleRepository = dailySaleRepository;
+        this.topK = topK;
+        this.heavyThreshold = heavyThreshold;
+        this.popularityDays = popularityDays;
+        this.buildExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1), new CustomizableThreadFactory("suggest-index-"),
+                new ThreadPoolExecutor.DiscardPolicy());
+        this.buildExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownBuildExecutor() {
+        buildExecutor.shutdown();
+    }
+
+    /**
+     * Scheduled task: Dựng lại index (điểm phổ biến thay đổi theo ngày, thay đổi từ node khác)
+     */
+    @Scheduled(fixedDelayString = "${app.catalog.suggest.refresh-ms:600000}",
+            initialDelayString = "${app.catalog.suggest.refresh-ms:600000}")
+    public void scheduledRefresh() {
+        requestRebuild();
+    }
+
+    /**
+     * Yêu cầu dựng lại sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+     */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            requestRebuild();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                requestRebuild();
+            }
+        });
+    }
+
+    /**
+     * Gợi ý cho chuỗi đang gõ, phổ biến nhất trước
+     *
+     * @param query chuỗi người dùng đã gõ (khớp tiền tố tại đầu mỗi từ của tên, hoặc đầu SKU)
+     * @param limit số gợi ý tối đa (không vượt quá app.catalog.suggest.top-k)
+     */
+    public List<Suggestion> suggest(String query, int limit) {
+        PrefixSuggestIndex<Suggestion> current = index;
+        if (current == null) {
+            // Lần đầu: dựng nền, request hiện tại trả về rỗng thay vì chờ quét toàn bộ catalog
+            requestRebuild();
+            return List.of();
+        }
+        return current.suggest(query, limit);
+    }
+
+    /**
+     * Dựng index mới từ projection rồi thay thế bản hiện tại
+     */
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        LongIntHashMap popularity = new LongIntHashMap();
+        for (Object[] row : dailySaleRepository.sumUnitsByProductSince(LocalDate.now().minusDays(popularityDays))) {
+            popularity.addTo(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+
+        PrefixSuggestIndex.Builder<Suggestion> builder = PrefixSuggestIndex.builder();
+        LongObjectHashMap<Suggestion> products = new LongObjectHashMap<>();
+        LongObjectHashMap<Suggestion> brands = new LongObjectHashMap<>();
+        LongIntHashMap brandScores = new LongIntHashMap();
+        for (Object[] row : productRepository.findSuggestProductProjections()) {
+            Long productId = (Long) row[0];
+            Suggestion product = new Suggestion(TYPE_PRODUCT, (String) row[1], productId, (String) row[2],
+                    (String) row[3], null);
+            products.computeIfAbsent(productId, id -> product);
+            if (row[4] != null && Boolean.TRUE.equals(row[7])) {
+                long brandId = ((Number) row[4]).longValue();
+                brands.computeIfAbsent(brandId, id -> new Suggestion(TYPE_BRAND, (String) row[5], id,
+                        (String) row[6], null, null));
+                brandScores.addTo(brandId, popularity.get(productId));
+            }
+        }
+
+        LongObjectHashMap<Suggestion> categories = new LongObjectHashMap<>();
+        LongIntHashMap categoryScores = new LongIntHashMap();
+        for (Object[] row : productRepository.findSuggestCategoryProjections()) {
+            long categoryId = ((Number) row[1]).longValue();
+            categories.computeIfAbsent(categoryId, id -> new Suggestion(TYPE_CATEGORY, (String) row[2], id,
+                    (String) row[3], null, null));
+            categoryScores.addTo(categoryId, popularity.get((Long) row[0]));
+        }
+
+        // Brand / category thêm trước nên đứng trước sản phẩm khi cùng điểm
+        brands.forEach((brandId, brand) ->
+                builder.addText(builder.add(brand, brandScores.get(brandId)), brand.text()));
+        categories.forEach((categoryId, category) ->
+                builder.addText(builder.add(category, categoryScores.get(categoryId)), category.text()));
+        products.forEach((productId, product) ->
+                builder.addText(builder.add(product, popularity.get(productId)), product.text()));
+        for (Object[] row : variantRepository.findSuggestSkuProjections()) {
+            Long productId = (Long) row[1];
+            Suggestion product = products.get(productId);
+            if (product == null) {
+                continue;
+            }
+            String sku = (String) row[2];
+            Suggestion variant = new Suggestion(TYPE_SKU, sku + " · " + product.text(), productId, product.slug(),
+                    product.imageUrl(), (Long) row[0]);
+            builder.addTerm(builder.add(variant, popularity.get(productId)), sku);
+        }
+
+        PrefixSuggestIndex<Suggestion> rebuilt = builder.build(topK, heavyThreshold);
+        index = rebuilt;
+        log.info("🔎 Product suggest index rebuilt: {} entries, {} terms, {} precomputed prefixes in {} ms",
+                rebuilt.entryCount(), rebuilt.termCount(), rebuilt.precomputedPrefixCount(),
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void requestRebuild() {
+        buildExecutor.execute(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("❌ Product suggest index rebuild failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,400 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.repository.ProductRepository;
+import com.sneakery.store.repository.ProductVariantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Service: RelatedProductService
+ * Sản phẩm liên quan được tính sẵn: productId → top-K id sản phẩm liên quan (long[])
+ *
+ * <p>Batch chạy nền, song song theo fork/join trên mọi core:
+ * <ul>
+ *   <li>Ứng viên của mỗi sản phẩm: sản phẩm mua chung + các sản phẩm gần giá nhất trong cùng brand
+ *       và trong từng category (cửa sổ app.catalog.related.candidate-window mỗi phía), không so với toàn catalog</li>
+ *   <li>Điểm = cùng brand + độ trùng category (Jaccard) + độ gần giá + tín hiệu mua chung đọc từ
+ *       {@link CoPurchaseIndexService} (cùng ma trận với "thường mua cùng", không quét lại Order_Details)</li>
+ *   <li>Kết quả thay thế nguyên khối sau mỗi lần dựng (cron app.catalog.related.rebuild-cron);
+ *       lần dựng đầu tiên được kích hoạt ở request đầu tiên và chạy nền</li>
+ * </ul>
+ *
+ * <p>Trang sản phẩm chỉ cần một lần get trên map rồi load card theo lô; sản phẩm chưa có trong kết quả
+ * (mới tạo, batch chưa chạy xong) trả về danh sách rỗng để {@link ProductService} dùng phương án dự phòng.
+ */
+@Slf4j
+@Service
+public class RelatedProductService {
+
+    private static final double BRAND_WEIGHT = 3.0;
+    private static final double CATEGORY_WEIGHT = 4.0;
+    private static final double PRICE_WEIGHT = 2.0;
+    private static final double CO_PURCHASE_WEIGHT = 5.0;
+    // Số sản phẩm mỗi task fork/join xử lý trực tiếp trước khi chia nhỏ tiếp
+    private static final int TASK_THRESHOLD = 256;
+
+    /**
+     * Ảnh chụp catalog cho một lần dựng, đánh số sản phẩm theo ordinal
+     */
+    private static final class Catalog {
+        long[] productIds;
+        int[] brandIds;
+        int[][] categoryIds;
+        double[] prices;
+        Map<Integer, int[]> byBrand;
+        Map<Integer, int[]> byCategory;
+        int[][] coPartners;
+        int[][] coCounts;
+        int maxCoCount;
+    }
+
+    private final ProductRepository productRepository;
+    private final ProductVariantRepository variantRepository;
+    private final CoPurchaseIndexService coPurchaseIndexService;
+    private final int topK;
+    private final int candidateWindow;
+    private final ForkJoinPool pool;
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private volatile Map<Long, long[]> relatedByProduct;
+
+    public RelatedProductService(ProductRepository productRepository,
+                                 ProductVariantRepository variantRepository,
+                                 CoPurchaseIndexService coPurchaseIndexService,
+                                 @Value("${app.catalog.related.top-k:12}") int topK,
+                                 @Value("${app.catalog.related.candidate-window:50}") int candidateWindow) {
+        this.productRepository = productRepository;
+        this.variantRepository = variantRepository;
+        this.coPurchaseIndexService = coPurchaseIndexService;
+        this.topK = topK;
+        this.candidateWindow = candidateWindow;
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * Scheduled task: Dựng lại toàn bộ sản phẩm liên quan
+     */
+    @Scheduled(cron = "${app.catalog.related.rebuild-cron:0 40 3 * * *}")
+    public void scheduledRebuild() {
+        rebuildIfIdle();
+    }
+
+    /**
+     * Id sản phẩm liên quan đã tính sẵn (tối đa limit, theo điểm giảm dần); rỗng nếu chưa có
+     */
+    public List<Long> findRelatedIds(Long productId, int limit) {
+        Map<Long, long[]> current = relatedByProduct;
+        if (current == null) {
+            if (!building.get()) {
+                pool.execute(this::rebuildIfIdle);
+            }
+            return List.of();
+        }
+        long[] related = current.get(productId);
+        if (related == null) {
+            return List.of();
+        }
+        List<Long> result = new ArrayList<>(Math.min(limit, related.length));
+        for (int i = 0; i < related.length && result.size() < limit; i++) {
+            result.add(related[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Dựng lại nếu không có lần dựng nào đang chạy
+     */
+    public void rebuildIfIdle() {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("❌ Related products rebuild failed: {}", e.getMessage(), e);
+        } finally {
+            building.set(false);
+        }
+    }
+
+    private void rebuild() {
+        long startedAt = System.nanoTime();
+        Catalog catalog = loadCatalog();
+        long[][] results = new long[catalog.productIds.length][];
+        pool.invoke(new ScoreTask(catalog, results, 0, catalog.productIds.length));
+
+        Map<Long, long[]> rebuilt = new HashMap<>(catalog.productIds.length * 2);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i].length > 0) {
+                rebuilt.put(catalog.productIds[i], results[i]);
+            }
+        }
+        relatedByProduct = rebuilt;
+        log.info("🔗 Related products rebuilt: {} products in {} ms",
+                rebuilt.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private Catalog loadCatalog() {
+        Map<Long, Integer> brandByProduct = new LinkedHashMap<>();
+        Map<Long, Set<Integer>> categoriesByProduct = new HashMap<>();
+        for (Object[] row : productRepository.findRelatedProductProjections()) {
+            Long productId = (Long) row[0];
+            brandByProduct.put(productId, row[1] != null ? (Integer) row[1] : -1);
+            if (row[2] != null) {
+                categoriesByProduct.computeIfAbsent(productId, id -> new TreeSet<>()).add((Integer) row[2]);
+            }
+        }
+
+        Catalog catalog = new Catalog();
+        int size = brandByProduct.size();
+        catalog.productIds = new long[size];
+        catalog.brandIds = new int[size];
+        catalog.categoryIds = new int[size][];
+        catalog.prices = new double[size];
+        Arrays.fill(catalog.prices, Double.NaN);
+
+        Map<Long, Integer> ordinals = new HashMap<>(size * 2);
+        int ordinal = 0;
+        for (Map.Entry<Long, Integer> entry : brandByProduct.entrySet()) {
+            catalog.productIds[ordinal] = entry.getKey();
+            catalog.brandIds[ordinal] = entry.getValue();
+            catalog.categoryIds[ordinal] = categoriesByProduct.getOrDefault(entry.getKey(), Set.of()).stream()
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            ordinals.put(entry.getKey(), ordinal++);
+        }
+
+        for (Object[] row : variantRepository.findMinPriceByProduct()) {
+            Integer productOrdinal = ordinals.get((Long) row[0]);
+            if (productOrdinal != null && row[1] != null) {
+                catalog.prices[productOrdinal] = ((BigDecimal) row[1]).doubleValue();
+            }
+        }
+
+        Map<Integer, List<Integer>> byBrand = new HashMap<>();
+        Map<Integer, List<Integer>> byCategory = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (catalog.brandIds[i] >= 0) {
+                byBrand.computeIfAbsent(catalog.brandIds[i], id -> new ArrayList<>()).add(i);
+            }
+            for (int categoryId : catalog.categoryIds[i]) {
+                byCategory.computeIfAbsent(categoryId, id -> new ArrayList<>()).add(i);
+            }
+        }
+        catalog.byBrand = sortByPrice(byBrand, catalog.prices);
+        catalog.byCategory = sortByPrice(byCategory, catalog.prices);
+
+        loadCoPurchases(catalog, ordinals);
+        return catalog;
+    }
+
+    private void loadCoPurchases(Catalog catalog, Map<Long, Integer> ordinals) {
+        Map<Integer, List<int[]>> pairs = new HashMap<>();
+        coPurchaseIndexService.forEachPair((productId, companionId, count) -> {
+            Integer a = ordinals.get(productId);
+            Integer b = ordinals.get(companionId);
+            if (a != null && b != null) {
+                pairs.computeIfAbsent(a, id -> new ArrayList<>()).add(new int[]{b, count});
+                catalog.maxCoCount = Math.max(catalog.maxCoCount, count);
+            }
+        });
+
+        int size = catalog.productIds.length;
+        catalog.coPartners = new int[size][];
+        catalog.coCounts = new int[size][];
+        for (int i = 0; i < size; i++) {
+            List<int[]> partners = pairs.getOrDefault(i, List.of());
+            catalog.coPartners[i] = new int[partners.size()];
+            catalog.coCounts[i] = new int[partners.size()];
+            for (int j = 0; j < partners.size(); j++) {
+                catalog.coPartners[i][j] = partners.get(j)[0];
+                catalog.coCounts[i][j] = partners.get(j)[1];
+            }
+        }
+    }
+
+    private static Map<Integer, int[]> sortByPrice(Map<Integer, List<Integer>> groups, double[] prices) {
+        Map<Integer, int[]> sorted = new HashMap<>(groups.size() * 2);
+        groups.forEach((key, members) -> sorted.put(key, members.stream()
+                .sorted((a, b) -> compareByPrice(prices, a, b))
+                .mapToInt(Integer::intValue)
+                .toArray()));
+        return sorted;
+    }
+
+    /**
+     * Thứ tự trong nhóm: giá tăng dần (sản phẩm chưa có giá ở cuối), rồi theo ordinal
+     */
+    private static int compareByPrice(double[] prices, int a, int b) {
+        int byPrice = Double.compare(prices[a], prices[b]);
+        return byPrice != 0 ? byPrice : Integer.compare(a, b);
+    }
+
+    private final class ScoreTask extends RecursiveAction {
+        private final Catalog catalog;
+        private final long[][] results;
+        private final int from;
+        private final int to;
+
+        ScoreTask(Catalog catalog, long[][] results, int from, int to) {
+            this.catalog = catalog;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = topRelated(catalog, i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreTask(catalog, results, from, middle),
+                    new ScoreTask(catalog, results, middle, to));
+        }
+    }
+
+    private long[] topRelated(Catalog catalog, int product) {
+        Map<Integer, Integer> coCounts = new HashMap<>();
+        for (int j = 0; j < catalog.coPartners[product].length; j++) {
+            coCounts.put(catalog.coPartners[product][j], catalog.coCounts[product][j]);
+        }
+
+        Set<Integer> candidates = new HashSet<>(coCounts.keySet());
+        if (catalog.brandIds[product] >= 0) {
+            addPriceNeighbours(candidates, catalog.byBrand.get(catalog.brandIds[product]), catalog.prices, product);
+        }
+        for (int categoryId : catalog.categoryIds[product]) {
+            addPriceNeighbours(candidates, catalog.byCategory.get(categoryId), catalog.prices, product);
+        }
+        candidates.remove(product);
+        if (candidates.isEmpty()) {
+            return new long[0];
+        }
+
+        int count = candidates.size();
+        int[] ordinals = new int[count];
+        double[] scores = new double[count];
+        int n = 0;
+        for (int candidate : candidates) {
+            ordinals[n] = candidate;
+            scores[n] = score(catalog, product, candidate, coCounts.getOrDefault(candidate, 0));
+            n++;
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : Long.compare(catalog.productIds[ordinals[b]], catalog.productIds[ordinals[a]]);
+        });
+
+        long[] related = new long[Math.min(topK, count)];
+        for (int i = 0; i < related.length; i++) {
+            related[i] = catalog.productIds[ordinals[order[i]]];
+        }
+        return related;
+    }
+
+    /**
+     * Thêm các sản phẩm đứng gần product nhất (theo giá) trong nhóm đã sắp xếp
+     */
+    private void addPriceNeighbours(Set<Integer> candidates, int[] group, double[] prices, int product) {
+        if (group == null) {
+            return;
+        }
+        int low = 0;
+        int high = group.length - 1;
+        int position = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compare = compareByPrice(prices, group[middle], product);
+            if (compare == 0) {
+                position = middle;
+                break;
+            }
+            if (compare < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+            position = low;
+        }
+        int from = Math.max(0, position - candidateWindow);
+        int to = Math.min(group.length, position + candidateWindow + 1);
+        for (int i = from; i < to; i++) {
+            candidates.add(group[i]);
+        }
+    }
+
+    private static double score(Catalog catalog, int a, int b, int coCount) {
+        double score = 0;
+        if (catalog.brandIds[a] >= 0 && catalog.brandIds[a] == catalog.brandIds[b]) {
+            score += BRAND_WEIGHT;
+        }
+        score += CATEGORY_WEIGHT * jaccard(catalog.categoryIds[a], catalog.categoryIds[b]);
+
+        double priceA = catalog.prices[a];
+        double priceB = catalog.prices[b];
+        if (!Double.isNaN(priceA) && !Double.isNaN(priceB) && Math.max(priceA, priceB) > 0) {
+            double distance = Math.abs(priceA - priceB) / Math.max(priceA, priceB);
+            score += PRICE_WEIGHT * (1 - Math.min(1, distance));
+        }
+
+        if (coCount > 0 && catalog.maxCoCount > 0) {
+            score += CO_PURCHASE_WEIGHT * Math.log1p(coCount) / Math.log1p(catalog.maxCoCount);
+        }
+        return score;
+    }
+
+    /**
+     * Độ trùng của hai mảng category id đã sắp xếp tăng dần
+     */
+    private static double jaccard(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return 0;
+        }
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) shared / (a.length + b.length - shared);
+    }
+}
@@ -0,0 +1,441 @@
+package com.sneakery.store.service;
+
+import com.sneakery.store.constants.ProductConstants;
+import com.sneakery.store.dto.RestockAdviceDto;
+import com.sneakery.store.entity.Order;
+import com.sneakery.store.entity.OrderDetail;
+import com.sneakery.store.entity.ProductVariant;
+import com.sneakery.store.exception.ApiException;
+import com.sneakery.store.repository.ProductVariantRepository;
+import com.sneakery.store.util.LongObjectHashMap;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service: RestockAdvisorService
+ * Ước lượng tốc độ bán của từng biến thể và khuyến nghị nhập hàng (số ngày còn đủ bán, số lượng nên nhập)
+ *
+ * <ul>
+ *   <li>Tốc độ bán là trung bình trượt hàm mũ (EWMA, đơn vị / ngày) với half-life app.inventory.restock.half-life-days:
+ *       mỗi lượt bán q đơn vị cách đây k ngày đóng góp (1 - d) * q * d^k với d = 2^(-1 / half-life),
+ *       nên chỉ cần lưu (velocity, ngày) cho mỗi biến thể và cập nhật O(1), không quét lại lịch sử đơn</li>
+ *   <li>Cập nhật tăng dần trong transaction khi đơn vào / rời nhóm trạng thái mà Daily_Sales tính
+ *       (shipped / delivered / completed, {@link DailySalesService#isCountedStatus}) và khi bán tại quầy POS
+ *       (MERGE vào Variant_Restock_Stats, bộ nhớ áp sau commit); các node khác nạp lại bảng theo app.inventory.restock.refresh-ms</li>
+ *   <li>Tính lại toàn bộ từ Daily_Sales (đã cộng sẵn theo ngày) mỗi đêm hoặc khi admin yêu cầu,
+ *       đồng thời ghi số ngày còn đủ bán / số lượng nên nhập tại thời điểm đó vào bảng tổng hợp.
+ *       Mốc bắt đầu lấy theo giờ SQL Server; biến thể có lượt bán ghi trong lúc đang tính lại giữ velocity tăng dần</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class RestockAdvisorService {
+
+    private static final String LOCK_NAME = "restockAdvisor.recompute";
+
+    private static final String MERGE_SALE_SQL =
+            "MERGE Variant_Restock_Stats WITH (HOLDLOCK) AS t " +
+            "USING (SELECT :variantId AS variant_id) s ON t.variant_id = s.variant_id " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "   t.velocity = CASE WHEN t.velocity * POWER(CAST(:decay AS FLOAT), DATEDIFF(DAY, t.velocity_date, :today)) + :delta > 0 " +
+            "       THEN t.velocity * POWER(CAST(:decay AS FLOAT), DATEDIFF(DAY, t.velocity_date, :today)) + :delta ELSE 0 END, " +
+            "   t.velocity_date = :today, t.updated_at = SYSDATETIME() " +
+            "WHEN NOT MATCHED AND :delta > 0 THEN INSERT (variant_id, velocity, velocity_date, updated_at) " +
+            "   VALUES (:variantId, :delta, :today, SYSDATETIME());";
+
+    private static final String LOAD_SQL =
+            "SELECT variant_id, velocity, velocity_date FROM Variant_Restock_Stats WHERE velocity > 0";
+
+    private static final String DAILY_UNITS_SQL =
+            "SELECT variant_id, sale_date, SUM(units) FROM Daily_Sales " +
+            "WHERE sale_date >= :since GROUP BY variant_id, sale_date";
+
+    // Dòng có lượt bán tăng dần ghi sau khi lần tính lại bắt đầu (updated_at >= :startedAt) giữ nguyên velocity:
+    // lượt bán đó có thể chưa nằm trong Daily_Sales đã đọc, ghi đè sẽ làm mất nó
+    private static final String UPSERT_STATS_SQL =
+            "MERGE Variant_Restock_Stats WITH (HOLDLOCK) AS t " +
+            "USING (SELECT :variantId AS variant_id) s ON t.variant_id = s.variant_id " +
+            "WHEN MATCHED THEN UPDATE SET " +
+            "   t.velocity = CASE WHEN t.updated_at < :startedAt THEN :velocity ELSE t.velocity END, " +
+            "   t.velocity_date = CASE WHEN t.updated_at < :startedAt THEN :today ELSE t.velocity_date END, " +
+            "   t.days_of_cover = :daysOfCover, t.suggested_quantity = :suggestedQuantity, t.updated_at = SYSDATETIME() " +
+            "WHEN NOT MATCHED THEN INSERT (variant_id, velocity, velocity_date, days_of_cover, suggested_quantity, updated_at) " +
+            "   VALUES (:variantId, :velocity, :today, :daysOfCover, :suggestedQuantity, SYSDATETIME());";
+
+    // Mốc thời gian lấy từ SQL Server như updated_at (đồng hồ của node có thể lệch / khác múi giờ)
+    private static final String DB_NOW_SQL = "SELECT SYSDATETIME()";
+
+    private static final String DELETE_STALE_SQL =
+            "DELETE FROM Variant_Restock_Stats WHERE updated_at < :startedAt";
+
+    private final ProductVariantRepository variantRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final ThreadPoolExecutor recomputeExecutor;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean recomputing = new AtomicBoolean();
+    private final double decay;
+    private final int windowDays;
+
+    @Value("${app.inventory.restock.lead-time-days:7}")
+    private int leadTimeDays;
+
+    @Value("${app.inventory.restock.target-cover-days:30}")
+    private int targetCoverDays;
+
+    @Value("${app.inventory.restock.risk-days:14}")
+    private int riskDays;
+
+    @Value("${app.inventory.restock.write-batch-size:1000}")
+    private int writeBatchSize;
+
+    private volatile LongObjectHashMap<Velocity> velocities;
+
+    public RestockAdvisorService(ProductVariantRepository variantRepository,
+                                 NamedParameterJdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 SchedulerLockService schedulerLockService,
+                                 @Value("${app.inventory.restock.half-life-days:14}") double halfLifeDays) {
+        this.variantRepository = variantRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLockService = schedulerLockService;
+        this.decay = Math.pow(0.5, 1.0 / Math.max(1.0, halfLifeDays));
+        // Quá 8 half-life thì trọng số < 0.4%, bỏ qua khi tính lại toàn bộ
+        this.windowDays = (int) Math.ceil(8 * Math.max(1.0, halfLifeDays));
+        this.recomputeExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("restock-advisor-"));
+        this.recomputeExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownRecomputeExecutor() {
+        recomputeExecutor.shutdown();
+    }
+
+    /**
+     * Ghi nhận các dòng của đơn trong transaction hiện tại (bộ nhớ cập nhật sau commit):
+     * sign = 1 khi đơn vào nhóm trạng thái được tính doanh số hoặc bán tại quầy, -1 khi rời nhóm (hoàn / hủy / trả hàng)
+     */
+    public void recordOrder(Order order, int sign) {
+        LocalDate today = LocalDate.now();
+        LocalDate saleDate = order.getCreatedAt() != null ? order.getCreatedAt().toLocalDate() : today;
+        // Lượt bán của ngày đặt đơn, quy về giá trị tại hôm nay
+        double weight = sign * (1 - decay) * Math.pow(decay, Math.max(0, today.toEpochDay() - saleDate.toEpochDay()));
+        Map<Long, Double> deltas = new LinkedHashMap<>();
+        for (OrderDetail detail : order.getOrderDetails()) {
+            ProductVariant variant = detail.getVariant();
+            if (variant != null && detail.getQuantity() > 0) {
+                deltas.merge(variant.getId(), weight * detail.getQuantity(), Double::sum);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] batch = deltas.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("variantId", entry.getKey())
+                        .addValue("delta", entry.getValue())
+                        .addValue("decay", decay)
+                        .addValue("today", today))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(MERGE_SALE_SQL, batch);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyDeltas(deltas, today);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                applyDeltas(deltas, today);
+            }
+        });
+    }
+
+    /**
+     * Các biến thể cần nhập hàng: còn hàng khả dụng &lt;= điểm đặt hàng hoặc chỉ đủ bán trong app.inventory.restock.risk-days ngày
+     *
+     * @param sort daysOfCover (mặc định), velocity, suggestedQuantity, available
+     * @param direction asc / desc
+     */
+    public Page<RestockAdviceDto> getAtRiskVariants(String sort, String direction, int page, int size) {
+        LongObjectHashMap<Velocity> current = current();
+        long today = LocalDate.now().toEpochDay();
+        List<Object[]> rows = variantRepository.findRestockProjections();
+        double[] rates = new double[rows.size()];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                Velocity velocity = current.get((Long) rows.get(i)[0]);
+                rates[i] = velocity != null ? velocity.rateOn(today, decay) : 0;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<RestockAdviceDto> atRisk = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            double velocity = rates[i];
+            int stock = row[6] != null ? (Integer) row[6] : 0;
+            int reserved = row[7] != null ? (Integer) row[7] : 0;
+            int threshold = row[8] != null ? (Integer) row[8] : ProductConstants.LOW_STOCK_THRESHOLD;
+            RestockAdviceDto advice = advise(velocity, Math.max(0, stock - reserved), threshold);
+            if (!isAtRisk(advice)) {
+                continue;
+            }
+            advice.setVariantId((Long) row[0]);
+            advice.setProductId((Long) row[1]);
+            advice.setProductName((String) row[2]);
+            advice.setSku((String) row[3]);
+            advice.setColor((String) row[4]);
+            advice.setSize((String) row[5]);
+            advice.setStockQuantity(stock);
+            atRisk.add(advice);
+        }
+
+        atRisk.sort(comparator(sort, direction));
+        int from = Math.min(page * size, atRisk.size());
+        int to = Math.min(from + size, atRisk.size());
+        return new PageImpl<>(new ArrayList<>(atRisk.subList(from, to)), PageRequest.of(page, size), atRisk.size());
+    }
+
+    /**
+     * Tính lại bất đồng bộ toàn bộ tốc độ bán từ Daily_Sales (admin kích hoạt)
+     */
+    public void startRecompute() {
+        if (recomputing.get()) {
+            throw new ApiException(HttpStatus.CONFLICT, "Đang tính lại tốc độ bán");
+        }
+        recomputeExecutor.execute(this::recomputeExclusive);
+    }
+
+    /**
+     * Scheduled task: Tính lại toàn bộ (sau khi Daily_Sales được đối soát)
+     */
+    @Scheduled(cron = "${app.inventory.restock.recompute-cron:0 50 3 * * *}")
+    public void scheduledRecompute() {
+        recomputeExclusive();
+    }
+
+    /**
+     * Scheduled task: Nạp lại tốc độ bán từ bảng (nhận cập nhật do node khác ghi)
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.restock.refresh-ms:300000}",
+            initialDelayString = "${app.inventory.restock.refresh-ms:300000}")
+    public void scheduledRefresh() {
+        if (velocities != null && !recomputing.get()) {
+            reload();
+        }
+    }
+
+    private void recomputeExclusive() {
+        if (!recomputing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            schedulerLockService.runExclusive(LOCK_NAME, Duration.ofMinutes(30), this::recompute);
+        } catch (Exception e) {
+            log.error("❌ Restock advisor recompute failed: {}", e.getMessage(), e);
+        } finally {
+            recomputing.set(false);
+        }
+    }
+
+    private void recompute() {
+        long startedAt = System.nanoTime();
+        LocalDateTime startedAtTime = jdbcTemplate.getJdbcTemplate().queryForObject(DB_NOW_SQL, LocalDateTime.class);
+        LocalDate today = LocalDate.now();
+        long todayDay = today.toEpochDay();
+
+        LongObjectHashMap<Velocity> rebuilt = new LongObjectHashMap<>();
+        jdbcTemplate.query(DAILY_UNITS_SQL, new MapSqlParameterSource("since", today.minusDays(windowDays)), rs -> {
+            long age = Math.max(0, todayDay - rs.getDate(2).toLocalDate().toEpochDay());
+            Velocity velocity = rebuilt.computeIfAbsent(rs.getLong(1), id -> new Velocity(0, todayDay));
+            velocity.rate += (1 - decay) * rs.getLong(3) * Math.pow(decay, age);
+        });
+
+        List<MapSqlParameterSource> batch = new ArrayList<>();
+        int written = 0;
+        for (Object[] row : variantRepository.findRestockProjections()) {
+            Velocity velocity = rebuilt.get((Long) row[0]);
+            if (velocity == null || velocity.rate <= 0) {
+                continue;
+            }
+            int stock = row[6] != null ? (Integer) row[6] : 0;
+            int reserved = row[7] != null ? (Integer) row[7] : 0;
+            int threshold = row[8] != null ? (Integer) row[8] : ProductConstants.LOW_STOCK_THRESHOLD;
+            RestockAdviceDto advice = advise(velocity.rate, Math.max(0, stock - reserved), threshold);
+            batch.add(new MapSqlParameterSource()
+                    .addValue("variantId", row[0])
+                    .addValue("startedAt", startedAtTime)
+                    .addValue("velocity", velocity.rate)
+                    .addValue("today", today)
+                    .addValue("daysOfCover", advice.getDaysOfCover())
+                    .addValue("suggestedQuantity", advice.getSuggestedQuantity()));
+            if (batch.size() >= writeBatchSize) {
+                written += writeBatch(batch);
+            }
+        }
+        written += writeBatch(batch);
+        Integer deleted = transactionTemplate.execute(status ->
+                jdbcTemplate.update(DELETE_STALE_SQL, new MapSqlParameterSource("startedAt", startedAtTime)));
+
+        reload();
+        log.info("📦 Restock advisor recomputed: {} variants with sales, {} stale rows removed in {} ms",
+                written, deleted != null ? deleted : 0, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private int writeBatch(List<MapSqlParameterSource> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource[] rows = batch.toArray(new MapSqlParameterSource[0]);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_STATS_SQL, rows));
+        batch.clear();
+        return rows.length;
+    }
+
+    private void reload() {
+        LongObjectHashMap<Velocity> loaded = new LongObjectHashMap<>();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            loaded.computeIfAbsent(rs.getLong(1),
+                    id -> new Velocity(0, 0)).set(rs.getDouble(2), rs.getDate(3).toLocalDate().toEpochDay());
+        });
+        lock.writeLock().lock();
+        try {
+            velocities = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyDeltas(Map<Long, Double> deltas, LocalDate today) {
+        LongObjectHashMap<Velocity> current = velocities;
+        if (current == null) {
+            return;
+        }
+        long day = today.toEpochDay();
+        lock.writeLock().lock();
+        try {
+            deltas.forEach((variantId, delta) -> {
+                Velocity velocity = current.computeIfAbsent(variantId, id -> new Velocity(0, day));
+                velocity.set(Math.max(0, velocity.rateOn(day, decay) + delta), day);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RestockAdviceDto advise(double velocity, int available, int threshold) {
+        Double daysOfCover = velocity > 0 ? available / velocity : null;
+        int reorderPoint = Math.max(threshold, (int) Math.ceil(velocity * leadTimeDays));
+        int target = velocity > 0 ? (int) Math.ceil(velocity * (leadTimeDays + targetCoverDays)) : threshold;
+        return RestockAdviceDto.builder()
+                .availableQuantity(available)
+                .lowStockThreshold(threshold)
+                .dailyVelocity(velocity)
+                .daysOfCover(daysOfCover)
+                .reorderPoint(reorderPoint)
+                .suggestedQuantity(Math.max(0, target - available))
+                .build();
+    }
+
+    private boolean isAtRisk(RestockAdviceDto advice) {
+        return advice.getAvailableQuantity() <= advice.getReorderPoint()
+                || (advice.getDaysOfCover() != null && advice.getDaysOfCover() <= riskDays);
+    }
+
+    private static Comparator<RestockAdviceDto> comparator(String sort, String direction) {
+        Comparator<RestockAdviceDto> comparator;
+        switch (sort != null ? sort : "") {
+            case "velocity":
+                comparator = Comparator.comparing(RestockAdviceDto::getDailyVelocity);
+                break;
+            case "suggestedQuantity":
+                comparator = Comparator.comparing(RestockAdviceDto::getSuggestedQuantity);
+                break;
+            case "available":
+                comparator = Comparator.comparing(RestockAdviceDto::getAvailableQuantity);
+                break;
+            default:
+                // Chưa có lượt bán thì không tính được số ngày, xếp sau cùng
+                comparator = Comparator.comparing(RestockAdviceDto::getDaysOfCover,
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+        }
+        if ("desc".equalsIgnoreCase(direction)) {
+            comparator = comparator.reversed();
+        }
+        return comparator.thenComparing(RestockAdviceDto::getVariantId);
+    }
+
+    private LongObjectHashMap<Velocity> current() {
+        LongObjectHashMap<Velocity> current = velocities;
+        if (current == null) {
+            synchronized (this) {
+                current = velocities;
+                if (current == null) {
+                    reload();
+                    current = velocities;
+                    if (current.size() == 0 && !recomputing.get()) {
+                        // Bảng chưa có dữ liệu (mới triển khai): tính nền từ Daily_Sales
+                        recomputeExecutor.execute(this::recomputeExclusive);
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Tốc độ bán tại một ngày; đọc ở ngày sau thì giảm theo hệ số decay mỗi ngày
+     */
+    private static final class Velocity {
+        double rate;
+        long day;
+
+        Velocity(double rate, long day) {
+            this.rate = rate;
+            this.day = day;
+        }
+
+        void set(double rate, long day) {
+            this.rate = rate;
+            this.day = day;
+        }
+
+        double rateOn(long onDay, double decay) {
+            return onDay <= day ? rate : rate * Math.pow(decay, onDay - day);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.sneakery.store.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Service: SchedulerLockService
+ * Khóa phân tán (lease) cho scheduled jobs dựa trên bảng Scheduler_Locks
+ *
+ * <p>Khi chạy nhiều node, mọi node đều trigger @Scheduled cùng lúc.
+ * Service này đảm bảo mỗi job chỉ được một node thực thi:
+ * <ol>
+ *   <li>Node nào UPDATE được dòng khóa có locked_until &lt;= now thì giữ lease</li>
+ *   <li>Lease tự hết hạn sau lockAtMostFor (phòng node chết giữa chừng)</li>
+ *   <li>Khi job xong, lease được giữ tối thiểu lockAtLeastFor để node có đồng hồ lệch không chạy lại</li>
+ * </ol>
+ *
+ * <p>Thời gian luôn lấy từ SQL Server (SYSDATETIME) nên không phụ thuộc đồng hồ của từng node.
+ * Các câu lệnh khóa chạy trong transaction riêng (REQUIRES_NEW) để commit ngay,
+ * không bị giữ theo transaction của job.
+ */
+@Slf4j
+@Service
+public class SchedulerLockService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate lockTransaction;
+    private final String nodeId;
+
+    public SchedulerLockService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lockTransaction = new TransactionTemplate(transactionManager);
+        this.lockTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + "#" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Chạy task nếu giành được lease, bỏ qua nếu node khác đang giữ
+     *
+     * @param lockName tên job (duy nhất trong toàn hệ thống)
+     * @param lockAtMostFor thời gian tối đa giữ lease (lớn hơn thời gian chạy dài nhất của job)
+     * @param lockAtLeastFor thời gian tối thiểu giữ lease sau khi job xong
+     * @param task công việc cần chạy
+     * @return true nếu task đã được chạy trên node này
+     */
+    public boolean runExclusive(String lockName, Duration lockAtMostFor, Duration lockAtLeastFor, Runnable task) {
+        if (!tryAcquire(lockName, lockAtMostFor)) {
+            log.debug("⏭️ Skip job {} - lease đang được node khác giữ", lockName);
+            return false;
+        }
+        try {
+            task.run();
+            return true;
+        } finally {
+            release(lockName, lockAtLeastFor);
+        }
+    }
+
+    /**
+     * Chạy task với lockAtLeastFor = 0 (nhả lease ngay khi xong)
+     */
+    public boolean runExclusive(String lockName, Duration lockAtMostFor, Runnable task) {
+        return runExclusive(lockName, lockAtMostFor, Duration.ZERO, task);
+    }
+
+    private boolean tryAcquire(String lockName, Duration lockAtMostFor) {
+        int leaseMs = Math.toIntExact(lockAtMostFor.toMillis());
+        Boolean acquired = lockTransaction.execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE Scheduler_Locks " +
+                    "SET locked_until = DATEADD(MILLISECOND, ?, SYSDATETIME()), locked_at = SYSDATETIME(), locked_by = ? " +
+                    "WHERE lock_name = ? AND locked_until <= SYSDATETIME()",
+                    leaseMs, nodeId, lockName);
+            if (updated > 0) {
+                return true;
+            }
+            try {
+                // Lần đầu job chạy: chưa có dòng khóa
+                jdbcTemplate.update(
+                        "INSERT INTO Scheduler_Locks (lock_name, locked_until, locked_at, locked_by) " +
+                        "VALUES (?, DATEADD(MILLISECOND, ?, SYSDATETIME()), SYSDATETIME(), ?)",
+                        lockName, leaseMs, nodeId);
+                return true;
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+        });
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    private void release(String lockName, Duration lockAtLeastFor) {
+        int holdMs = Math.toIntExact(lockAtLeastFor.toMillis());
+        try {
+            lockTransaction.executeWithoutResult(status -> jdbcTemplate.update(
+                    "UPDATE Scheduler_Locks " +
+                    "SET locked_until = CASE WHEN DATEADD(MILLISECOND, ?, locked_at) > SYSDATETIME() " +
+                    "   THEN DATEADD(MILLISECOND, ?, locked_at) ELSE SYSDATETIME() END " +
+                    "WHERE lock_name = ? AND locked_by = ?",
+                    holdMs, holdMs, lockName, nodeId));
+        } catch (Exception e) {
+            // Không nhả được thì lease tự hết hạn sau lockAtMostFor
+            log.warn("⚠️ Cannot release scheduler lock {}: {}", lockName, e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.sneakery.store.service;
 
 import com.sneakery.store.dto.ShippingAddressRequestDto;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -12,6 +13,7 @@ public class ShippingService {
 
     private final GeocodingService geocodingService;
     private final DistanceService distanceService;
+    private final MeterRegistry meterRegistry;
 
     // Địa chỉ cửa hàng mặc định
     private static final String STORE_ADDRESS =
@@ -34,7 +36,14 @@ public class ShippingService {
         return 70000;
     }
 
+    /**
+     * Phí ship cho địa chỉ khách (timer sneakery.shipping.fee: phần lớn thời gian là các lần gọi geocode)
+     */
     public double calculateShippingFee(ShippingAddressRequestDto dto) {
+        return meterRegistry.timer("sneakery.shipping.fee").record(() -> computeShippingFee(dto));
+    }
+
+    private double computeShippingFee(ShippingAddressRequestDto dto) {
 
         // =========================
         // 1. Geocode cửa hàng
@@ -0,0 +1,193 @@
+package com.sneakery.store.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Service: StockReservationExpiryService
+ * Giải phóng hàng giữ chỗ (reserved_quantity) của đơn online bị bỏ dở ở bước thanh toán VNPay
+ *
+ * <p>Khi checkout, {@code OrderService.createOrderFromCart} cộng reserved_quantity ("HOLD stock ngay khi Pending").
+ * Nếu khách không thanh toán, hàng bị giữ mãi và storefront báo hết hàng giả.
+ * Job này định kỳ hủy các đơn:
+ * <ul>
+ *   <li>status = Pending</li>
+ *   <li>created_at cũ hơn TTL (app.reservation.ttl-minutes)</li>
+ *   <li>payment online vẫn đang pending</li>
+ * </ul>
+ *
+ * <p><b>Set-based theo batch:</b> mỗi batch (app.reservation.batch-size đơn) chạy trong một transaction ngắn
+ * với vài câu lệnh SQL cố định, không load entity. Đơn được chọn qua index (status, created_at)
+ * nên chi phí tỉ lệ với số đơn hết hạn, không phụ thuộc kích thước bảng Orders.
+ * Job chạy dưới {@link SchedulerLockService} nên chỉ một node thực thi khi chạy cluster.
+ */
+@Slf4j
+@Service
+public class StockReservationExpiryService {
+
+    private static final String LOCK_NAME = "stockReservation.expire";
+
+    /**
+     * Đánh dấu batch đơn hết hạn là cancelled và trả về ID của chúng.
+     * READPAST: bỏ qua đơn đang bị khóa (ví dụ đang xử lý callback thanh toán).
+     */
+    private static final String CANCEL_EXPIRED_BATCH_SQL =
+            "UPDATE TOP (:batchSize) o " +
+            "SET o.status = 'cancelled', o.cancelled_at = SYSDATETIME(), o.updated_at = SYSDATETIME() " +
+            "OUTPUT inserted.id " +
+            "FROM Orders o WITH (ROWLOCK, READPAST) " +
+            "WHERE o.status = 'Pending' " +
+            "AND o.created_at < DATEADD(MINUTE, -:ttlMinutes, SYSDATETIME()) " +
+            "AND EXISTS (SELECT 1 FROM Payments p " +
+            "   WHERE p.order_id = o.id AND p.payment_method = 'online' AND p.status = 'pending')";
+
+    private static final String RELEASE_RESERVED_SQL =
+            "UPDATE v " +
+            "SET v.reserved_quantity = CASE WHEN v.reserved_quantity > d.qty THEN v.reserved_quantity - d.qty ELSE 0 END " +
+            "FROM Product_Variants v " +
+            "JOIN (SELECT variant_id, SUM(quantity) AS qty FROM Order_Details " +
+            "      WHERE order_id IN (:orderIds) GROUP BY variant_id) d ON d.variant_id = v.id";
+
+    private static final String FAIL_PAYMENTS_SQL =
+            "UPDATE Payments SET status = 'failed', updated_at = SYSDATETIME() " +
+            "WHERE order_id IN (:orderIds) AND status = 'pending'";
+
+    private static final String RELEASE_COUPONS_SQL =
+            "UPDATE c " +
+            "SET c.uses_count = CASE WHEN c.uses_count > d.cnt THEN c.uses_count - d.cnt ELSE 0 END " +
+            "FROM Coupons c " +
+            "JOIN (SELECT coupon_id, COUNT(*) AS cnt FROM Orders " +
+            "      WHERE id IN (:orderIds) AND coupon_id IS NOT NULL GROUP BY coupon_id) d ON d.coupon_id = c.id";
+
+    private static final String RELEASE_COUPON_USAGES_SQL =
+            "UPDATE u " +
+            "SET u.uses_count = CASE WHEN u.uses_count > d.cnt THEN u.uses_count - d.cnt ELSE 0 END " +
+            "FROM Coupon_Usages u " +
+            "JOIN (SELECT coupon_id, user_id, COUNT(*) AS cnt FROM Orders " +
+            "      WHERE id IN (:orderIds) AND coupon_id IS NOT NULL GROUP BY coupon_id, user_id) d " +
+            "  ON d.coupon_id = u.coupon_id AND d.user_id = u.user_id";
+
+    private static final String INSERT_HISTORY_SQL =
+            "INSERT INTO Order_Status_Histories (order_id, status, note, created_at) " +
+            "SELECT id, 'cancelled', :note, SYSDATETIME() FROM Orders WHERE id IN (:orderIds)";
+
+    private static final String AFFECTED_PRODUCTS_SQL =
+            "SELECT DISTINCT v.product_id FROM Order_Details d " +
+            "JOIN Product_Variants v ON v.id = d.variant_id " +
+            "WHERE d.order_id IN (:orderIds)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLockService schedulerLockService;
+    private final CacheManager cacheManager;
+    private final CouponIndexService couponIndexService;
+
+    @Value("${app.reservation.expiry-enabled:true}")
+    private boolean expiryEnabled;
+
+    @Value("${app.reservation.ttl-minutes:30}")
+    private int ttlMinutes;
+
+    @Value("${app.reservation.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.reservation.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    public StockReservationExpiryService(NamedParameterJdbcTemplate jdbcTemplate,
+                                         PlatformTransactionManager transactionManager,
+                                         SchedulerLockService schedulerLockService,
+                                         CacheManager cacheManager,
+                                         CouponIndexService couponIndexService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLockService = schedulerLockService;
+        this.cacheManager = cacheManager;
+        this.couponIndexService = couponIndexService;
+    }
+
+    /**
+     * Scheduled task: Giải phóng hàng giữ chỗ của đơn online quá hạn thanh toán
+     * Chạy mỗi phút (app.reservation.sweep-interval-ms)
+     */
+    @Scheduled(fixedDelayString = "${app.reservation.sweep-interval-ms:60000}",
+            initialDelayString = "${app.reservation.sweep-initial-delay-ms:60000}")
+    public void sweepExpiredReservations() {
+        if (!expiryEnabled) {
+            return;
+        }
+        schedulerLockService.runExclusive(LOCK_NAME, Duration.ofMinutes(10), Duration.ofSeconds(30),
+                this::releaseExpiredReservations);
+    }
+
+    /**
+     * Hủy các đơn online quá TTL và trả lại reserved_quantity, từng batch một
+     *
+     * @return tổng số đơn đã hủy trong lần chạy này
+     */
+    public int releaseExpiredReservations() {
+        int totalCancelled = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            List<Long> orderIds = transactionTemplate.execute(status -> expireOneBatch());
+            if (orderIds == null || orderIds.isEmpty()) {
+                break;
+            }
+            totalCancelled += orderIds.size();
+            if (orderIds.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (totalCancelled > 0) {
+            log.info("🔓 Released stock reservations of {} expired online orders (TTL {} phút)", totalCancelled, ttlMinutes);
+        }
+        return totalCancelled;
+    }
+
+    private List<Long> expireOneBatch() {
+        List<Long> orderIds = jdbcTemplate.queryForList(CANCEL_EXPIRED_BATCH_SQL,
+                new MapSqlParameterSource()
+                        .addValue("batchSize", batchSize)
+                        .addValue("ttlMinutes", ttlMinutes),
+                Long.class);
+        if (orderIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("orderIds", orderIds)
+                .addValue("note", "Tự động hủy: quá " + ttlMinutes + " phút chưa thanh toán online");
+
+        jdbcTemplate.update(RELEASE_RESERVED_SQL, params);
+        jdbcTemplate.update(FAIL_PAYMENTS_SQL, params);
+        if (jdbcTemplate.update(RELEASE_COUPONS_SQL, params) > 0) {
+            // Hoàn lượt dùng coupon để khách có thể đặt lại
+            jdbcTemplate.update(RELEASE_COUPON_USAGES_SQL, params);
+            couponIndexService.refreshAfterCommit();
+        }
+        jdbcTemplate.update(INSERT_HISTORY_SQL, params);
+
+        evictProductCache(jdbcTemplate.queryForList(AFFECTED_PRODUCTS_SQL, params, Long.class));
+        return orderIds;
+    }
+
+    private void evictProductCache(List<Long> productIds) {
+        Cache productsCache = cacheManager.getCache("products");
+        if (productsCache == null) {
+            return;
+        }
+        productIds.forEach(productsCache::evict);
+    }
+}
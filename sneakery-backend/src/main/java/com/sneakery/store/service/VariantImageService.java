@@ -13,7 +13,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -28,6 +27,7 @@ public class VariantImageService {
     private final VariantImageRepository variantImageRepo;
     private final ProductVariantRepository variantRepo;
     private final Cloudinary cloudinary;
+    private final FileStorageService fileStorageService;
 
     /* ===========================
      *   GỘP MAPPER TRONG SERVICE
@@ -70,27 +70,10 @@ public class VariantImageService {
         Long productId = variant.getProduct().getId();  // Lấy ID sản phẩm
         Long variantId = variant.getId();
 
-        String folderPath = String.format("upload/sanpham/%d/%d", productId, variantId);
-
-        String url;
-        String publicId;
-
-        try {
-            var uploadResult = cloudinary.uploader().upload(
-                    dto.getFile().getBytes(),
-                    ObjectUtils.asMap(
-                            "folder", folderPath,       // Lưu theo folder chuẩn của bạn
-                            "use_filename", true,
-                            "unique_filename", true
-                    )
-            );
-
-            url = (String) uploadResult.get("secure_url");
-            publicId = (String) uploadResult.get("public_id");
-
-        } catch (IOException e) {
-            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi upload ảnh lên Cloudinary");
-        }
+        // Validate magic bytes + stream file tạm lên Cloudinary (không đọc cả ảnh vào heap bằng getBytes())
+        FileStorageService.CloudinaryUploadResult up = fileStorageService.storeVariantImage(productId, variantId, dto.getFile());
+        String url = up.url();
+        String publicId = up.publicId();
 
         VariantImage img = VariantImage.builder()
                 .variant(variant)
@@ -2,24 +2,69 @@ package com.sneakery.store.util;
 
 import com.cloudinary.Cloudinary;
 import com.cloudinary.Transformation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
+import java.util.regex.Pattern;
+
 /**
  * Utility class cho Cloudinary operations
  * 
  * <p>Helper methods để tạo optimized URLs, thumbnails, và transformations
+ *
+ * <p>Bộ 3 URL responsive (thumbnail / medium / large) của mỗi ảnh được tính một lần rồi giữ
+ * trong memo cache có giới hạn (app.cloudinary.responsive-url-cache-size), vì URL gốc của ảnh
+ * không đổi nên kết quả không bao giờ cũ. Regex parse public ID được compile sẵn.
  */
 @Slf4j
 @Component
 public class CloudinaryUtil {
 
+    /** Tham số transformation của Cloudinary (w_, h_, c_, q_, f_, ...) - folder như san_pham/ không khớp */
+    private static final String TRANSFORMATION_KEY =
+            "(?:ac|af|ar|a|bo|br|b|co|cs|c|dl|dn|dpr|du|d|eo|e|fl|fn|fps|f|g|h|if|ki|l|o|pg|p|q|r|so|sp|t|u|vc|vs|w|x|y|z|\\$[a-zA-Z0-9]+)";
+    /** Đoạn transformation ngay sau /upload/ (vd: w_300,h_300,c_limit/ - có thể nhiều đoạn nối nhau), mọi tham số đều phải là key đã biết */
+    private static final Pattern TRANSFORMATION_SEGMENTS = Pattern.compile(
+            "^(?:" + TRANSFORMATION_KEY + "_[^,/]+(?:," + TRANSFORMATION_KEY + "_[^,/]+)*/)+");
+    private static final Pattern VERSION_SEGMENT = Pattern.compile("^v\\d+/");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[^./]+$");
+    private static final Pattern PUBLIC_ID = Pattern.compile("^[a-zA-Z0-9_/\\-]+$");
+
     private final Cloudinary cloudinary;
+    private final Cache<String, ResponsiveUrls> responsiveUrlCache;
 
-    public CloudinaryUtil(@Autowired(required = false) Cloudinary cloudinary) {
+    public CloudinaryUtil(@Autowired(required = false) Cloudinary cloudinary,
+                          @Value("${app.cloudinary.responsive-url-cache-size:20000}") long responsiveUrlCacheSize) {
         this.cloudinary = cloudinary;
+        this.responsiveUrlCache = Caffeine.newBuilder()
+                .maximumSize(responsiveUrlCacheSize)
+                .build();
+    }
+
+    /**
+     * URL thumbnail (300) / medium (800) / large (1200) của một ảnh
+     */
+    public record ResponsiveUrls(String thumbnailUrl, String mediumUrl, String largeUrl) {}
+
+    /**
+     * Bộ URL responsive của ảnh Cloudinary, tính một lần cho mỗi URL gốc
+     *
+     * @return null nếu không phải Cloudinary URL
+     */
+    @Nullable
+    public ResponsiveUrls getResponsiveUrls(String originalUrl) {
+        if (!isCloudinaryUrl(originalUrl)) {
+            return null;
+        }
+        return responsiveUrlCache.get(originalUrl, url -> new ResponsiveUrls(
+                generateThumbnailUrl(url),
+                generateMediumUrl(url),
+                generateLargeUrl(url)));
     }
 
     /**
@@ -46,12 +91,12 @@ public class CloudinaryUtil {
             if (uploadIndex == -1) return null;
 
             String afterUpload = url.substring(uploadIndex + "/upload/".length());
+            // Bỏ transformations nếu có (w_300,h_300,c_limit,q_auto,f_auto/) - đứng trước version
+            afterUpload = TRANSFORMATION_SEGMENTS.matcher(afterUpload).replaceFirst("");
             // Bỏ version vXXXXX/ nếu có
-            afterUpload = afterUpload.replaceFirst("^v\\d+/", "");
-            // Bỏ transformations nếu có (w_300,h_300,c_limit,q_auto,f_auto/)
-            afterUpload = afterUpload.replaceFirst("^[^/]+/", "");
+            afterUpload = VERSION_SEGMENT.matcher(afterUpload).replaceFirst("");
             // Bỏ extension
-            afterUpload = afterUpload.replaceFirst("\\.[^.]+$", "");
+            afterUpload = EXTENSION.matcher(afterUpload).replaceFirst("");
             return afterUpload;
         } catch (Exception e) {
             log.warn("⚠️ Không thể extract public ID từ URL {}: {}", url, e.getMessage());
@@ -149,7 +194,7 @@ public class CloudinaryUtil {
         }
         // Public ID không được chứa các ký tự đặc biệt
         // Cloudinary public ID thường là: folder/path/filename (không có extension)
-        return publicId.matches("^[a-zA-Z0-9_/\\-]+$");
+        return PUBLIC_ID.matcher(publicId).matches();
     }
 
     /**
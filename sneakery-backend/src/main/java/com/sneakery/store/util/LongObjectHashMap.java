@@ -0,0 +1,121 @@
+package com.sneakery.store.util;
+
+import java.util.function.LongFunction;
+
+/**
+ * Map long → V dùng open addressing trên mảng nguyên thủy (không boxing key)
+ *
+ * <p>Chỉ hỗ trợ thêm / đọc (không xóa), đủ cho các index dựng một lần rồi cập nhật tăng dần.
+ * Không thread-safe: caller tự đồng bộ.
+ */
+public final class LongObjectHashMap<V> {
+
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    // Key 0 dùng làm ô trống nên được lưu riêng
+    private V zeroValue;
+
+    public LongObjectHashMap() {
+        this(8);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(LongIntHashMap.capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (zeroValue != null ? 1 : 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == EMPTY) {
+            return zeroValue;
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        if (key == EMPTY) {
+            if (zeroValue == null) {
+                zeroValue = factory.apply(key);
+            }
+            return zeroValue;
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        V created = factory.apply(key);
+        keys[slot] = key;
+        values[slot] = created;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return created;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjectConsumer<V> action) {
+        if (zeroValue != null) {
+            action.accept(EMPTY, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+        mask = capacity - 1;
+        resizeAt = Math.max(1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    private int slot(long key) {
+        return (int) LongIntHashMap.mix(key) & mask;
+    }
+}
@@ -0,0 +1,281 @@
+package com.sneakery.store.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Index gợi ý theo tiền tố (typeahead), bất biến sau khi dựng
+ *
+ * <ul>
+ *   <li>Mỗi entry (payload + điểm phổ biến) có một hoặc nhiều term đã bỏ dấu / chữ thường
+ *       ({@link #fold}); term của văn bản nhiều từ được thêm từ đầu mỗi từ để "force" khớp "Nike Air Force 1"</li>
+ *   <li>Các term nằm trong một mảng đã sắp xếp: các term cùng tiền tố là một đoạn liên tiếp, tìm bằng binary search</li>
+ *   <li>Tiền tố có hơn heavyThreshold term (các "nút nặng" của trie ngầm, thường là 1-3 ký tự đầu)
+ *       được tính sẵn top-K entry theo điểm; tiền tố còn lại chỉ quét tối đa heavyThreshold term.
+ *       Số nút nặng ở mỗi độ dài tiền tố không vượt quá số term / heavyThreshold nên bảng tính sẵn nhỏ</li>
+ * </ul>
+ *
+ * <p>Thread-safe để đọc; cập nhật bằng cách dựng bản mới rồi thay tham chiếu.
+ */
+public final class PrefixSuggestIndex<T> {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final Object[] payloads;
+    private final int[] scores;
+    private final String[] terms;
+    private final int[] termEntries;
+    private final Map<String, int[]> topByPrefix;
+    private final int topK;
+
+    private PrefixSuggestIndex(Object[] payloads, int[] scores, String[] terms, int[] termEntries,
+                               Map<String, int[]> topByPrefix, int topK) {
+        this.payloads = payloads;
+        this.scores = scores;
+        this.terms = terms;
+        this.termEntries = termEntries;
+        this.topByPrefix = topByPrefix;
+        this.topK = topK;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public static <T> PrefixSuggestIndex<T> empty() {
+        return new Builder<T>().build(1, 1);
+    }
+
+    /**
+     * Chuẩn hóa để so khớp: bỏ dấu tiếng Việt (kể cả đ), chữ thường, ký tự không phải chữ / số thành một khoảng trắng
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+        return NON_ALNUM.matcher(folded).replaceAll(" ").trim();
+    }
+
+    public int entryCount() {
+        return payloads.length;
+    }
+
+    public int termCount() {
+        return terms.length;
+    }
+
+    public int precomputedPrefixCount() {
+        return topByPrefix.size();
+    }
+
+    /**
+     * Tối đa limit entry có term bắt đầu bằng query (đã fold), điểm cao trước; limit bị giới hạn bởi topK lúc dựng
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> suggest(String query, int limit) {
+        String prefix = fold(query);
+        int max = Math.min(limit, topK);
+        if (prefix.isEmpty() || max <= 0) {
+            return Collections.emptyList();
+        }
+        int[] entries = topByPrefix.get(prefix);
+        if (entries == null) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            entries = top(from, to, max);
+        }
+        int size = Math.min(entries.length, max);
+        List<T> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add((T) payloads[entries[i]]);
+        }
+        return result;
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = terms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * limit entry khác nhau có điểm cao nhất trong đoạn term [from, to) (cùng điểm: entry thêm trước đứng trước)
+     */
+    private int[] top(int from, int to, int limit) {
+        int[] best = new int[limit];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            int entry = termEntries[i];
+            if (contains(best, size, entry)) {
+                continue;
+            }
+            if (size == limit && !better(entry, best[size - 1])) {
+                continue;
+            }
+            int position = size == limit ? size - 1 : size;
+            while (position > 0 && better(entry, best[position - 1])) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = entry;
+            if (size < limit) {
+                size++;
+            }
+        }
+        return size == limit ? best : Arrays.copyOf(best, size);
+    }
+
+    private boolean better(int entry, int other) {
+        return scores[entry] != scores[other] ? scores[entry] > scores[other] : entry < other;
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gom entry / term rồi dựng index (không thread-safe)
+     */
+    public static final class Builder<T> {
+
+        private final List<Object> payloads = new ArrayList<>();
+        private int[] scores = new int[1024];
+        private String[] terms = new String[1024];
+        private int[] termEntries = new int[1024];
+        private int termCount;
+
+        private Builder() {
+        }
+
+        /**
+         * Thêm entry, trả về số thứ tự dùng cho {@link #addText} / {@link #addTerm}
+         */
+        public int add(T payload, int score) {
+            int entry = payloads.size();
+            if (entry == scores.length) {
+                scores = Arrays.copyOf(scores, entry * 2);
+            }
+            payloads.add(payload);
+            scores[entry] = score;
+            return entry;
+        }
+
+        /**
+         * Văn bản nhiều từ (tên sản phẩm, brand, category): khớp tiền tố tại đầu mỗi từ
+         */
+        public Builder<T> addText(int entry, String text) {
+            String folded = fold(text);
+            if (folded.isEmpty()) {
+                return this;
+            }
+            int start = 0;
+            while (true) {
+                addFolded(entry, start == 0 ? folded : folded.substring(start));
+                int space = folded.indexOf(' ', start);
+                if (space < 0) {
+                    return this;
+                }
+                start = space + 1;
+            }
+        }
+
+        /**
+         * Mã (SKU): chỉ khớp tiền tố từ đầu mã
+         */
+        public Builder<T> addTerm(int entry, String text) {
+            String folded = fold(text);
+            if (!folded.isEmpty()) {
+                addFolded(entry, folded);
+            }
+            return this;
+        }
+
+        private void addFolded(int entry, String term) {
+            if (termCount == terms.length) {
+                terms = Arrays.copyOf(terms, termCount * 2);
+                termEntries = Arrays.copyOf(termEntries, termCount * 2);
+            }
+            terms[termCount] = term;
+            termEntries[termCount] = entry;
+            termCount++;
+        }
+
+        /**
+         * @param topK           số entry tính sẵn cho mỗi tiền tố nặng (= limit tối đa khi tra)
+         * @param heavyThreshold tiền tố có nhiều hơn ngần này term thì tính sẵn top-K
+         */
+        public PrefixSuggestIndex<T> build(int topK, int heavyThreshold) {
+            Integer[] order = new Integer[termCount];
+            for (int i = 0; i < termCount; i++) {
+                order[i] = i;
+            }
+            String[] unsorted = terms;
+            Arrays.sort(order, (a, b) -> unsorted[a].compareTo(unsorted[b]));
+
+            String[] sortedTerms = new String[termCount];
+            int[] sortedEntries = new int[termCount];
+            for (int i = 0; i < termCount; i++) {
+                sortedTerms[i] = unsorted[order[i]];
+                sortedEntries[i] = termEntries[order[i]];
+            }
+
+            PrefixSuggestIndex<T> index = new PrefixSuggestIndex<>(payloads.toArray(),
+                    Arrays.copyOf(scores, payloads.size()), sortedTerms, sortedEntries, new HashMap<>(), topK);
+            if (termCount > heavyThreshold) {
+                index.collectHeavy(0, termCount, 0, heavyThreshold);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Duyệt trie ngầm trên mảng đã sắp xếp: mọi term trong [from, to) có chung depth ký tự đầu
+     * và đoạn có hơn heavyThreshold term; tính sẵn top-K cho tiền tố này rồi xuống từng nhánh con còn nặng
+     */
+    private void collectHeavy(int from, int to, int depth, int heavyThreshold) {
+        if (depth > 0) {
+            topByPrefix.put(terms[from].substring(0, depth), top(from, to, topK));
+        }
+        int i = from;
+        // Term đúng bằng tiền tố đứng đầu đoạn và không có nhánh con
+        while (i < to && terms[i].length() == depth) {
+            i++;
+        }
+        while (i < to) {
+            char c = terms[i].charAt(depth);
+            int j = i + 1;
+            while (j < to && terms[j].charAt(depth) == c) {
+                j++;
+            }
+            if (j - i > heavyThreshold) {
+                collectHeavy(i, j, depth + 1, heavyThreshold);
+            }
+            i = j;
+        }
+    }
+}
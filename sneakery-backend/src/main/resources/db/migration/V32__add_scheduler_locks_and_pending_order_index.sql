@@ -0,0 +1,11 @@
+-- 1️⃣ Bảng lease cho scheduled jobs (chỉ một node chạy mỗi job khi chạy cluster)
+CREATE TABLE Scheduler_Locks (
+    lock_name NVARCHAR(100) NOT NULL PRIMARY KEY,
+    locked_until DATETIME2 NOT NULL,
+    locked_at DATETIME2 NOT NULL,
+    locked_by NVARCHAR(255) NOT NULL
+);
+
+-- 2️⃣ Index (status, created_at) cho job giải phóng hàng giữ chỗ của đơn Pending quá hạn
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_orders_status_created_at' AND object_id = OBJECT_ID('Orders'))
+    CREATE INDEX idx_orders_status_created_at ON Orders(status, created_at DESC);
@@ -0,0 +1,24 @@
+-- 1️⃣ Số dư điểm materialized (1 dòng / user)
+CREATE TABLE Loyalty_Balances (
+    user_id BIGINT NOT NULL PRIMARY KEY,
+    balance INT NOT NULL DEFAULT 0,
+    updated_at DATETIME2 DEFAULT GETDATE(),
+    FOREIGN KEY (user_id) REFERENCES Users(id) ON DELETE CASCADE
+);
+
+-- 2️⃣ Điểm còn lại theo tháng hết hạn (expiry_month = ngày đầu tháng, 9999-12-01 = không hết hạn)
+CREATE TABLE Loyalty_Point_Buckets (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    expiry_month DATE NOT NULL,
+    remaining INT NOT NULL,
+    updated_at DATETIME2 DEFAULT GETDATE(),
+    CONSTRAINT UQ_LoyaltyPointBuckets_UserMonth UNIQUE (user_id, expiry_month),
+    FOREIGN KEY (user_id) REFERENCES Users(id) ON DELETE CASCADE
+);
+
+-- 3️⃣ Job hết hạn chỉ quét bucket đã qua tháng hết hạn và còn điểm
+CREATE INDEX idx_loyalty_buckets_expiry ON Loyalty_Point_Buckets(expiry_month, remaining) INCLUDE (user_id);
+
+-- 4️⃣ Dựng lại sổ cái từ lịch sử theo thứ tự thời gian
+CREATE INDEX idx_loyalty_user_created ON Loyalty_Points(user_id, created_at, id);
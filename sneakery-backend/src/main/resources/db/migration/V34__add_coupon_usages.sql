@@ -0,0 +1,21 @@
+-- 1️⃣ Số lượt dùng coupon theo từng user (enforce max_uses_per_user)
+CREATE TABLE Coupon_Usages (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    coupon_id INT NOT NULL,
+    user_id BIGINT NOT NULL,
+    uses_count INT NOT NULL DEFAULT 0,
+    last_used_at DATETIME2 DEFAULT GETDATE(),
+    CONSTRAINT UQ_CouponUsages_CouponUser UNIQUE (coupon_id, user_id),
+    FOREIGN KEY (coupon_id) REFERENCES Coupons(id) ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES Users(id) ON DELETE CASCADE
+);
+
+-- 2️⃣ Backfill từ các đơn đã dùng coupon (bỏ qua đơn đã hủy)
+INSERT INTO Coupon_Usages (coupon_id, user_id, uses_count, last_used_at)
+SELECT coupon_id, user_id, COUNT(*), MAX(created_at)
+FROM Orders
+WHERE coupon_id IS NOT NULL AND user_id IS NOT NULL AND status <> 'cancelled'
+GROUP BY coupon_id, user_id;
+
+-- 3️⃣ Bộ đếm toàn cục không được NULL (UPDATE có điều kiện uses_count < max_uses)
+UPDATE Coupons SET uses_count = 0 WHERE uses_count IS NULL;
@@ -0,0 +1,22 @@
+-- 1️⃣ Chiến dịch gửi thông báo hàng loạt (promotion / restock), xử lý theo chunk và có thể resume
+CREATE TABLE Notification_Campaigns (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    type NVARCHAR(50) NOT NULL,                 -- 'promotion', 'product_restock'
+    title NVARCHAR(255) NOT NULL,
+    message NVARCHAR(MAX) NOT NULL,
+    link NVARCHAR(500),
+    audience VARCHAR(20) NOT NULL,              -- 'all_users', 'wishlist'
+    product_id BIGINT NULL,                     -- audience = wishlist
+    status VARCHAR(20) NOT NULL DEFAULT 'pending', -- pending, running, completed
+    cursor_user_id BIGINT NOT NULL DEFAULT 0,   -- user_id cuối cùng đã gửi (keyset)
+    sent_count INT NOT NULL DEFAULT 0,
+    created_at DATETIME2 DEFAULT GETDATE(),
+    updated_at DATETIME2 DEFAULT GETDATE(),
+    completed_at DATETIME2 NULL
+);
+
+CREATE INDEX idx_notification_campaigns_status ON Notification_Campaigns(status, id);
+CREATE INDEX idx_notification_campaigns_product ON Notification_Campaigns(product_id, created_at);
+
+-- 2️⃣ Audience wishlist: duyệt user theo product_id đã sắp sẵn theo user_id
+CREATE INDEX idx_wishlists_product_user ON Wishlists(product_id, user_id);
@@ -0,0 +1,19 @@
+-- 1️⃣ Job đồng bộ Products.main_image_url từ Product_Images, chạy nền theo chunk và có thể resume
+CREATE TABLE Image_Sync_Jobs (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    status VARCHAR(20) NOT NULL DEFAULT 'pending', -- pending, running, completed
+    cursor_product_id BIGINT NOT NULL DEFAULT 0,   -- product_id cuối cùng đã xử lý (keyset)
+    total_products INT NOT NULL DEFAULT 0,
+    scanned_count INT NOT NULL DEFAULT 0,
+    changed_count INT NOT NULL DEFAULT 0,
+    requested_by NVARCHAR(255),
+    created_at DATETIME2 DEFAULT GETDATE(),
+    updated_at DATETIME2 DEFAULT GETDATE(),
+    completed_at DATETIME2 NULL
+);
+
+CREATE INDEX idx_image_sync_jobs_status ON Image_Sync_Jobs(status, id);
+
+-- 2️⃣ ROW_NUMBER() OVER (PARTITION BY product_id ORDER BY is_primary DESC, display_order) đọc theo index
+CREATE INDEX idx_product_images_product_order ON Product_Images(product_id, is_primary, display_order)
+    INCLUDE (image_url);
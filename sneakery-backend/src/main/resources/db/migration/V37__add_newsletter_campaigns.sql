@@ -0,0 +1,40 @@
+-- 1️⃣ Chiến dịch gửi newsletter tới Newsletter_Subscriptions, xử lý theo chunk và có thể resume
+CREATE TABLE Newsletter_Campaigns (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    template_name NVARCHAR(100) NOT NULL,       -- Email_Templates.template_name
+    status VARCHAR(20) NOT NULL DEFAULT 'pending', -- pending, running, completed, failed
+    cursor_subscription_id BIGINT NOT NULL DEFAULT 0, -- subscription id cuối cùng đã đưa vào hàng đợi (keyset)
+    total_recipients INT NOT NULL DEFAULT 0,
+    queued_count INT NOT NULL DEFAULT 0,
+    sent_count INT NOT NULL DEFAULT 0,
+    failed_count INT NOT NULL DEFAULT 0,
+    skipped_count INT NOT NULL DEFAULT 0,
+    last_error NVARCHAR(500) NULL,
+    requested_by NVARCHAR(255),
+    created_at DATETIME2 DEFAULT GETDATE(),
+    updated_at DATETIME2 DEFAULT GETDATE(),
+    completed_at DATETIME2 NULL
+);
+
+CREATE INDEX idx_newsletter_campaigns_status ON Newsletter_Campaigns(status, id);
+
+-- 2️⃣ Trạng thái gửi cho từng người nhận (queued, sent, failed, skipped)
+CREATE TABLE Newsletter_Deliveries (
+    id BIGINT IDENTITY(1,1) PRIMARY KEY,
+    campaign_id BIGINT NOT NULL,
+    subscription_id BIGINT NOT NULL,
+    email NVARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'queued',
+    attempts INT NOT NULL DEFAULT 0,
+    error NVARCHAR(500) NULL,
+    created_at DATETIME2 DEFAULT GETDATE(),
+    sent_at DATETIME2 NULL,
+    CONSTRAINT fk_newsletter_deliveries_campaign FOREIGN KEY (campaign_id) REFERENCES Newsletter_Campaigns(id),
+    CONSTRAINT uq_newsletter_deliveries_recipient UNIQUE (campaign_id, subscription_id)
+);
+
+CREATE INDEX idx_newsletter_deliveries_queue ON Newsletter_Deliveries(campaign_id, status, id)
+    INCLUDE (subscription_id, email, attempts);
+
+-- 3️⃣ Duyệt subscriber đang active theo keyset id
+CREATE INDEX idx_newsletter_subscriptions_active_id ON Newsletter_Subscriptions(is_active, id) INCLUDE (email);
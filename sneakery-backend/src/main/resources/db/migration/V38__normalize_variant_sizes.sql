@@ -0,0 +1,54 @@
+-- 1️⃣ Bảng size chuẩn hóa: mỗi size trong danh sách "40, 41, 42" của Product_Variants.size là một dòng
+CREATE TABLE Variant_Sizes (
+    variant_id BIGINT NOT NULL,
+    size NVARCHAR(20) COLLATE Latin1_General_100_CI_AS NOT NULL, -- so sánh không phân biệt hoa thường, không cần LOWER()
+    CONSTRAINT pk_variant_sizes PRIMARY KEY (variant_id, size),
+    CONSTRAINT fk_variant_sizes_variant FOREIGN KEY (variant_id) REFERENCES Product_Variants(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_variant_sizes_size ON Variant_Sizes(size, variant_id);
+
+-- 2️⃣ Tách danh sách size hiện có
+INSERT INTO Variant_Sizes (variant_id, size)
+SELECT DISTINCT v.id, LTRIM(RTRIM(s.value)) COLLATE Latin1_General_100_CI_AS
+FROM Product_Variants v
+CROSS APPLY STRING_SPLIT(v.size, ',') s
+WHERE LTRIM(RTRIM(s.value)) <> '';
+
+-- 3️⃣ Màu so sánh không phân biệt hoa thường (chỉ đổi nếu cột đang dùng collation _CS_, giữ NOT NULL như schema gốc)
+IF EXISTS (SELECT 1 FROM sys.columns
+           WHERE object_id = OBJECT_ID('Product_Variants') AND name = 'color'
+             AND collation_name LIKE '%[_]CS[_]%')
+    EXEC('ALTER TABLE Product_Variants ALTER COLUMN color NVARCHAR(50) COLLATE Latin1_General_100_CI_AS NOT NULL');
+
+-- 4️⃣ Index cho lưới biến thể admin: product → màu → tồn kho (nhóm tồn kho = khoảng stock_quantity)
+CREATE INDEX idx_variants_filter_product ON Product_Variants(product_id, color, stock_quantity)
+    WHERE deleted_at IS NULL;
+
+CREATE INDEX idx_variants_filter_color ON Product_Variants(color, stock_quantity)
+    INCLUDE (product_id)
+    WHERE deleted_at IS NULL;
+GO
+
+-- 5️⃣ Đồng bộ Variant_Sizes mỗi khi thêm / sửa size của biến thể (mọi luồng ghi: admin, import, duplicate)
+CREATE TRIGGER trg_ProductVariants_SyncSizes
+ON Product_Variants
+AFTER INSERT, UPDATE
+AS
+BEGIN
+    SET NOCOUNT ON;
+
+    IF NOT UPDATE(size)
+        RETURN;
+
+    DELETE vs
+    FROM Variant_Sizes vs
+    INNER JOIN inserted i ON i.id = vs.variant_id;
+
+    INSERT INTO Variant_Sizes (variant_id, size)
+    SELECT DISTINCT i.id, LTRIM(RTRIM(s.value)) COLLATE Latin1_General_100_CI_AS
+    FROM inserted i
+    CROSS APPLY STRING_SPLIT(i.size, ',') s
+    WHERE LTRIM(RTRIM(s.value)) <> '';
+END;
+GO
@@ -0,0 +1,17 @@
+-- 1️⃣ Bảng fact doanh số theo ngày: một dòng cho mỗi (ngày đặt đơn, sản phẩm, biến thể)
+-- Chỉ tính đơn đang giao / đã giao / hoàn tất (shipped, delivered, completed); analytics cộng các ngày thay vì quét Order_Details
+-- Không FK tới Products / Product_Variants để giữ lịch sử khi biến thể bị xóa
+CREATE TABLE Daily_Sales (
+    sale_date DATE NOT NULL,                     -- CAST(Orders.created_at AS DATE)
+    product_id BIGINT NOT NULL,
+    variant_id BIGINT NOT NULL,
+    units INT NOT NULL DEFAULT 0,                -- SUM(Order_Details.quantity)
+    revenue DECIMAL(18, 2) NOT NULL DEFAULT 0,   -- SUM(Order_Details.total_price)
+    cost DECIMAL(18, 2) NOT NULL DEFAULT 0,      -- SUM(quantity * Product_Variants.cost_price)
+    updated_at DATETIME2 DEFAULT GETDATE(),
+    CONSTRAINT pk_daily_sales PRIMARY KEY (sale_date, product_id, variant_id)
+);
+
+-- 2️⃣ Analytics theo sản phẩm trong một khoảng ngày
+CREATE INDEX idx_daily_sales_product ON Daily_Sales(product_id, sale_date) INCLUDE (units, revenue, cost);
+
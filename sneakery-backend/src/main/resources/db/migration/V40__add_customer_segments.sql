@@ -0,0 +1,24 @@
+-- 1️⃣ Phân khúc khách hàng RFM (recency, frequency, monetary) do CustomerSegmentationService tính lại mỗi đêm
+-- Chỉ có dòng cho khách đã có đơn đã giao / hoàn tất
+CREATE TABLE Customer_Segments (
+    user_id BIGINT NOT NULL PRIMARY KEY,
+    last_order_date DATE NOT NULL,              -- ngày đặt đơn đã giao gần nhất (recency)
+    frequency INT NOT NULL,                     -- số đơn đã giao / hoàn tất
+    monetary DECIMAL(18, 2) NOT NULL,           -- tổng Orders.total_amount của các đơn đó
+    r_score TINYINT NOT NULL,                   -- 1..5 theo ngũ phân vị
+    f_score TINYINT NOT NULL,
+    m_score TINYINT NOT NULL,
+    segment VARCHAR(30) NOT NULL,               -- champions, loyal, potential_loyalist, new_customers, needs_attention, at_risk, hibernating
+    updated_at DATETIME2 DEFAULT GETDATE(),
+    CONSTRAINT fk_customer_segments_user FOREIGN KEY (user_id) REFERENCES Users(id) ON DELETE CASCADE
+);
+
+-- 2️⃣ Lọc user theo phân khúc + audience thông báo duyệt theo keyset user_id
+CREATE INDEX idx_customer_segments_segment ON Customer_Segments(segment, user_id);
+
+-- 3️⃣ Quét đơn theo keyset (user_id, id) cho từng khoảng user, không phải lookup về bảng Orders
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_orders_user_id_rfm' AND object_id = OBJECT_ID('Orders'))
+    CREATE INDEX idx_orders_user_id_rfm ON Orders(user_id, id) INCLUDE (status, created_at, total_amount);
+
+-- 4️⃣ Chiến dịch thông báo gửi theo phân khúc (audience = 'segment')
+ALTER TABLE Notification_Campaigns ADD segment VARCHAR(30) NULL;
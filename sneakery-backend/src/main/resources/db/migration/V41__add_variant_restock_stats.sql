@@ -0,0 +1,11 @@
+-- 1️⃣ Tốc độ bán (EWMA, đơn vị / ngày) và khuyến nghị nhập hàng theo biến thể, do RestockAdvisorService ghi
+-- velocity là giá trị tại velocity_date, đọc ở ngày khác thì nhân EXP(-ln2 * số ngày / half-life)
+CREATE TABLE Variant_Restock_Stats (
+    variant_id BIGINT NOT NULL PRIMARY KEY,
+    velocity FLOAT NOT NULL,
+    velocity_date DATE NOT NULL,
+    days_of_cover FLOAT NULL,                   -- NULL = chưa có lượt bán (không tính được)
+    suggested_quantity INT NOT NULL DEFAULT 0,  -- số lượng nên nhập để đủ lead time + số ngày mục tiêu
+    updated_at DATETIME2 DEFAULT GETDATE(),
+    CONSTRAINT fk_variant_restock_stats_variant FOREIGN KEY (variant_id) REFERENCES Product_Variants(id) ON DELETE CASCADE
+);
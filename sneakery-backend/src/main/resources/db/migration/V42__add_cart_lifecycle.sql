@@ -0,0 +1,29 @@
+-- 1️⃣ Đánh dấu giỏ đã được nhắc (chống gửi trùng): chỉ nhắc lại khi giỏ có hoạt động mới sau lần nhắc trước
+ALTER TABLE Carts ADD recovery_notified_at DATETIME2 NULL;
+GO
+
+-- 2️⃣ Dữ liệu cũ: updated_at / expires_at chưa được ghi đầy đủ
+UPDATE Carts SET updated_at = created_at WHERE updated_at IS NULL;
+UPDATE Carts SET expires_at = DATEADD(DAY, 7, updated_at) WHERE user_id IS NULL AND expires_at IS NULL;
+GO
+
+-- 3️⃣ Job nhắc giỏ bỏ quên: quét giỏ của user theo updated_at
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_carts_user_idle' AND object_id = OBJECT_ID('Carts'))
+    CREATE INDEX idx_carts_user_idle ON Carts(updated_at)
+        INCLUDE (user_id, recovery_notified_at)
+        WHERE user_id IS NOT NULL;
+GO
+
+-- 4️⃣ Job dọn giỏ guest hết hạn: quét theo expires_at
+IF NOT EXISTS (SELECT * FROM sys.indexes WHERE name = 'idx_carts_guest_expires' AND object_id = OBJECT_ID('Carts'))
+    CREATE INDEX idx_carts_guest_expires ON Carts(expires_at)
+        WHERE user_id IS NULL;
+GO
+
+-- 5️⃣ Email nhắc giỏ hàng
+IF NOT EXISTS (SELECT 1 FROM Email_Templates WHERE template_name = 'abandoned_cart')
+    INSERT INTO Email_Templates (template_name, subject, body, variables, is_active, created_at, updated_at) VALUES
+    ('abandoned_cart', N'Bạn còn {item_count} sản phẩm trong giỏ hàng',
+     N'<h1>Xin chào {customer_name}</h1><p>Giỏ hàng của bạn vẫn đang chờ với {item_count} sản phẩm.</p><p><a href="{cart_link}">Tiếp tục mua sắm</a></p>',
+     '{customer_name},{item_count},{cart_link}', 1, GETDATE(), GETDATE());
+GO
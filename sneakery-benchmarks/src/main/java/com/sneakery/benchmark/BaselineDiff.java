@@ -0,0 +1,121 @@
+package com.sneakery.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * So sánh 2 file kết quả JMH (-rf json): thời gian và byte cấp phát mỗi op (gc.alloc.rate.norm, cần -prof gc)
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.sneakery.benchmark.BaselineDiff baselines/main.json target/current.json [ngưỡng %]
+ * </pre>
+ *
+ * <p>Exit code 1 nếu có benchmark chậm hơn hoặc cấp phát nhiều hơn baseline quá ngưỡng (mặc định 10%)
+ * và vượt sai số đo của cả hai lần chạy.
+ */
+public final class BaselineDiff {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+    private record Result(String mode, double score, double error, String unit, Double allocPerOp) {
+    }
+
+    private BaselineDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineDiff <baseline.json> <current.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf(Locale.ROOT, "%-70s %14s %14s %9s %12s %12s %9s%n",
+                "benchmark", "baseline", "current", "Δ time", "B/op base", "B/op now", "Δ alloc");
+        for (Map.Entry<String, Result> entry : new TreeMap<>(current).entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf(Locale.ROOT, "%-70s %14s %14s%n", entry.getKey(), "(mới)", format(now));
+                continue;
+            }
+            // Throughput: cao hơn là tốt; các mode còn lại (thời gian / op): thấp hơn là tốt
+            boolean higherIsBetter = "thrpt".equals(now.mode());
+            double timeDelta = percent(before.score(), now.score());
+            boolean slower = higherIsBetter ? -timeDelta > threshold : timeDelta > threshold;
+            boolean outsideError = Math.abs(now.score() - before.score()) > safe(before.error()) + safe(now.error());
+            double allocDelta = before.allocPerOp() != null && now.allocPerOp() != null
+                    ? percent(before.allocPerOp(), now.allocPerOp()) : Double.NaN;
+            // Dưới 64 B/op coi như nhiễu (JMH infra)
+            boolean moreAlloc = allocDelta > threshold && now.allocPerOp() - before.allocPerOp() > 64;
+
+            boolean regression = (slower && outsideError) || moreAlloc;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "%-70s %14s %14s %8.1f%% %12s %12s %8s %s%n",
+                    entry.getKey(), format(before), format(now), timeDelta,
+                    bytes(before.allocPerOp()), bytes(now.allocPerOp()),
+                    Double.isNaN(allocDelta) ? "-" : String.format(Locale.ROOT, "%.1f%%", allocDelta),
+                    regression ? "❌" : "");
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf(Locale.ROOT, "%-70s %14s %14s%n", key, format(baseline.get(key)), "(không chạy)");
+            }
+        }
+
+        if (regressions > 0) {
+            System.out.printf(Locale.ROOT, "%n❌ %d benchmark chậm hơn / cấp phát nhiều hơn baseline quá %.0f%%%n",
+                    regressions, threshold);
+            System.exit(1);
+        }
+        System.out.printf(Locale.ROOT, "%n✅ Không có regression quá %.0f%%%n", threshold);
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText()
+                    .replace("com.sneakery.benchmark.", ""));
+            run.path("params").fields().forEachRemaining(param ->
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+
+            JsonNode primary = run.path("primaryMetric");
+            JsonNode alloc = run.path("secondaryMetrics").path(ALLOC_NORM);
+            results.put(key.toString(), new Result(
+                    run.path("mode").asText(),
+                    primary.path("score").asDouble(),
+                    primary.path("scoreError").asDouble(Double.NaN),
+                    primary.path("scoreUnit").asText(),
+                    alloc.isMissingNode() ? null : alloc.path("score").asDouble()));
+        }
+        return results;
+    }
+
+    private static double percent(double before, double now) {
+        return before == 0 ? 0 : (now - before) * 100.0 / before;
+    }
+
+    private static double safe(double error) {
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static String format(Result result) {
+        return String.format(Locale.ROOT, "%.3f %s", result.score(), result.unit());
+    }
+
+    private static String bytes(Double value) {
+        return value == null ? "-" : String.format(Locale.ROOT, "%.0f", value);
+    }
+}
@@ -0,0 +1,177 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.benchmark.support.CatalogFixtures;
+import com.sneakery.benchmark.support.Stubs;
+import com.sneakery.store.dto.CartDto;
+import com.sneakery.store.dto.OrderDto;
+import com.sneakery.store.dto.OrderSummaryDto;
+import com.sneakery.store.entity.Address;
+import com.sneakery.store.entity.Cart;
+import com.sneakery.store.entity.CartItem;
+import com.sneakery.store.entity.Order;
+import com.sneakery.store.entity.OrderDetail;
+import com.sneakery.store.entity.OrderStatusHistory;
+import com.sneakery.store.entity.Payment;
+import com.sneakery.store.entity.Product;
+import com.sneakery.store.entity.ProductVariant;
+import com.sneakery.store.entity.User;
+import com.sneakery.store.repository.CartRepository;
+import com.sneakery.store.repository.OrderRepository;
+import com.sneakery.store.service.CartService;
+import com.sneakery.store.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tính tiền giỏ hàng / đơn hàng (BigDecimal) và dựng DTO trả về cho khách
+ *
+ * <ul>
+ *   <li>cart: CartService.getCartByUserId (giá hiệu lực sale / gốc, thành tiền từng dòng, tạm tính)</li>
+ *   <li>orderDetail: OrderService.getMyOrderById (đơn đã thanh toán, có lịch sử trạng thái)</li>
+ *   <li>orderHistory: OrderService.getMyOrders (20 đơn gần nhất)</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class CartOrderPricingBenchmark {
+
+    private static final long USER_ID = 42L;
+
+    @Param({"5"})
+    public int itemsPerCart;
+
+    private CartService cartService;
+    private OrderService orderService;
+    private Long orderId;
+
+    @Setup
+    public void setup() {
+        CatalogFixtures fixtures = new CatalogFixtures();
+        User user = fixtures.customer(USER_ID);
+        Address address = fixtures.address(7L, user);
+
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        cart.setCreatedAt(LocalDateTime.now());
+        for (int i = 0; i < itemsPerCart; i++) {
+            CartItem item = new CartItem();
+            item.setId((long) i + 1);
+            item.setCart(cart);
+            item.setVariant(fixtures.product(100L + i, 10).getVariants().get(i % 10));
+            item.setQuantity(1 + i % 3);
+            cart.getItems().add(item);
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            orders.add(order(fixtures, id, user, address));
+        }
+        orderId = orders.get(0).getId();
+
+        CartRepository cartRepository = Stubs.repository(CartRepository.class, Map.of(
+                "findByUserId", args -> Optional.of(cart),
+                "findByUserIdWithDetails", args -> Optional.of(cart)));
+        OrderRepository orderRepository = Stubs.repository(OrderRepository.class, Map.of(
+                "findByIdAndUserIdWithDetails", args -> Optional.of(orders.get(0)),
+                "findByUserIdOrderByCreatedAtDesc", args -> orders));
+
+        cartService = Stubs.newInstance(CartService.class, cartRepository);
+        orderService = Stubs.newInstance(OrderService.class, orderRepository);
+    }
+
+    @Benchmark
+    public CartDto cart() {
+        return cartService.getCartByUserId(USER_ID);
+    }
+
+    @Benchmark
+    public OrderDto orderDetail() {
+        return orderService.getMyOrderById(orderId, USER_ID);
+    }
+
+    @Benchmark
+    public List<OrderSummaryDto> orderHistory() {
+        return orderService.getMyOrders(USER_ID);
+    }
+
+    private Order order(CatalogFixtures fixtures, long id, User user, Address address) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUser(user);
+        order.setOrderNumber(String.format("ORD-20250101-%04d", id));
+        order.setAddressShipping(address);
+        order.setAddressBilling(address);
+        order.setStatus("delivered");
+        order.setCreatedAt(LocalDateTime.of(2025, 1, 1, 9, 0).plusDays(id));
+
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < itemsPerCart; i++) {
+            Product product = fixtures.product(200L + id * itemsPerCart + i, 10);
+            ProductVariant variant = product.getVariants().get(i % 10);
+            variant.setImageUrl(fixtures.imageUrl(product.getId(), 1));
+            BigDecimal unitPrice = variant.getPriceSale() != null ? variant.getPriceSale() : variant.getPriceBase();
+            int quantity = 1 + i % 3;
+
+            OrderDetail detail = new OrderDetail();
+            detail.setId(id * 100 + i);
+            detail.setOrder(order);
+            detail.setVariant(variant);
+            detail.setQuantity(quantity);
+            detail.setUnitPrice(unitPrice);
+            detail.setProductName(product.getName());
+            detail.setVariantSku(variant.getSku());
+            detail.setSize(variant.getSize());
+            detail.setColor(variant.getColor());
+            detail.setTotalPrice(unitPrice.multiply(BigDecimal.valueOf(quantity)));
+            order.getOrderDetails().add(detail);
+            subtotal = subtotal.add(detail.getTotalPrice());
+        }
+        BigDecimal shippingFee = BigDecimal.valueOf(30_000);
+        order.setSubtotal(subtotal);
+        order.setShippingFee(shippingFee);
+        order.setDiscountAmount(BigDecimal.ZERO);
+        order.setTaxAmount(BigDecimal.ZERO);
+        order.setTotalAmount(subtotal.add(shippingFee));
+
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setOrder(order);
+        payment.setPaymentMethod("cod");
+        payment.setStatus("completed");
+        payment.setAmount(order.getTotalAmount());
+        order.getPayments().add(payment);
+
+        String[] statuses = {"pending", "confirmed", "shipped", "delivered"};
+        for (int i = 0; i < statuses.length; i++) {
+            OrderStatusHistory history = new OrderStatusHistory();
+            history.setId(id * 10 + i);
+            history.setOrder(order);
+            history.setStatus(statuses[i]);
+            history.setChangedAt(order.getCreatedAt().plusHours(i * 12L));
+            order.getStatusHistories().add(history);
+        }
+        return order;
+    }
+}
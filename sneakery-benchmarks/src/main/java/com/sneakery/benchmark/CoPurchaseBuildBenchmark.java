@@ -0,0 +1,108 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.benchmark.support.CatalogFixtures;
+import com.sneakery.benchmark.support.Stubs;
+import com.sneakery.store.repository.OrderDetailRepository;
+import com.sneakery.store.service.CoPurchaseIndexService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dựng ma trận mua chung (CoPurchaseIndexService) từ 10 triệu dòng đơn hàng
+ *
+ * <ul>
+ *   <li>rebuild: dựng song song theo chunk id đơn rồi gộp; mỗi chunk sinh dòng (order id, product id) lúc được
+ *       truy vấn nên chi phí tạo Object[] cho từng dòng (tương đương JDBC materialize) nằm trong kết quả</li>
+ *   <li>companions / basketCompanions: tra cứu trên ma trận đã dựng</li>
+ * </ul>
+ *
+ * <p>Giỏ 1-5 sản phẩm (trung bình 3 dòng / đơn), sản phẩm chọn lệch về nhóm bán chạy.
+ * Dùng -prof gc để xem tổng cấp phát của một lần dựng.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class CoPurchaseBuildBenchmark {
+
+    @Param({"10000000"})
+    public int orderLines;
+
+    @Param({"100000"})
+    public int productCount;
+
+    @Param({"4"})
+    public int buildThreads;
+
+    private CoPurchaseIndexService coPurchaseIndexService;
+    private List<Long> basket;
+
+    @Setup
+    public void setup() {
+        long orders = orderLines / 3L;
+        OrderDetailRepository orderDetailRepository = Stubs.repository(OrderDetailRepository.class, Map.of(
+                "findCompletedOrderIdRange", args -> List.<Object[]>of(new Object[]{1L, orders}),
+                "findCompletedOrderProducts", args -> orderRows((Long) args[0], (Long) args[1])));
+        // Như app.catalog.co-purchase.chunk-orders mặc định
+        coPurchaseIndexService = new CoPurchaseIndexService(orderDetailRepository, 20_000, buildThreads);
+        coPurchaseIndexService.rebuildIfIdle();
+        basket = List.of(1L, 2L, 50L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        coPurchaseIndexService.shutdownBuildExecutor();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void rebuild() {
+        coPurchaseIndexService.rebuildIfIdle();
+    }
+
+    @Benchmark
+    public List<Long> companions() {
+        return coPurchaseIndexService.findCompanions(1L, 8);
+    }
+
+    @Benchmark
+    public List<Long> basketCompanions() {
+        return coPurchaseIndexService.findCompanionsForBasket(basket, 8);
+    }
+
+    /**
+     * Dòng (order id, product id) của các đơn trong [fromOrderId, toOrderId), sắp xếp theo order id
+     */
+    private List<Object[]> orderRows(long fromOrderId, long toOrderId) {
+        List<Object[]> rows = new ArrayList<>((int) (toOrderId - fromOrderId) * 3);
+        for (long orderId = fromOrderId; orderId < toOrderId; orderId++) {
+            long hash = CatalogFixtures.mix(orderId, 31);
+            int lines = 1 + CatalogFixtures.index(5, hash);
+            for (int line = 0; line < lines; line++) {
+                long productId = 1 + CatalogFixtures.skewed(productCount, CatalogFixtures.mix(orderId * 8 + line, 32));
+                rows.add(new Object[]{orderId, productId});
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,108 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.store.service.CompiledEmailTemplate;
+import com.sneakery.store.service.EmailTemplateRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render email xác nhận đơn hàng
+ *
+ * <ul>
+ *   <li>renderCompiled: template đã biên dịch sẵn (đường EmailService / EmailTemplateCacheService)</li>
+ *   <li>compileAndRender: EmailTemplateRenderer.render (biên dịch mỗi lần gọi)</li>
+ *   <li>renderOrderConfirmations100k: 100.000 email với biến khác nhau, kết quả tính theo từng email</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class EmailRenderBenchmark {
+
+    private static final int BATCH = 100_000;
+
+    /**
+     * Cỡ template thật trong Email_Templates: layout HTML với CSS inline (có dấu ngoặc nhọn không phải biến)
+     */
+    private static final String ORDER_CONFIRMATION = """
+            <!DOCTYPE html>
+            <html lang="vi">
+            <head><meta charset="UTF-8"><style>body{font-family:Arial,sans-serif;color:#222}\
+            .card{border:1px solid #eee;border-radius:8px;padding:24px}.total{color:#e53935;font-weight:bold}</style></head>
+            <body>
+            <div class="card">
+              <h1>Xác nhận đơn hàng #{{order_id}}</h1>
+              <p>Xin chào {{customer_name}},</p>
+              <p>Cảm ơn bạn đã mua sắm tại Sneakery! Đơn hàng <strong>#{{order_id}}</strong> của bạn đã được tiếp nhận
+                 và đang được chuẩn bị. Chúng tôi sẽ gửi email khi đơn hàng được giao cho đơn vị vận chuyển.</p>
+              <table style="width:100%;border-collapse:collapse">
+                <tr><td>Mã đơn hàng</td><td>{{order_id}}</td></tr>
+                <tr><td>Tổng thanh toán</td><td class="total">{{total}} VND</td></tr>
+              </table>
+              <p>Bạn có thể theo dõi trạng thái đơn hàng trong mục <em>Đơn hàng của tôi</em>.</p>
+              <p style="font-size:12px;color:#888">Nếu bạn không thực hiện đơn hàng này, vui lòng liên hệ
+                 support@sneakery.vn hoặc hotline 1900 1234.</p>
+            </div>
+            </body>
+            </html>
+            """;
+
+    private final EmailTemplateRenderer renderer = new EmailTemplateRenderer();
+    private CompiledEmailTemplate compiled;
+    private Map<String, Object> variables;
+    private List<Map<String, Object>> batchVariables;
+
+    @Setup
+    public void setup() {
+        compiled = CompiledEmailTemplate.compile(ORDER_CONFIRMATION);
+        variables = orderVariables(1);
+        batchVariables = new ArrayList<>(BATCH);
+        for (int i = 1; i <= BATCH; i++) {
+            batchVariables.add(orderVariables(i));
+        }
+    }
+
+    @Benchmark
+    public String renderCompiled() {
+        return compiled.render(variables);
+    }
+
+    @Benchmark
+    public String compileAndRender() {
+        return renderer.render(ORDER_CONFIRMATION, variables);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void renderOrderConfirmations100k(Blackhole blackhole) {
+        for (Map<String, Object> orderVariables : batchVariables) {
+            blackhole.consume(compiled.render(orderVariables));
+        }
+    }
+
+    private static Map<String, Object> orderVariables(int order) {
+        // Như EmailService.sendOrderConfirmation
+        return Map.of(
+                "customer_name", "Nguyễn Văn Khách " + order,
+                "order_id", String.format("ORD-20250101-%04d", order % 10_000),
+                "total", String.valueOf(1_000_000L + order * 10_000L % 5_000_000L));
+    }
+}
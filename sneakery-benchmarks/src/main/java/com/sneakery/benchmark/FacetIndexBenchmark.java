@@ -0,0 +1,104 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.benchmark.support.CatalogFixtures;
+import com.sneakery.benchmark.support.Stubs;
+import com.sneakery.store.repository.ProductRepository;
+import com.sneakery.store.repository.ProductVariantRepository;
+import com.sneakery.store.service.ProductFacetIndexService;
+import com.sneakery.store.service.ProductFacetIndexService.Facet;
+import com.sneakery.store.service.ProductFacetIndexService.FacetResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index facet storefront (ProductFacetIndexService) ở quy mô 100.000 sản phẩm
+ *
+ * <ul>
+ *   <li>searchUnfiltered: trang đầu danh mục, chỉ đếm facet</li>
+ *   <li>searchBrandAndSize: brand lớn nhất + 2 size (giao BitSet, đếm facet loại trừ lựa chọn của chính nó)</li>
+ *   <li>searchMultiFacet: brand + category + màu + khoảng giá + còn hàng</li>
+ *   <li>refresh: dựng lại toàn bộ index từ projection</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class FacetIndexBenchmark {
+
+    @Param({"100000"})
+    public int productCount;
+
+    @Param({"10"})
+    public int variantsPerProduct;
+
+    private ProductFacetIndexService facetIndexService;
+    private Map<Facet, List<String>> brandAndSize;
+    private Map<Facet, List<String>> multiFacet;
+
+    @Setup
+    public void setup() {
+        CatalogFixtures fixtures = new CatalogFixtures();
+        List<Object[]> productRows = fixtures.facetProductRows(productCount);
+        List<Object[]> variantRows = fixtures.facetVariantRows(productCount, variantsPerProduct);
+        ProductRepository productRepository = Stubs.repository(ProductRepository.class, Map.of(
+                "findFacetProductProjections", args -> productRows));
+        ProductVariantRepository variantRepository = Stubs.repository(ProductVariantRepository.class, Map.of(
+                "findFacetVariantProjections", args -> variantRows));
+        // Như app.catalog.facets.price-buckets mặc định
+        facetIndexService = new ProductFacetIndexService(productRepository, variantRepository,
+                new long[]{1_000_000, 2_000_000, 3_000_000, 5_000_000});
+        facetIndexService.refresh();
+
+        brandAndSize = new EnumMap<>(Facet.class);
+        brandAndSize.put(Facet.BRAND, List.of(CatalogFixtures.BRANDS[0]));
+        brandAndSize.put(Facet.SIZE, List.of("41", "42"));
+
+        multiFacet = new EnumMap<>(Facet.class);
+        multiFacet.put(Facet.BRAND, List.of(CatalogFixtures.BRANDS[0], CatalogFixtures.BRANDS[1]));
+        multiFacet.put(Facet.CATEGORY, List.of(CatalogFixtures.CATEGORIES[1]));
+        multiFacet.put(Facet.COLOR, List.of(CatalogFixtures.COLORS[0], CatalogFixtures.COLORS[1]));
+        multiFacet.put(Facet.PRICE, List.of("2000000-3000000"));
+        multiFacet.put(Facet.STOCK, List.of(ProductFacetIndexService.IN_STOCK));
+    }
+
+    @Benchmark
+    public FacetResult searchUnfiltered() {
+        return facetIndexService.search(Map.of(), 0, 24);
+    }
+
+    @Benchmark
+    public FacetResult searchBrandAndSize() {
+        return facetIndexService.search(brandAndSize, 0, 24);
+    }
+
+    @Benchmark
+    public FacetResult searchMultiFacet() {
+        return facetIndexService.search(multiFacet, 0, 24);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void refresh() {
+        facetIndexService.refresh();
+    }
+}
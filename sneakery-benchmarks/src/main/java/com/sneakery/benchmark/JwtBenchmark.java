@@ -0,0 +1,69 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.benchmark.support.CatalogFixtures;
+import com.sneakery.benchmark.support.Stubs;
+import com.sneakery.store.entity.User;
+import com.sneakery.store.security.JwtTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT trên mỗi request đã đăng nhập: JwtAuthenticationFilter đọc username rồi validate (2 lần parse + verify HS256)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtTokenProvider tokenProvider;
+    private User user;
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setup() {
+        tokenProvider = new JwtTokenProvider();
+        // Secret 256-bit Base64 như app.jwt.secret
+        Stubs.setField(tokenProvider, "JWT_SECRET", Base64.getEncoder().encodeToString(new byte[32]));
+        Stubs.setField(tokenProvider, "JWT_EXPIRATION", 86_400_000L);
+        Stubs.invoke(tokenProvider, "init");
+
+        user = new CatalogFixtures().customer(42L);
+        authentication = new UsernamePasswordAuthenticationToken(user, null, List.of());
+        token = tokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String generate() {
+        return tokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String parseUsername() {
+        return tokenProvider.getUsernameFromToken(token);
+    }
+
+    @Benchmark
+    public boolean authenticateRequest() {
+        // Như JwtAuthenticationFilter: lấy username, nạp user, validate
+        String username = tokenProvider.getUsernameFromToken(token);
+        return username != null && tokenProvider.validateToken(token, user);
+    }
+}
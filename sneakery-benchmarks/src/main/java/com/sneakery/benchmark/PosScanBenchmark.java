@@ -0,0 +1,109 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.benchmark.support.CatalogFixtures;
+import com.sneakery.benchmark.support.Stubs;
+import com.sneakery.store.repository.ProductVariantRepository;
+import com.sneakery.store.service.PosSkuIndexService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phần CPU của một lần bán tại quầy trên index SKU trong bộ nhớ (phần ghi DB đo bằng load test)
+ *
+ * <ul>
+ *   <li>scanSale: quét basketSize mã (chữ thường / có khoảng trắng như máy quét), cộng tiền theo giá hiệu lực</li>
+ *   <li>defaultVariant: item POS chỉ có productId, chọn biến thể đầu tiên đủ hàng</li>
+ *   <li>refresh: nạp lại toàn bộ index từ projection (job định kỳ)</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PosScanBenchmark {
+
+    private static final int CODES = 4096;
+
+    @Param({"100000"})
+    public int productCount;
+
+    @Param({"10"})
+    public int variantsPerProduct;
+
+    @Param({"5"})
+    public int basketSize;
+
+    private PosSkuIndexService posSkuIndexService;
+    private String[] scannedCodes;
+    private Long[] productIds;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        CatalogFixtures fixtures = new CatalogFixtures();
+        List<Object[]> rows = fixtures.posRows(productCount, variantsPerProduct);
+        ProductVariantRepository variantRepository = Stubs.repository(ProductVariantRepository.class, Map.of(
+                "findPosIndexProjections", args -> rows));
+        posSkuIndexService = new PosSkuIndexService(variantRepository);
+        posSkuIndexService.refresh();
+
+        scannedCodes = new String[CODES];
+        productIds = new Long[CODES];
+        for (int i = 0; i < CODES; i++) {
+            long productId = 1 + CatalogFixtures.index(productCount, CatalogFixtures.mix(i, 21));
+            String sku = fixtures.sku(productId, i % variantsPerProduct);
+            scannedCodes[i] = i % 2 == 0 ? sku.toLowerCase(Locale.ROOT) : " " + sku + "\n";
+            productIds[i] = productId;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal scanSale() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < basketSize; i++) {
+            Optional<PosSkuIndexService.PosVariant> variant = posSkuIndexService.findByCode(nextCode());
+            if (variant.isPresent()) {
+                subtotal = subtotal.add(variant.get().effectivePrice());
+            }
+        }
+        return subtotal;
+    }
+
+    @Benchmark
+    public Optional<PosSkuIndexService.PosVariant> defaultVariant() {
+        cursor = (cursor + 1) & (CODES - 1);
+        return posSkuIndexService.findDefaultForProduct(productIds[cursor], 2);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void refresh() {
+        posSkuIndexService.refresh();
+    }
+
+    private String nextCode() {
+        cursor = (cursor + 1) & (CODES - 1);
+        return scannedCodes[cursor];
+    }
+}
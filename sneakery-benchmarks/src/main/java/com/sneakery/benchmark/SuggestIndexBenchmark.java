@@ -0,0 +1,113 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.benchmark.support.CatalogFixtures;
+import com.sneakery.benchmark.support.Stubs;
+import com.sneakery.store.repository.DailySaleRepository;
+import com.sneakery.store.repository.ProductRepository;
+import com.sneakery.store.repository.ProductVariantRepository;
+import com.sneakery.store.service.ProductSuggestIndexService;
+import com.sneakery.store.service.ProductSuggestIndexService.Suggestion;
+import com.sneakery.store.util.PrefixSuggestIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gợi ý tìm kiếm (typeahead) trên 100.000 sản phẩm / 1 triệu SKU
+ *
+ * <ul>
+ *   <li>suggestHeavyPrefix: tiền tố ngắn rơi vào bảng top-K tính sẵn ("ni")</li>
+ *   <li>suggestWordPrefix: tiền tố khớp giữa tên nhiều từ, có dấu / hoa thường ("Air Forc")</li>
+ *   <li>suggestSkuPrefix: tiền tố SKU đủ dài để quét đoạn term nhỏ</li>
+ *   <li>rebuild: dựng lại index từ projection (điểm phổ biến, brand, category, sản phẩm, SKU)</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SuggestIndexBenchmark {
+
+    @Param({"100000"})
+    public int productCount;
+
+    @Param({"10"})
+    public int variantsPerProduct;
+
+    private ProductSuggestIndexService suggestIndexService;
+    private String skuPrefix;
+
+    @Setup
+    public void setup() {
+        CatalogFixtures fixtures = new CatalogFixtures();
+        List<Object[]> productRows = fixtures.suggestProductRows(productCount);
+        List<Object[]> categoryRows = fixtures.suggestCategoryRows(productCount);
+        List<Object[]> skuRows = fixtures.suggestSkuRows(productCount, variantsPerProduct);
+        List<Object[]> popularityRows = fixtures.popularityRows(productCount);
+
+        ProductRepository productRepository = Stubs.repository(ProductRepository.class, Map.of(
+                "findSuggestProductProjections", args -> productRows,
+                "findSuggestCategoryProjections", args -> categoryRows));
+        ProductVariantRepository variantRepository = Stubs.repository(ProductVariantRepository.class, Map.of(
+                "findSuggestSkuProjections", args -> skuRows));
+        DailySaleRepository dailySaleRepository = Stubs.repository(DailySaleRepository.class, Map.of(
+                "sumUnitsByProductSince", args -> popularityRows));
+
+        // Như app.catalog.suggest.* mặc định
+        suggestIndexService = new ProductSuggestIndexService(productRepository, variantRepository,
+                dailySaleRepository, 20, 64, 90);
+        suggestIndexService.rebuild();
+
+        String sku = fixtures.sku(productCount / 2, 0);
+        skuPrefix = sku.substring(0, sku.lastIndexOf('-'));
+    }
+
+    @TearDown
+    public void tearDown() {
+        suggestIndexService.shutdownBuildExecutor();
+    }
+
+    @Benchmark
+    public List<Suggestion> suggestHeavyPrefix() {
+        return suggestIndexService.suggest("ni", 8);
+    }
+
+    @Benchmark
+    public List<Suggestion> suggestWordPrefix() {
+        return suggestIndexService.suggest("Air Forc", 8);
+    }
+
+    @Benchmark
+    public List<Suggestion> suggestSkuPrefix() {
+        return suggestIndexService.suggest(skuPrefix, 8);
+    }
+
+    @Benchmark
+    public String foldQuery() {
+        return PrefixSuggestIndex.fold("Giày Chạy Bộ Đen");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void rebuild() {
+        suggestIndexService.rebuild();
+    }
+}
@@ -0,0 +1,66 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.store.service.DistanceService;
+import com.sneakery.store.util.CodeGenerator;
+import com.sneakery.store.util.InputSanitizationUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Các util nhỏ nằm trên đường request: sinh mã sản phẩm, sanitize input, khoảng cách giao hàng
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class UtilBenchmark {
+
+    // Field không final để JIT không gập hằng số
+    public String brandName = "New Balance";
+    public int lastNumber = 41;
+    public String reviewText = "  Giày <b>rất</b> êm, đi cả ngày không đau chân! <script>alert('x')</script>  ";
+    public String searchQuery = "  nike  air   force 1 <img src=x> ";
+    public double storeLat = 21.0368;
+    public double storeLon = 105.7467;
+    public double customerLat = 10.7769;
+    public double customerLon = 106.7009;
+
+    private final CodeGenerator codeGenerator = new CodeGenerator();
+    private final DistanceService distanceService = new DistanceService();
+
+    @Benchmark
+    public String productCode() {
+        return codeGenerator.generateProductCodeByBrand(brandName, lastNumber);
+    }
+
+    @Benchmark
+    public String sanitize() {
+        return InputSanitizationUtil.sanitize(reviewText);
+    }
+
+    @Benchmark
+    public String sanitizeForSearch() {
+        return InputSanitizationUtil.sanitizeForSearch(searchQuery);
+    }
+
+    @Benchmark
+    public String stripHtmlTags() {
+        return InputSanitizationUtil.stripHtmlTags(reviewText);
+    }
+
+    @Benchmark
+    public double distanceKm() {
+        return distanceService.calculateDistanceKm(storeLat, storeLon, customerLat, customerLon);
+    }
+}
@@ -0,0 +1,95 @@
+package com.sneakery.benchmark;
+
+import com.sneakery.benchmark.support.CatalogFixtures;
+import com.sneakery.benchmark.support.Stubs;
+import com.sneakery.store.dto.AdminProductVariantDto;
+import com.sneakery.store.dto.ProductVariantFilterDto;
+import com.sneakery.store.entity.ProductVariant;
+import com.sneakery.store.repository.ProductVariantRepository;
+import com.sneakery.store.service.AdminProductVariantService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lưới biến thể admin (AdminProductVariantService.getVariantsWithFilter) trên catalog 1 triệu biến thể
+ *
+ * <ul>
+ *   <li>sortBySize: sort theo size vẫn nạp toàn bộ kết quả lọc rồi sort / phân trang trong bộ nhớ,
+ *       repository trả về cả 1 triệu entity (trường hợp xấu nhất: không lọc)</li>
+ *   <li>pagedInQuery: các kiểu sort khác phân trang trong query, service chỉ chuyển một trang sang DTO</li>
+ * </ul>
+ *
+ * <p>Thời gian chạy query trên SQL Server không nằm trong benchmark này (đo bằng load test).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class VariantFilterBenchmark {
+
+    @Param({"100000"})
+    public int productCount;
+
+    @Param({"10"})
+    public int variantsPerProduct;
+
+    private AdminProductVariantService variantService;
+    private ProductVariantFilterDto sizeFilter;
+    private ProductVariantFilterDto skuFilter;
+    private Pageable firstPage;
+
+    @Setup
+    public void setup() {
+        CatalogFixtures fixtures = new CatalogFixtures();
+        List<ProductVariant> variants = new ArrayList<>(productCount * variantsPerProduct);
+        for (long id = 1; id <= productCount; id++) {
+            variants.addAll(fixtures.product(id, variantsPerProduct).getVariants());
+        }
+        ProductVariantRepository variantRepository = Stubs.repository(ProductVariantRepository.class, Map.of(
+                "findWithFilters", args -> {
+                    Pageable pageable = (Pageable) args[5];
+                    if (pageable.getPageSize() >= variants.size()) {
+                        return new PageImpl<>(variants, pageable, variants.size());
+                    }
+                    int from = (int) Math.min(pageable.getOffset(), variants.size());
+                    int to = Math.min(from + pageable.getPageSize(), variants.size());
+                    return new PageImpl<>(variants.subList(from, to), pageable, variants.size());
+                }));
+        variantService = Stubs.newInstance(AdminProductVariantService.class, variantRepository);
+
+        sizeFilter = ProductVariantFilterDto.builder().sortBy("size").sortDirection("asc").build();
+        skuFilter = ProductVariantFilterDto.builder().sortBy("sku").sortDirection("asc").build();
+        firstPage = PageRequest.of(0, 50);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Page<AdminProductVariantDto> sortBySize() {
+        return variantService.getVariantsWithFilter(sizeFilter, firstPage);
+    }
+
+    @Benchmark
+    public Page<AdminProductVariantDto> pagedInQuery() {
+        return variantService.getVariantsWithFilter(skuFilter, firstPage);
+    }
+}
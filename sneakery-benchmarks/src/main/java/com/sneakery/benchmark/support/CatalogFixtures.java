@@ -0,0 +1,416 @@
+package com.sneakery.benchmark.support;
+
+import com.sneakery.store.entity.Address;
+import com.sneakery.store.entity.Brand;
+import com.sneakery.store.entity.Category;
+import com.sneakery.store.entity.Product;
+import com.sneakery.store.entity.ProductImage;
+import com.sneakery.store.entity.ProductVariant;
+import com.sneakery.store.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Dữ liệu catalog giả lập cho benchmark, tất định theo id (cùng id luôn sinh cùng dữ liệu)
+ *
+ * <ul>
+ *   <li>Sản phẩm 1..n, brand / category phân bố lệch (vài brand lớn chiếm phần lớn catalog như dữ liệu thật)</li>
+ *   <li>Biến thể của sản phẩm p: id (p - 1) * variantsPerProduct + 1 .. p * variantsPerProduct,
+ *       màu x size, SKU dạng NIKE-000123-DEN-42</li>
+ *   <li>Các hàm *Rows trả về đúng thứ tự cột của projection tương ứng trong repository</li>
+ * </ul>
+ */
+public final class CatalogFixtures {
+
+    public static final String[] BRANDS = {
+            "Nike", "Adidas", "New Balance", "Puma", "Converse", "Vans",
+            "Asics", "Jordan", "Biti's", "Ananas", "Reebok", "Under Armour"
+    };
+    public static final String[] CATEGORIES = {
+            "Sneaker", "Giày chạy bộ", "Giày bóng rổ", "Giày thể thao nữ", "Giày thể thao nam",
+            "Giày trẻ em", "Giày đi bộ", "Giày tập gym", "Giày bóng đá", "Dép & sandal"
+    };
+    public static final String[] COLORS = {"Đen", "Trắng", "Đỏ", "Xanh dương", "Xám", "Be", "Hồng", "Xanh lá"};
+    public static final String[] SIZES = {"36", "37", "38", "39", "40", "41", "42", "43", "44", "45"};
+
+    private static final String[] MODELS = {
+            "Air Max 90", "Air Force 1", "Ultraboost", "Superstar", "574", "Suede Classic", "Chuck Taylor",
+            "Old Skool", "Gel-Kayano", "Retro 1", "Hunter Street", "Urbas", "Club C", "HOVR Phantom",
+            "Pegasus", "Samba", "990v6", "RS-X", "Run Star Hike", "Sk8-Hi", "Gel-Lyte III", "Vomero"
+    };
+    private static final String[] EDITIONS = {"Low", "Mid", "High", "Retro", "GTX", "Premium", "SE", "OG"};
+    private static final String[] COLOR_CODES = {"DEN", "TRG", "DO", "XDG", "XAM", "BE", "HNG", "XLA"};
+    private static final String[] CITIES = {"Hà Nội", "TP. Hồ Chí Minh", "Đà Nẵng", "Cần Thơ", "Hải Phòng"};
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 1, 1, 9, 0);
+
+    private final Brand[] brands = new Brand[BRANDS.length];
+    private final Category[] categories = new Category[CATEGORIES.length];
+    private final BigDecimal[] prices = new BigDecimal[500];
+
+    public CatalogFixtures() {
+        for (int i = 0; i < BRANDS.length; i++) {
+            Brand brand = new Brand();
+            brand.setId(i + 1);
+            brand.setName(BRANDS[i]);
+            brand.setSlug(slug(BRANDS[i]));
+            brand.setIsActive(true);
+            brands[i] = brand;
+        }
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            Category category = new Category();
+            category.setId(i + 1);
+            category.setName(CATEGORIES[i]);
+            category.setSlug("category-" + (i + 1));
+            category.setIsActive(true);
+            categories[i] = category;
+        }
+        // Giá bán lẻ 1.000.000 - 5.990.000, bước 10.000 (BigDecimal dùng chung như cache giá trị của driver)
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = BigDecimal.valueOf(1_000_000L + i * 10_000L);
+        }
+    }
+
+    // =================================================================
+    // THUỘC TÍNH TẤT ĐỊNH THEO ID
+    // =================================================================
+
+    public int brandIndex(long productId) {
+        return skewed(BRANDS.length, mix(productId, 1));
+    }
+
+    public String brandName(long productId) {
+        return BRANDS[brandIndex(productId)];
+    }
+
+    public String productName(long productId) {
+        return brandName(productId) + " " + MODELS[index(MODELS.length, mix(productId, 2))] + " "
+                + EDITIONS[index(EDITIONS.length, mix(productId, 3))] + " " + productId;
+    }
+
+    public String productSlug(long productId) {
+        return slug(productName(productId));
+    }
+
+    /**
+     * 1-3 category của sản phẩm (không trùng)
+     */
+    public int[] categoryIndexes(long productId) {
+        long hash = mix(productId, 4);
+        int count = 1 + index(3, hash);
+        int first = skewed(CATEGORIES.length, hash >>> 8);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (first + i * 3) % CATEGORIES.length;
+        }
+        return result;
+    }
+
+    public long variantId(long productId, int variant, int variantsPerProduct) {
+        return (productId - 1) * variantsPerProduct + variant + 1;
+    }
+
+    public String color(long productId, int variant) {
+        // Mỗi màu có 5 size liên tiếp
+        return COLORS[(index(COLORS.length, mix(productId, 5)) + variant / 5) % COLORS.length];
+    }
+
+    public String size(long productId, int variant) {
+        return SIZES[(index(5, mix(productId, 6)) + variant % 5) % SIZES.length];
+    }
+
+    public String sku(long productId, int variant) {
+        String brandCode = BRANDS[brandIndex(productId)].replaceAll("[^A-Za-z]", "").toUpperCase(Locale.ROOT);
+        String colorCode = COLOR_CODES[indexOf(COLORS, color(productId, variant))];
+        return (brandCode.length() > 6 ? brandCode.substring(0, 6) : brandCode)
+                + "-" + String.format("%06d", productId) + "-" + colorCode + "-" + size(productId, variant);
+    }
+
+    public BigDecimal priceBase(long productId) {
+        return prices[index(prices.length, mix(productId, 7))];
+    }
+
+    /**
+     * Khoảng 30% sản phẩm đang giảm giá 20%
+     */
+    public BigDecimal priceSale(long productId) {
+        if (index(10, mix(productId, 8)) >= 3) {
+            return null;
+        }
+        return prices[index(prices.length, mix(productId, 7)) * 4 / 5];
+    }
+
+    public int stock(long productId, int variant) {
+        // ~10% biến thể hết hàng
+        int roll = index(40, mix(productId * 16 + variant, 9));
+        return roll < 4 ? 0 : roll;
+    }
+
+    public int reserved(long productId, int variant) {
+        return index(3, mix(productId * 16 + variant, 10));
+    }
+
+    public String imageUrl(long productId, int image) {
+        return "https://res.cloudinary.com/sneakery/image/upload/v1712345678/sneakery/products/"
+                + productSlug(productId) + "-" + image + ".jpg";
+    }
+
+    // =================================================================
+    // ENTITY
+    // =================================================================
+
+    /**
+     * Sản phẩm đầy đủ như findAllWithDetails: brand, category, biến thể, 3 ảnh
+     */
+    public Product product(long productId, int variantsPerProduct) {
+        Product product = new Product();
+        product.setId(productId);
+        product.setName(productName(productId));
+        product.setSlug(productSlug(productId));
+        product.setCode("P" + productId);
+        product.setBrand(brands[brandIndex(productId)]);
+        product.setIsActive(true);
+        product.setIsNew(productId % 7 == 0);
+        product.setIsFeatured(productId % 11 == 0);
+        product.setAvgRating(BigDecimal.valueOf(30 + index(21, mix(productId, 11)), 1));
+        product.setReviewCount(index(500, mix(productId, 12)));
+        // Một phần sản phẩm chưa có mainImageUrl: lấy ảnh đầu tiên trong danh sách ảnh
+        product.setMainImageUrl(productId % 4 == 0 ? null : imageUrl(productId, 1));
+        product.setCreatedAt(CREATED_AT);
+
+        Set<Category> productCategories = new HashSet<>();
+        for (int categoryIndex : categoryIndexes(productId)) {
+            productCategories.add(categories[categoryIndex]);
+        }
+        product.setCategories(productCategories);
+
+        List<ProductVariant> variants = new ArrayList<>(variantsPerProduct);
+        for (int v = 0; v < variantsPerProduct; v++) {
+            variants.add(variant(product, v, variantsPerProduct));
+        }
+        product.setVariants(variants);
+
+        List<ProductImage> images = new ArrayList<>(3);
+        for (int i = 1; i <= 3; i++) {
+            images.add(image(product, i));
+        }
+        product.setImages(images);
+        return product;
+    }
+
+    public List<Product> products(int count, int variantsPerProduct) {
+        List<Product> products = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            products.add(product(id, variantsPerProduct));
+        }
+        return products;
+    }
+
+    public ProductVariant variant(Product product, int variant, int variantsPerProduct) {
+        long productId = product.getId();
+        ProductVariant entity = new ProductVariant();
+        entity.setId(variantId(productId, variant, variantsPerProduct));
+        entity.setProduct(product);
+        entity.setSku(sku(productId, variant));
+        entity.setSize(size(productId, variant));
+        entity.setColor(color(productId, variant));
+        entity.setPriceBase(priceBase(productId));
+        entity.setPriceSale(priceSale(productId));
+        entity.setCostPrice(priceBase(productId));
+        entity.setStockQuantity(stock(productId, variant));
+        entity.setReservedQuantity(reserved(productId, variant));
+        entity.setLowStockThreshold(5);
+        entity.setWeightGrams(850);
+        entity.setIsActive(true);
+        entity.setCreatedAt(CREATED_AT);
+        entity.setUpdatedAt(CREATED_AT);
+        return entity;
+    }
+
+    public ProductImage image(Product product, int image) {
+        ProductImage entity = new ProductImage();
+        entity.setId(product.getId() * 10 + image);
+        entity.setProduct(product);
+        entity.setImageUrl(imageUrl(product.getId(), image));
+        entity.setAltText(product.getName());
+        entity.setIsPrimary(image == 1);
+        entity.setDisplayOrder(image);
+        entity.setCreatedAt(CREATED_AT);
+        return entity;
+    }
+
+    public User customer(long userId) {
+        User user = new User();
+        user.setId(userId);
+        user.setEmail("customer" + userId + "@sneakery.test");
+        user.setFullName("Nguyễn Văn Khách " + userId);
+        user.setRole("USER");
+        return user;
+    }
+
+    public Address address(long addressId, User user) {
+        Address address = new Address();
+        address.setId(addressId);
+        address.setUser(user);
+        address.setRecipientName(user.getFullName());
+        address.setPhone("09" + String.format("%08d", addressId % 100_000_000));
+        address.setLine1(addressId % 300 + " Nguyễn Trãi");
+        address.setWard("Phường Thượng Đình");
+        address.setDistrict("Quận Thanh Xuân");
+        address.setCity(CITIES[index(CITIES.length, mix(addressId, 13))]);
+        return address;
+    }
+
+    // =================================================================
+    // PROJECTION (thứ tự cột như @Query trong repository)
+    // =================================================================
+
+    /**
+     * ProductRepository.findFacetProductProjections: product id, tên brand, tên category (một dòng mỗi category)
+     */
+    public List<Object[]> facetProductRows(int productCount) {
+        List<Object[]> rows = new ArrayList<>(productCount * 2);
+        for (long id = 1; id <= productCount; id++) {
+            for (int categoryIndex : categoryIndexes(id)) {
+                rows.add(new Object[]{id, brandName(id), CATEGORIES[categoryIndex]});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * ProductVariantRepository.findFacetVariantProjections: product id, màu, size, giá gốc, giá sale, tồn kho, đang giữ
+     */
+    public List<Object[]> facetVariantRows(int productCount, int variantsPerProduct) {
+        List<Object[]> rows = new ArrayList<>(productCount * variantsPerProduct);
+        for (long id = 1; id <= productCount; id++) {
+            for (int v = 0; v < variantsPerProduct; v++) {
+                rows.add(new Object[]{id, color(id, v), size(id, v), priceBase(id), priceSale(id),
+                        stock(id, v), reserved(id, v)});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * ProductVariantRepository.findPosIndexProjections: variant id, product id, sku, tên sản phẩm, size, màu,
+     * giá gốc, giá sale, tồn kho, ảnh đại diện
+     */
+    public List<Object[]> posRows(int productCount, int variantsPerProduct) {
+        List<Object[]> rows = new ArrayList<>(productCount * variantsPerProduct);
+        for (long id = 1; id <= productCount; id++) {
+            String name = productName(id);
+            String image = imageUrl(id, 1);
+            for (int v = 0; v < variantsPerProduct; v++) {
+                rows.add(new Object[]{variantId(id, v, variantsPerProduct), id, sku(id, v), name, size(id, v),
+                        color(id, v), priceBase(id), priceSale(id), stock(id, v), image});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * ProductRepository.findSuggestProductProjections: product id, tên, slug, ảnh, brand id, tên brand,
+     * slug brand, brand đang active
+     */
+    public List<Object[]> suggestProductRows(int productCount) {
+        List<Object[]> rows = new ArrayList<>(productCount);
+        for (long id = 1; id <= productCount; id++) {
+            Brand brand = brands[brandIndex(id)];
+            rows.add(new Object[]{id, productName(id), productSlug(id), imageUrl(id, 1), brand.getId(),
+                    brand.getName(), brand.getSlug(), Boolean.TRUE});
+        }
+        return rows;
+    }
+
+    /**
+     * ProductRepository.findSuggestCategoryProjections: product id, category id, tên, slug
+     */
+    public List<Object[]> suggestCategoryRows(int productCount) {
+        List<Object[]> rows = new ArrayList<>(productCount * 2);
+        for (long id = 1; id <= productCount; id++) {
+            for (int categoryIndex : categoryIndexes(id)) {
+                Category category = categories[categoryIndex];
+                rows.add(new Object[]{id, category.getId(), category.getName(), category.getSlug()});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * ProductVariantRepository.findSuggestSkuProjections: variant id, product id, sku
+     */
+    public List<Object[]> suggestSkuRows(int productCount, int variantsPerProduct) {
+        List<Object[]> rows = new ArrayList<>(productCount * variantsPerProduct);
+        for (long id = 1; id <= productCount; id++) {
+            for (int v = 0; v < variantsPerProduct; v++) {
+                rows.add(new Object[]{variantId(id, v, variantsPerProduct), id, sku(id, v)});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * DailySaleRepository.sumUnitsByProductSince: product id, số lượng bán (khoảng 60% sản phẩm có bán)
+     */
+    public List<Object[]> popularityRows(int productCount) {
+        List<Object[]> rows = new ArrayList<>(productCount);
+        for (long id = 1; id <= productCount; id++) {
+            long hash = mix(id, 14);
+            if (index(10, hash) < 6) {
+                // Phân bố đuôi dài: phần lớn bán vài đôi, số ít bán hàng trăm
+                rows.add(new Object[]{id, (long) (1 + 500 * Math.pow(unit(hash >>> 8), 6))});
+            }
+        }
+        return rows;
+    }
+
+    // =================================================================
+    // HELPER
+    // =================================================================
+
+    /**
+     * Hash 64-bit (SplitMix64) của id + salt, dùng để chọn thuộc tính tất định
+     */
+    public static long mix(long value, long salt) {
+        long z = value * 0x9E3779B97F4A7C15L + salt * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static int index(int bound, long hash) {
+        return (int) Math.floorMod(hash, (long) bound);
+    }
+
+    /**
+     * Chỉ số lệch về đầu mảng (phần tử đầu xuất hiện nhiều nhất)
+     */
+    public static int skewed(int bound, long hash) {
+        double u = unit(hash);
+        return Math.min(bound - 1, (int) (bound * u * u));
+    }
+
+    private static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String slug(String text) {
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+    }
+}
@@ -0,0 +1,176 @@
+package com.sneakery.benchmark.support;
+
+import org.springframework.data.domain.Page;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Dựng service thật của backend mà không cần Spring context / DB
+ *
+ * <ul>
+ *   <li>{@link #repository}: repository (interface Spring Data) là JDK proxy, chỉ các method được
+ *       khai báo trả về dữ liệu fixture; method khác trả về rỗng (Optional / List / Page rỗng, 0, false),
+ *       save* trả lại chính entity</li>
+ *   <li>{@link #newInstance}: gọi constructor lớn nhất của service (@RequiredArgsConstructor sinh theo thứ tự field,
+ *       nên không phụ thuộc thứ tự tham số): tham số nhận dependency cùng kiểu nếu có,
+ *       interface còn lại nhận repository rỗng, class còn lại nhận null</li>
+ * </ul>
+ *
+ * <p>Chỉ dùng cho benchmark: đường đo không được chạm tới dependency nhận null.
+ */
+public final class Stubs {
+
+    private Stubs() {
+    }
+
+    /**
+     * Repository trả lời theo tên method; answer nhận mảng tham số của lời gọi
+     */
+    public static <R> R repository(Class<R> type, Map<String, Function<Object[], ?>> answers) {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            Object[] arguments = args != null ? args : new Object[0];
+            Function<Object[], ?> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(arguments);
+            }
+            return defaultAnswer(type, self, method, arguments);
+        });
+        return type.cast(proxy);
+    }
+
+    public static <R> R repository(Class<R> type) {
+        return repository(type, Map.of());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T newInstance(Class<T> type, Object... dependencies) {
+        Constructor<?> constructor = Arrays.stream(type.getDeclaredConstructors())
+                .max(Comparator.comparingInt(Constructor::getParameterCount))
+                .orElseThrow();
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        Object[] arguments = new Object[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            arguments[i] = argumentFor(parameterTypes[i], dependencies);
+        }
+        try {
+            constructor.setAccessible(true);
+            return (T) constructor.newInstance(arguments);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Không tạo được " + type.getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gán field được inject bằng @Value (không có trong constructor)
+     */
+    public static void setField(Object target, String name, Object value) {
+        Class<?> type = target.getClass();
+        while (type != null) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                type = type.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("Không có field " + name + " trong " + target.getClass().getSimpleName());
+    }
+
+    /**
+     * Gọi method không tham số bất kể phạm vi truy cập (VD: @PostConstruct private)
+     */
+    public static void invoke(Object target, String name) {
+        try {
+            Method method = target.getClass().getDeclaredMethod(name);
+            method.setAccessible(true);
+            method.invoke(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Không gọi được " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Object argumentFor(Class<?> parameterType, Object[] dependencies) {
+        for (Object dependency : dependencies) {
+            if (dependency != null && parameterType.isInstance(dependency)) {
+                return dependency;
+            }
+        }
+        if (parameterType.isPrimitive()) {
+            return zero(parameterType);
+        }
+        return parameterType.isInterface() ? repository(parameterType) : null;
+    }
+
+    private static Object defaultAnswer(Class<?> type, Object self, Method method, Object[] arguments) {
+        switch (method.getName()) {
+            case "toString":
+                return "Stub<" + type.getSimpleName() + ">";
+            case "hashCode":
+                return System.identityHashCode(self);
+            case "equals":
+                return self == arguments[0];
+            default:
+                break;
+        }
+        if (method.getName().startsWith("save") && arguments.length == 1) {
+            return arguments[0];
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType == Optional.class) {
+            return Optional.empty();
+        }
+        if (returnType == Page.class) {
+            return Page.empty();
+        }
+        if (returnType == Set.class) {
+            return Set.of();
+        }
+        if (Collection.class.isAssignableFrom(returnType) || returnType == Iterable.class) {
+            return List.of();
+        }
+        return returnType.isPrimitive() ? zero(returnType) : null;
+    }
+
+    private static Object zero(Class<?> primitive) {
+        if (primitive == boolean.class) {
+            return false;
+        }
+        if (primitive == void.class) {
+            return null;
+        }
+        if (primitive == long.class) {
+            return 0L;
+        }
+        if (primitive == double.class) {
+            return 0d;
+        }
+        if (primitive == float.class) {
+            return 0f;
+        }
+        if (primitive == char.class) {
+            return '\0';
+        }
+        if (primitive == byte.class) {
+            return (byte) 0;
+        }
+        if (primitive == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
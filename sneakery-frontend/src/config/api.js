@@ -35,6 +35,7 @@ export const API_ENDPOINTS = {
   PRODUCTS: {
     BASE: '/api/products',
     SEARCH: '/api/products/search',
+    SUGGEST: '/api/products/suggest',
     BY_ID: (id) => `/api/products/${id}`,
     BY_SLUG: (slug) => `/api/products/slug/${slug}`,
     CATEGORIES: '/api/products/categories',
@@ -131,6 +132,7 @@ export const API_ENDPOINTS = {
   NEWSLETTER: {
     SUBSCRIBE: '/api/newsletter/subscribe',
     UNSUBSCRIBE: '/api/newsletter/unsubscribe',
+    UNSUBSCRIBE_TOKEN: '/api/newsletter/unsubscribe/token',
   },
 };
 
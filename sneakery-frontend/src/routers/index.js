@@ -12,6 +12,7 @@ const LoginPage = () => import("../views/common/LoginPage.vue");
 const RegisterPage = () => import("../views/common/RegisterPage.vue");
 const ForgotPassword = () => import("../views/common/ForgotPassword.vue");
 const ResetPassWord = () => import("../views/common/ResetPassWord.vue");
+const NewsletterUnsubscribe = () => import("../views/common/NewsletterUnsubscribe.vue");
 // Import admin & user routes
 import adminRoutes from "./adminRoutes";
 import userRoutes from "./userRoutes";
@@ -78,6 +79,12 @@ const routes = [
     name: "reset-password",
     component: ResetPassWord,
   },
+  // Link hủy đăng ký trong email newsletter (?token=...)
+  {
+    path: "/newsletter/unsubscribe",
+    name: "newsletter-unsubscribe",
+    component: NewsletterUnsubscribe,
+  },
   // Cart and Checkout pages (Public - Cho phép cả guest và authenticated users)
   {
     path: '/cart',
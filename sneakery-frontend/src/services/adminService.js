@@ -1613,6 +1613,18 @@ async rejectReturn(id, adminNote = '') {
     }
   }
 
+  // Quét mã vạch / SKU: tra index trong bộ nhớ ở backend
+  async scanPOSCode(code) {
+    try {
+      const response = await adminApi.get('/pos/scan', {
+        params: { code }
+      })
+      return response.data
+    } catch (error) {
+      throw this.handleError(error)
+    }
+  }
+
   async getPOSOrders(page = 0, size = 20) {
     try {
       const response = await adminApi.get('/pos/orders', {
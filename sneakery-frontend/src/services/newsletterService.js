@@ -43,6 +43,22 @@ class NewsletterService {
       throw error;
     }
   }
+
+  /**
+   * Unsubscribe using the signed token from a newsletter email link
+   * @param {string} token - Token from the unsubscribe link
+   * @returns {Promise<Object>} Unsubscribe response
+   */
+  async unsubscribeByToken(token) {
+    try {
+      const response = await axios.post(API_ENDPOINTS.NEWSLETTER.UNSUBSCRIBE_TOKEN, { token });
+      logger.log('Newsletter unsubscription successful:', response.data);
+      return response.data;
+    } catch (error) {
+      logger.error('Error unsubscribing from newsletter:', error);
+      throw error;
+    }
+  }
 }
 
 export default new NewsletterService();
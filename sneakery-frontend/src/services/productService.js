@@ -50,6 +50,20 @@ class ProductService {
     }
     }
 
+    // Gợi ý khi gõ ô tìm kiếm (sản phẩm, thương hiệu, danh mục, SKU)
+    async suggestProducts(q, limit = 8) {
+    try {
+        const response = await axios.get(API_ENDPOINTS.PRODUCTS.SUGGEST, {
+        params: { q, limit },
+        });
+
+        return response.data;
+    } catch (error) {
+        logger.error("Error fetching search suggestions:", error);
+        throw error;
+    }
+    }
+
     // Lấy sản phẩm tương tự (ưu tiên brand → category)
     async getRelatedProducts(id, brandId = null, categoryIds = [], limit = 4) {
     try {
@@ -72,8 +86,10 @@ class ProductService {
     }
 
     // Lấy tất cả hình ảnh sản phẩm (dùng cho admin)
-    async getAllProductImages() {
-        return axios.get('/api/products/images');
+    async getProductImages(productIds) {
+        return axios.get('/api/products/images', {
+            params: { productIds: productIds.join(',') }
+        });
     }
 }
 
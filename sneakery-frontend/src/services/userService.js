@@ -255,6 +255,16 @@ class UserService {
     }
   }
 
+  // Ticket ngắn hạn để mở kênh SSE (EventSource không gửi được header Authorization)
+  async getNotificationStreamTicket() {
+    try {
+      const response = await userApi.post('/notifications/stream-ticket')
+      return response.data.ticket
+    } catch (error) {
+      throw this.handleError(error)
+    }
+  }
+
   async markAsRead(notificationId) {
     try {
       await userApi.put(`/notifications/${notificationId}/read`)
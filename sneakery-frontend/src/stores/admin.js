@@ -1070,6 +1070,11 @@ const deleteSole = async (id) => {
     }
   }
 
+  // Không bật loading toàn trang: quét mã cần phản hồi tức thì
+  const scanPOSCode = async (code) => {
+    return AdminService.scanPOSCode(code)
+  }
+
   const fetchPOSOrders = async (page = 0, size = 20) => {
     try {
       loading.value = true
@@ -1539,6 +1544,7 @@ const deleteSole = async (id) => {
     fetchSettings,
     updateSettings,
     createPOSOrder,
+    scanPOSCode,
     fetchPOSOrders,
     
     // New Actions - Reviews
@@ -6,6 +6,7 @@
 import { defineStore } from 'pinia';
 import { ref, computed } from 'vue';
 import userService from '@/services/userService';
+import { API_BASE_URL, API_ENDPOINTS } from '@/config/api';
 import logger from '@/utils/logger';
 
 export const useNotificationStore = defineStore('notification', () => {
@@ -16,6 +17,10 @@ export const useNotificationStore = defineStore('notification', () => {
     const error = ref(null);
     const currentPage = ref(0);
     const totalPages = ref(0);
+    let eventSource = null;
+    let connecting = false;
+    let reconnectTimer = null;
+    const STREAM_RECONNECT_DELAY_MS = 5000;
 
     // Computed
     const hasUnread = computed(() => unreadCount.value > 0);
@@ -65,6 +70,84 @@ export const useNotificationStore = defineStore('notification', () => {
         }
     };
 
+    /**
+     * Mở kênh SSE: server đẩy thông báo mới và số unread (không cần polling)
+     * URL chỉ mang ticket ngắn hạn lấy qua POST /stream-ticket (không đưa JWT vào URL / access log).
+     * Ticket hết hạn nên khi mất kết nối phải lấy ticket mới rồi mở lại, không để EventSource tự kết nối lại
+     */
+    const connectStream = async () => {
+        if (eventSource || connecting || !localStorage.getItem('token')) {
+            return;
+        }
+        if (typeof EventSource === 'undefined') {
+            // Trình duyệt không hỗ trợ SSE: lấy số unread một lần
+            fetchUnreadCount();
+            return;
+        }
+
+        connecting = true;
+        let ticket;
+        try {
+            ticket = await userService.getNotificationStreamTicket();
+        } catch (err) {
+            logger.error('❌ Error fetching notification stream ticket:', err);
+            scheduleReconnect();
+            return;
+        } finally {
+            connecting = false;
+        }
+        if (eventSource || !localStorage.getItem('token')) {
+            return;
+        }
+
+        const url = `${API_BASE_URL}${API_ENDPOINTS.NOTIFICATIONS.BASE}/stream?ticket=${encodeURIComponent(ticket)}`;
+        eventSource = new EventSource(url);
+
+        eventSource.addEventListener('unread-count', (event) => {
+            unreadCount.value = JSON.parse(event.data).count;
+        });
+
+        eventSource.addEventListener('notification', (event) => {
+            const notification = JSON.parse(event.data);
+            // Thông báo gửi hàng loạt (fan-out) không kèm id
+            if (notification.id == null || !notifications.value.some(n => n.id === notification.id)) {
+                notifications.value.unshift(notification);
+            }
+            unreadCount.value = notification.unreadCount;
+            logger.log(`🔔 New notification: ${notification.title}`);
+        });
+
+        eventSource.onerror = () => {
+            // Đóng rồi mở lại bằng ticket mới; token hết hạn / bị đăng xuất thì dừng
+            disconnectStream();
+            scheduleReconnect();
+        };
+    };
+
+    const scheduleReconnect = () => {
+        if (reconnectTimer || !localStorage.getItem('token')) {
+            return;
+        }
+        reconnectTimer = setTimeout(() => {
+            reconnectTimer = null;
+            connectStream();
+        }, STREAM_RECONNECT_DELAY_MS);
+    };
+
+    /**
+     * Đóng kênh SSE
+     */
+    const disconnectStream = () => {
+        if (reconnectTimer) {
+            clearTimeout(reconnectTimer);
+            reconnectTimer = null;
+        }
+        if (eventSource) {
+            eventSource.close();
+            eventSource = null;
+        }
+    };
+
     /**
      * Mark notification as read
      */
@@ -143,6 +226,7 @@ export const useNotificationStore = defineStore('notification', () => {
      * Reset store
      */
     const reset = () => {
+        disconnectStream();
         notifications.value = [];
         unreadCount.value = 0;
         loading.value = false;
@@ -167,6 +251,8 @@ export const useNotificationStore = defineStore('notification', () => {
         // Actions
         fetchNotifications,
         fetchUnreadCount,
+        connectStream,
+        disconnectStream,
         markAsRead,
         markAllAsRead,
         loadMore,
@@ -2,22 +2,61 @@ import { defineStore } from "pinia";
 import { ref } from "vue";
 import axios from "@/utils/axios";
 
+// Backend giới hạn 100 productId mỗi request
+const MAX_IDS_PER_REQUEST = 100;
+
 export const useProductImageStore = defineStore("productImages", () => {
   const imagesByProduct = ref({}); // Map productId → list images
   const loading = ref(false);
 
-  const loadAll = async () => {
+  const requested = new Set(); // productId đã / đang tải
+  let pending = new Set();
+  let flushScheduled = false;
+
+  // Tải ảnh cho danh sách productId đang hiển thị (bỏ qua id đã tải)
+  const loadForProducts = async (productIds = []) => {
+    const ids = [...new Set(productIds.filter(Boolean))].filter(
+      (id) => !requested.has(id)
+    );
+    if (ids.length === 0) return;
+    ids.forEach((id) => requested.add(id));
+
     loading.value = true;
-    const res = await axios.get("products/images");
+    try {
+      for (let i = 0; i < ids.length; i += MAX_IDS_PER_REQUEST) {
+        const chunk = ids.slice(i, i + MAX_IDS_PER_REQUEST);
+        const res = await axios.get("products/images", {
+          params: { productIds: chunk.join(",") },
+        });
 
-    const map = {};
-    res.data.forEach(item => {
-      map[item.productId] = item.images; // List ảnh
-    });
+        const map = { ...imagesByProduct.value };
+        res.data.forEach((item) => {
+          map[item.productId] = item.images; // List ảnh
+        });
+        imagesByProduct.value = map;
+      }
+    } catch (error) {
+      // Cho phép thử lại ở lần hiển thị sau
+      ids.forEach((id) => requested.delete(id));
+      throw error;
+    } finally {
+      loading.value = false;
+    }
+  };
 
-    imagesByProduct.value = map;
-    loading.value = false;
+  // Gom các ProductCard mount cùng lúc thành 1 request
+  const request = (productId) => {
+    if (!productId || requested.has(productId)) return;
+    pending.add(productId);
+    if (flushScheduled) return;
+    flushScheduled = true;
+    setTimeout(() => {
+      const ids = [...pending];
+      pending = new Set();
+      flushScheduled = false;
+      loadForProducts(ids).catch(() => {});
+    }, 0);
   };
 
-  return { imagesByProduct, loadAll };
+  return { imagesByProduct, loading, loadForProducts, request };
 });
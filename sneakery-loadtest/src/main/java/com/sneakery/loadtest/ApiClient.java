@@ -0,0 +1,133 @@
+package com.sneakery.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Client HTTP đồng bộ của một virtual user: đo thời gian mỗi request và ghi vào LatencyRecorder theo tên endpoint
+ *
+ * <p>Request bắt đầu trước measureStartNanos (giai đoạn warmup) hoặc khi recorder null (chuẩn bị) không được ghi.
+ * Lỗi mạng / HTTP khác 2xx được ghi là lỗi, hàm trả về null để kịch bản tự bỏ qua bước sau.
+ */
+public class ApiClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final LatencyRecorder recorder;
+    private final long measureStartNanos;
+    private String accessToken;
+
+    public ApiClient(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl,
+                     LatencyRecorder recorder, long measureStartNanos) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.recorder = recorder;
+        this.measureStartNanos = measureStartNanos;
+    }
+
+    /**
+     * Đăng nhập và dùng access token cho các request sau
+     */
+    public boolean login(String email, String password) throws InterruptedException {
+        JsonNode response = post("POST /api/auth/login", "/api/auth/login", Map.of("email", email, "password", password));
+        if (response == null || !response.hasNonNull("accessToken")) {
+            return false;
+        }
+        accessToken = response.get("accessToken").asText();
+        return true;
+    }
+
+    public String accessToken() {
+        return accessToken;
+    }
+
+    /**
+     * Dùng token đã có (vd. token admin lấy một lần lúc khởi động, tránh mỗi virtual user băm BCrypt thêm lần nữa)
+     */
+    public void useToken(String token) {
+        this.accessToken = token;
+    }
+
+    public JsonNode get(String endpoint, String path) throws InterruptedException {
+        return send(endpoint, request(path).GET().build());
+    }
+
+    public JsonNode post(String endpoint, String path, Object body) throws InterruptedException {
+        return send(endpoint, request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json(body)))
+                .build());
+    }
+
+    public JsonNode delete(String endpoint, String path) throws InterruptedException {
+        return send(endpoint, request(path).DELETE().build());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json");
+        if (accessToken != null) {
+            builder.header("Authorization", "Bearer " + accessToken);
+        }
+        return builder;
+    }
+
+    private JsonNode send(String endpoint, HttpRequest request) throws InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            record(endpoint, start, e.getClass().getSimpleName() + ": " + e.getMessage());
+            return null;
+        }
+        int status = response.statusCode();
+        boolean ok = status >= 200 && status < 300;
+        record(endpoint, start, ok ? null : "HTTP " + status + " " + abbreviate(response.body()));
+        if (!ok) {
+            return null;
+        }
+        try {
+            String body = response.body();
+            return body == null || body.isEmpty() ? objectMapper.nullNode() : objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            return objectMapper.nullNode();
+        }
+    }
+
+    private void record(String endpoint, long start, String error) {
+        if (recorder != null && start - measureStartNanos >= 0) {
+            recorder.record(endpoint, System.nanoTime() - start, error);
+        }
+    }
+
+    private String json(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Không serialize được body: " + e.getMessage(), e);
+        }
+    }
+
+    private static String abbreviate(String body) {
+        if (body == null) {
+            return "";
+        }
+        String flat = body.replaceAll("\\s+", " ");
+        return flat.length() > 200 ? flat.substring(0, 200) + "…" : flat;
+    }
+}
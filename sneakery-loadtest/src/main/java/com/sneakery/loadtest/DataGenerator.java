@@ -0,0 +1,454 @@
+package com.sneakery.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Sinh dữ liệu catalog / khách hàng / lịch sử đơn hàng cho load test bằng JDBC batch
+ *
+ * <p>Cùng seed và cùng tham số thì sinh ra cùng dữ liệu (một SplittableRandom duy nhất, ghi tuần tự).
+ * Id do DB cấp (IDENTITY) nên được tính từ MAX(id) trước khi ghi từng bảng.
+ *
+ * <ul>
+ *   <li>Brands, Categories (nested set phẳng), Products + Product_Categories + Product_Images</li>
+ *   <li>Product_Variants + Variant_Sizes (bảng do trigger duy trì trên SQL Server)</li>
+ *   <li>Users (chung một mật khẩu, hash BCrypt một lần) + Addresses, một tài khoản ADMIN</li>
+ *   <li>Orders + Order_Details + Payments rải đều trong history-days ngày trước hôm nay, sản phẩm lệch về nhóm bán chạy</li>
+ *   <li>Daily_Sales tổng hợp từ đơn đang giao / đã giao (như DailySalesService backfill), Newsletter_Subscriptions
+ *       + email template {@value #NEWSLETTER_TEMPLATE} (tùy chọn)</li>
+ * </ul>
+ */
+@Slf4j
+public class DataGenerator {
+
+    public static final String PASSWORD = "LoadTest@123";
+    public static final String ADMIN_EMAIL = "loadtest-admin@sneakery.test";
+    public static final String NEWSLETTER_TEMPLATE = "loadtest_newsletter";
+
+    private static final int BATCH_SIZE = 2_000;
+    private static final int SIZE_MIN = 36;
+    private static final int SIZE_COUNT = 10;
+    private static final BigDecimal SHIPPING_FEE = BigDecimal.valueOf(30_000);
+    private static final DateTimeFormatter ORDER_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String[] BRAND_NAMES = {
+            "Nike", "Adidas", "Puma", "New Balance", "Asics", "Converse", "Vans", "Reebok", "Fila", "Jordan",
+            "Under Armour", "Skechers", "Mizuno", "Saucony", "Hoka", "On", "Salomon", "Brooks", "Onitsuka Tiger", "Biti's"
+    };
+    private static final String[] CATEGORY_NAMES = {
+            "Chạy bộ", "Bóng rổ", "Lifestyle", "Sneaker cổ cao", "Sneaker cổ thấp", "Tập luyện",
+            "Trail", "Skateboard", "Sandal", "Bóng đá", "Tennis", "Trẻ em"
+    };
+    private static final String[] MODEL_WORDS = {
+            "Air", "Zoom", "Ultra", "Boost", "Classic", "Court", "Runner", "Street", "Retro", "Pro",
+            "Flex", "Force", "Wave", "Gel", "Cloud", "Speed", "Trail", "Low", "High", "Max"
+    };
+    private static final String[] MODEL_SUFFIXES = {
+            "One", "Two", "React", "Vapor", "Glide", "Prime", "Lite", "Edge", "Nova", "Storm"
+    };
+    private static final String[] COLORS = {"Đen", "Trắng", "Xám", "Đỏ", "Xanh dương", "Xanh lá", "Be", "Hồng"};
+    private static final String[] COLOR_CODES = {"BLK", "WHT", "GRY", "RED", "BLU", "GRN", "BEI", "PNK"};
+    private static final String[] CITIES = {"Hồ Chí Minh", "Hà Nội", "Đà Nẵng", "Cần Thơ", "Hải Phòng", "Biên Hòa"};
+    private static final String[] DISTRICTS = {"Quận 1", "Quận 3", "Quận 7", "Bình Thạnh", "Thủ Đức", "Gò Vấp", "Tân Bình"};
+
+    private static final String INSERT_BRAND_SQL =
+            "INSERT INTO Brands (name, slug, description, is_active, created_at, updated_at) VALUES (?, ?, ?, 1, ?, ?)";
+    private static final String INSERT_CATEGORY_SQL =
+            "INSERT INTO Categories (name, slug, lft, rgt, level, display_order, is_active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, 0, ?, 1, ?, ?)";
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO Products (product_code, brand_id, name, slug, description, short_description, is_active, " +
+            "is_featured, is_new, view_count, order_count, avg_rating, review_count, main_image_url, " +
+            "published_at, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, 1, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PRODUCT_CATEGORY_SQL =
+            "INSERT INTO Product_Categories (product_id, category_id) VALUES (?, ?)";
+    private static final String INSERT_PRODUCT_IMAGE_SQL =
+            "INSERT INTO Product_Images (product_id, image_url, alt_text, is_primary, display_order, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_VARIANT_SQL =
+            "INSERT INTO Product_Variants (product_id, sku, size, color, price_base, price_sale, cost_price, " +
+            "stock_quantity, reserved_quantity, damaged_quantity, low_stock_threshold, weight_grams, is_active, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 5, 800, 1, ?, ?)";
+    private static final String INSERT_VARIANT_SIZE_SQL =
+            "INSERT INTO Variant_Sizes (variant_id, size) VALUES (?, ?)";
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO Users (email, password_hash, full_name, phone_number, is_active, role, created_at) " +
+            "VALUES (?, ?, ?, ?, 1, ?, ?)";
+    private static final String INSERT_ADDRESS_SQL =
+            "INSERT INTO Addresses (user_id, recipient_name, phone, line1, city, district, ward, latitude, longitude, " +
+            "is_default, address_type, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 1, 'home', ?, ?)";
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO Orders (user_id, address_shipping_id, address_billing_id, order_number, subtotal, shipping_fee, " +
+            "discount_amount, tax_amount, total_amount, points_earned, points_used, status, shipping_method, " +
+            "created_at, updated_at, delivered_at, cancelled_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 0, 0, ?, 0, 0, ?, 'standard', ?, ?, ?, ?)";
+    private static final String INSERT_ORDER_DETAIL_SQL =
+            "INSERT INTO Order_Details (order_id, variant_id, quantity, unit_price, product_name, variant_sku, size, " +
+            "color, total_price) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PAYMENT_SQL =
+            "INSERT INTO Payments (order_id, payment_method, amount, status, paid_at, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DAILY_SALES_SQL =
+            "INSERT INTO Daily_Sales (sale_date, product_id, variant_id, units, revenue, cost) " +
+            "SELECT CAST(o.created_at AS DATE), pv.product_id, od.variant_id, " +
+            "       SUM(od.quantity), SUM(od.total_price), SUM(od.quantity * COALESCE(pv.cost_price, 0)) " +
+            "FROM Orders o " +
+            "JOIN Order_Details od ON od.order_id = o.id " +
+            "JOIN Product_Variants pv ON pv.id = od.variant_id " +
+            "WHERE o.status IN ('shipped', 'delivered') " +
+            "GROUP BY CAST(o.created_at AS DATE), pv.product_id, od.variant_id";
+    private static final String INSERT_SUBSCRIPTION_SQL =
+            "INSERT INTO dbo.Newsletter_Subscriptions (email, is_active, subscribed_at) VALUES (?, 1, ?)";
+    private static final String INSERT_EMAIL_TEMPLATE_SQL =
+            "INSERT INTO Email_Templates (template_name, subject, body, variables, is_active, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, 1, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final LoadTestOptions options;
+    private final SplittableRandom random;
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    private long[] brandIds;
+    private String[] brandNames;
+    private long[] categoryIds;
+    private long productBase;
+    private long variantBase;
+    private long userBase;
+    private long addressBase;
+    private String[] productNames;
+    private int[] productBrands;
+    private long[] productPrices;
+    private boolean[] productOnSale;
+
+    public DataGenerator(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder, LoadTestOptions options) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.options = options;
+        this.random = new SplittableRandom(options.seed());
+    }
+
+    public static String userEmail(int userNumber) {
+        return "loadtest" + userNumber + "@sneakery.test";
+    }
+
+    public void generate() {
+        long started = System.nanoTime();
+        generateBrands();
+        generateCategories();
+        generateProducts();
+        generateVariants();
+        generateUsers();
+        generateOrders();
+        generateSubscribers();
+        log.info("🌱 Đã sinh dữ liệu load test trong {} s (seed {})",
+                (System.nanoTime() - started) / 1_000_000_000, options.seed());
+    }
+
+    private void generateBrands() {
+        brandIds = new long[options.brands()];
+        brandNames = new String[options.brands()];
+        long base = maxId("Brands");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < options.brands(); i++) {
+            String name = pick(BRAND_NAMES, i);
+            rows.add(new Object[]{name, slug(name), "Thương hiệu " + name, timestamp(now), timestamp(now)});
+            brandIds[i] = base + i + 1;
+            brandNames[i] = name;
+        }
+        jdbcTemplate.batchUpdate(INSERT_BRAND_SQL, rows);
+        log.info("🌱 Brands: {}", rows.size());
+    }
+
+    private void generateCategories() {
+        categoryIds = new long[options.categories()];
+        long base = maxId("Categories");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < options.categories(); i++) {
+            String name = pick(CATEGORY_NAMES, i);
+            rows.add(new Object[]{name, slug(name), 2 * i + 1, 2 * i + 2, i + 1, timestamp(now), timestamp(now)});
+            categoryIds[i] = base + i + 1;
+        }
+        jdbcTemplate.batchUpdate(INSERT_CATEGORY_SQL, rows);
+        log.info("🌱 Categories: {}", rows.size());
+    }
+
+    private void generateProducts() {
+        int count = options.products();
+        productBase = maxId("Products");
+        productNames = new String[count];
+        productBrands = new int[count];
+        productPrices = new long[count];
+        productOnSale = new boolean[count];
+
+        List<Object[]> products = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> categories = new ArrayList<>(BATCH_SIZE * 2);
+        List<Object[]> images = new ArrayList<>(BATCH_SIZE * 2);
+        for (int i = 0; i < count; i++) {
+            long productId = productBase + i + 1;
+            int brand = skewed(options.brands());
+            String name = brandNames[brand] + " " + MODEL_WORDS[random.nextInt(MODEL_WORDS.length)]
+                    + " " + MODEL_SUFFIXES[random.nextInt(MODEL_SUFFIXES.length)] + " " + (i + 1);
+            productNames[i] = name;
+            productBrands[i] = brand;
+            productPrices[i] = 1_000_000 + 10_000L * random.nextInt(500);
+            productOnSale[i] = random.nextInt(100) < 30;
+
+            LocalDateTime createdAt = now.minusDays(random.nextInt(options.historyDays() + 180));
+            String imageUrl = "https://res.cloudinary.com/demo/image/upload/sneakery/loadtest/p" + productId + ".jpg";
+            products.add(new Object[]{
+                    String.format(Locale.ROOT, "LT%07d", i + 1), brandIds[brand], name, slug(name),
+                    "Mô tả sản phẩm " + name, name + " chính hãng",
+                    random.nextInt(100) < 5, random.nextInt(100) < 10, random.nextInt(5_000),
+                    BigDecimal.valueOf(30 + random.nextInt(21), 1), random.nextInt(200), imageUrl,
+                    timestamp(createdAt), timestamp(createdAt), timestamp(createdAt)});
+
+            int firstCategory = random.nextInt(options.categories());
+            int categoryCount = 1 + random.nextInt(Math.min(3, options.categories()));
+            for (int c = 0; c < categoryCount; c++) {
+                categories.add(new Object[]{productId, categoryIds[(firstCategory + c) % options.categories()]});
+            }
+            images.add(new Object[]{productId, imageUrl, name, true, 1, timestamp(createdAt)});
+            images.add(new Object[]{productId, imageUrl.replace(".jpg", "-2.jpg"), name, false, 2, timestamp(createdAt)});
+
+            if (products.size() == BATCH_SIZE) {
+                flush(INSERT_PRODUCT_SQL, products);
+                flush(INSERT_PRODUCT_CATEGORY_SQL, categories);
+                flush(INSERT_PRODUCT_IMAGE_SQL, images);
+            }
+        }
+        flush(INSERT_PRODUCT_SQL, products);
+        flush(INSERT_PRODUCT_CATEGORY_SQL, categories);
+        flush(INSERT_PRODUCT_IMAGE_SQL, images);
+        log.info("🌱 Products: {}", count);
+    }
+
+    private void generateVariants() {
+        int perProduct = options.variantsPerProduct();
+        variantBase = maxId("Product_Variants");
+        List<Object[]> variants = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> sizes = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < options.products(); i++) {
+            long productId = productBase + i + 1;
+            LocalDateTime createdAt = now.minusDays(options.historyDays());
+            for (int v = 0; v < perProduct; v++) {
+                String size = size(v);
+                int color = color(i, v);
+                BigDecimal base = BigDecimal.valueOf(productPrices[i]);
+                BigDecimal sale = productOnSale[i] ? BigDecimal.valueOf(productPrices[i] * 8 / 10) : null;
+                variants.add(new Object[]{productId, sku(i, v), size, COLORS[color], base, sale,
+                        BigDecimal.valueOf(productPrices[i] * 55 / 100), 20 + random.nextInt(481),
+                        timestamp(createdAt), timestamp(createdAt)});
+                sizes.add(new Object[]{variantId(i, v), size});
+                if (variants.size() == BATCH_SIZE) {
+                    flush(INSERT_VARIANT_SQL, variants);
+                    flush(INSERT_VARIANT_SIZE_SQL, sizes);
+                }
+            }
+        }
+        flush(INSERT_VARIANT_SQL, variants);
+        flush(INSERT_VARIANT_SIZE_SQL, sizes);
+        log.info("🌱 Variants: {}", (long) options.products() * perProduct);
+    }
+
+    private void generateUsers() {
+        // BCrypt chậm có chủ đích: hash một lần, dùng chung cho mọi tài khoản
+        String passwordHash = passwordEncoder.encode(PASSWORD);
+        userBase = maxId("Users");
+        addressBase = maxId("Addresses");
+
+        List<Object[]> users = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> addresses = new ArrayList<>(BATCH_SIZE);
+        for (int n = 1; n <= options.users(); n++) {
+            String fullName = "Khách Load Test " + n;
+            String phone = String.format(Locale.ROOT, "09%08d", n);
+            LocalDateTime createdAt = now.minusDays(random.nextInt(options.historyDays() + 1));
+            users.add(new Object[]{userEmail(n), passwordHash, fullName, phone, "USER", timestamp(createdAt)});
+            addresses.add(new Object[]{userBase + n, fullName, phone, n + " Đường Số " + (1 + random.nextInt(50)),
+                    CITIES[random.nextInt(CITIES.length)], DISTRICTS[random.nextInt(DISTRICTS.length)],
+                    "Phường " + (1 + random.nextInt(15)),
+                    BigDecimal.valueOf(10.70 + random.nextDouble() * 0.25).setScale(8, RoundingMode.HALF_UP),
+                    BigDecimal.valueOf(106.60 + random.nextDouble() * 0.25).setScale(8, RoundingMode.HALF_UP),
+                    timestamp(createdAt), timestamp(createdAt)});
+            if (users.size() == BATCH_SIZE) {
+                flush(INSERT_USER_SQL, users);
+                flush(INSERT_ADDRESS_SQL, addresses);
+            }
+        }
+        flush(INSERT_USER_SQL, users);
+        flush(INSERT_ADDRESS_SQL, addresses);
+        jdbcTemplate.update(INSERT_USER_SQL, ADMIN_EMAIL, passwordHash, "Admin Load Test", "0900000000", "ADMIN",
+                timestamp(now));
+        log.info("🌱 Users: {} (+ admin {})", options.users(), ADMIN_EMAIL);
+    }
+
+    private void generateOrders() {
+        if (options.orders() == 0) {
+            return;
+        }
+        long orderBase = maxId("Orders");
+        List<Object[]> orders = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> details = new ArrayList<>(BATCH_SIZE * 3);
+        List<Object[]> payments = new ArrayList<>(BATCH_SIZE);
+
+        int days = options.historyDays();
+        int generated = 0;
+        // Ngày cũ nhất trước; số thứ tự trong ngày như OrderService: ORD-yyyyMMdd-NNNN
+        for (int day = days; day >= 1; day--) {
+            int perDay = options.orders() / days + (days - day < options.orders() % days ? 1 : 0);
+            LocalDate date = now.toLocalDate().minusDays(day);
+            for (int seq = 1; seq <= perDay; seq++) {
+                long orderId = orderBase + generated + 1;
+                int user = 1 + skewed(options.users());
+                LocalDateTime createdAt = date.atStartOfDay().plusSeconds(random.nextInt(86_400));
+                String status = orderStatus(day);
+
+                BigDecimal subtotal = BigDecimal.ZERO;
+                int lines = 1 + random.nextInt(4);
+                int firstProduct = skewed(options.products());
+                for (int line = 0; line < lines; line++) {
+                    int product = line == 0 ? firstProduct : skewed(options.products());
+                    int variant = random.nextInt(options.variantsPerProduct());
+                    int quantity = 1 + (random.nextInt(10) == 0 ? 1 : 0);
+                    BigDecimal unitPrice = BigDecimal.valueOf(productOnSale[product]
+                            ? productPrices[product] * 8 / 10 : productPrices[product]);
+                    BigDecimal total = unitPrice.multiply(BigDecimal.valueOf(quantity));
+                    subtotal = subtotal.add(total);
+                    details.add(new Object[]{orderId, variantId(product, variant), quantity, unitPrice,
+                            productNames[product], sku(product, variant), size(variant),
+                            COLORS[color(product, variant)], total});
+                }
+                BigDecimal totalAmount = subtotal.add(SHIPPING_FEE);
+                LocalDateTime updatedAt = createdAt.plusDays(Math.min(day, 3));
+                orders.add(new Object[]{userBase + user, addressBase + user, addressBase + user,
+                        "ORD-" + date.format(ORDER_DATE) + "-" + String.format(Locale.ROOT, "%04d", seq),
+                        subtotal, SHIPPING_FEE, totalAmount, status, timestamp(createdAt), timestamp(updatedAt),
+                        "delivered".equals(status) ? timestamp(updatedAt) : null,
+                        "cancelled".equals(status) ? timestamp(updatedAt) : null});
+
+                boolean online = random.nextInt(100) < 40;
+                String paymentStatus = switch (status) {
+                    case "delivered" -> "completed";
+                    case "cancelled" -> "failed";
+                    case "refunded" -> "refunded";
+                    default -> online ? "completed" : "pending";
+                };
+                payments.add(new Object[]{orderId, online ? "vnpay" : "cod", totalAmount, paymentStatus,
+                        "completed".equals(paymentStatus) ? timestamp(updatedAt) : null,
+                        timestamp(createdAt), timestamp(updatedAt)});
+
+                generated++;
+                if (orders.size() == BATCH_SIZE) {
+                    flush(INSERT_ORDER_SQL, orders);
+                    flush(INSERT_ORDER_DETAIL_SQL, details);
+                    flush(INSERT_PAYMENT_SQL, payments);
+                }
+            }
+        }
+        flush(INSERT_ORDER_SQL, orders);
+        flush(INSERT_ORDER_DETAIL_SQL, details);
+        flush(INSERT_PAYMENT_SQL, payments);
+        int facts = jdbcTemplate.update(INSERT_DAILY_SALES_SQL);
+        log.info("🌱 Orders: {} ({} dòng Daily_Sales)", generated, facts);
+    }
+
+    private void generateSubscribers() {
+        if (options.subscribers() == 0) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int n = 1; n <= options.subscribers(); n++) {
+            rows.add(new Object[]{"newsletter" + n + "@sneakery.test",
+                    timestamp(now.minusDays(random.nextInt(options.historyDays() + 1)))});
+            if (rows.size() == BATCH_SIZE) {
+                flush(INSERT_SUBSCRIPTION_SQL, rows);
+            }
+        }
+        flush(INSERT_SUBSCRIPTION_SQL, rows);
+        jdbcTemplate.update(INSERT_EMAIL_TEMPLATE_SQL, NEWSLETTER_TEMPLATE, "{{app_name}} - Bản tin load test",
+                "<p>Xin chào {{email}},</p><p>Bản tin thử từ {{app_name}}.</p>"
+                        + "<p><a href=\"{{unsubscribe_link}}\">Hủy đăng ký</a></p>",
+                "{email},{unsubscribe_link},{app_name}", timestamp(now), timestamp(now));
+        log.info("🌱 Newsletter subscribers: {} (template {})", options.subscribers(), NEWSLETTER_TEMPLATE);
+    }
+
+    /**
+     * Đơn cũ hơn 2 tuần phần lớn đã giao; đơn gần đây trải đều các trạng thái đang xử lý
+     */
+    private String orderStatus(int daysAgo) {
+        int roll = random.nextInt(100);
+        if (daysAgo > 14) {
+            return roll < 90 ? "delivered" : roll < 97 ? "cancelled" : "refunded";
+        }
+        return roll < 40 ? "delivered" : roll < 60 ? "shipped" : roll < 75 ? "processing"
+                : roll < 85 ? "confirmed" : roll < 95 ? "pending" : "cancelled";
+    }
+
+    private long variantId(int product, int variant) {
+        return variantBase + (long) product * options.variantsPerProduct() + variant + 1;
+    }
+
+    private String sku(int product, int variant) {
+        String prefix = Normalizer.normalize(brandNames[productBrands[product]], Normalizer.Form.NFD).replaceAll("[^A-Za-z]", "")
+                .toUpperCase(Locale.ROOT);
+        return String.format(Locale.ROOT, "%s-%07d-%s-%s", prefix.substring(0, Math.min(4, prefix.length())),
+                product + 1, COLOR_CODES[color(product, variant)], size(variant));
+    }
+
+    private static String size(int variant) {
+        return String.valueOf(SIZE_MIN + variant % SIZE_COUNT);
+    }
+
+    private static int color(int product, int variant) {
+        return (product + variant / SIZE_COUNT) % COLORS.length;
+    }
+
+    /**
+     * Chỉ số trong [0, bound) lệch về các giá trị nhỏ (khoảng 20% phần tử đầu chiếm phần lớn lượt chọn)
+     */
+    private int skewed(int bound) {
+        double u = random.nextDouble();
+        return (int) Math.min(bound - 1L, (long) (bound * u * u * u));
+    }
+
+    private long maxId(String table) {
+        Long max = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return max != null ? max : 0;
+    }
+
+    private void flush(String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+
+    private static String pick(String[] pool, int index) {
+        return index < pool.length ? pool[index] : pool[index % pool.length] + " " + (index / pool.length + 1);
+    }
+
+    private static String slug(String name) {
+        return Normalizer.normalize(name.replace('đ', 'd').replace('Đ', 'D'), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9]+", "-")
+                .replaceAll("(^-|-$)", "");
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return Timestamp.valueOf(value);
+    }
+}
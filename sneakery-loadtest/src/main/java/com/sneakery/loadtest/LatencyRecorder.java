@@ -0,0 +1,60 @@
+package com.sneakery.loadtest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thời gian phản hồi theo endpoint của một virtual user
+ *
+ * <p>Mỗi virtual user ghi vào recorder riêng (không khóa, không tranh chấp giữa các luồng),
+ * LoadReport gộp lại sau khi kết thúc.
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Samples> samples = new HashMap<>();
+
+    public void record(String endpoint, long nanos, String error) {
+        Samples endpointSamples = samples.computeIfAbsent(endpoint, key -> new Samples());
+        endpointSamples.add(nanos);
+        if (error != null) {
+            endpointSamples.errors++;
+            endpointSamples.lastError = error;
+        }
+    }
+
+    public Map<String, Samples> samples() {
+        return samples;
+    }
+
+    public static final class Samples {
+
+        private long[] nanos = new long[256];
+        private int size;
+        private long errors;
+        private String lastError;
+
+        private void add(long value) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = value;
+        }
+
+        public long[] nanos() {
+            return Arrays.copyOf(nanos, size);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        public String lastError() {
+            return lastError;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.sneakery.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Kết quả load test: throughput và phân vị thời gian phản hồi theo endpoint trong giai đoạn đo
+ */
+public record LoadReport(
+        LoadTestOptions options,
+        double measuredSeconds,
+        List<EndpointStats> endpoints,
+        EndpointStats total
+) {
+
+    public record EndpointStats(
+            String endpoint,
+            long requests,
+            long errors,
+            double throughputPerSecond,
+            double meanMs,
+            double p50Ms,
+            double p90Ms,
+            double p99Ms,
+            double p999Ms,
+            double maxMs,
+            String lastError
+    ) {
+    }
+
+    public static LoadReport from(LoadTestOptions options, Collection<LatencyRecorder> recorders, long measuredNanos) {
+        double seconds = measuredNanos / 1e9;
+        Map<String, List<LatencyRecorder.Samples>> byEndpoint = new TreeMap<>();
+        List<LatencyRecorder.Samples> all = new ArrayList<>();
+        for (LatencyRecorder recorder : recorders) {
+            recorder.samples().forEach((endpoint, samples) -> {
+                byEndpoint.computeIfAbsent(endpoint, key -> new ArrayList<>()).add(samples);
+                all.add(samples);
+            });
+        }
+        List<EndpointStats> endpoints = new ArrayList<>();
+        byEndpoint.forEach((endpoint, samples) -> endpoints.add(stats(endpoint, samples, seconds)));
+        return new LoadReport(options, seconds, endpoints, stats("TOTAL", all, seconds));
+    }
+
+    private static EndpointStats stats(String endpoint, List<LatencyRecorder.Samples> parts, double seconds) {
+        int count = 0;
+        long errors = 0;
+        String lastError = null;
+        for (LatencyRecorder.Samples part : parts) {
+            count += part.size();
+            errors += part.errors();
+            if (part.lastError() != null) {
+                lastError = part.lastError();
+            }
+        }
+        long[] nanos = new long[count];
+        int offset = 0;
+        for (LatencyRecorder.Samples part : parts) {
+            long[] values = part.nanos();
+            System.arraycopy(values, 0, nanos, offset, values.length);
+            offset += values.length;
+        }
+        Arrays.sort(nanos);
+        double sum = 0;
+        for (long value : nanos) {
+            sum += value;
+        }
+        return new EndpointStats(endpoint, count, errors, count / seconds,
+                count == 0 ? 0 : sum / count / 1e6,
+                percentile(nanos, 0.50), percentile(nanos, 0.90), percentile(nanos, 0.99), percentile(nanos, 0.999),
+                count == 0 ? 0 : nanos[count - 1] / 1e6, lastError);
+    }
+
+    /**
+     * Phân vị theo nearest-rank trên mẫu đã sort, đơn vị ms
+     */
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    public void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%n📊 Load test: %d virtual users, đo %.0f s (seed %d)%n",
+                options.virtualUsers(), measuredSeconds, options.seed());
+        String header = String.format(Locale.ROOT, "%-48s %9s %7s %9s %9s %9s %9s %9s %9s %9s",
+                "endpoint", "requests", "errors", "req/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        out.println(header);
+        out.println("-".repeat(header.length()));
+        for (EndpointStats stats : endpoints) {
+            printRow(out, stats);
+        }
+        out.println("-".repeat(header.length()));
+        printRow(out, total);
+
+        for (EndpointStats stats : endpoints) {
+            if (stats.lastError() != null) {
+                out.printf(Locale.ROOT, "❌ %s: %d lỗi, gần nhất: %s%n", stats.endpoint(), stats.errors(), stats.lastError());
+            }
+        }
+    }
+
+    private static void printRow(PrintStream out, EndpointStats stats) {
+        out.printf(Locale.ROOT, "%-48s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                stats.endpoint(), stats.requests(), stats.errors(), stats.throughputPerSecond(), stats.meanMs(),
+                stats.p50Ms(), stats.p90Ms(), stats.p99Ms(), stats.p999Ms(), stats.maxMs());
+    }
+
+    public void writeJson(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        new ObjectMapper()
+                .findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file.toFile(), this);
+    }
+}
@@ -0,0 +1,138 @@
+package com.sneakery.loadtest;
+
+import com.sneakery.store.SneakeryApplication;
+import com.sneakery.store.security.SseTicketProvider;
+import com.sneakery.store.service.CoPurchaseIndexService;
+import com.sneakery.store.service.CouponIndexService;
+import com.sneakery.store.service.NotificationPushService;
+import com.sneakery.store.service.PosSkuIndexService;
+import com.sneakery.store.service.ProductFacetIndexService;
+import com.sneakery.store.service.ProductImageIndexService;
+import com.sneakery.store.service.ProductSuggestIndexService;
+import com.sneakery.store.service.RelatedProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test end-to-end chạy trên một máy, không cần SQL Server / mạng
+ *
+ * <ol>
+ *   <li>Khởi động backend (SneakeryApplication) với profile loadtest: H2 MSSQL mode, job nền tắt, geocoding offline</li>
+ *   <li>Sinh dữ liệu theo seed (DataGenerator) và dựng sẵn các index trong bộ nhớ</li>
+ *   <li>Chạy kịch bản trên virtual thread (ScenarioRunner), in throughput + phân vị theo endpoint,
+ *       thời gian các stage phía server (timer sneakery.*) và ghi report JSON</li>
+ * </ol>
+ *
+ * <p>--serve: dừng sau bước 2 và giữ backend chạy (đo bằng công cụ khác / chạy --target từ process khác).
+ * --target=URL: bỏ qua bước 1-2, chỉ chạy kịch bản vào backend có sẵn.
+ * --sse-subscribers=N: thay bước 3 bằng đo heap / kết nối SSE rảnh (SseIdleProbe).
+ */
+@Slf4j
+public final class LoadTestApplication {
+
+    /**
+     * File DB của profile loadtest (khớp spring.datasource.url), xóa trước mỗi lần chạy để dữ liệu chỉ phụ thuộc seed
+     */
+    private static final Path DB_FILE = Path.of("target", "loadtest", "sneakery.mv.db");
+
+    private LoadTestApplication() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        if (options.target() != null) {
+            LoadReport report = new ScenarioRunner(options, options.target()).run();
+            report.print(System.out);
+            report.writeJson(options.reportFile());
+            return;
+        }
+
+        Files.deleteIfExists(DB_FILE);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SneakeryApplication.class, LoadTestConfig.class)
+                .profiles("loadtest")
+                .run();
+
+        new DataGenerator(context.getBean(JdbcTemplate.class), context.getBean(PasswordEncoder.class), options).generate();
+        warmIndexes(context);
+
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        if (options.serve()) {
+            log.info("✅ Backend load test sẵn sàng tại {} (admin {}, khách loadtest1..{}@sneakery.test, mật khẩu {})",
+                    baseUrl, DataGenerator.ADMIN_EMAIL, options.users(), DataGenerator.PASSWORD);
+            return;
+        }
+
+        if (options.sseSubscribers() > 0) {
+            SseIdleProbe.Result result = new SseIdleProbe(options,
+                    Integer.parseInt(context.getEnvironment().getProperty("local.server.port")),
+                    context.getBean(SseTicketProvider.class), context.getBean(NotificationPushService.class)).run();
+            result.print(System.out);
+            result.writeJson(options.reportFile());
+            log.info("📝 Report: {}", options.reportFile().toAbsolutePath());
+            System.exit(SpringApplication.exit(context));
+        }
+
+        LoadReport report = new ScenarioRunner(options, baseUrl).run();
+        report.print(System.out);
+        printServerTimers(context.getBean(MeterRegistry.class));
+        report.writeJson(options.reportFile());
+        log.info("📝 Report: {}", options.reportFile().toAbsolutePath());
+        System.exit(SpringApplication.exit(context));
+    }
+
+    /**
+     * Dựng các index trong bộ nhớ ngay sau khi sinh dữ liệu (lịch refresh bị đẩy ra xa trong profile loadtest),
+     * để request đầu tiên của kịch bản không phải chờ dựng index
+     */
+    private static void warmIndexes(ConfigurableApplicationContext context) {
+        warm("facet", () -> context.getBean(ProductFacetIndexService.class).refresh());
+        warm("suggest", () -> context.getBean(ProductSuggestIndexService.class).rebuild());
+        warm("pos-sku", () -> context.getBean(PosSkuIndexService.class).refresh());
+        warm("coupon", () -> context.getBean(CouponIndexService.class).refresh());
+        warm("product-image", () -> context.getBean(ProductImageIndexService.class).refresh());
+        warm("co-purchase", () -> context.getBean(CoPurchaseIndexService.class).rebuildIfIdle());
+        warm("related", () -> context.getBean(RelatedProductService.class).rebuildIfIdle());
+    }
+
+    private static void warm(String name, Runnable refresh) {
+        long started = System.nanoTime();
+        try {
+            refresh.run();
+            log.info("🧱 Index {}: {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Không dựng được index {} trên H2: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Timer sneakery.* của backend (vd. sneakery.checkout.stage theo từng stage), cùng giai đoạn warmup + đo
+     */
+    private static void printServerTimers(MeterRegistry registry) {
+        System.out.printf(Locale.ROOT, "%n⏱️ Timer phía server (gồm cả warmup)%n%-70s %9s %9s %9s%n",
+                "timer", "count", "mean ms", "max ms");
+        registry.getMeters().stream()
+                .filter(meter -> meter instanceof Timer && meter.getId().getName().startsWith("sneakery."))
+                .map(Timer.class::cast)
+                .sorted(Comparator.comparing(timer -> timer.getId().toString()))
+                .forEach(timer -> System.out.printf(Locale.ROOT, "%-70s %9d %9.2f %9.2f%n",
+                        describe(timer), timer.count(), timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS)));
+    }
+
+    private static String describe(Timer timer) {
+        StringBuilder name = new StringBuilder(timer.getId().getName());
+        timer.getId().getTags().forEach(tag -> name.append(' ').append(tag.getKey()).append('=').append(tag.getValue()));
+        return name.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.sneakery.loadtest;
+
+import com.sneakery.store.service.GeocodingService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Bean thay thế khi chạy backend trong load test (thêm vào SpringApplication cùng SneakeryApplication)
+ */
+@Configuration
+public class LoadTestConfig {
+
+    /**
+     * Geocoding offline: checkout không gọi Nominatim
+     */
+    @Bean
+    @Primary
+    public GeocodingService offlineGeocodingService() {
+        return new OfflineGeocodingService();
+    }
+}
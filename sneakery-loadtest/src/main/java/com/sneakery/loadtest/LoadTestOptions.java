@@ -0,0 +1,130 @@
+package com.sneakery.loadtest;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tham số dòng lệnh của load test, dạng --key=value
+ *
+ * <p>Dữ liệu: --seed, --brands, --categories, --products, --variants-per-product, --users, --orders,
+ * --history-days, --subscribers. Tải: --virtual-users, --warmup, --duration (giây), --think-ms,
+ * --mix=browse:40,search:25,cart:15,checkout:10,admin:10. Chế độ: --serve (chỉ dựng backend + dữ liệu),
+ * --target=http://host:port (chỉ chạy kịch bản vào backend đang chạy), --sse-subscribers=N (đo heap / kết nối SSE rảnh
+ * thay cho kịch bản). Kết quả: --report=đường dẫn JSON.
+ */
+public record LoadTestOptions(
+        long seed,
+        int brands,
+        int categories,
+        int products,
+        int variantsPerProduct,
+        int users,
+        int orders,
+        int historyDays,
+        int subscribers,
+        int virtualUsers,
+        int warmupSeconds,
+        int durationSeconds,
+        int thinkMillis,
+        Map<Scenario, Integer> mix,
+        int sseSubscribers,
+        boolean serve,
+        String target,
+        Path reportFile
+) {
+
+    private static final int MAX_SSE_CONNECTIONS_PER_USER = 10;
+
+    public enum Scenario {
+        BROWSE, SEARCH, CART, CHECKOUT, ADMIN
+    }
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Tham số không hợp lệ: " + arg + " (dạng --key=value)");
+            }
+            int eq = arg.indexOf('=');
+            values.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                intValue(values, "brands", 20),
+                intValue(values, "categories", 12),
+                intValue(values, "products", 10_000),
+                intValue(values, "variants-per-product", 8),
+                intValue(values, "users", 2_000),
+                intValue(values, "orders", 50_000),
+                intValue(values, "history-days", 365),
+                intValue(values, "subscribers", 0),
+                intValue(values, "virtual-users", 200),
+                intValue(values, "warmup", 15),
+                intValue(values, "duration", 60),
+                intValue(values, "think-ms", 0),
+                parseMix(values.getOrDefault("mix", "browse:40,search:25,cart:15,checkout:10,admin:10")),
+                intValue(values, "sse-subscribers", 0),
+                Boolean.parseBoolean(values.getOrDefault("serve", "false")),
+                values.get("target"),
+                Path.of(values.getOrDefault("report", "target/loadtest/report.json")));
+        options.validate();
+        return options;
+    }
+
+    private void validate() {
+        if (brands < 1 || categories < 1 || products < 1 || users < 1) {
+            throw new IllegalArgumentException("brands, categories, products, users phải >= 1");
+        }
+        if (variantsPerProduct < 1 || variantsPerProduct > 80) {
+            throw new IllegalArgumentException("variants-per-product phải trong khoảng 1-80 (8 màu x 10 size)");
+        }
+        if (orders < 0 || subscribers < 0 || historyDays < 1) {
+            throw new IllegalArgumentException("orders, subscribers phải >= 0 và history-days >= 1");
+        }
+        // Mã đơn ORD-yyyyMMdd-NNNN: tối đa 9999 đơn mỗi ngày
+        if (orders > historyDays * 9_999L) {
+            throw new IllegalArgumentException("orders quá lớn so với history-days (tối đa 9999 đơn / ngày)");
+        }
+        if (virtualUsers < 1 || durationSeconds < 1 || warmupSeconds < 0 || thinkMillis < 0) {
+            throw new IllegalArgumentException("virtual-users, duration phải >= 1; warmup, think-ms phải >= 0");
+        }
+        // Mỗi virtual user đăng nhập bằng một tài khoản riêng (giỏ hàng không bị tranh chấp giữa các luồng)
+        if (virtualUsers > users) {
+            throw new IllegalArgumentException("virtual-users (" + virtualUsers + ") không được lớn hơn users (" + users + ")");
+        }
+        // Heap đo trong JVM của backend; mỗi tài khoản giữ tối đa app.notification.max-connections-per-user (10) kết nối
+        if (sseSubscribers < 0 || sseSubscribers > users * (long) MAX_SSE_CONNECTIONS_PER_USER) {
+            throw new IllegalArgumentException("sse-subscribers phải trong khoảng 0-" + users * (long) MAX_SSE_CONNECTIONS_PER_USER
+                    + " (" + MAX_SSE_CONNECTIONS_PER_USER + " kết nối / tài khoản)");
+        }
+        if (sseSubscribers > 0 && target != null) {
+            throw new IllegalArgumentException("sse-subscribers đo heap trong JVM của backend, không dùng được với --target");
+        }
+    }
+
+    private static int intValue(Map<String, String> values, String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.replace("_", ""));
+    }
+
+    private static Map<Scenario, Integer> parseMix(String value) {
+        Map<Scenario, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("mix không hợp lệ: " + part + " (dạng browse:40)");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(Scenario.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("mix phải có ít nhất một kịch bản có trọng số > 0");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,27 @@
+package com.sneakery.loadtest;
+
+import com.sneakery.store.service.GeocodingService;
+
+/**
+ * Geocoding không gọi mạng cho load test: toạ độ cố định theo hash địa chỉ, rải trong khu vực TP.HCM
+ *
+ * <p>Thay GeocodingService (Nominatim) qua LoadTestConfig, phí ship vẫn được tính đủ các bước
+ * nhưng không phụ thuộc độ trễ / giới hạn tần suất của dịch vụ bên ngoài.
+ */
+public class OfflineGeocodingService extends GeocodingService {
+
+    private static final double BASE_LAT = 10.70;
+    private static final double BASE_LON = 106.60;
+    private static final double SPAN = 0.25;
+
+    @Override
+    public double[] geocode(String address) {
+        if (address == null || address.isBlank()) {
+            return new double[]{0, 0};
+        }
+        int hash = address.hashCode();
+        double lat = BASE_LAT + SPAN * ((hash & 0xFFFF) / 65535.0);
+        double lon = BASE_LON + SPAN * (((hash >>> 16) & 0xFFFF) / 65535.0);
+        return new double[]{lat, lon};
+    }
+}
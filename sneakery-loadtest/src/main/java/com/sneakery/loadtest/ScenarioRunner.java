@@ -0,0 +1,135 @@
+package com.sneakery.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chạy kịch bản tải vào backend qua HTTP: mỗi virtual user một virtual thread, client HTTP dùng chung
+ *
+ * <p>Trình tự: đăng nhập admin + khám phá catalog qua API (không ghi số đo) → các virtual user đăng nhập rải trong
+ * nửa đầu warmup → đo trong --duration giây → gộp kết quả. Chỉ đi qua API nên chạy được vào backend ở process khác
+ * (--target), miễn là dữ liệu được sinh bởi DataGenerator (tài khoản loadtest{n}@sneakery.test).
+ */
+@Slf4j
+public class ScenarioRunner {
+
+    public static final int PAGE_SIZE = 12;
+
+    private static final int DISCOVERY_PAGES = 20;
+    private static final int DISCOVERY_PAGE_SIZE = 100;
+    private static final int DISCOVERY_SKU_PRODUCTS = 50;
+
+    /**
+     * Dữ liệu lấy từ API lúc khởi động để chọn tham số cho kịch bản
+     */
+    public record Catalog(List<String> brands, List<Long> productIds, int pages, List<String> searchTerms,
+                          List<String> skus) {
+    }
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public ScenarioRunner(LoadTestOptions options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+    }
+
+    public LoadReport run() throws InterruptedException {
+        try (ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(httpExecutor)
+                    .build();
+
+            // Giai đoạn chuẩn bị không ghi số đo
+            ApiClient setup = new ApiClient(httpClient, objectMapper, baseUrl, null, 0);
+            if (!setup.login(DataGenerator.ADMIN_EMAIL, DataGenerator.PASSWORD)) {
+                throw new IllegalStateException("Không đăng nhập được " + DataGenerator.ADMIN_EMAIL + " tại " + baseUrl);
+            }
+            String adminToken = setup.accessToken();
+            Catalog catalog = discover(setup);
+            log.info("🔎 Catalog: {} brand, {} sản phẩm mẫu, {} trang, {} SKU mẫu",
+                    catalog.brands().size(), catalog.productIds().size(), catalog.pages(), catalog.skus().size());
+
+            long start = System.nanoTime();
+            long measureStart = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds());
+            long deadline = measureStart + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+            long rampUpNanos = TimeUnit.SECONDS.toNanos(options.warmupSeconds()) / 2;
+
+            List<LatencyRecorder> recorders = new ArrayList<>(options.virtualUsers());
+            log.info("🚀 {} virtual users: warmup {} s, đo {} s, mix {}",
+                    options.virtualUsers(), options.warmupSeconds(), options.durationSeconds(), options.mix());
+            try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < options.virtualUsers(); i++) {
+                    LatencyRecorder recorder = new LatencyRecorder();
+                    recorders.add(recorder);
+                    ApiClient customer = new ApiClient(httpClient, objectMapper, baseUrl, recorder, measureStart);
+                    ApiClient admin = new ApiClient(httpClient, objectMapper, baseUrl, recorder, measureStart);
+                    admin.useToken(adminToken);
+                    long startDelay = rampUpNanos * i / options.virtualUsers();
+                    users.submit(new VirtualUser(i + 1, customer, admin, catalog, options, startDelay, deadline));
+                }
+            }
+            return LoadReport.from(options, recorders, deadline - measureStart);
+        }
+    }
+
+    private Catalog discover(ApiClient client) throws InterruptedException {
+        List<String> brands = new ArrayList<>();
+        JsonNode brandList = client.get("GET /api/products/brands", "/api/products/brands");
+        if (brandList != null) {
+            brandList.forEach(brand -> brands.add(brand.path("name").asText()));
+        }
+
+        List<Long> productIds = new ArrayList<>();
+        Set<String> searchTerms = new LinkedHashSet<>();
+        int pages = 1;
+        for (int page = 0; page < DISCOVERY_PAGES; page++) {
+            JsonNode list = client.get("GET /api/products", "/api/products?page=" + page + "&size=" + DISCOVERY_PAGE_SIZE);
+            if (list == null) {
+                break;
+            }
+            if (page == 0) {
+                long total = list.path("totalElements").asLong();
+                pages = (int) Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+            }
+            for (JsonNode product : list.path("content")) {
+                productIds.add(product.path("id").asLong());
+                for (String word : product.path("name").asText().split("\\s+")) {
+                    if (word.length() >= 3 && !Character.isDigit(word.charAt(0))) {
+                        searchTerms.add(word.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            if (list.path("last").asBoolean(true)) {
+                break;
+            }
+        }
+        if (brands.isEmpty() || productIds.isEmpty()) {
+            throw new IllegalStateException("Backend tại " + baseUrl + " chưa có dữ liệu (brand / sản phẩm)");
+        }
+
+        List<String> skus = new ArrayList<>();
+        for (int i = 0; i < Math.min(DISCOVERY_SKU_PRODUCTS, productIds.size()); i++) {
+            JsonNode product = client.get("GET /api/products/{id}", "/api/products/" + productIds.get(i));
+            if (product != null) {
+                product.path("variants").forEach(variant -> skus.add(variant.path("sku").asText()));
+            }
+        }
+        return new Catalog(brands, productIds, pages, new ArrayList<>(searchTerms), skus);
+    }
+}
@@ -0,0 +1,172 @@
+package com.sneakery.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sneakery.store.security.SseTicketProvider;
+import com.sneakery.store.service.NotificationPushService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Đo heap phía server cho mỗi kết nối SSE rảnh (/api/notifications/stream), chạy bằng --sse-subscribers=N
+ *
+ * <p>Mở N kết nối vào backend cùng JVM, ticket ký thẳng bằng SseTicketProvider (không đăng nhập, không băm BCrypt),
+ * chia vòng tròn cho các tài khoản loadtest{n}. Client là java.net.Socket gửi request rồi không đọc nữa:
+ * phía client chỉ tốn vài trăm byte heap mỗi kết nối, buffer socket nằm trong kernel.
+ *
+ * <p>Heap đo sau System.gc() tại ba mốc: trước khi mở, sau N/2 và sau N kết nối (đã đăng ký trong
+ * NotificationPushService). Byte / subscriber lấy theo nửa sau để loại chi phí một lần của những kết nối đầu
+ * (nạp class, khởi tạo pool, bộ đếm unread).
+ */
+@Slf4j
+public class SseIdleProbe {
+
+    private static final String HOST = "localhost";
+    private static final String STREAM_PATH = "/api/notifications/stream?ticket=";
+    private static final Duration REGISTER_TIMEOUT = Duration.ofSeconds(60);
+    private static final int GC_ROUNDS = 3;
+
+    /**
+     * Kết quả đo: heap đã dùng (byte) sau GC tại từng mốc
+     */
+    public record Result(
+            int subscribers,
+            long heapBeforeBytes,
+            long heapHalfBytes,
+            long heapAfterBytes,
+            double openSeconds
+    ) {
+
+        /**
+         * Byte heap / subscriber theo nửa sau (đã loại chi phí một lần)
+         */
+        @JsonProperty
+        public double bytesPerSubscriber() {
+            int secondHalf = subscribers - subscribers / 2;
+            return (heapAfterBytes - heapHalfBytes) / (double) secondHalf;
+        }
+
+        /**
+         * Byte heap / subscriber tính trên cả N kết nối (gồm chi phí một lần)
+         */
+        @JsonProperty
+        public double bytesPerSubscriberOverall() {
+            return (heapAfterBytes - heapBeforeBytes) / (double) subscribers;
+        }
+
+        public void print(PrintStream out) {
+            out.printf(Locale.ROOT, "%n📡 SSE idle: %d kết nối, mở trong %.1f s%n", subscribers, openSeconds);
+            out.printf(Locale.ROOT, "%-40s %12.1f MB%n", "heap trước khi mở", heapBeforeBytes / 1e6);
+            out.printf(Locale.ROOT, "%-40s %12.1f MB%n", "heap sau N/2 kết nối", heapHalfBytes / 1e6);
+            out.printf(Locale.ROOT, "%-40s %12.1f MB%n", "heap sau N kết nối", heapAfterBytes / 1e6);
+            out.printf(Locale.ROOT, "%-40s %12.0f byte%n", "heap / subscriber (nửa sau)", bytesPerSubscriber());
+            out.printf(Locale.ROOT, "%-40s %12.0f byte%n", "heap / subscriber (cả N)", bytesPerSubscriberOverall());
+        }
+
+        public void writeJson(Path file) throws IOException {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            new ObjectMapper()
+                    .enable(SerializationFeature.INDENT_OUTPUT)
+                    .writeValue(file.toFile(), this);
+        }
+    }
+
+    private final LoadTestOptions options;
+    private final int port;
+    private final SseTicketProvider ticketProvider;
+    private final NotificationPushService pushService;
+
+    public SseIdleProbe(LoadTestOptions options, int port,
+                        SseTicketProvider ticketProvider, NotificationPushService pushService) {
+        this.options = options;
+        this.port = port;
+        this.ticketProvider = ticketProvider;
+        this.pushService = pushService;
+    }
+
+    public Result run() throws IOException, InterruptedException {
+        int subscribers = options.sseSubscribers();
+        List<Socket> sockets = new ArrayList<>(subscribers);
+        int baseline = pushService.getConnectionCount();
+        log.info("📡 Mở {} kết nối SSE rảnh vào {}:{}", subscribers, HOST, port);
+        try {
+            long heapBefore = usedHeapAfterGc();
+
+            long started = System.nanoTime();
+            open(sockets, subscribers / 2, baseline);
+            long halfNanos = System.nanoTime() - started;
+            long heapHalf = usedHeapAfterGc();
+
+            started = System.nanoTime();
+            open(sockets, subscribers, baseline);
+            long secondHalfNanos = System.nanoTime() - started;
+            long heapAfter = usedHeapAfterGc();
+
+            return new Result(subscribers, heapBefore, heapHalf, heapAfter, (halfNanos + secondHalfNanos) / 1e9);
+        } finally {
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Đóng khi kết thúc đo, lỗi không ảnh hưởng kết quả
+                }
+            }
+        }
+    }
+
+    /**
+     * Mở thêm kết nối cho tới khi đủ target, rồi chờ server đăng ký xong emitter
+     */
+    private void open(List<Socket> sockets, int target, int baseline) throws IOException, InterruptedException {
+        while (sockets.size() < target) {
+            String email = DataGenerator.userEmail(sockets.size() % options.users() + 1);
+            String ticket = URLEncoder.encode(ticketProvider.createTicket(email), StandardCharsets.UTF_8);
+            Socket socket = new Socket(HOST, port);
+            sockets.add(socket);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + STREAM_PATH + ticket + " HTTP/1.1\r\n"
+                    + "Host: " + HOST + ":" + port + "\r\n"
+                    + "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+        awaitRegistered(baseline + target);
+    }
+
+    private void awaitRegistered(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + REGISTER_TIMEOUT.toNanos();
+        while (pushService.getConnectionCount() < expected) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("Server chỉ đăng ký " + pushService.getConnectionCount() + " / " + expected
+                        + " kết nối SSE sau " + REGISTER_TIMEOUT.toSeconds()
+                        + " s (kiểm tra LOADTEST_MAX_CONNECTIONS và ulimit -n)");
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,226 @@
+package com.sneakery.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sneakery.loadtest.LoadTestOptions.Scenario;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Một khách hàng giả lập chạy trên virtual thread: đăng nhập bằng tài khoản riêng rồi lặp các kịch bản
+ * theo trọng số (--mix) tới hết thời gian đo
+ *
+ * <ul>
+ *   <li>BROWSE: trang danh sách → chi tiết sản phẩm → sản phẩm liên quan → thường mua cùng</li>
+ *   <li>SEARCH: lọc theo brand, lọc facet (brand + size + giá + còn hàng), gõ ô tìm kiếm (suggest theo từng ký tự)</li>
+ *   <li>CART: xem sản phẩm → thêm 1-2 biến thể vào giỏ → xem giỏ; giỏ quá 6 dòng thì xóa (bỏ giỏ)</li>
+ *   <li>CHECKOUT: thêm vào giỏ → đặt hàng COD → xem lịch sử đơn</li>
+ *   <li>ADMIN: dashboard, doanh thu / doanh số 30 ngày, danh sách đơn, lưới biến thể, quét mã POS (token admin)</li>
+ * </ul>
+ */
+public class VirtualUser implements Runnable {
+
+    private static final String[] PRICE_RANGES = {"1000000-2000000", "2000000-3000000", "3000000-5000000", "5000000+"};
+    private static final int MAX_CART_LINES = 6;
+
+    private final int userNumber;
+    private final ApiClient customer;
+    private final ApiClient admin;
+    private final ScenarioRunner.Catalog catalog;
+    private final LoadTestOptions options;
+    private final SplittableRandom random;
+    private final long startDelayNanos;
+    private final long deadlineNanos;
+    private final Scenario[] scenarios;
+    private final int[] cumulativeWeights;
+
+    private Long addressId;
+    private int cartLines;
+
+    public VirtualUser(int userNumber, ApiClient customer, ApiClient admin, ScenarioRunner.Catalog catalog,
+                       LoadTestOptions options, long startDelayNanos, long deadlineNanos) {
+        this.userNumber = userNumber;
+        this.customer = customer;
+        this.admin = admin;
+        this.catalog = catalog;
+        this.options = options;
+        this.random = new SplittableRandom(options.seed() * 31 + userNumber);
+        this.startDelayNanos = startDelayNanos;
+        this.deadlineNanos = deadlineNanos;
+
+        Map<Scenario, Integer> mix = options.mix();
+        this.scenarios = mix.keySet().toArray(new Scenario[0]);
+        this.cumulativeWeights = new int[scenarios.length];
+        int sum = 0;
+        for (int i = 0; i < scenarios.length; i++) {
+            sum += mix.get(scenarios[i]);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Dàn đều lượt đăng nhập (BCrypt) trong nửa đầu warmup thay vì dồn vào cùng một thời điểm
+            TimeUnit.NANOSECONDS.sleep(startDelayNanos);
+            if (!customer.login(DataGenerator.userEmail(userNumber), DataGenerator.PASSWORD)) {
+                return;
+            }
+            JsonNode addresses = customer.get("GET /api/addresses", "/api/addresses");
+            if (addresses != null && addresses.isArray() && !addresses.isEmpty()) {
+                addressId = addresses.get(0).path("id").asLong();
+            }
+            while (System.nanoTime() - deadlineNanos < 0) {
+                try {
+                    runScenario(nextScenario());
+                } catch (RuntimeException e) {
+                    // Response khác dạng mong đợi: bỏ qua vòng này, lỗi HTTP đã được ghi trong ApiClient
+                }
+                if (options.thinkMillis() > 0) {
+                    Thread.sleep(options.thinkMillis() / 2 + random.nextInt(options.thinkMillis() + 1));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Scenario nextScenario() {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return scenarios[i];
+            }
+        }
+        return scenarios[scenarios.length - 1];
+    }
+
+    private void runScenario(Scenario scenario) throws InterruptedException {
+        switch (scenario) {
+            case BROWSE -> browse();
+            case SEARCH -> search();
+            case CART -> cart();
+            case CHECKOUT -> checkout();
+            case ADMIN -> adminDashboards();
+        }
+    }
+
+    private void browse() throws InterruptedException {
+        // Phần lớn khách chỉ xem vài trang đầu
+        int page = random.nextInt(10) < 7 ? random.nextInt(3) : random.nextInt(Math.max(1, catalog.pages()));
+        JsonNode list = customer.get("GET /api/products", "/api/products?page=" + page + "&size=" + ScenarioRunner.PAGE_SIZE);
+        long productId = randomId(list != null ? list.path("content") : null);
+        customer.get("GET /api/products/{id}", "/api/products/" + productId);
+        customer.get("GET /api/products/{id}/related", "/api/products/" + productId + "/related");
+        customer.get("GET /api/products/{id}/bought-together", "/api/products/" + productId + "/bought-together");
+    }
+
+    private void search() throws InterruptedException {
+        String brand = pick(catalog.brands());
+        customer.get("GET /api/products/search", "/api/products/search?brand=" + encode(brand) + "&page=0&size=20");
+        customer.get("GET /api/products/facets", "/api/products/facets?brand=" + encode(brand)
+                + "&shoeSize=" + (36 + random.nextInt(10))
+                + "&price=" + encode(PRICE_RANGES[random.nextInt(PRICE_RANGES.length)])
+                + "&stock=in_stock&page=0&size=20");
+
+        // Gõ từng ký tự của một từ trong tên sản phẩm
+        String query = pick(catalog.searchTerms());
+        for (int length = 2; length <= Math.min(query.length(), 5); length++) {
+            customer.get("GET /api/products/suggest", "/api/products/suggest?q="
+                    + encode(query.substring(0, length)) + "&limit=8");
+        }
+    }
+
+    private void cart() throws InterruptedException {
+        addToCart(1 + random.nextInt(2));
+        customer.get("GET /api/cart", "/api/cart");
+        if (cartLines >= MAX_CART_LINES) {
+            customer.delete("DELETE /api/cart", "/api/cart");
+            cartLines = 0;
+        }
+    }
+
+    private void checkout() throws InterruptedException {
+        if (addressId == null || addToCart(1 + random.nextInt(2)) == 0) {
+            return;
+        }
+        JsonNode order = customer.post("POST /api/orders/checkout", "/api/orders/checkout",
+                Map.of("addressShippingId", addressId, "paymentMethod", "cod"));
+        if (order != null) {
+            cartLines = 0;
+        }
+        customer.get("GET /api/orders", "/api/orders");
+    }
+
+    private void adminDashboards() throws InterruptedException {
+        admin.get("GET /api/admin/dashboard/stats", "/api/admin/dashboard/stats");
+        admin.get("GET /api/admin/analytics/revenue", "/api/admin/analytics/revenue?period=30d");
+        admin.get("GET /api/admin/analytics/sales", "/api/admin/analytics/sales?period=30d");
+        admin.get("GET /api/admin/analytics/order-status", "/api/admin/analytics/order-status");
+        admin.get("GET /api/admin/orders", "/api/admin/orders?page=0&size=20");
+        admin.get("GET /api/admin/product-variants", "/api/admin/product-variants?page=0&size=50&sortBy=sku"
+                + "&variantSize=" + (36 + random.nextInt(10)));
+        if (!catalog.skus().isEmpty()) {
+            admin.get("GET /api/admin/pos/scan", "/api/admin/pos/scan?code=" + encode(pick(catalog.skus())));
+        }
+    }
+
+    /**
+     * Thêm tối đa count biến thể còn hàng vào giỏ, trả về số dòng thêm thành công
+     */
+    private int addToCart(int count) throws InterruptedException {
+        int added = 0;
+        for (int i = 0; i < count; i++) {
+            long productId = pick(catalog.productIds());
+            JsonNode product = customer.get("GET /api/products/{id}", "/api/products/" + productId);
+            Long variantId = inStockVariant(product);
+            if (variantId == null) {
+                continue;
+            }
+            JsonNode cart = customer.post("POST /api/cart/item", "/api/cart/item",
+                    Map.of("variantId", variantId, "quantity", 1));
+            if (cart != null) {
+                added++;
+                cartLines++;
+            }
+        }
+        return added;
+    }
+
+    private Long inStockVariant(JsonNode product) {
+        if (product == null || !product.path("variants").isArray() || product.path("variants").isEmpty()) {
+            return null;
+        }
+        JsonNode variants = product.path("variants");
+        int start = random.nextInt(variants.size());
+        for (int i = 0; i < variants.size(); i++) {
+            JsonNode variant = variants.get((start + i) % variants.size());
+            int available = variant.hasNonNull("availableStock")
+                    ? variant.path("availableStock").asInt()
+                    : variant.path("stockQuantity").asInt();
+            if (available > 0) {
+                return variant.path("id").asLong();
+            }
+        }
+        return null;
+    }
+
+    private long randomId(JsonNode content) {
+        if (content != null && content.isArray() && !content.isEmpty()) {
+            return content.get(random.nextInt(content.size())).path("id").asLong();
+        }
+        return pick(catalog.productIds());
+    }
+
+    private <T> T pick(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
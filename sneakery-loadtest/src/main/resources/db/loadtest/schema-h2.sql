@@ -0,0 +1,40 @@
+-- Bảng chỉ đọc / ghi qua JdbcTemplate (không có entity nên Hibernate không tạo), chuyển từ migration T-SQL sang H2
+-- Nguồn: V32 (Scheduler_Locks), V37 (Newsletter_Deliveries), V41 (Variant_Restock_Stats)
+
+-- SYSDATETIME() của SQL Server (SchedulerLockService, NewsletterCampaignService, ... gọi trong SQL)
+CREATE ALIAS IF NOT EXISTS SYSDATETIME FOR 'java.time.LocalDateTime.now';
+
+CREATE TABLE IF NOT EXISTS Scheduler_Locks (
+    lock_name NVARCHAR(100) NOT NULL PRIMARY KEY,
+    locked_until DATETIME2 NOT NULL,
+    locked_at DATETIME2 NOT NULL,
+    locked_by NVARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS Newsletter_Deliveries (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    campaign_id BIGINT NOT NULL,
+    subscription_id BIGINT NOT NULL,
+    email NVARCHAR(255) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'queued',
+    attempts INT NOT NULL DEFAULT 0,
+    error NVARCHAR(500) NULL,
+    created_at DATETIME2 DEFAULT CURRENT_TIMESTAMP,
+    sent_at DATETIME2 NULL,
+    CONSTRAINT uq_newsletter_deliveries_recipient UNIQUE (campaign_id, subscription_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_newsletter_deliveries_queue ON Newsletter_Deliveries(campaign_id, status, id);
+
+CREATE TABLE IF NOT EXISTS Variant_Restock_Stats (
+    variant_id BIGINT NOT NULL PRIMARY KEY,
+    velocity FLOAT NOT NULL,
+    velocity_date DATE NOT NULL,
+    days_of_cover FLOAT NULL,
+    suggested_quantity INT NOT NULL DEFAULT 0,
+    updated_at DATETIME2 DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Index của migration cho các truy vấn trong kịch bản (Hibernate chỉ tạo PK / unique / FK)
+CREATE INDEX IF NOT EXISTS idx_orders_status_created_at ON Orders(status, created_at);
+CREATE INDEX IF NOT EXISTS idx_variant_sizes_size ON Variant_Sizes(size, variant_id);